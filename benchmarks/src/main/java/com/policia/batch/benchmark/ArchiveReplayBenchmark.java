@@ -0,0 +1,138 @@
+package com.policia.batch.benchmark;
+
+import com.policia.batch.archive.MessageArchive;
+import com.policia.batch.archive.MessageArchiveReader;
+import com.policia.batch.exception.InvalidDataException;
+import com.policia.batch.metrics.PoliciaMetrics;
+import com.policia.batch.model.QueueMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.jms.BytesMessage;
+import javax.jms.DeliveryMode;
+import javax.jms.Message;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Replay del archivo de mensajes crudos: lectura mapeada y descompresión de un archivo, solo o
+ * seguida del processor (sin writer; el costo del MERGE está en PipelineBenchmark).
+ *
+ * El archivo se arma al inicio con el corpus MIXED y mensajes JMS con las cabeceras y propiedades
+ * habituales de MQ; compression-level es el nivel Deflate del archivo (archive.compression-level).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+@OperationsPerInvocation(ArchiveReplayBenchmark.CORPUS_SIZE)
+public class ArchiveReplayBenchmark {
+
+    static final int CORPUS_SIZE = 16384;
+
+    @Param({"1", "6"})
+    public int compressionLevel;
+
+    private PipelineFixture fixture;
+    private Path directory;
+    private MessageArchiveReader reader;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        fixture = new PipelineFixture(false);
+        directory = Files.createTempDirectory("policia-archive-bench");
+
+        MessageArchive archive = new MessageArchive(PoliciaMetrics.standalone(false), true, directory.toString(),
+                                                    1L << 30, 1 << 20, compressionLevel);
+        byte[][] payloads = MessageCorpus.generate(MessageCorpus.Kind.MIXED, CORPUS_SIZE, 7L);
+        long timestamp = System.currentTimeMillis();
+        for (int i = 0; i < payloads.length; i++) {
+            String messageId = String.format("ID:414d51204d514144455341%024d", i);
+            archive.append(new QueueMessage("NOTIFICA.EOL.RTA", messageId, payloads[i], timestamp),
+                           jmsMessage(timestamp));
+        }
+        archive.destroy();
+
+        reader = MessageArchiveReader.open(MessageArchiveReader.list(directory).get(0));
+    }
+
+    /**
+     * BytesMessage de MQ con las cabeceras que se archivan
+     */
+    private static Message jmsMessage(long timestamp) {
+        return (Message) Proxy.newProxyInstance(ArchiveReplayBenchmark.class.getClassLoader(),
+                                                new Class<?>[]{BytesMessage.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getJMSTimestamp":
+                    return timestamp;
+                case "getJMSExpiration":
+                    return 0L;
+                case "getJMSPriority":
+                    return 4;
+                case "getJMSDeliveryMode":
+                    return DeliveryMode.PERSISTENT;
+                case "getJMSRedelivered":
+                    return false;
+                case "getPropertyNames":
+                    return Collections.enumeration(List.of("JMSXDeliveryCount", "JMSXAppID"));
+                case "getObjectProperty":
+                    return "JMSXDeliveryCount".equals(args[0]) ? (Object) 1 : "SIIAP.EOL";
+                default:
+                    return null;
+            }
+        });
+    }
+
+    @Benchmark
+    public int decode() throws IOException {
+        int[] count = new int[1];
+        reader.forEach(0L, Long.MAX_VALUE, message -> count[0] += message.getPayload().length);
+        return count[0];
+    }
+
+    @Benchmark
+    public int process() throws IOException {
+        int[] accepted = new int[1];
+        reader.forEach(0L, Long.MAX_VALUE, message -> {
+            try {
+                if (fixture.processor.process(message.toQueueMessage()) != null) {
+                    accepted[0]++;
+                }
+            } catch (InvalidDataException e) {
+                // Rechazo esperado del corpus MIXED
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        return accepted[0];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        reader.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
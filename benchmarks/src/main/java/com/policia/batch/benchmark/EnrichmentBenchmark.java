@@ -0,0 +1,76 @@
+package com.policia.batch.benchmark;
+
+import com.policia.batch.exception.InvalidDataException;
+import com.policia.batch.model.PoliciaRecord;
+import com.policia.batch.model.QueueMessage;
+import com.policia.batch.writer.PoliciaDataWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo del enriquecimiento por unidad en el write de un chunk, sobre H2 en memoria.
+ *
+ * none escribe sin las columnas de referencia, cached resuelve las unidades desde la caché (la
+ * tabla se consulta solo en el primer chunk) y query las consulta en cada chunk con una sola
+ * sentencia IN (vencimiento de 1 ms). round-trip-us agrega una espera por viaje a la base para
+ * aproximar un Oracle remoto.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+@OperationsPerInvocation(PipelineBenchmark.CHUNK_SIZE)
+public class EnrichmentBenchmark {
+
+    @Param({"none", "cached", "query"})
+    public String enrichment;
+
+    @Param({"0", "500"})
+    public long roundTripMicros;
+
+    private PoliciaDataWriter dataWriter;
+    private final List<PoliciaRecord> chunk = new ArrayList<>(PipelineBenchmark.CHUNK_SIZE);
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        PipelineFixture fixture = new PipelineFixture(true);
+        long ttlMillis = "cached".equals(enrichment) ? TimeUnit.HOURS.toMillis(1) : "query".equals(enrichment) ? 1L : 0L;
+        dataWriter = fixture.h2Writer(new LatencyDataSource(PipelineFixture.h2DataSource(), roundTripMicros),
+                                      ttlMillis);
+
+        byte[][] payloads = MessageCorpus.generate(MessageCorpus.Kind.VALID, PipelineBenchmark.CHUNK_SIZE, 7L);
+        for (int i = 0; i < payloads.length; i++) {
+            try {
+                Object record = fixture.processor.process(new QueueMessage("NOTIFICA.EOL.RTA", "ID:" + i, payloads[i]));
+                if (record != null) {
+                    chunk.add((PoliciaRecord) record);
+                }
+            } catch (InvalidDataException e) {
+                // El corpus VALID no tiene rechazos
+            }
+        }
+    }
+
+    @Benchmark
+    public int write() throws Exception {
+        dataWriter.write(chunk);
+        return chunk.size();
+    }
+}
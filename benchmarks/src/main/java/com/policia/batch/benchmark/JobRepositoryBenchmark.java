@@ -0,0 +1,138 @@
+package com.policia.batch.benchmark;
+
+import com.policia.batch.config.LightweightJobRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.JobRepositoryFactoryBean;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo por chunk del job repository: lo que el step escribe en cada commit (contexto del reader y
+ * contadores de BATCH_STEP_EXECUTION) con el repositorio JDBC y con el liviano.
+ *
+ * Con chunks chicos el job repository domina el commit. round-trip-us agrega una espera por viaje a
+ * la base para aproximar un Oracle remoto; en H2 en memoria los UPDATE cuestan casi nada. El step
+ * termina al final de cada iteración con la escritura sincrónica del estado final.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class JobRepositoryBenchmark {
+
+    private static final String JOB_NAME = "policiaXmlProcessingJob";
+    private static final String QUEUE = "NOTIFICA.EOL.RTA";
+
+    @Param({"jdbc", "lightweight"})
+    public String mode;
+
+    @Param({"0", "500"})
+    public long roundTripMicros;
+
+    private JobRepository repository;
+    private TransactionTemplate transactionTemplate;
+    private StepExecution stepExecution;
+    private long iteration;
+    private long read;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        DataSource h2 = PipelineFixture.h2DataSource();
+        new JdbcTemplate(h2).execute(PipelineFixture.script("/org/springframework/batch/core/schema-h2.sql"));
+        DataSource dataSource = new LatencyDataSource(h2, roundTripMicros);
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        JobRepositoryFactoryBean factory = new JobRepositoryFactoryBean();
+        factory.setDataSource(dataSource);
+        factory.setTransactionManager(transactionManager);
+        factory.setDatabaseType("H2");
+        factory.afterPropertiesSet();
+
+        JobRepository jdbc = factory.getObject();
+        repository = "lightweight".equals(mode) ? new LightweightJobRepository(jdbc, 1000, 5000) : jdbc;
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Setup(Level.Iteration)
+    public void startStep() throws Exception {
+        JobExecution jobExecution = repository.createJobExecution(JOB_NAME, new JobParametersBuilder()
+                .addLong("iteration", ++iteration)
+                .toJobParameters());
+        jobExecution.setStatus(BatchStatus.STARTED);
+        jobExecution.setStartTime(new Date());
+        repository.update(jobExecution);
+
+        stepExecution = jobExecution.createStepExecution("processXmlStep");
+        stepExecution.setStatus(BatchStatus.STARTED);
+        stepExecution.setStartTime(new Date());
+        repository.add(stepExecution);
+        read = 0;
+    }
+
+    /**
+     * Un commit de chunk, como lo hace TaskletStep: contexto del reader, contadores y UPDATE del step
+     */
+    @Benchmark
+    public int chunk() {
+        return transactionTemplate.execute(status -> {
+            read++;
+            ExecutionContext context = stepExecution.getExecutionContext();
+            context.putString("reader.queue", QUEUE);
+            context.putLong("reader." + QUEUE + ".read", read);
+            context.putString("reader." + QUEUE + ".lastMessageId", "ID:" + read);
+            stepExecution.setReadCount((int) read);
+            stepExecution.setWriteCount((int) read);
+            repository.updateExecutionContext(stepExecution);
+            stepExecution.incrementCommitCount();
+            repository.update(stepExecution);
+            return stepExecution.getCommitCount();
+        });
+    }
+
+    @TearDown(Level.Iteration)
+    public void endStep() {
+        stepExecution.setStatus(BatchStatus.COMPLETED);
+        stepExecution.setExitStatus(ExitStatus.COMPLETED);
+        stepExecution.setEndTime(new Date());
+        repository.updateExecutionContext(stepExecution);
+        repository.update(stepExecution);
+
+        JobExecution jobExecution = stepExecution.getJobExecution();
+        jobExecution.setStatus(BatchStatus.COMPLETED);
+        jobExecution.setEndTime(new Date());
+        repository.update(jobExecution);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (repository instanceof LightweightJobRepository) {
+            ((LightweightJobRepository) repository).shutdown();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.policia.batch.benchmark;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * DataSource que agrega una espera fija por viaje a la base (cada execute* y cada commit), para
+ * aproximar un Oracle remoto con una base H2 en memoria
+ */
+final class LatencyDataSource implements DataSource {
+
+    private final DataSource target;
+    private final long roundTripNanos;
+
+    LatencyDataSource(DataSource target, long roundTripMicros) {
+        this.target = target;
+        this.roundTripNanos = TimeUnit.MICROSECONDS.toNanos(roundTripMicros);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(target.getConnection(), Connection.class);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(target.getConnection(username, password), Connection.class);
+    }
+
+    private <T> T wrap(T delegate, Class<T> type) {
+        if (roundTripNanos == 0) {
+            return delegate;
+        }
+        InvocationHandler handler = (proxy, method, args) -> invoke(delegate, method, args);
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private Object invoke(Object delegate, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        if (name.startsWith("execute") || name.equals("commit") || name.equals("rollback")) {
+            LockSupport.parkNanos(roundTripNanos);
+        }
+        Object result;
+        try {
+            result = method.invoke(delegate, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+        if (result instanceof CallableStatement) {
+            return wrap((CallableStatement) result, CallableStatement.class);
+        }
+        if (result instanceof PreparedStatement) {
+            return wrap((PreparedStatement) result, PreparedStatement.class);
+        }
+        if (result instanceof Statement) {
+            return wrap((Statement) result, Statement.class);
+        }
+        return result;
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return target.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        target.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        target.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return target.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() {
+        return Logger.getLogger("global");
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return target.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return target.isWrapperFor(iface);
+    }
+}
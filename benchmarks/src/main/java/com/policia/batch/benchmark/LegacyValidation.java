@@ -0,0 +1,52 @@
+package com.policia.batch.benchmark;
+
+import com.policia.batch.exception.InvalidDataException;
+import com.policia.batch.model.PoliciaData;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Validación anterior a PoliciaRuleEngine (Bean Validation + regex + búsqueda de rangos),
+ * conservada solo como línea base del benchmark. Sin logs, para comparar únicamente las reglas.
+ */
+final class LegacyValidation {
+
+    private static final String[] RANGOS_VALIDOS = {"AGENTE", "CABO", "SARGENTO", "TENIENTE", "CAPITAN", "MAYOR", "CORONEL"};
+
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    void validate(PoliciaData policiaData, Supplier<String> xmlContent) {
+        Set<ConstraintViolation<PoliciaData>> violations = validator.validate(policiaData);
+
+        if (!violations.isEmpty()) {
+            StringBuilder errorMessage = new StringBuilder("Errores de validación de datos: ");
+            for (ConstraintViolation<PoliciaData> violation : violations) {
+                errorMessage.append(String.format("[%s: %s] ",
+                    violation.getPropertyPath(),
+                    violation.getMessage()));
+            }
+            throw new InvalidDataException(errorMessage.toString(), xmlContent.get());
+        }
+
+        if (policiaData.getId() != null && !policiaData.getId().matches("^POL\\d{6}$")) {
+            throw new InvalidDataException("ID de policía debe tener formato POL seguido de 6 dígitos: " +
+                                           policiaData.getId(), xmlContent.get());
+        }
+
+        boolean rangoValido = false;
+        for (String rango : RANGOS_VALIDOS) {
+            if (rango.equalsIgnoreCase(policiaData.getRango())) {
+                rangoValido = true;
+                break;
+            }
+        }
+        if (!rangoValido) {
+            throw new InvalidDataException("Rango inválido: " + policiaData.getRango() +
+                                           ". Rangos válidos: " + String.join(", ", RANGOS_VALIDOS), xmlContent.get());
+        }
+    }
+}
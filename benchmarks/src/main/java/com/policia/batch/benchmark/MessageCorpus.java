@@ -0,0 +1,136 @@
+package com.policia.batch.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Corpus generado de mensajes de la cola, reproducible (semilla fija) para que las corridas sean comparables.
+ *
+ * Cada tipo reproduce un caso real de las colas RTA/MAS: el XML canónico, los prefijos de
+ * transporte ("Trx:", BOM...), textos con acentos como los de src/main/resources/examples,
+ * XML mal formado, datos que no pasan las reglas de negocio y payloads sobredimensionados.
+ */
+public final class MessageCorpus {
+
+    public enum Kind {
+        VALID,      // Formato canónico, ruta rápida del decodificador
+        PREFIXED,   // Prefijos de transporte, BOM y espacios antes del XML
+        ACCENTED,   // Nombres y unidades con acentos y eñes (UTF-8 multibyte)
+        MALFORMED,  // Etiquetas sin cerrar o basura (MalformedXmlException)
+        INVALID,    // XML bien formado que no pasa las reglas (InvalidDataException)
+        OVERSIZED,  // Payload grande con comentarios y espacios (ruta StAX)
+        MIXED       // Mezcla con la proporción típica de producción
+    }
+
+    private static final String[] RANGOS = {"AGENTE", "CABO", "SARGENTO", "TENIENTE", "CAPITAN", "MAYOR", "CORONEL"};
+    private static final String[] UNIDADES = {"Comisaría Central", "Unidad Norte", "Unidad Sur", "Unidad Central Metro",
+                                              "Brigada Móvil", "Prefectura Oriente"};
+    private static final String[] NOMBRES = {"Juan", "María", "Carlos", "Ana", "Pedro", "Lucía", "José", "Camila"};
+    private static final String[] APELLIDOS = {"Pérez", "González", "López", "Muñoz", "Rojas", "Díaz", "Núñez", "Araya"};
+    private static final String[] PREFIXES = {"Trx:", "TRX: ", "MSG:", "Data:", "\uFEFF", "Trx:\uFEFF", "  \n"};
+
+    private static final int OVERSIZED_BYTES = 64 * 1024;
+
+    private MessageCorpus() {
+    }
+
+    /**
+     * Genera count mensajes del tipo indicado
+     */
+    public static byte[][] generate(Kind kind, int count, long seed) {
+        Random random = new Random(seed);
+        byte[][] messages = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            messages[i] = message(kind == Kind.MIXED ? mixedKind(random) : kind, i, random);
+        }
+        return messages;
+    }
+
+    /**
+     * Producción: la gran mayoría válidos, algunos con prefijo o acentos y pocos errores
+     */
+    private static Kind mixedKind(Random random) {
+        int roll = random.nextInt(100);
+        if (roll < 70) {
+            return Kind.VALID;
+        }
+        if (roll < 85) {
+            return Kind.ACCENTED;
+        }
+        if (roll < 95) {
+            return Kind.PREFIXED;
+        }
+        if (roll < 97) {
+            return Kind.OVERSIZED;
+        }
+        return roll < 99 ? Kind.INVALID : Kind.MALFORMED;
+    }
+
+    private static byte[] message(Kind kind, int index, Random random) {
+        String id = String.format("POL%06d", random.nextInt(1_000_000));
+        String rango = RANGOS[random.nextInt(RANGOS.length)];
+        switch (kind) {
+            case VALID:
+                return utf8(xml(id, "Juan Perez Garcia " + index, rango, "Unidad Central", "ACTIVO"));
+            case PREFIXED:
+                return utf8(PREFIXES[index % PREFIXES.length]
+                            + xml(id, "Juan Perez Garcia " + index, rango, "Unidad Central", "ACTIVO"));
+            case ACCENTED:
+                return utf8(xml(id, nombre(random), rango, UNIDADES[random.nextInt(UNIDADES.length)], "ACTIVO"));
+            case MALFORMED:
+                return utf8(index % 2 == 0
+                            ? "<?xml version=\"1.0\" encoding=\"UTF-8\"?><policia-data><id>" + id + "</id>"
+                              + "<nombre>Juan Pérez</nombre><rango>" + rango + "</rango><unidad>Unidad Central"
+                            : "INVALID_XML_MALFORMED");
+            case INVALID:
+                return utf8(xml("INVALID_ID_FORMAT", "", "RANGO_INEXISTENTE", "Unidad Central", "ACTIVO"));
+            case OVERSIZED:
+                return oversized(id, rango, random);
+            default:
+                throw new IllegalArgumentException("Tipo de mensaje no soportado: " + kind);
+        }
+    }
+
+    private static String nombre(Random random) {
+        return NOMBRES[random.nextInt(NOMBRES.length)] + " " + APELLIDOS[random.nextInt(APELLIDOS.length)] + " "
+               + APELLIDOS[random.nextInt(APELLIDOS.length)];
+    }
+
+    private static String xml(String id, String nombre, String rango, String unidad, String estado) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?><policia-data><id>" + id + "</id><nombre>" + nombre
+               + "</nombre><rango>" + rango + "</rango><unidad>" + unidad + "</unidad><estado>" + estado
+               + "</estado></policia-data>";
+    }
+
+    /**
+     * Documento válido de ~64 KB: bloques de comentario y sangría entre los campos
+     */
+    private static byte[] oversized(String id, String rango, Random random) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(OVERSIZED_BYTES + 512);
+        write(out, "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<policia-data>\n");
+        StringBuilder filler = new StringBuilder();
+        while (out.size() < OVERSIZED_BYTES) {
+            filler.setLength(0);
+            filler.append("    <!-- traza ").append(random.nextLong()).append(" ");
+            for (int i = 0; i < 16; i++) {
+                filler.append("registro-de-auditoría ");
+            }
+            filler.append("-->\n");
+            write(out, filler.toString());
+        }
+        write(out, "    <id>" + id + "</id>\n    <nombre>" + nombre(random) + "</nombre>\n    <rango>" + rango
+                   + "</rango>\n    <unidad>" + UNIDADES[random.nextInt(UNIDADES.length)] + "</unidad>\n"
+                   + "    <estado>ACTIVO</estado>\n</policia-data>\n");
+        return out.toByteArray();
+    }
+
+    private static void write(ByteArrayOutputStream out, String text) {
+        byte[] bytes = utf8(text);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static byte[] utf8(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,111 @@
+package com.policia.batch.benchmark;
+
+import com.policia.batch.exception.InvalidDataException;
+import com.policia.batch.model.QueueMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cada etapa del camino de un mensaje por separado, sobre el corpus de cada tipo.
+ *
+ * <ul>
+ *   <li>cleanXmlContent: salto de prefijos, BOM y espacios (PoliciaByteDecoder.contentStart).</li>
+ *   <li>validateXmlFormat: buena formación y decodificación desde bytes (PoliciaByteDecoder.decode).</li>
+ *   <li>validateAndParseXml: parseo StAX desde String y reglas de negocio.</li>
+ *   <li>validateAndParse: el mismo camino desde los bytes del mensaje, como lo usa el processor.</li>
+ *   <li>process: PoliciaDataProcessor completo (incluye enriquecimiento y codificación compacta).</li>
+ * </ul>
+ * Los mensajes que no pasan devuelven la excepción, así el costo del camino de error también se mide.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MessageStagesBenchmark {
+
+    private static final int CORPUS_SIZE = 1024; // Potencia de 2 para recorrer con máscara
+
+    @Param({"VALID", "PREFIXED", "ACCENTED", "MALFORMED", "INVALID", "OVERSIZED"})
+    public MessageCorpus.Kind kind;
+
+    private PipelineFixture fixture;
+    private byte[][] payloads;
+    private String[] texts;
+    private QueueMessage[] messages;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = new PipelineFixture(false);
+        payloads = MessageCorpus.generate(kind, CORPUS_SIZE, 42L);
+        texts = new String[CORPUS_SIZE];
+        messages = new QueueMessage[CORPUS_SIZE];
+        for (int i = 0; i < CORPUS_SIZE; i++) {
+            texts[i] = new String(payloads[i], StandardCharsets.UTF_8);
+            messages[i] = new QueueMessage("NOTIFICA.EOL.RTA", "ID:" + i, payloads[i]);
+        }
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = (index + 1) & (CORPUS_SIZE - 1);
+        return index;
+    }
+
+    @Benchmark
+    public int cleanXmlContent() {
+        byte[] payload = payloads[nextIndex()];
+        return fixture.byteDecoder.contentStart(payload, 0, payload.length);
+    }
+
+    @Benchmark
+    public Object validateXmlFormat() {
+        try {
+            return fixture.byteDecoder.decode(payloads[nextIndex()]);
+        } catch (InvalidDataException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object validateAndParseXml() {
+        try {
+            return fixture.xmlValidationService.validateAndParseXml(texts[nextIndex()]);
+        } catch (InvalidDataException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object validateAndParse() {
+        try {
+            return fixture.xmlValidationService.validateAndParse(messages[nextIndex()]);
+        } catch (InvalidDataException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object process() throws Exception {
+        try {
+            return fixture.processor.process(messages[nextIndex()]);
+        } catch (InvalidDataException e) {
+            return e;
+        }
+    }
+}
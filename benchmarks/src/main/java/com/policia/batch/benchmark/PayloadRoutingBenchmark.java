@@ -0,0 +1,78 @@
+package com.policia.batch.benchmark;
+
+import com.policia.batch.exception.InvalidDataException;
+import com.policia.batch.model.QueueMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo del registro de tipos de payload sobre los mensajes policia-data existentes.
+ *
+ * <ul>
+ *   <li>route: solo la detección del elemento raíz (PayloadTypeRegistry.route).</li>
+ *   <li>process: PoliciaDataProcessor completo; con payloadTypes=0 debe coincidir con
+ *       MessageStagesBenchmark.process.</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PayloadRoutingBenchmark {
+
+    private static final int CORPUS_SIZE = 1024;
+
+    @Param({"VALID", "PREFIXED"})
+    public MessageCorpus.Kind kind;
+
+    @Param({"0", "1", "8"})
+    public int payloadTypes;
+
+    private PipelineFixture fixture;
+    private QueueMessage[] messages;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = new PipelineFixture(false, payloadTypes);
+        byte[][] payloads = MessageCorpus.generate(kind, CORPUS_SIZE, 42L);
+        messages = new QueueMessage[CORPUS_SIZE];
+        for (int i = 0; i < CORPUS_SIZE; i++) {
+            messages[i] = new QueueMessage("NOTIFICA.EOL.RTA", "ID:" + i, payloads[i]);
+        }
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = (index + 1) & (CORPUS_SIZE - 1);
+        return index;
+    }
+
+    @Benchmark
+    public Object route() {
+        return fixture.payloadTypes.route(messages[nextIndex()].getPayload());
+    }
+
+    @Benchmark
+    public Object process() throws Exception {
+        try {
+            return fixture.processor.process(messages[nextIndex()]);
+        } catch (InvalidDataException e) {
+            return e;
+        }
+    }
+}
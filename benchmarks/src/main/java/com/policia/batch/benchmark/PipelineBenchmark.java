@@ -0,0 +1,95 @@
+package com.policia.batch.benchmark;
+
+import com.policia.batch.exception.InvalidDataException;
+import com.policia.batch.model.PoliciaRecord;
+import com.policia.batch.model.QueueMessage;
+import com.policia.batch.writer.PoliciaDataWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cadena completa reader → processor → writer de un chunk, con resultados por mensaje.
+ *
+ * El "reader" reproduce lo que hace JmsPayloads con un BytesMessage (copia del payload a un
+ * arreglo nuevo y QueueMessage); la recepción de MQ queda fuera porque depende de la red y del
+ * queue manager (ver policia.mq.receive en las métricas). El writer es el MERGE JDBC real sobre
+ * H2 en memoria; con writer=none se mide solo la parte de CPU. Los mensajes inválidos se descartan
+ * como en modo cuarentena, sin escribirlos a disco.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+@OperationsPerInvocation(PipelineBenchmark.CHUNK_SIZE)
+public class PipelineBenchmark {
+
+    static final int CHUNK_SIZE = 500; // batch.chunk-size de application.yml
+
+    private static final int CORPUS_SIZE = 4096;
+
+    @Param({"VALID", "MIXED"})
+    public MessageCorpus.Kind kind;
+
+    @Param({"h2", "none"})
+    public String writer;
+
+    @Param({"false", "true"})
+    public boolean metrics;
+
+    private PipelineFixture fixture;
+    private PoliciaDataWriter dataWriter;
+    private byte[][] payloads;
+    private final List<PoliciaRecord> chunk = new ArrayList<>(CHUNK_SIZE);
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = new PipelineFixture(metrics);
+        dataWriter = "h2".equals(writer) ? fixture.h2Writer() : null;
+        payloads = MessageCorpus.generate(kind, CORPUS_SIZE, 7L);
+    }
+
+    @Benchmark
+    public int chunk() throws Exception {
+        chunk.clear();
+        int rejected = 0;
+        for (int i = 0; i < CHUNK_SIZE; i++) {
+            int index = next;
+            next = (index + 1) & (CORPUS_SIZE - 1);
+
+            byte[] payload = payloads[index];
+            QueueMessage message = new QueueMessage("NOTIFICA.EOL.RTA", "ID:" + index,
+                                                    Arrays.copyOf(payload, payload.length));
+            try {
+                Object record = fixture.processor.process(message);
+                if (record != null) {
+                    chunk.add((PoliciaRecord) record);
+                }
+            } catch (InvalidDataException e) {
+                rejected++;
+            }
+        }
+        if (dataWriter != null) {
+            dataWriter.write(chunk);
+        }
+        return chunk.size() - rejected;
+    }
+}
@@ -0,0 +1,121 @@
+package com.policia.batch.benchmark;
+
+import com.policia.batch.audit.AuditJournal;
+import com.policia.batch.enrichment.UnidadReferenceCache;
+import com.policia.batch.metrics.PoliciaMetrics;
+import com.policia.batch.payload.PayloadType;
+import com.policia.batch.payload.PayloadTypeRegistry;
+import com.policia.batch.payload.XmlRecordType;
+import com.policia.batch.processor.PoliciaDataProcessor;
+import com.policia.batch.quarantine.QuarantineService;
+import com.policia.batch.service.PoliciaByteDecoder;
+import com.policia.batch.service.PoliciaRuleEngine;
+import com.policia.batch.service.PoliciaVocabulary;
+import com.policia.batch.service.PoliciaXmlParser;
+import com.policia.batch.service.XmlValidationService;
+import com.policia.batch.writer.PoliciaDataWriter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Arma los componentes del pipeline sin contexto Spring, con la misma configuración por defecto
+ * que application.yml (validation.*, vocabulary.max-size, cuarentena en modo stop), sin diario de auditoría.
+ */
+final class PipelineFixture {
+
+    private static final String RANGOS = "AGENTE,CABO,SARGENTO,TENIENTE,CAPITAN,MAYOR,CORONEL";
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    final PoliciaMetrics metrics;
+    final PoliciaRuleEngine ruleEngine;
+    final PoliciaXmlParser xmlParser;
+    final PoliciaByteDecoder byteDecoder;
+    final XmlValidationService xmlValidationService;
+    final PoliciaVocabulary vocabulary;
+    final PayloadTypeRegistry payloadTypes;
+    final PoliciaDataProcessor processor;
+
+    PipelineFixture(boolean metricsEnabled) {
+        this(metricsEnabled, 0);
+    }
+
+    /**
+     * @param payloadTypes tipos de payload registrados además de policia-data (sin writer utilizable)
+     */
+    PipelineFixture(boolean metricsEnabled, int payloadTypes) {
+        this.metrics = PoliciaMetrics.standalone(metricsEnabled);
+        this.ruleEngine = new PoliciaRuleEngine("POL", 6, RANGOS.split(","));
+        this.xmlParser = new PoliciaXmlParser();
+        this.byteDecoder = new PoliciaByteDecoder(xmlParser, metrics);
+        this.xmlValidationService = new XmlValidationService(xmlParser, byteDecoder, ruleEngine, metrics);
+        this.vocabulary = new PoliciaVocabulary(ruleEngine, 4096);
+        QuarantineService quarantineService = new QuarantineService(null, QuarantineService.MODE_STOP, "",
+                                                                    "quarantine", 1000, 0, 0.05, 1000);
+        List<PayloadType<?>> types = new ArrayList<>();
+        for (int i = 0; i < payloadTypes; i++) {
+            types.add(new XmlRecordType("notificacion-" + i, "notificacion-" + i, new String[]{"id", "detalle"},
+                                        new String[0], "id", "NOTIFICACION_" + i, null, byteDecoder, metrics));
+        }
+        this.payloadTypes = new PayloadTypeRegistry(types);
+        this.processor = new PoliciaDataProcessor(xmlValidationService, quarantineService, ruleEngine, vocabulary,
+                                                  metrics, new AuditJournal(false, "audit", 1L << 26),
+                                                  this.payloadTypes);
+    }
+
+    /**
+     * Writer JDBC sobre una base H2 en memoria nueva, con el esquema de ejecución local
+     */
+    PoliciaDataWriter h2Writer() {
+        return h2Writer(h2DataSource(), 0L);
+    }
+
+    /**
+     * Writer JDBC sobre dataSource con el esquema de ejecución local. Con enrichmentTtlMillis > 0
+     * completa cada registro desde UNIDAD_REFERENCIA, con ese vencimiento de caché y sin recarga.
+     */
+    PoliciaDataWriter h2Writer(DataSource dataSource, long enrichmentTtlMillis) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute(script("/schema-policia-h2.sql"));
+        UnidadReferenceCache unidadReferences = new UnidadReferenceCache(jdbcTemplate, metrics, enrichmentTtlMillis > 0,
+                                                                         "UNIDAD_REFERENCIA", 10000,
+                                                                         enrichmentTtlMillis, 0L);
+        return new PoliciaDataWriter(jdbcTemplate, vocabulary, unidadReferences, metrics, "POLICIA_DATA");
+    }
+
+    /**
+     * Base H2 en memoria nueva, distinta en cada llamada
+     */
+    static DriverManagerDataSource h2DataSource() {
+        return new DriverManagerDataSource("jdbc:h2:mem:bench" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1",
+                                           "sa", "");
+    }
+
+    /**
+     * Script DDL del classpath sin comentarios, para ejecutarlo de una vez en H2
+     */
+    static String script(String resource) {
+        try (InputStream in = PipelineFixture.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("No se encontró " + resource + " en el classpath");
+            }
+            StringBuilder ddl = new StringBuilder();
+            for (String line : new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n")) {
+                if (!line.trim().startsWith("--")) {
+                    ddl.append(line).append('\n');
+                }
+            }
+            return ddl.toString().trim().replaceAll(";$", "");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.policia.batch.benchmark;
+
+import com.policia.batch.model.PoliciaData;
+import com.policia.batch.model.PoliciaRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de la forma compacta: decodificar a PoliciaData, decodificar y codificar a PoliciaRecord
+ * (lo que sale del processor) y volver a PoliciaData en el borde del writer.
+ * Con -prof gc, gc.alloc.rate.norm muestra los bytes asignados por registro en cada caso;
+ * el tamaño retenido por registro en vuelo lo reporta RecordFootprint.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RecordEncodingBenchmark {
+
+    private static final int CORPUS_SIZE = 1024;
+
+    private PipelineFixture fixture;
+    private byte[][] payloads;
+    private PoliciaRecord[] records;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = new PipelineFixture(false);
+        payloads = MessageCorpus.generate(MessageCorpus.Kind.ACCENTED, CORPUS_SIZE, 42L);
+        records = new PoliciaRecord[CORPUS_SIZE];
+        for (int i = 0; i < CORPUS_SIZE; i++) {
+            records[i] = fixture.vocabulary.encode(fixture.byteDecoder.decode(payloads[i]));
+        }
+    }
+
+    @Benchmark
+    public PoliciaData decodePoliciaData() {
+        return fixture.byteDecoder.decode(payloads[nextIndex()]);
+    }
+
+    @Benchmark
+    public PoliciaRecord decodeAndEncode() {
+        return fixture.vocabulary.encode(fixture.byteDecoder.decode(payloads[nextIndex()]));
+    }
+
+    @Benchmark
+    public PoliciaData decodeRecordForWriter() {
+        return fixture.vocabulary.decode(records[nextIndex()]);
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = (index + 1) & (CORPUS_SIZE - 1);
+        return index;
+    }
+}
@@ -0,0 +1,62 @@
+package com.policia.batch.benchmark;
+
+import com.policia.batch.model.PoliciaData;
+import com.policia.batch.model.PoliciaRecord;
+
+import java.util.Locale;
+
+/**
+ * Memoria retenida por registro en vuelo: PoliciaData tal como sale del decodificador frente a
+ * PoliciaRecord con el vocabulario compartido. Se retienen N registros de cada forma y se
+ * compara el heap usado después de GC.
+ *
+ * Uso: java -cp benchmarks/target/benchmarks.jar com.policia.batch.benchmark.RecordFootprint [registros]
+ */
+public final class RecordFootprint {
+
+    private RecordFootprint() {
+    }
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        PipelineFixture fixture = new PipelineFixture(false);
+        byte[][] payloads = MessageCorpus.generate(MessageCorpus.Kind.ACCENTED, 4096, 42L);
+
+        long base = usedHeap();
+        PoliciaData[] data = new PoliciaData[count];
+        for (int i = 0; i < count; i++) {
+            data[i] = fixture.byteDecoder.decode(payloads[i & 4095]);
+        }
+        long dataBytes = usedHeap() - base;
+        report("PoliciaData", count, dataBytes);
+        data = null;
+
+        base = usedHeap();
+        PoliciaRecord[] records = new PoliciaRecord[count];
+        for (int i = 0; i < count; i++) {
+            records[i] = fixture.vocabulary.encode(fixture.byteDecoder.decode(payloads[i & 4095]));
+        }
+        long recordBytes = usedHeap() - base;
+        report("PoliciaRecord", count, recordBytes);
+
+        System.out.printf(Locale.ROOT, "Reducción: %.1f%% (%d registros retenidos)%n",
+                          100.0 * (dataBytes - recordBytes) / dataBytes, records.length);
+    }
+
+    private static void report(String form, int count, long bytes) {
+        System.out.printf(Locale.ROOT, "%-14s %,15d bytes  %8.1f bytes/registro%n", form, bytes, (double) bytes / count);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,87 @@
+package com.policia.batch.benchmark;
+
+import com.policia.batch.exception.InvalidDataException;
+import com.policia.batch.model.PoliciaData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Reglas de negocio sobre registros ya parseados: PoliciaRuleEngine frente a la validación
+ * anterior con Bean Validation, String.matches y equalsIgnoreCase.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RuleEngineBenchmark {
+
+    private static final int CORPUS_SIZE = 1024;
+
+    @Param({"VALID", "ACCENTED", "INVALID"})
+    public MessageCorpus.Kind kind;
+
+    private PipelineFixture fixture;
+    private LegacyValidation legacyValidation;
+    private PoliciaData[] records;
+    private Supplier<String>[] texts;
+    private int next;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        fixture = new PipelineFixture(false);
+        legacyValidation = new LegacyValidation();
+        byte[][] payloads = MessageCorpus.generate(kind, CORPUS_SIZE, 42L);
+        records = new PoliciaData[CORPUS_SIZE];
+        texts = new Supplier[CORPUS_SIZE];
+        for (int i = 0; i < CORPUS_SIZE; i++) {
+            String text = new String(payloads[i], StandardCharsets.UTF_8);
+            records[i] = fixture.xmlParser.parse(text);
+            texts[i] = () -> text;
+        }
+    }
+
+    @Benchmark
+    public Object ruleEngine() {
+        int index = nextIndex();
+        try {
+            fixture.ruleEngine.validate(records[index], texts[index]);
+            return records[index];
+        } catch (InvalidDataException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object legacyBeanValidationRegex() {
+        int index = nextIndex();
+        try {
+            legacyValidation.validate(records[index], texts[index]);
+            return records[index];
+        } catch (InvalidDataException e) {
+            return e;
+        }
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = (index + 1) & (CORPUS_SIZE - 1);
+        return index;
+    }
+}
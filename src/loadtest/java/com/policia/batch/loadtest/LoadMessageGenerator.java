@@ -0,0 +1,256 @@
+package com.policia.batch.loadtest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import javax.jms.BytesMessage;
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.DeliveryMode;
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Llena las colas del broker embebido con mensajes policia-data mientras corre el job.
+ *
+ * Un hilo productor por cola reparte loadtest.generator.messages en partes iguales. La mezcla
+ * se ajusta con las proporciones de inválidos (no pasan las reglas), mal formados, con prefijo
+ * de transporte ("Trx:", BOM...) y con acentos; el resto es XML canónico. Corre antes que el
+ * job (orden más alto que JobLauncherApplicationRunner) y se frena solo cuando el broker llena
+ * la cola, de modo que el job consume a su propio ritmo.
+ */
+@Component
+@Profile("loadtest")
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class LoadMessageGenerator implements ApplicationRunner, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadMessageGenerator.class);
+
+    /**
+     * Tipos de mensaje generados, en el orden de los contadores
+     */
+    enum Kind {
+        VALID, PREFIXED, ACCENTED, INVALID, MALFORMED
+    }
+
+    private static final String[] RANGOS = {"AGENTE", "CABO", "SARGENTO", "TENIENTE", "CAPITAN", "MAYOR", "CORONEL"};
+    private static final String[] UNIDADES = {"Comisaría Central", "Unidad Norte", "Unidad Sur", "Unidad Central Metro",
+                                              "Brigada Móvil", "Prefectura Oriente"};
+    private static final String[] NOMBRES = {"Juan", "María", "Carlos", "Ana", "Pedro", "Lucía", "José", "Camila"};
+    private static final String[] APELLIDOS = {"Pérez", "González", "López", "Muñoz", "Rojas", "Díaz", "Núñez", "Araya"};
+    private static final String[] PREFIXES = {"Trx:", "TRX: ", "MSG:", "Data:", "\uFEFF", "Trx:\uFEFF", "  \n"};
+
+    private final ConnectionFactory connectionFactory;
+    private final List<String> queues;
+    private final long messages;
+    private final double invalidRatio;
+    private final double malformedRatio;
+    private final double prefixedRatio;
+    private final double accentedRatio;
+    private final long seed;
+
+    private final AtomicLongArray sentByKind = new AtomicLongArray(Kind.values().length);
+    private final AtomicLong sentBytes = new AtomicLong();
+    private final List<Thread> producers = new ArrayList<>();
+    private final AtomicInteger activeProducers = new AtomicInteger();
+    private volatile boolean running;
+    private volatile Throwable failure;
+    private long startedAt;
+    private volatile long finishedAt;
+
+    @Autowired
+    public LoadMessageGenerator(@Qualifier("mqQueueConnectionFactory") ConnectionFactory connectionFactory,
+                                LoadTestConfiguration configuration,
+                                @Value("${loadtest.generator.messages:1000000}") long messages,
+                                @Value("${loadtest.generator.invalid-ratio:0.02}") double invalidRatio,
+                                @Value("${loadtest.generator.malformed-ratio:0.01}") double malformedRatio,
+                                @Value("${loadtest.generator.prefixed-ratio:0.10}") double prefixedRatio,
+                                @Value("${loadtest.generator.accented-ratio:0.15}") double accentedRatio,
+                                @Value("${loadtest.generator.seed:42}") long seed) {
+        if (invalidRatio + malformedRatio + prefixedRatio + accentedRatio > 1.0) {
+            throw new IllegalArgumentException("Las proporciones de loadtest.generator suman más de 1");
+        }
+        this.connectionFactory = connectionFactory;
+        this.queues = new ArrayList<>(configuration.queueNames());
+        this.messages = messages;
+        this.invalidRatio = invalidRatio;
+        this.malformedRatio = malformedRatio;
+        this.prefixedRatio = prefixedRatio;
+        this.accentedRatio = accentedRatio;
+        this.seed = seed;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        running = true;
+        activeProducers.set(queues.size());
+        startedAt = System.currentTimeMillis();
+        logger.info("🧪 Generando {} mensajes en {} (inválidos {}%, mal formados {}%, con prefijo {}%, acentos {}%)",
+                    messages, queues, invalidRatio * 100, malformedRatio * 100, prefixedRatio * 100,
+                    accentedRatio * 100);
+
+        for (int i = 0; i < queues.size(); i++) {
+            long count = messages / queues.size() + (i < messages % queues.size() ? 1 : 0);
+            String queue = queues.get(i);
+            long queueSeed = seed + i;
+            Thread producer = new Thread(() -> produce(queue, count, queueSeed), "loadtest-producer-" + queue);
+            producer.setDaemon(true);
+            producers.add(producer);
+            producer.start();
+        }
+    }
+
+    private void produce(String queue, long count, long queueSeed) {
+        Random random = new Random(queueSeed);
+        try (Connection connection = connectionFactory.createConnection()) {
+            Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageProducer producer = session.createProducer(session.createQueue(queue));
+            producer.setDeliveryMode(DeliveryMode.NON_PERSISTENT);
+
+            for (long i = 0; i < count && running; i++) {
+                Kind kind = nextKind(random);
+                byte[] payload = payload(kind, i, random);
+                BytesMessage message = session.createBytesMessage();
+                message.writeBytes(payload);
+                producer.send(message); // Bloquea mientras la cola esté llena
+                sentByKind.incrementAndGet(kind.ordinal());
+                sentBytes.addAndGet(payload.length);
+            }
+        } catch (JMSException | RuntimeException e) {
+            if (running) {
+                failure = e;
+                logger.error("❌ El generador de la cola {} falló: {}", queue, e.getMessage(), e);
+            }
+        } finally {
+            if (activeProducers.decrementAndGet() == 0) {
+                finishedAt = System.currentTimeMillis();
+                logger.info("🧪 Generación terminada: {} mensajes en {} ms", getSent(), finishedAt - startedAt);
+            }
+        }
+    }
+
+    private Kind nextKind(Random random) {
+        double roll = random.nextDouble();
+        if ((roll -= invalidRatio) < 0) {
+            return Kind.INVALID;
+        }
+        if ((roll -= malformedRatio) < 0) {
+            return Kind.MALFORMED;
+        }
+        if ((roll -= prefixedRatio) < 0) {
+            return Kind.PREFIXED;
+        }
+        return roll - accentedRatio < 0 ? Kind.ACCENTED : Kind.VALID;
+    }
+
+    /**
+     * Los IDs recorren POL000000-POL999999, así en corridas de más de un millón el writer
+     * también ejercita la rama de actualización del MERGE
+     */
+    private static byte[] payload(Kind kind, long index, Random random) {
+        String id = String.format("POL%06d", index % 1_000_000);
+        String rango = RANGOS[random.nextInt(RANGOS.length)];
+        String text;
+        switch (kind) {
+            case PREFIXED:
+                text = PREFIXES[(int) (index % PREFIXES.length)]
+                       + xml(id, "Juan Perez Garcia " + index, rango, "Unidad Central", "ACTIVO");
+                break;
+            case ACCENTED:
+                text = xml(id, nombre(random), rango, UNIDADES[random.nextInt(UNIDADES.length)], "ACTIVO");
+                break;
+            case INVALID:
+                text = xml("INVALID_ID_FORMAT", "", "RANGO_INEXISTENTE", "Unidad Central", "ACTIVO");
+                break;
+            case MALFORMED:
+                text = index % 2 == 0
+                       ? "<?xml version=\"1.0\" encoding=\"UTF-8\"?><policia-data><id>" + id + "</id>"
+                         + "<nombre>Juan Pérez</nombre><rango>" + rango + "</rango><unidad>Unidad Central"
+                       : "INVALID_XML_MALFORMED";
+                break;
+            default:
+                text = xml(id, "Juan Perez Garcia " + index, rango, "Unidad Central", "ACTIVO");
+        }
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String nombre(Random random) {
+        return NOMBRES[random.nextInt(NOMBRES.length)] + " " + APELLIDOS[random.nextInt(APELLIDOS.length)] + " "
+               + APELLIDOS[random.nextInt(APELLIDOS.length)];
+    }
+
+    private static String xml(String id, String nombre, String rango, String unidad, String estado) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?><policia-data><id>" + id + "</id><nombre>" + nombre
+               + "</nombre><rango>" + rango + "</rango><unidad>" + unidad + "</unidad><estado>" + estado
+               + "</estado></policia-data>";
+    }
+
+    /**
+     * Detiene los productores que sigan activos (el job terminó antes) y espera a que cierren
+     */
+    public void stop() throws InterruptedException {
+        running = false;
+        for (Thread producer : producers) {
+            producer.join(5000);
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        stop();
+    }
+
+    public boolean isFinished() {
+        return finishedAt > 0;
+    }
+
+    public long getSent() {
+        long total = 0;
+        for (int i = 0; i < sentByKind.length(); i++) {
+            total += sentByKind.get(i);
+        }
+        return total;
+    }
+
+    public long getSent(Kind kind) {
+        return sentByKind.get(kind.ordinal());
+    }
+
+    public long getSentBytes() {
+        return sentBytes.get();
+    }
+
+    public long getMessages() {
+        return messages;
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    public Throwable getFailure() {
+        return failure;
+    }
+}
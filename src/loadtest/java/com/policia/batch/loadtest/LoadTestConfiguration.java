@@ -0,0 +1,93 @@
+package com.policia.batch.loadtest;
+
+import org.apache.activemq.artemis.api.core.QueueConfiguration;
+import org.apache.activemq.artemis.api.core.RoutingType;
+import org.apache.activemq.artemis.core.config.Configuration;
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.apache.activemq.artemis.core.settings.impl.AddressFullMessagePolicy;
+import org.apache.activemq.artemis.core.settings.impl.AddressSettings;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Profile;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Broker JMS embebido (Apache Artemis, en el mismo proceso) que reemplaza a MQADESA en el
+ * perfil loadtest, con las mismas colas que application.yml (mq.queue.*).
+ *
+ * Los mensajes no son persistentes y cada cola tiene un tope de memoria
+ * (loadtest.broker.max-size-bytes): al llenarse, el broker bloquea al generador en lugar de
+ * paginar a disco, así el heap queda acotado aunque se generen millones de mensajes.
+ */
+@org.springframework.context.annotation.Configuration
+@Profile("loadtest")
+public class LoadTestConfiguration {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadTestConfiguration.class);
+
+    private static final String BROKER_URL = "vm://0";
+
+    @Value("${mq.queue.rta}")
+    private String queueRta;
+
+    @Value("${mq.queue.mas}")
+    private String queueMas;
+
+    @Value("${mq.queue.additional:}")
+    private String[] additionalQueues;
+
+    @Value("${loadtest.broker.max-size-bytes:67108864}")
+    private long maxSizeBytes;
+
+    @Bean(destroyMethod = "stop")
+    public EmbeddedActiveMQ loadTestBroker() throws Exception {
+        Configuration configuration = new ConfigurationImpl()
+                .setPersistenceEnabled(false)
+                .setSecurityEnabled(false)
+                .setJMXManagementEnabled(false)
+                .addAcceptorConfiguration("in-vm", BROKER_URL)
+                .addAddressesSetting("#", new AddressSettings()
+                        .setMaxSizeBytes(maxSizeBytes)
+                        .setAddressFullMessagePolicy(AddressFullMessagePolicy.BLOCK));
+
+        for (String queue : queueNames()) {
+            configuration.addQueueConfiguration(new QueueConfiguration(queue)
+                    .setAddress(queue)
+                    .setRoutingType(RoutingType.ANYCAST)
+                    .setDurable(false));
+        }
+
+        EmbeddedActiveMQ broker = new EmbeddedActiveMQ().setConfiguration(configuration);
+        broker.start();
+        logger.info("🧪 Broker embebido iniciado en {} - colas: {}, máximo por cola: {} bytes",
+                    BROKER_URL, queueNames(), maxSizeBytes);
+        return broker;
+    }
+
+    /**
+     * Toma el lugar de la fábrica de IBM MQ: PooledMqConnectionFactory y el generador la usan
+     * por nombre igual que en producción
+     */
+    @Bean(destroyMethod = "close")
+    public ActiveMQConnectionFactory mqQueueConnectionFactory(EmbeddedActiveMQ loadTestBroker) {
+        return new ActiveMQConnectionFactory(BROKER_URL);
+    }
+
+    Set<String> queueNames() {
+        Set<String> queues = new LinkedHashSet<>();
+        queues.add(queueRta);
+        queues.add(queueMas);
+        for (String queue : additionalQueues) {
+            if (!queue.trim().isEmpty()) {
+                queues.add(queue.trim());
+            }
+        }
+        return queues;
+    }
+}
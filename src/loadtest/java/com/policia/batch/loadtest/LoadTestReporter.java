@@ -0,0 +1,200 @@
+package com.policia.batch.loadtest;
+
+import com.policia.batch.metrics.PoliciaMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Informe de la prueba de carga, después de que JobLauncherApplicationRunner terminó el job.
+ *
+ * <ul>
+ *   <li>Throughput: mensajes leídos por el step / duración del job.</li>
+ *   <li>Latencia p50/p99 por cola (policia.message.latency: encolado → fin del processor) y por etapa.</li>
+ *   <li>Heap: uso actual y pico por pool desde el inicio del contexto; GC: colecciones y tiempo por colector.</li>
+ * </ul>
+ * Se escribe en el log y en loadtest.report-file.
+ */
+@Component
+@Profile("loadtest")
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class LoadTestReporter implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadTestReporter.class);
+
+    private static final String JOB_NAME = "policiaXmlProcessingJob";
+
+    private final JobExplorer jobExplorer;
+    private final LoadMessageGenerator generator;
+    private final MeterRegistry registry;
+    private final Path reportFile;
+    private final Map<String, long[]> gcBaseline = new HashMap<>(); // Colecciones y ms previos al job
+
+    @Autowired
+    public LoadTestReporter(JobExplorer jobExplorer,
+                            LoadMessageGenerator generator,
+                            PoliciaMetrics metrics,
+                            @Value("${loadtest.report-file:loadtest/policia-loadtest-report.txt}") String reportFile) {
+        this.jobExplorer = jobExplorer;
+        this.generator = generator;
+        this.registry = metrics.getRegistry();
+        this.reportFile = Paths.get(reportFile);
+
+        // La línea base excluye el arranque del contexto
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcBaseline.put(gc.getName(), new long[]{gc.getCollectionCount(), gc.getCollectionTime()});
+        }
+        ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        generator.stop();
+
+        JobInstance instance = jobExplorer.getLastJobInstance(JOB_NAME);
+        JobExecution execution = instance != null ? jobExplorer.getLastJobExecution(instance) : null;
+        if (execution == null || execution.getStartTime() == null || execution.getEndTime() == null) {
+            logger.warn("No hay una ejecución terminada de {} (¿spring.batch.job.enabled=false?)", JOB_NAME);
+            return;
+        }
+
+        String report = report(execution);
+        logger.info("🧪 Resultado de la prueba de carga\n{}", report);
+
+        Path directory = reportFile.toAbsolutePath().getParent();
+        try {
+            Files.createDirectories(directory);
+            Files.write(reportFile, report.getBytes(StandardCharsets.UTF_8));
+            logger.info("🧪 Informe guardado en {}", reportFile.toAbsolutePath());
+        } catch (IOException e) {
+            logger.warn("No se pudo guardar el informe en {}: {}", reportFile, e.getMessage());
+        }
+    }
+
+    private String report(JobExecution execution) {
+        long millis = Math.max(1L, execution.getEndTime().getTime() - execution.getStartTime().getTime());
+        long read = 0;
+        long written = 0;
+        long skipped = 0;
+        long filtered = 0;
+        for (StepExecution step : execution.getStepExecutions()) {
+            read += step.getReadCount();
+            written += step.getWriteCount();
+            skipped += step.getSkipCount();
+            filtered += step.getFilterCount();
+        }
+
+        StringBuilder out = new StringBuilder();
+        line(out, "Job", "%s (%s) en %.1f s", JOB_NAME, execution.getStatus(), millis / 1000.0);
+        line(out, "Generador", "%d de %d mensajes, %.1f MB%s", generator.getSent(), generator.getMessages(),
+             generator.getSentBytes() / 1048576.0, generatorState());
+        for (LoadMessageGenerator.Kind kind : LoadMessageGenerator.Kind.values()) {
+            line(out, "  " + kind.name().toLowerCase(Locale.ROOT), "%d", generator.getSent(kind));
+        }
+        line(out, "Leídos", "%d (escritos %d, filtrados o en cuarentena %d, saltados %d)", read, written, filtered, skipped);
+        line(out, "Throughput", "%.0f msg/s", read * 1000.0 / millis);
+
+        out.append('\n');
+        timers(out, "policia.message.latency", "queue", "Latencia");
+        timers(out, "policia.stage", "stage", "Etapa");
+
+        out.append('\n');
+        memory(out);
+        return out.toString();
+    }
+
+    private String generatorState() {
+        if (generator.getFailure() != null) {
+            return " - falló: " + generator.getFailure().getMessage();
+        }
+        // Si el job vació las colas antes de que terminara la generación, el throughput medido
+        // queda limitado por el generador (subir mq.receive-timeout-ms o bajar la carga por cola)
+        return generator.isFinished()
+               ? String.format(Locale.ROOT, " en %.1f s", (generator.getFinishedAt() - generator.getStartedAt()) / 1000.0)
+               : " - el job terminó antes que el generador";
+    }
+
+    private void timers(StringBuilder out, String name, String tag, String label) {
+        for (Timer timer : registry.find(name).timers()) {
+            if (timer.count() == 0) {
+                continue;
+            }
+            HistogramSnapshot snapshot = timer.takeSnapshot();
+            line(out, label + " " + timer.getId().getTag(tag), "n=%d media=%.3f ms p50=%s p99=%s max=%.3f ms",
+                 timer.count(), timer.mean(TimeUnit.MILLISECONDS), percentile(snapshot, 0.5),
+                 percentile(snapshot, 0.99), timer.max(TimeUnit.MILLISECONDS));
+        }
+    }
+
+    /**
+     * Percentil publicado por el timer (metrics.histograms=true), o "-" si no está
+     */
+    private static String percentile(HistogramSnapshot snapshot, double percentile) {
+        for (ValueAtPercentile value : snapshot.percentileValues()) {
+            if (value.percentile() == percentile) {
+                return String.format(Locale.ROOT, "%.3f ms", value.value(TimeUnit.MILLISECONDS));
+            }
+        }
+        return "-";
+    }
+
+    private void memory(StringBuilder out) {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        line(out, "Heap", "usado %d MB, comprometido %d MB, máximo %d MB", mb(heap.getUsed()), mb(heap.getCommitted()),
+             mb(heap.getMax()));
+
+        List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans();
+        for (MemoryPoolMXBean pool : pools) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                line(out, "  pico " + pool.getName(), "%d MB", mb(pool.getPeakUsage().getUsed()));
+            }
+        }
+
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            long[] baseline = gcBaseline.getOrDefault(gc.getName(), new long[2]);
+            line(out, "GC " + gc.getName(), "%d colecciones, %d ms", gc.getCollectionCount() - baseline[0],
+                 gc.getCollectionTime() - baseline[1]);
+        }
+    }
+
+    private static long mb(long bytes) {
+        return bytes < 0 ? -1 : bytes / 1048576;
+    }
+
+    private static void line(StringBuilder out, String label, String format, Object... args) {
+        out.append(String.format(Locale.ROOT, "%-28s ", label + ":"))
+           .append(String.format(Locale.ROOT, format, args))
+           .append('\n');
+    }
+}
@@ -1,14 +1,31 @@
 package com.policia.batch;
 
+import com.policia.batch.partition.PartitionWorker;
+import com.policia.batch.streaming.PoliciaStreamingContainer;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
+import org.springframework.context.ConfigurableApplicationContext;
 
 @SpringBootApplication
 @EnableBatchProcessing
 public class PoliciaXmlBatchApplication {
 
-    public static void main(String[] args) {
-        System.exit(SpringApplication.exit(SpringApplication.run(PoliciaXmlBatchApplication.class, args)));
+    public static void main(String[] args) throws InterruptedException {
+        ConfigurableApplicationContext context = SpringApplication.run(PoliciaXmlBatchApplication.class, args);
+
+        // En modo streaming la aplicación sigue consumiendo hasta que se detiene (señal o error fatal)
+        PoliciaStreamingContainer streaming = context.getBean(PoliciaStreamingContainer.class);
+        if (streaming.isEnabled()) {
+            streaming.awaitTermination();
+        }
+
+        // Un worker de particiones atiende solicitudes del manager hasta que se detiene
+        PartitionWorker worker = context.getBean(PartitionWorker.class);
+        if (worker.isEnabled()) {
+            worker.awaitTermination();
+        }
+
+        System.exit(SpringApplication.exit(context));
     }
 }
@@ -0,0 +1,245 @@
+package com.policia.batch.archive;
+
+import com.policia.batch.model.QueueMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reader del modo replay: entrega al processor los mensajes del archivo de mensajes crudos
+ * archivados entre archive.replay.from y archive.replay.to, en el orden en que se leyeron de MQ.
+ *
+ * Los archivos creados después del final del rango no se abren, y de los demás solo se
+ * descomprimen los bloques que tocan el rango. La posición (archivo, bloque y mensaje) se guarda
+ * en el ExecutionContext, así un replay interrumpido se reinicia donde quedó.
+ */
+@Component
+public class ArchiveReplayReader implements ItemStreamReader<QueueMessage> {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArchiveReplayReader.class);
+
+    static final String FILE_KEY = "archive.replay.file";
+    static final String BLOCK_KEY = "archive.replay.block";
+    static final String MESSAGE_KEY = "archive.replay.message";
+
+    private final Path directory;
+    private final String from;
+    private final String to;
+    private final Set<String> queues;
+
+    private long fromMillis;
+    private long toMillis;
+    private List<Path> files = Collections.emptyList();
+    private int fileIndex;
+    private MessageArchiveReader current;
+    private int blockIndex;
+    private List<ArchivedMessage> block = Collections.emptyList();
+    private int messageIndex;
+    private long replayed;
+
+    @Autowired
+    public ArchiveReplayReader(@Value("${archive.directory:archive}") String directory,
+                               @Value("${archive.replay.from:}") String from,
+                               @Value("${archive.replay.to:}") String to,
+                               @Value("${archive.replay.queues:}") String[] queues) {
+        this.directory = Paths.get(directory);
+        this.from = from;
+        this.to = to;
+        this.queues = new HashSet<>();
+        for (String queue : queues) {
+            if (!queue.trim().isEmpty()) {
+                this.queues.add(queue.trim());
+            }
+        }
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) {
+        if (from.trim().isEmpty()) {
+            throw new ItemStreamException("Falta archive.replay.from para el replay del archivo de mensajes");
+        }
+        fromMillis = parse(from, false);
+        toMillis = to.trim().isEmpty() ? Long.MAX_VALUE : parse(to, true);
+        if (toMillis <= fromMillis) {
+            throw new ItemStreamException("archive.replay.to debe ser posterior a archive.replay.from");
+        }
+
+        try {
+            files = MessageArchiveReader.list(directory);
+        } catch (IOException e) {
+            throw new ItemStreamException("No se pudo listar el archivo de mensajes en " + directory, e);
+        }
+        fileIndex = 0;
+        blockIndex = 0;
+        block = Collections.emptyList();
+        messageIndex = 0;
+        replayed = 0;
+
+        if (executionContext.containsKey(FILE_KEY)) {
+            restore(executionContext.getString(FILE_KEY), executionContext.getInt(BLOCK_KEY),
+                    executionContext.getInt(MESSAGE_KEY));
+        }
+
+        logger.info("🔁 Replay de {} archivos de {} entre {} y {}{}", files.size(), directory.toAbsolutePath(), from,
+                    to.trim().isEmpty() ? "el final" : to, queues.isEmpty() ? "" : " (colas " + queues + ")");
+    }
+
+    /**
+     * Reubica la lectura en el mensaje siguiente al último confirmado
+     */
+    private void restore(String file, int block, int message) {
+        int index = Collections.binarySearch(files, directory.resolve(file));
+        if (index < 0) {
+            throw new ItemStreamException("No se encontró " + file + " en " + directory + " para reiniciar el replay");
+        }
+        fileIndex = index;
+        openCurrent();
+        if (current != null && block < current.getBlockCount()) {
+            blockIndex = block;
+            loadBlock();
+            messageIndex = message;
+        } else {
+            blockIndex = block;
+        }
+        logger.info("🔁 Replay reiniciado en {} (bloque {}, mensaje {})", file, block, message);
+    }
+
+    /**
+     * Fecha (yyyy-MM-dd) o fecha y hora (yyyy-MM-ddTHH:mm[:ss]) en la zona local. Una fecha de fin
+     * incluye el día completo.
+     */
+    static long parse(String value, boolean end) {
+        String text = value.trim();
+        try {
+            if (text.length() == 10) {
+                LocalDate date = LocalDate.parse(text);
+                return (end ? date.plusDays(1) : date).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            }
+            return LocalDateTime.parse(text).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            throw new ItemStreamException("Fecha de replay inválida '" + text
+                                          + "': se esperaba yyyy-MM-dd o yyyy-MM-ddTHH:mm", e);
+        }
+    }
+
+    @Override
+    public QueueMessage read() {
+        while (true) {
+            while (messageIndex < block.size()) {
+                ArchivedMessage message = block.get(messageIndex++);
+                if (message.getArchivedMillis() >= fromMillis && message.getArchivedMillis() < toMillis
+                    && (queues.isEmpty() || queues.contains(message.getQueueName()))) {
+                    replayed++;
+                    return message.toQueueMessage();
+                }
+            }
+            if (!nextBlock()) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Avanza al siguiente bloque dentro del rango, abriendo archivos según haga falta
+     */
+    private boolean nextBlock() {
+        block = Collections.emptyList();
+        messageIndex = 0;
+        while (fileIndex < files.size()) {
+            if (current == null) {
+                openCurrent();
+                if (current == null) {
+                    continue;
+                }
+            } else {
+                blockIndex++;
+            }
+            while (blockIndex < current.getBlockCount()) {
+                if (current.overlaps(blockIndex, fromMillis, toMillis)) {
+                    loadBlock();
+                    return true;
+                }
+                blockIndex++;
+            }
+            closeCurrent();
+            fileIndex++;
+            blockIndex = 0;
+        }
+        return false;
+    }
+
+    /**
+     * Abre el archivo de fileIndex, o lo saltea si se creó después del rango
+     */
+    private void openCurrent() {
+        Path file = files.get(fileIndex);
+        try {
+            MessageArchiveReader reader = MessageArchiveReader.open(file);
+            if (reader.getCreatedMillis() >= toMillis) {
+                reader.close();
+                fileIndex = files.size(); // Los siguientes son posteriores
+                return;
+            }
+            current = reader;
+            blockIndex = 0;
+            logger.debug("Replay de {} ({} bloques)", file, reader.getBlockCount());
+        } catch (IOException e) {
+            throw new ItemStreamException("Error abriendo " + file + " para el replay", e);
+        }
+    }
+
+    private void loadBlock() {
+        try {
+            block = current.readBlock(blockIndex);
+            messageIndex = 0;
+        } catch (IOException e) {
+            throw new ItemStreamException("Error leyendo el bloque " + blockIndex + " de " + current.getFile(), e);
+        }
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) {
+        if (current == null) {
+            return;
+        }
+        executionContext.putString(FILE_KEY, current.getFile().getFileName().toString());
+        executionContext.putInt(BLOCK_KEY, blockIndex);
+        executionContext.putInt(MESSAGE_KEY, messageIndex);
+    }
+
+    @Override
+    public void close() {
+        closeCurrent();
+        logger.info("🔁 Replay terminado: {} mensajes entregados al processor", replayed);
+    }
+
+    private void closeCurrent() {
+        if (current == null) {
+            return;
+        }
+        try {
+            current.close();
+        } catch (IOException e) {
+            logger.warn("No se pudo cerrar {}: {}", current.getFile(), e.getMessage());
+        } finally {
+            current = null;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.policia.batch.archive;
+
+import com.policia.batch.model.QueueMessage;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Mensaje leído del archivo de mensajes crudos, con las cabeceras JMS con que se recibió.
+ * Las propiedades se guardan como texto.
+ */
+public final class ArchivedMessage {
+
+    private final long archivedMillis;
+    private final String queueName;
+    private final String messageId;
+    private final String correlationId;
+    private final String type;
+    private final long timestamp;
+    private final long expiration;
+    private final int priority;
+    private final int deliveryMode;
+    private final boolean redelivered;
+    private final boolean text;
+    private final Map<String, String> properties;
+    private final byte[] payload;
+
+    ArchivedMessage(long archivedMillis, String queueName, String messageId, String correlationId, String type,
+                    long timestamp, long expiration, int priority, int deliveryMode, boolean redelivered,
+                    boolean text, Map<String, String> properties, byte[] payload) {
+        this.archivedMillis = archivedMillis;
+        this.queueName = queueName;
+        this.messageId = messageId;
+        this.correlationId = correlationId;
+        this.type = type;
+        this.timestamp = timestamp;
+        this.expiration = expiration;
+        this.priority = priority;
+        this.deliveryMode = deliveryMode;
+        this.redelivered = redelivered;
+        this.text = text;
+        this.properties = Collections.unmodifiableMap(properties);
+        this.payload = payload;
+    }
+
+    /**
+     * Mensaje para el processor, como lo habría armado el reader de MQ
+     */
+    public QueueMessage toQueueMessage() {
+        return new QueueMessage(queueName, messageId, payload, timestamp, text);
+    }
+
+    public long getArchivedMillis() {
+        return archivedMillis;
+    }
+
+    public String getQueueName() {
+        return queueName;
+    }
+
+    public String getMessageId() {
+        return messageId;
+    }
+
+    public String getCorrelationId() {
+        return correlationId;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public long getExpiration() {
+        return expiration;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public int getDeliveryMode() {
+        return deliveryMode;
+    }
+
+    public boolean isRedelivered() {
+        return redelivered;
+    }
+
+    /**
+     * true si llegó como TextMessage (el payload es el texto en UTF-8)
+     */
+    public boolean isText() {
+        return text;
+    }
+
+    public Map<String, String> getProperties() {
+        return properties;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    @Override
+    public String toString() {
+        return "ArchivedMessage{queue='" + queueName + "', messageId='" + messageId + "', archived=" + archivedMillis
+               + ", bytes=" + payload.length + "}";
+    }
+}
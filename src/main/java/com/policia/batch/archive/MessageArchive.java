@@ -0,0 +1,421 @@
+package com.policia.batch.archive;
+
+import com.policia.batch.metrics.PoliciaMetrics;
+import com.policia.batch.model.QueueMessage;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.TextMessage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Archivo de los mensajes crudos tal como se leen de MQ: cola, cabeceras y propiedades JMS y
+ * payload, para reprocesarlos con {@link ArchiveReplayReader} sin pedir un reenvío.
+ *
+ * Los mensajes se agregan a un bloque abierto que se comprime a medida que crece (Deflate, nivel
+ * archive.compression-level). El bloque se escribe al archivo cuando supera archive.block-bytes y
+ * antes de confirmar cada chunk: si la escritura falla, el chunk se revierte y los mensajes siguen
+ * en la cola. El archivo registra lecturas, no resultados: un mensaje de un chunk revertido vuelve
+ * a archivarse al recibirse de nuevo (con JMSRedelivered). Los archivos rotan al superar
+ * archive.max-bytes y al cambiar el día, así un rango de fechas abre solo los archivos de esos días.
+ * El formato está descrito en {@link MessageArchiveFormat}.
+ */
+@Component
+public class MessageArchive implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageArchive.class);
+
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final long MAX_FILE_BYTES = 1L << 30; // El lector mapea el archivo completo
+    private static final int COPY_BUFFER = 64 * 1024;
+    private static final int HEAD_STRINGS = 4; // Cola, message ID, correlation ID y tipo, antes de las propiedades
+
+    private final boolean enabled;
+    private final Path directory;
+    private final long maxBytes;
+    private final int blockBytes;
+
+    private final Deflater deflater;
+    private final ByteArrayOutputStream compressed = new ByteArrayOutputStream(COPY_BUFFER);
+    private final DeflaterOutputStream block;
+    private int blockRaw;
+    private int blockCount;
+    private long blockFirst;
+    private long blockLast;
+
+    private FileChannel channel;
+    private Path currentFile;
+    private LocalDate currentDay;
+    private long fileSize;
+    private int sequence;
+
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder rawBytes = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+
+    @Autowired
+    public MessageArchive(PoliciaMetrics metrics,
+                          @Value("${archive.enabled:false}") boolean enabled,
+                          @Value("${archive.directory:archive}") String directory,
+                          @Value("${archive.max-bytes:268435456}") long maxBytes,
+                          @Value("${archive.block-bytes:1048576}") int blockBytes,
+                          @Value("${archive.compression-level:1}") int compressionLevel) {
+        if (enabled && (maxBytes <= MessageArchiveFormat.HEADER_SIZE || maxBytes > MAX_FILE_BYTES)) {
+            throw new IllegalArgumentException("archive.max-bytes debe estar entre "
+                    + (MessageArchiveFormat.HEADER_SIZE + 1) + " y " + MAX_FILE_BYTES);
+        }
+        if (enabled && (blockBytes < 1 || compressionLevel < 0 || compressionLevel > 9)) {
+            throw new IllegalArgumentException("archive.block-bytes debe ser mayor que 0 y archive.compression-level estar entre 0 y 9");
+        }
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.maxBytes = maxBytes;
+        this.blockBytes = blockBytes;
+        this.deflater = new Deflater(enabled ? compressionLevel : Deflater.DEFAULT_COMPRESSION, true);
+        this.block = new DeflaterOutputStream(compressed, deflater, COPY_BUFFER);
+
+        if (!enabled) {
+            return;
+        }
+
+        MeterRegistry registry = metrics.getRegistry();
+        FunctionCounter.builder("policia.archive.messages", messages, LongAdder::sum)
+                       .description("Mensajes archivados").register(registry);
+        FunctionCounter.builder("policia.archive.bytes", rawBytes, LongAdder::sum).tag("type", "raw")
+                       .description("Bytes archivados antes de comprimir").register(registry);
+        FunctionCounter.builder("policia.archive.bytes", compressedBytes, LongAdder::sum).tag("type", "compressed")
+                       .description("Bytes escritos al archivo").register(registry);
+
+        logger.info("Archivo de mensajes crudos en {} (bloques de {} bytes, Deflate nivel {}, rotación a {} bytes)",
+                    this.directory.toAbsolutePath(), blockBytes, compressionLevel, maxBytes);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Agrega el mensaje recibido al bloque abierto. Se llama al convertir el mensaje JMS, desde
+     * el hilo que lo recibió.
+     *
+     * Cabeceras y propiedades se codifican antes de tocar el bloque. Un mensaje volcado a disco
+     * abre un bloque propio: si falla la lectura de su archivo, solo se descarta ese mensaje y
+     * los ya archivados del bloque anterior quedan escritos.
+     */
+    public void append(QueueMessage queueMessage, Message message) throws JMSException {
+        if (!enabled) {
+            return;
+        }
+
+        List<String> strings = new ArrayList<>();
+        strings.add(queueMessage.getQueueName());
+        strings.add(queueMessage.getMessageId());
+        strings.add(message.getJMSCorrelationID());
+        strings.add(message.getJMSType());
+        Enumeration<?> names = message.getPropertyNames();
+        while (names != null && names.hasMoreElements()) {
+            String name = (String) names.nextElement();
+            Object value = message.getObjectProperty(name);
+            strings.add(name);
+            strings.add(value != null ? value.toString() : null);
+        }
+        long archived = System.currentTimeMillis();
+        byte[] head = encodeHead(archived, message, queueMessage.getLength(), strings);
+
+        synchronized (this) {
+            try {
+                if (queueMessage.isSpilled()) {
+                    writeBlock();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error escribiendo el archivo de mensajes " + currentFile, e);
+            }
+
+            try {
+                block.write(head, 0, head.length);
+                queueMessage.forEachChunk(this::writePayload);
+            } catch (IOException e) {
+                discardBlock();
+                throw new UncheckedIOException("Error archivando el mensaje " + queueMessage.getMessageId(), e);
+            } catch (RuntimeException e) {
+                // Error leyendo el archivo de un mensaje grande: el bloque solo contenía ese mensaje
+                discardBlock();
+                throw e;
+            }
+
+            int length = head.length + queueMessage.getLength();
+            blockRaw += length;
+            rawBytes.add(length);
+            if (blockCount == 0 || archived < blockFirst) {
+                blockFirst = archived;
+            }
+            blockLast = Math.max(blockLast, archived);
+            blockCount++;
+            messages.increment();
+
+            if (blockRaw >= blockBytes) {
+                try {
+                    writeBlock();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Error escribiendo el archivo de mensajes " + currentFile, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Parte fija, cola, IDs, tipo y propiedades del registro; el payload se agrega aparte
+     */
+    private static byte[] encodeHead(long archived, Message message, int payloadLength, List<String> strings)
+            throws JMSException {
+        byte[][] encoded = new byte[strings.size()][];
+        int size = MessageArchiveFormat.FIXED_SIZE + 2;
+        for (int i = 0; i < encoded.length; i++) {
+            String value = strings.get(i);
+            if (value != null) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                encoded[i] = bytes.length > MessageArchiveFormat.MAX_STRING_BYTES
+                             ? Arrays.copyOf(bytes, MessageArchiveFormat.MAX_STRING_BYTES)
+                             : bytes;
+                size += encoded[i].length;
+            }
+            size += 2;
+        }
+
+        ByteBuffer head = ByteBuffer.allocate(size).order(MessageArchiveFormat.BYTE_ORDER);
+        head.putLong(archived)
+            .putLong(message.getJMSTimestamp())
+            .putLong(message.getJMSExpiration())
+            .put((byte) message.getJMSPriority())
+            .put((byte) message.getJMSDeliveryMode())
+            .put((byte) (message.getJMSRedelivered() ? 1 : 0))
+            .put(message instanceof TextMessage ? MessageArchiveFormat.KIND_TEXT : MessageArchiveFormat.KIND_BYTES)
+            .putInt(payloadLength);
+        for (int i = 0; i < HEAD_STRINGS; i++) {
+            putString(head, encoded[i]);
+        }
+        head.putShort((short) ((encoded.length - HEAD_STRINGS) / 2)); // Cantidad de propiedades
+        for (int i = HEAD_STRINGS; i < encoded.length; i++) {
+            putString(head, encoded[i]);
+        }
+        return head.array();
+    }
+
+    private static void putString(ByteBuffer head, byte[] value) {
+        if (value == null) {
+            head.putShort((short) MessageArchiveFormat.NULL_STRING);
+            return;
+        }
+        head.putShort((short) value.length).put(value);
+    }
+
+    /**
+     * Escribe el bloque abierto antes de que confirme la transacción en curso (el chunk que leyó
+     * los mensajes). Sin transacción el bloque se escribe por tamaño, en flush y al cerrar.
+     */
+    public void flushOnCommit() {
+        if (!enabled || !TransactionSynchronizationManager.isSynchronizationActive()
+            || TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                synchronized (MessageArchive.this) {
+                    try {
+                        writeBlock();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Error escribiendo el archivo de mensajes " + currentFile, e);
+                    }
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(MessageArchive.this);
+            }
+        });
+    }
+
+    private void writePayload(byte[] bytes, int offset, int length) {
+        try {
+            block.write(bytes, offset, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Comprime lo que queda del bloque abierto y lo agrega al archivo
+     */
+    private void writeBlock() throws IOException {
+        if (blockCount == 0) {
+            return;
+        }
+        block.finish();
+        byte[] body = compressed.toByteArray();
+
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+        ByteBuffer header = ByteBuffer.allocate(MessageArchiveFormat.BLOCK_HEADER_SIZE)
+                                      .order(MessageArchiveFormat.BYTE_ORDER);
+        header.putInt(MessageArchiveFormat.BLOCK_MAGIC)
+              .putInt(body.length)
+              .putInt(blockRaw)
+              .putInt(blockCount)
+              .putLong(blockFirst)
+              .putLong(blockLast)
+              .putInt((int) crc.getValue());
+        header.flip();
+
+        try {
+            ensureOpen();
+            long start = fileSize;
+            try {
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                ByteBuffer content = ByteBuffer.wrap(body);
+                while (content.hasRemaining()) {
+                    channel.write(content);
+                }
+            } catch (IOException e) {
+                // Quitar el bloque parcial para que el archivo siga siendo legible y empezar otro
+                try {
+                    channel.truncate(start);
+                } catch (IOException truncateError) {
+                    logger.warn("No se pudo truncar {} tras el error: {}", currentFile, truncateError.getMessage());
+                }
+                closeFile();
+                throw e;
+            }
+            fileSize = channel.position();
+            compressedBytes.add(MessageArchiveFormat.BLOCK_HEADER_SIZE + body.length);
+        } finally {
+            resetBlock();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        LocalDate today = LocalDate.now();
+        if (channel != null && (fileSize >= maxBytes || !today.equals(currentDay))) {
+            closeFile();
+        }
+        if (channel != null) {
+            return;
+        }
+
+        Files.createDirectories(directory);
+        currentFile = directory.resolve(String.format("policia-archive-%s-%04d%s",
+                LocalDateTime.now().format(FILE_TIMESTAMP), ++sequence, MessageArchiveFormat.FILE_EXTENSION));
+        channel = FileChannel.open(currentFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        currentDay = today;
+
+        ByteBuffer header = ByteBuffer.allocate(MessageArchiveFormat.HEADER_SIZE).order(MessageArchiveFormat.BYTE_ORDER);
+        header.putInt(MessageArchiveFormat.MAGIC)
+              .putShort(MessageArchiveFormat.VERSION)
+              .putShort((short) 0)
+              .putLong(System.currentTimeMillis());
+        header.clear();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        fileSize = channel.position();
+
+        logger.info("🗄️ Nuevo archivo de mensajes: {}", currentFile);
+    }
+
+    /**
+     * Escribe el bloque abierto y lleva el archivo a disco (checkpoints del modo streaming)
+     */
+    public synchronized void flush() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            writeBlock();
+            if (channel != null) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error sincronizando el archivo de mensajes " + currentFile, e);
+        }
+    }
+
+    private void closeFile() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.force(true);
+            channel.close();
+            logger.info("🗄️ Archivo de mensajes cerrado: {} ({} bytes)", currentFile, fileSize);
+        } finally {
+            channel = null;
+        }
+    }
+
+    private void discardBlock() {
+        if (blockCount > 0) {
+            logger.error("❌ Se descartan {} mensajes archivados del bloque abierto tras un error", blockCount);
+        }
+        resetBlock();
+    }
+
+    private void resetBlock() {
+        deflater.reset();
+        compressed.reset();
+        blockRaw = 0;
+        blockCount = 0;
+        blockFirst = 0L;
+        blockLast = 0L;
+    }
+
+    @Override
+    public synchronized void destroy() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        try {
+            writeBlock();
+        } finally {
+            closeFile();
+            deflater.end();
+        }
+        long raw = rawBytes.sum();
+        logger.info("Archivo de mensajes - {} mensajes, {} bytes originales, {} bytes escritos ({}%)",
+                    messages.sum(), raw, compressedBytes.sum(),
+                    String.format("%.1f", raw > 0 ? compressedBytes.sum() * 100d / raw : 0d));
+    }
+}
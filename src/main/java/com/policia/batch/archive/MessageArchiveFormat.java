@@ -0,0 +1,60 @@
+package com.policia.batch.archive;
+
+import java.nio.ByteOrder;
+
+/**
+ * Formato del archivo de mensajes crudos (.parc).
+ *
+ * Un archivo es una cabecera seguida de bloques que solo se agregan al final. Cada bloque es un
+ * grupo de mensajes comprimido con Deflate (sin envoltorio zlib); la cabecera del bloque va sin
+ * comprimir, así que la lectura saltea los bloques fuera del rango de fechas sin descomprimirlos.
+ * Todos los enteros van en little-endian:
+ * <pre>
+ * cabecera (32 bytes): MAGIC(int) VERSION(short) reservado(short) CREADO(long millis) reservado
+ * bloque:  BLOCK_MAGIC(int) COMPRIMIDO(int) ORIGINAL(int) MENSAJES(int)
+ *          PRIMERO(long millis) ÚLTIMO(long millis) CRC32_COMPRIMIDO(int) cuerpo comprimido
+ * mensaje (dentro del cuerpo descomprimido):
+ *   long   archivado      recepción desde MQ (ms)
+ *   long   JMSTimestamp   (ms, 0 = desconocido)
+ *   long   JMSExpiration
+ *   byte   JMSPriority
+ *   byte   JMSDeliveryMode
+ *   byte   JMSRedelivered (0/1)
+ *   byte   tipo de cuerpo  KIND_BYTES o KIND_TEXT (el texto se guarda en UTF-8)
+ *   int    largo del payload
+ *   cola, JMSMessageID, JMSCorrelationID, JMSType: short len + UTF-8 (len 0xFFFF = null)
+ *   propiedades: short cantidad + (nombre, valor como texto)*
+ *   payload
+ * </pre>
+ * PRIMERO y ÚLTIMO son la menor y la mayor hora de archivado del bloque. Un bloque final truncado
+ * (escritura interrumpida) se ignora al leer.
+ */
+public final class MessageArchiveFormat {
+
+    public static final int MAGIC = 0x43524150;       // "PARC"
+    public static final short VERSION = 1;
+    public static final int HEADER_SIZE = 32;
+    public static final int BLOCK_MAGIC = 0x314B4241; // "ABK1"
+    public static final int BLOCK_HEADER_SIZE = 36;
+
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+    public static final String FILE_EXTENSION = ".parc";
+
+    // Offsets dentro de la cabecera del bloque
+    static final int BLOCK_COMPRESSED = 4;
+    static final int BLOCK_RAW = 8;
+    static final int BLOCK_COUNT = 12;
+    static final int BLOCK_FIRST = 16;
+    static final int BLOCK_LAST = 24;
+    static final int BLOCK_CRC = 32;
+
+    public static final byte KIND_BYTES = 1;
+    public static final byte KIND_TEXT = 2;
+
+    static final int FIXED_SIZE = 32;           // Parte fija de cada mensaje
+    static final int NULL_STRING = 0xFFFF;
+    static final int MAX_STRING_BYTES = 0xFFFE;
+
+    private MessageArchiveFormat() {
+    }
+}
@@ -0,0 +1,245 @@
+package com.policia.batch.archive;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Lector de archivos de mensajes crudos (.parc) mediante memoria mapeada.
+ *
+ * Al abrir solo se recorren las cabeceras de los bloques; un bloque se descomprime cuando se
+ * pide y solo si su rango de horas de archivado toca el pedido, directamente desde el mapeo sin
+ * copiarlo antes. El CRC del bloque se verifica al descomprimirlo. Un bloque final truncado
+ * (escritura interrumpida) se ignora; se puede abrir un archivo que todavía se está escribiendo.
+ */
+public final class MessageArchiveReader implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageArchiveReader.class);
+
+    private final Path file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final long createdMillis;
+    private final int[] blockOffsets;
+    private final Inflater inflater = new Inflater(true);
+    private byte[] raw = new byte[0];
+
+    private MessageArchiveReader(Path file, FileChannel channel, ByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        this.buffer = buffer;
+
+        if (buffer.limit() < MessageArchiveFormat.HEADER_SIZE || buffer.getInt(0) != MessageArchiveFormat.MAGIC) {
+            throw new IOException("No es un archivo de mensajes: " + file);
+        }
+        short version = buffer.getShort(4);
+        if (version != MessageArchiveFormat.VERSION) {
+            throw new IOException("Versión de archivo de mensajes no soportada " + version + ": " + file);
+        }
+        this.createdMillis = buffer.getLong(8);
+
+        int[] offsets = new int[16];
+        int blocks = 0;
+        int position = MessageArchiveFormat.HEADER_SIZE;
+        int limit = buffer.limit();
+        while (position < limit) {
+            if (limit - position < MessageArchiveFormat.BLOCK_HEADER_SIZE
+                || buffer.getInt(position) != MessageArchiveFormat.BLOCK_MAGIC) {
+                logger.warn("Archivo {} truncado en el byte {}: se ignora el resto", file, position);
+                break;
+            }
+            long end = (long) position + MessageArchiveFormat.BLOCK_HEADER_SIZE
+                       + buffer.getInt(position + MessageArchiveFormat.BLOCK_COMPRESSED);
+            if (end > limit) {
+                logger.warn("Archivo {} con el último bloque incompleto: se ignora", file);
+                break;
+            }
+            if (blocks == offsets.length) {
+                offsets = Arrays.copyOf(offsets, blocks * 2);
+            }
+            offsets[blocks++] = position;
+            position = (int) end;
+        }
+        this.blockOffsets = Arrays.copyOf(offsets, blocks);
+    }
+
+    /**
+     * Mapea el archivo completo en modo solo lectura
+     */
+    public static MessageArchiveReader open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Archivo de mensajes demasiado grande para mapear: " + file);
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size)
+                                       .order(MessageArchiveFormat.BYTE_ORDER);
+            return new MessageArchiveReader(file, channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Archivos de un directorio en orden de creación (el nombre lleva fecha y secuencia)
+     */
+    public static List<Path> list(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return Collections.emptyList();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(MessageArchiveFormat.FILE_EXTENSION))
+                        .sorted()
+                        .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Indica si el bloque tiene mensajes archivados en [fromMillis, toMillis)
+     */
+    public boolean overlaps(int block, long fromMillis, long toMillis) {
+        int offset = blockOffsets[block];
+        return buffer.getLong(offset + MessageArchiveFormat.BLOCK_LAST) >= fromMillis
+               && buffer.getLong(offset + MessageArchiveFormat.BLOCK_FIRST) < toMillis;
+    }
+
+    /**
+     * Descomprime el bloque y devuelve sus mensajes en orden de archivado
+     */
+    public List<ArchivedMessage> readBlock(int block) throws IOException {
+        int offset = blockOffsets[block];
+        int compressedLength = buffer.getInt(offset + MessageArchiveFormat.BLOCK_COMPRESSED);
+        int rawLength = buffer.getInt(offset + MessageArchiveFormat.BLOCK_RAW);
+        int count = buffer.getInt(offset + MessageArchiveFormat.BLOCK_COUNT);
+
+        ByteBuffer body = buffer.slice(offset + MessageArchiveFormat.BLOCK_HEADER_SIZE, compressedLength);
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != buffer.getInt(offset + MessageArchiveFormat.BLOCK_CRC)) {
+            throw new IOException("CRC inválido en el bloque " + block + " de " + file);
+        }
+
+        if (raw.length < rawLength) {
+            raw = new byte[rawLength];
+        }
+        inflater.reset();
+        inflater.setInput(body);
+        try {
+            int inflated = 0;
+            while (inflated < rawLength && !inflater.finished()) {
+                int read = inflater.inflate(raw, inflated, rawLength - inflated);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                inflated += read;
+            }
+            if (inflated != rawLength) {
+                throw new IOException("Bloque " + block + " de " + file + " incompleto: " + inflated + " de "
+                                      + rawLength + " bytes");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Bloque " + block + " de " + file + " mal comprimido", e);
+        }
+
+        ByteBuffer in = ByteBuffer.wrap(raw, 0, rawLength).order(MessageArchiveFormat.BYTE_ORDER);
+        List<ArchivedMessage> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            messages.add(decode(in));
+        }
+        return messages;
+    }
+
+    private static ArchivedMessage decode(ByteBuffer in) {
+        long archived = in.getLong();
+        long timestamp = in.getLong();
+        long expiration = in.getLong();
+        int priority = in.get();
+        int deliveryMode = in.get();
+        boolean redelivered = in.get() != 0;
+        boolean text = in.get() == MessageArchiveFormat.KIND_TEXT;
+        int length = in.getInt();
+        String queue = readString(in);
+        String messageId = readString(in);
+        String correlationId = readString(in);
+        String type = readString(in);
+        int propertyCount = in.getShort() & 0xFFFF;
+        Map<String, String> properties = new LinkedHashMap<>(propertyCount * 2);
+        for (int i = 0; i < propertyCount; i++) {
+            properties.put(readString(in), readString(in));
+        }
+        byte[] payload = new byte[length];
+        in.get(payload);
+        return new ArchivedMessage(archived, queue, messageId, correlationId, type, timestamp, expiration, priority,
+                                   deliveryMode, redelivered, text, properties, payload);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getShort() & 0xFFFF;
+        if (length == MessageArchiveFormat.NULL_STRING) {
+            return null;
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    /**
+     * Recorre los mensajes archivados en [fromMillis, toMillis), salteando los bloques fuera del rango
+     */
+    public void forEach(long fromMillis, long toMillis, Consumer<? super ArchivedMessage> action) throws IOException {
+        for (int block = 0; block < blockOffsets.length; block++) {
+            if (!overlaps(block, fromMillis, toMillis)) {
+                continue;
+            }
+            for (ArchivedMessage message : readBlock(block)) {
+                if (message.getArchivedMillis() >= fromMillis && message.getArchivedMillis() < toMillis) {
+                    action.accept(message);
+                }
+            }
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public int getBlockCount() {
+        return blockOffsets.length;
+    }
+
+    public int getMessageCount(int block) {
+        return buffer.getInt(blockOffsets[block] + MessageArchiveFormat.BLOCK_COUNT);
+    }
+
+    public long getCreatedMillis() {
+        return createdMillis;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        channel.close();
+    }
+}
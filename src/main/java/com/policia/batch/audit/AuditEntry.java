@@ -0,0 +1,75 @@
+package com.policia.batch.audit;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Cursor sobre una entrada de un diario mapeado.
+ *
+ * Los campos numéricos se leen directamente del mapeo; los textos se decodifican en cada llamada.
+ */
+public final class AuditEntry {
+
+    private final ByteBuffer buffer;
+    private int offset;
+
+    AuditEntry(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    void moveTo(int offset) {
+        this.offset = offset;
+    }
+
+    public long getProcessedMillis() {
+        return buffer.getLong(offset + AuditJournalFormat.PROCESSED);
+    }
+
+    /**
+     * JMSTimestamp del mensaje, 0 si no se conoce
+     */
+    public long getEnqueuedMillis() {
+        return buffer.getLong(offset + AuditJournalFormat.ENQUEUED);
+    }
+
+    public int getContentHash() {
+        return buffer.getInt(offset + AuditJournalFormat.HASH);
+    }
+
+    public int getPayloadLength() {
+        return buffer.getInt(offset + AuditJournalFormat.LENGTH);
+    }
+
+    /**
+     * Duración de una etapa en ns, en el orden de PoliciaMetrics.Stage (0 = clean ... 3 = enrich)
+     */
+    public int getStageNanos(int stage) {
+        return buffer.getInt(offset + AuditJournalFormat.STAGES + 4 * stage);
+    }
+
+    public AuditOutcome getOutcome() {
+        return AuditOutcome.fromCode(buffer.get(offset + AuditJournalFormat.OUTCOME));
+    }
+
+    public String getQueue() {
+        return text(AuditJournalFormat.QUEUE_LENGTH, AuditJournalFormat.QUEUE);
+    }
+
+    public String getMessageId() {
+        return text(AuditJournalFormat.MESSAGE_ID_LENGTH, AuditJournalFormat.MESSAGE_ID);
+    }
+
+    /**
+     * ID de policía, vacío si el mensaje no se pudo decodificar
+     */
+    public String getPoliciaId() {
+        return text(AuditJournalFormat.POLICIA_ID_LENGTH, AuditJournalFormat.POLICIA_ID);
+    }
+
+    private String text(int lengthField, int field) {
+        int length = buffer.get(offset + lengthField) & 0xFF;
+        byte[] bytes = new byte[length];
+        buffer.get(offset + field, bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,198 @@
+package com.policia.batch.audit;
+
+import com.policia.batch.model.QueueMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.zip.CRC32C;
+
+/**
+ * Diario de auditoría: una entrada binaria de tamaño fijo por mensaje procesado, escrita en un
+ * archivo mapeado en memoria que rota al llegar a audit.max-bytes.
+ *
+ * Reemplaza el log INFO por mensaje: la entrada se arma en un buffer del hilo y se copia al
+ * mapeo en un solo paso, sin formatear texto ni I/O sincrónica. Las páginas quedan en la caché
+ * del sistema operativo, así que una caída del proceso no pierde entradas; se fuerzan a disco
+ * al rotar, al cerrar y en los checkpoints del modo streaming. El diario registra intentos: si un chunk se revierte, sus
+ * mensajes vuelven a aparecer al reprocesarse. Se consulta con {@link AuditJournalCli}.
+ */
+@Component
+public class AuditJournal implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(AuditJournal.class);
+
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final long MAX_FILE_BYTES = 1L << 30; // Un solo mapeo por archivo
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int capacity; // Entradas por archivo
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private Path currentFile;
+    private int entries;
+    private int sequence;
+
+    @Autowired
+    public AuditJournal(@Value("${audit.enabled:true}") boolean enabled,
+                        @Value("${audit.directory:audit}") String directory,
+                        @Value("${audit.max-bytes:67108864}") long maxBytes) {
+        if (maxBytes < AuditJournalFormat.HEADER_SIZE + AuditJournalFormat.ENTRY_SIZE || maxBytes > MAX_FILE_BYTES) {
+            throw new IllegalArgumentException("audit.max-bytes debe estar entre "
+                    + (AuditJournalFormat.HEADER_SIZE + AuditJournalFormat.ENTRY_SIZE) + " y " + MAX_FILE_BYTES);
+        }
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.capacity = (int) ((maxBytes - AuditJournalFormat.HEADER_SIZE) / AuditJournalFormat.ENTRY_SIZE);
+
+        if (enabled) {
+            logger.info("Diario de auditoría en {} ({} entradas por archivo)", this.directory.toAbsolutePath(), capacity);
+        }
+    }
+
+    /**
+     * Registra el resultado de un mensaje.
+     *
+     * @param policiaId ID decodificado, o null si el mensaje no llegó a decodificarse
+     * @param stageNanos duraciones por etapa en el orden de PoliciaMetrics.Stage (las que falten van en 0)
+     */
+    public void record(QueueMessage message, String policiaId, AuditOutcome outcome, long[] stageNanos) {
+        if (!enabled) {
+            return;
+        }
+
+        // La entrada se arma fuera del lock; dentro solo se copia al archivo
+        Scratch scratch = SCRATCH.get();
+        ByteBuffer entry = scratch.entry;
+        CRC32C crc = scratch.crc;
+        crc.reset();
+        message.forEachChunk(crc::update);
+
+        entry.putLong(AuditJournalFormat.PROCESSED, System.currentTimeMillis());
+        entry.putLong(AuditJournalFormat.ENQUEUED, message.getTimestamp());
+        entry.putInt(AuditJournalFormat.HASH, (int) crc.getValue());
+        entry.putInt(AuditJournalFormat.LENGTH, message.getLength());
+        for (int i = 0; i < AuditJournalFormat.STAGE_COUNT; i++) {
+            long nanos = i < stageNanos.length ? stageNanos[i] : 0L;
+            entry.putInt(AuditJournalFormat.STAGES + 4 * i, (int) Math.min(nanos, Integer.MAX_VALUE));
+        }
+        putAscii(entry, AuditJournalFormat.QUEUE_LENGTH, AuditJournalFormat.QUEUE, AuditJournalFormat.QUEUE_MAX,
+                 message.getQueueName());
+        putAscii(entry, AuditJournalFormat.MESSAGE_ID_LENGTH, AuditJournalFormat.MESSAGE_ID,
+                 AuditJournalFormat.MESSAGE_ID_MAX, message.getMessageId());
+        putAscii(entry, AuditJournalFormat.POLICIA_ID_LENGTH, AuditJournalFormat.POLICIA_ID,
+                 AuditJournalFormat.POLICIA_ID_MAX, policiaId);
+
+        append(scratch.bytes, outcome);
+    }
+
+    private synchronized void append(byte[] entry, AuditOutcome outcome) {
+        try {
+            if (buffer == null || entries == capacity) {
+                rotate();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error abriendo el diario de auditoría en " + directory, e);
+        }
+
+        int offset = AuditJournalFormat.HEADER_SIZE + entries * AuditJournalFormat.ENTRY_SIZE;
+        buffer.put(offset, entry, 0, AuditJournalFormat.OUTCOME);
+        buffer.put(offset + AuditJournalFormat.OUTCOME, outcome.getCode()); // Último: marca la entrada como completa
+        entries++;
+    }
+
+    /**
+     * Copia el texto carácter a carácter (ASCII) y completa el campo con ceros
+     */
+    private static void putAscii(ByteBuffer entry, int lengthField, int field, int max, String text) {
+        int length = text != null ? Math.min(text.length(), max) : 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            entry.put(field + i, c < 0x80 ? (byte) c : (byte) '?');
+        }
+        for (int i = length; i < max; i++) {
+            entry.put(field + i, (byte) 0);
+        }
+        entry.put(lengthField, (byte) length);
+    }
+
+    private void rotate() throws IOException {
+        closeFile();
+
+        Files.createDirectories(directory);
+        currentFile = directory.resolve(String.format("policia-audit-%s-%04d%s",
+                LocalDateTime.now().format(FILE_TIMESTAMP), ++sequence, AuditJournalFormat.FILE_EXTENSION));
+        channel = FileChannel.open(currentFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                                   StandardOpenOption.WRITE);
+        long size = AuditJournalFormat.HEADER_SIZE + (long) capacity * AuditJournalFormat.ENTRY_SIZE;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        buffer.order(AuditJournalFormat.BYTE_ORDER);
+        buffer.putInt(0, AuditJournalFormat.MAGIC)
+              .putShort(4, AuditJournalFormat.VERSION)
+              .putShort(6, (short) AuditJournalFormat.ENTRY_SIZE)
+              .putLong(8, System.currentTimeMillis());
+        entries = 0;
+
+        logger.info("📒 Nuevo archivo de auditoría: {}", currentFile);
+    }
+
+    /**
+     * Lleva a disco las entradas escritas (checkpoints del modo streaming)
+     */
+    public synchronized void flush() {
+        if (buffer != null) {
+            buffer.force();
+        }
+    }
+
+    private void closeFile() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            buffer.force();
+            channel.close();
+            logger.info("📒 Archivo de auditoría cerrado: {} ({} entradas)", currentFile, entries);
+        } finally {
+            channel = null;
+            buffer = null;
+        }
+    }
+
+    @Override
+    public synchronized void destroy() throws IOException {
+        closeFile();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Entrada en armado y CRC de cada hilo
+     */
+    private static final class Scratch {
+
+        private final byte[] bytes = new byte[AuditJournalFormat.ENTRY_SIZE];
+        private final ByteBuffer entry = ByteBuffer.wrap(bytes).order(AuditJournalFormat.BYTE_ORDER);
+        private final CRC32C crc = new CRC32C();
+    }
+}
@@ -0,0 +1,202 @@
+package com.policia.batch.audit;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Consulta y exportación del diario de auditoría desde la línea de comandos.
+ *
+ * <pre>
+ * java -cp policia-batch.jar -Dloader.main=com.policia.batch.audit.AuditJournalCli \
+ *      org.springframework.boot.loader.PropertiesLauncher &lt;comando&gt; [filtros] [archivo|directorio ...]
+ *
+ * comandos: summary  totales por resultado y cola, rango de fechas y duración media por etapa
+ *           query    una línea por entrada
+ *           export   CSV con encabezado
+ * filtros:  --queue=COLA --outcome=OK|INVALID|MALFORMED|ERROR --id=POL123456 --message-id=ID:...
+ *           --from=2026-01-31T08:00 --to=2026-01-31T09:00 (hora local, sobre la fecha de procesamiento)
+ * </pre>
+ * Sin archivos se lee el directorio audit.
+ */
+public final class AuditJournalCli {
+
+    private static final String[] STAGES = {"clean", "parse", "validate", "enrich"};
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private final PrintStream out;
+    private final List<Path> files = new ArrayList<>();
+    private Predicate<AuditEntry> filter = entry -> true;
+
+    private AuditJournalCli(PrintStream out) {
+        this.out = out;
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            usage();
+            System.exit(2);
+        }
+        try {
+            AuditJournalCli cli = new AuditJournalCli(System.out);
+            cli.parse(args);
+            cli.run(args[0]);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            usage();
+            System.exit(2);
+        } catch (IOException e) {
+            System.err.println("Error leyendo el diario: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void usage() {
+        System.err.println("uso: AuditJournalCli <summary|query|export> [--queue=COLA] [--outcome=RESULTADO] [--id=ID]"
+                           + " [--message-id=ID] [--from=FECHA] [--to=FECHA] [archivo|directorio ...]");
+    }
+
+    private void parse(String[] args) throws IOException {
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            if (!arg.startsWith("--")) {
+                Path path = Paths.get(arg);
+                files.addAll(Files.isDirectory(path) ? AuditJournalReader.list(path) : List.of(path));
+                continue;
+            }
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Opción sin valor: " + arg);
+            }
+            String value = arg.substring(separator + 1);
+            switch (arg.substring(2, separator)) {
+                case "queue":
+                    and(entry -> entry.getQueue().equals(value));
+                    break;
+                case "outcome":
+                    AuditOutcome outcome = AuditOutcome.valueOf(value.toUpperCase(Locale.ROOT));
+                    and(entry -> entry.getOutcome() == outcome);
+                    break;
+                case "id":
+                    and(entry -> entry.getPoliciaId().equals(value));
+                    break;
+                case "message-id":
+                    and(entry -> entry.getMessageId().equals(value));
+                    break;
+                case "from":
+                    long from = millis(value);
+                    and(entry -> entry.getProcessedMillis() >= from);
+                    break;
+                case "to":
+                    long to = millis(value);
+                    and(entry -> entry.getProcessedMillis() < to);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Opción desconocida: " + arg);
+            }
+        }
+        if (files.isEmpty()) {
+            files.addAll(AuditJournalReader.list(Paths.get("audit")));
+        }
+    }
+
+    private void and(Predicate<AuditEntry> condition) {
+        filter = filter.and(condition);
+    }
+
+    private static long millis(String dateTime) {
+        return LocalDateTime.parse(dateTime).atZone(ZONE).toInstant().toEpochMilli();
+    }
+
+    private void run(String command) throws IOException {
+        switch (command) {
+            case "summary":
+                summary();
+                break;
+            case "query":
+                scan(entry -> out.printf(Locale.ROOT, "%s %-9s %-20s %-12s %-48s %6d bytes  espera %d ms  hash %08x%n",
+                                         timestamp(entry.getProcessedMillis()), entry.getOutcome(), entry.getQueue(),
+                                         entry.getPoliciaId(), entry.getMessageId(), entry.getPayloadLength(),
+                                         waitMillis(entry), entry.getContentHash()));
+                break;
+            case "export":
+                out.println("procesado,encolado,resultado,cola,message_id,policia_id,bytes,hash,"
+                            + "clean_ns,parse_ns,validate_ns,enrich_ns");
+                scan(entry -> out.printf(Locale.ROOT, "%s,%s,%s,%s,%s,%s,%d,%08x,%d,%d,%d,%d%n",
+                                         timestamp(entry.getProcessedMillis()),
+                                         entry.getEnqueuedMillis() > 0 ? timestamp(entry.getEnqueuedMillis()) : "",
+                                         entry.getOutcome(), entry.getQueue(), entry.getMessageId(),
+                                         entry.getPoliciaId(), entry.getPayloadLength(), entry.getContentHash(),
+                                         entry.getStageNanos(0), entry.getStageNanos(1), entry.getStageNanos(2),
+                                         entry.getStageNanos(3)));
+                break;
+            default:
+                throw new IllegalArgumentException("Comando desconocido: " + command);
+        }
+    }
+
+    private void scan(Consumer<AuditEntry> action) throws IOException {
+        for (Path file : files) {
+            try (AuditJournalReader journal = AuditJournalReader.open(file)) {
+                journal.forEach(entry -> {
+                    if (filter.test(entry)) {
+                        action.accept(entry);
+                    }
+                });
+            }
+        }
+    }
+
+    private void summary() throws IOException {
+        Map<AuditOutcome, long[]> byOutcome = new EnumMap<>(AuditOutcome.class);
+        Map<String, long[]> byQueue = new TreeMap<>();
+        long[] stageTotals = new long[STAGES.length];
+        long[] range = {Long.MAX_VALUE, Long.MIN_VALUE};
+        long[] totals = new long[2]; // entradas, bytes
+
+        scan(entry -> {
+            totals[0]++;
+            totals[1] += entry.getPayloadLength();
+            byOutcome.computeIfAbsent(entry.getOutcome(), key -> new long[1])[0]++;
+            byQueue.computeIfAbsent(entry.getQueue(), key -> new long[1])[0]++;
+            for (int i = 0; i < STAGES.length; i++) {
+                stageTotals[i] += entry.getStageNanos(i);
+            }
+            range[0] = Math.min(range[0], entry.getProcessedMillis());
+            range[1] = Math.max(range[1], entry.getProcessedMillis());
+        });
+
+        out.printf(Locale.ROOT, "Archivos: %d%n", files.size());
+        out.printf(Locale.ROOT, "Entradas: %d (%.1f MB de payload)%n", totals[0], totals[1] / 1048576.0);
+        if (totals[0] == 0) {
+            return;
+        }
+        out.printf(Locale.ROOT, "Desde %s hasta %s%n", timestamp(range[0]), timestamp(range[1]));
+        byOutcome.forEach((outcome, count) -> out.printf(Locale.ROOT, "  %-10s %d%n", outcome, count[0]));
+        byQueue.forEach((queue, count) -> out.printf(Locale.ROOT, "  cola %-20s %d%n", queue, count[0]));
+        for (int i = 0; i < STAGES.length; i++) {
+            out.printf(Locale.ROOT, "  %-10s media %.1f µs%n", STAGES[i], stageTotals[i] / 1000.0 / totals[0]);
+        }
+    }
+
+    private static long waitMillis(AuditEntry entry) {
+        return entry.getEnqueuedMillis() > 0 ? entry.getProcessedMillis() - entry.getEnqueuedMillis() : -1;
+    }
+
+    private static String timestamp(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZONE).toString();
+    }
+}
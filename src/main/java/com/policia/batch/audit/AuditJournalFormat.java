@@ -0,0 +1,59 @@
+package com.policia.batch.audit;
+
+import java.nio.ByteOrder;
+
+/**
+ * Formato del diario de auditoría (.paud).
+ *
+ * Un archivo es una cabecera seguida de entradas de tamaño fijo, una por mensaje procesado, en
+ * little-endian:
+ * <pre>
+ * cabecera (32 bytes): MAGIC(int) VERSION(short) ENTRY_SIZE(short) CREADO(long millis) reservado
+ * entrada (160 bytes):
+ *   0  long    procesado      fin del processor (ms)
+ *   8  long    encolado       JMSTimestamp (ms, 0 = desconocido)
+ *  16  int     hash           CRC32C del payload
+ *  20  int     bytes          largo del payload
+ *  24  int[4]  etapas         clean, parse, validate, enrich (ns)
+ *  40  byte    largo de cola, de JMS message ID y de ID de policía; 1 byte reservado
+ *  44  byte[24] cola
+ *  68  byte[56] JMS message ID
+ * 124  byte[20] ID de policía (vacío si el mensaje no se pudo decodificar)
+ * 144  reservado
+ * 159  byte    resultado      {@link AuditOutcome}; se escribe al final, 0 = entrada incompleta
+ * </pre>
+ * Los textos se guardan en ASCII (otros caracteres como '?') y se truncan al ancho del campo.
+ * Los archivos se crean con su tamaño máximo y la parte no usada queda en cero: la lectura
+ * termina en la primera entrada sin resultado.
+ */
+public final class AuditJournalFormat {
+
+    public static final int MAGIC = 0x44554150;       // "PAUD"
+    public static final short VERSION = 1;
+    public static final int HEADER_SIZE = 32;
+    public static final int ENTRY_SIZE = 160;
+
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+    public static final String FILE_EXTENSION = ".paud";
+
+    // Offsets dentro de la entrada
+    static final int PROCESSED = 0;
+    static final int ENQUEUED = 8;
+    static final int HASH = 16;
+    static final int LENGTH = 20;
+    static final int STAGES = 24;
+    static final int STAGE_COUNT = 4;
+    static final int QUEUE_LENGTH = 40;
+    static final int MESSAGE_ID_LENGTH = 41;
+    static final int POLICIA_ID_LENGTH = 42;
+    static final int QUEUE = 44;
+    static final int QUEUE_MAX = 24;
+    static final int MESSAGE_ID = 68;
+    static final int MESSAGE_ID_MAX = 56;
+    static final int POLICIA_ID = 124;
+    static final int POLICIA_ID_MAX = 20;
+    static final int OUTCOME = ENTRY_SIZE - 1;
+
+    private AuditJournalFormat() {
+    }
+}
@@ -0,0 +1,116 @@
+package com.policia.batch.audit;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Lector de archivos del diario de auditoría mediante memoria mapeada.
+ *
+ * Las entradas se recorren con un cursor reutilizable hasta la primera sin resultado (parte no
+ * usada del archivo o escritura interrumpida). Se puede abrir un archivo que todavía se está
+ * escribiendo: se ven las entradas completas al momento de abrirlo.
+ */
+public final class AuditJournalReader implements Closeable {
+
+    private final Path file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final long createdMillis;
+    private final int entryCount;
+
+    private AuditJournalReader(Path file, FileChannel channel, ByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        this.buffer = buffer;
+
+        if (buffer.limit() < AuditJournalFormat.HEADER_SIZE || buffer.getInt(0) != AuditJournalFormat.MAGIC) {
+            throw new IOException("No es un diario de auditoría: " + file);
+        }
+        short version = buffer.getShort(4);
+        if (version != AuditJournalFormat.VERSION || buffer.getShort(6) != AuditJournalFormat.ENTRY_SIZE) {
+            throw new IOException("Versión de diario no soportada " + version + ": " + file);
+        }
+        this.createdMillis = buffer.getLong(8);
+
+        int count = 0;
+        int offset = AuditJournalFormat.HEADER_SIZE;
+        while (offset + AuditJournalFormat.ENTRY_SIZE <= buffer.limit()
+               && buffer.get(offset + AuditJournalFormat.OUTCOME) != 0) {
+            count++;
+            offset += AuditJournalFormat.ENTRY_SIZE;
+        }
+        this.entryCount = count;
+    }
+
+    /**
+     * Mapea el archivo completo en modo solo lectura
+     */
+    public static AuditJournalReader open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Diario demasiado grande para mapear: " + file);
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size)
+                                       .order(AuditJournalFormat.BYTE_ORDER);
+            return new AuditJournalReader(file, channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Archivos de un directorio en orden de creación (el nombre lleva fecha y secuencia)
+     */
+    public static List<Path> list(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return Collections.emptyList();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(AuditJournalFormat.FILE_EXTENSION))
+                        .sorted()
+                        .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Recorre las entradas en orden de escritura. El cursor se reutiliza entre llamadas:
+     * no debe guardarse fuera del callback.
+     */
+    public void forEach(Consumer<? super AuditEntry> action) {
+        AuditEntry entry = new AuditEntry(buffer);
+        for (int i = 0; i < entryCount; i++) {
+            entry.moveTo(AuditJournalFormat.HEADER_SIZE + i * AuditJournalFormat.ENTRY_SIZE);
+            action.accept(entry);
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    public long getCreatedMillis() {
+        return createdMillis;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
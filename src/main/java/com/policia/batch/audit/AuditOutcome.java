@@ -0,0 +1,33 @@
+package com.policia.batch.audit;
+
+/**
+ * Resultado del procesamiento de un mensaje, tal como queda en el diario de auditoría
+ */
+public enum AuditOutcome {
+    OK(1),        // Procesado y enviado al writer
+    INVALID(2),   // No pasó las reglas de negocio
+    MALFORMED(3), // XML mal formado
+    ERROR(4);     // Error inesperado del processor
+
+    private final byte code;
+
+    AuditOutcome(int code) {
+        this.code = (byte) code;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    /**
+     * Resultado de un código leído del diario, o null si no corresponde a ninguno
+     */
+    public static AuditOutcome fromCode(byte code) {
+        for (AuditOutcome outcome : values()) {
+            if (outcome.code == code) {
+                return outcome;
+            }
+        }
+        return null;
+    }
+}
@@ -1,29 +1,92 @@
 package com.policia.batch.config;
 
+import com.policia.batch.archive.ArchiveReplayReader;
+import com.policia.batch.dedup.PoliciaDedupFilter;
+import com.policia.batch.export.PoliciaSegmentWriter;
 import com.policia.batch.listener.BatchErrorListener;
-import com.policia.batch.model.PoliciaData;
+import com.policia.batch.model.PoliciaRecord;
+import com.policia.batch.model.QueueMessage;
+import com.policia.batch.payload.PayloadTypeRegistry;
+import com.policia.batch.partition.PartitionMode;
+import com.policia.batch.partition.PartitionQueueReader;
+import com.policia.batch.partition.QueuePartitioner;
+import com.policia.batch.partition.ReassigningPartitionHandler;
 import com.policia.batch.processor.PoliciaDataProcessor;
 import com.policia.batch.reader.IBMMQItemReader;
 import com.policia.batch.writer.PoliciaDataWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ChunkListener;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecutionListener;
 import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
 import org.springframework.batch.core.configuration.annotation.JobBuilderFactory;
 import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.step.builder.FaultTolerantStepBuilder;
+import org.springframework.batch.integration.async.AsyncItemProcessor;
+import org.springframework.batch.integration.async.AsyncItemWriter;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.support.CompositeItemProcessor;
+import org.springframework.batch.item.support.CompositeItemWriter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.Arrays;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 @EnableBatchProcessing
 public class BatchConfiguration {
 
+    private static final Logger logger = LoggerFactory.getLogger(BatchConfiguration.class);
+
     private final JobBuilderFactory jobBuilderFactory;
     private final StepBuilderFactory stepBuilderFactory;
     private final IBMMQItemReader itemReader;
     private final PoliciaDataProcessor itemProcessor;
     private final PoliciaDataWriter itemWriter;
+    private final PoliciaSegmentWriter segmentWriter;
+    private final PoliciaDedupFilter dedupFilter;
     private final BatchErrorListener batchErrorListener;
+    private final PartitionQueueReader partitionReader;
+    private final QueuePartitioner queuePartitioner;
+    private final ReassigningPartitionHandler partitionHandler;
+    private final PayloadTypeRegistry payloadTypes;
+    private final ArchiveReplayReader replayReader;
+
+    @Value("${batch.chunk-size:1}")
+    private int chunkSize;
+
+    @Value("${mq.session-transacted:false}")
+    private boolean sessionTransacted;
+
+    @Value("${batch.async.enabled:false}")
+    private boolean asyncEnabled;
+
+    @Value("${batch.async.pool-size:4}")
+    private int asyncPoolSize;
+
+    @Value("${batch.async.queue-capacity:1000}")
+    private int asyncQueueCapacity;
+
+    @Value("${export.segment.enabled:false}")
+    private boolean segmentExportEnabled;
+
+    @Value("${dedup.enabled:false}")
+    private boolean dedupEnabled;
+
+    @Value("${partitioning.mode:none}")
+    private String partitioningMode;
+
+    @Value("${archive.replay.enabled:false}")
+    private boolean replayEnabled;
 
     @Autowired
     public BatchConfiguration(JobBuilderFactory jobBuilderFactory,
@@ -31,33 +94,218 @@ public class BatchConfiguration {
                             IBMMQItemReader itemReader,
                             PoliciaDataProcessor itemProcessor,
                             PoliciaDataWriter itemWriter,
-                            BatchErrorListener batchErrorListener) {
+                            PoliciaSegmentWriter segmentWriter,
+                            PoliciaDedupFilter dedupFilter,
+                            BatchErrorListener batchErrorListener,
+                            PartitionQueueReader partitionReader,
+                            QueuePartitioner queuePartitioner,
+                            ReassigningPartitionHandler partitionHandler,
+                            PayloadTypeRegistry payloadTypes,
+                            ArchiveReplayReader replayReader) {
         this.jobBuilderFactory = jobBuilderFactory;
         this.stepBuilderFactory = stepBuilderFactory;
         this.itemReader = itemReader;
         this.itemProcessor = itemProcessor;
         this.itemWriter = itemWriter;
+        this.segmentWriter = segmentWriter;
+        this.dedupFilter = dedupFilter;
         this.batchErrorListener = batchErrorListener;
+        this.partitionReader = partitionReader;
+        this.queuePartitioner = queuePartitioner;
+        this.partitionHandler = partitionHandler;
+        this.payloadTypes = payloadTypes;
+        this.replayReader = replayReader;
     }
 
     @Bean
-    public Job policiaXmlProcessingJob() {
+    public Job policiaXmlProcessingJob() throws Exception {
         return jobBuilderFactory.get("policiaXmlProcessingJob")
-                .start(processXmlStep())
+                .start(firstStep())
                 .listener(batchErrorListener)
                 .build();
     }
 
+    private Step firstStep() throws Exception {
+        if (replayEnabled) {
+            return archiveReplayStep();
+        }
+        return PartitionMode.of(partitioningMode) == PartitionMode.MANAGER
+               ? processXmlManagerStep()
+               : processXmlStep();
+    }
+
     @Bean
-    public Step processXmlStep() {
-        return stepBuilderFactory.get("processXmlStep")
-                .<String, PoliciaData>chunk(1) // Chunk size de 1 para control estricto
-                .reader(itemReader)
-                .processor(itemProcessor)
-                .writer(itemWriter)
-                .faultTolerant()
-                .skipPolicy(new CustomSkipPolicy()) // Política personalizada que NO salta errores críticos
+    public Step processXmlStep() throws Exception {
+        logger.info("Configurando step con chunk size {} (sesión JMS transaccional: {}, procesamiento asíncrono: {})",
+                   chunkSize, sessionTransacted, asyncEnabled);
+        
+        return chunkStep("processXmlStep", itemReader, itemReader.isConcurrent(), true);
+    }
+
+    /**
+     * Step que ejecutan los workers sobre cada partición (una cola, o un rango de una cola).
+     * Los workers lo buscan por nombre al recibir la solicitud del manager.
+     */
+    @Bean(ReassigningPartitionHandler.WORKER_STEP)
+    public Step policiaPartitionStep() throws Exception {
+        return chunkStep(ReassigningPartitionHandler.WORKER_STEP, partitionReader, false, true);
+    }
+
+    /**
+     * Step del modo replay: los mensajes del archivo de mensajes crudos pasan por el mismo processor
+     * y writer que los de MQ. Sin deduplicación (los IDs ya figuran como procesados) y sin la
+     * semántica de cola transaccional: el archivo no devuelve mensajes en un rollback, así que el
+     * chunk se reintenta desde el buffer del step.
+     */
+    private Step archiveReplayStep() throws Exception {
+        logger.info("Modo replay: el job procesa el archivo de mensajes en lugar de las colas");
+        
+        return chunkStep("archiveReplayStep", replayReader, false, false);
+    }
+
+    /**
+     * Step del manager: divide el trabajo por cola y publica las particiones para los workers.
+     * Los totales del step son la suma de las particiones (leídas del job repository compartido).
+     */
+    private Step processXmlManagerStep() {
+        logger.info("Modo manager: las particiones de {} se ejecutan en los workers",
+                   ReassigningPartitionHandler.WORKER_STEP);
+        
+        return stepBuilderFactory.get("processXmlManagerStep")
+                .partitioner(ReassigningPartitionHandler.WORKER_STEP, queuePartitioner)
+                .partitionHandler(partitionHandler)
                 .listener(batchErrorListener)
                 .build();
     }
+
+    /**
+     * @param fromQueue el reader recibe de MQ (deduplicación y, con sesión transaccional, mensajes
+     *                  que vuelven a la cola en un rollback); false para el replay del archivo
+     */
+    private Step chunkStep(String name, ItemReader<QueueMessage> reader, boolean concurrentReader, boolean fromQueue)
+            throws Exception {
+        return asyncEnabled
+               ? asyncChunkStep(name, reader, concurrentReader, fromQueue)
+               : syncChunkStep(name, reader, concurrentReader, fromQueue);
+    }
+
+    /**
+     * Lectura, procesamiento y escritura en el hilo del step
+     */
+    private Step syncChunkStep(String name, ItemReader<QueueMessage> reader, boolean concurrentReader,
+                               boolean fromQueue) throws Exception {
+        return configureFaultTolerance(stepBuilderFactory.get(name)
+                .<QueueMessage, Object>chunk(chunkSize) // Commit interval configurable (batch.chunk-size)
+                .reader(reader)
+                .processor(withDedup(itemProcessor, fromQueue))
+                .writer(chunkWriter())
+                .faultTolerant(), concurrentReader, fromQueue);
+    }
+
+    /**
+     * El procesamiento corre en el pool de workers y devuelve futures; el writer espera los
+     * resultados en el orden de lectura y los escribe detrás, de modo que el parseo de los
+     * mensajes del chunk se solapa con la lectura de MQ. Las excepciones del processor se
+     * desenvuelven en el writer, así que CustomSkipPolicy recibe la misma InvalidDataException.
+     */
+    private Step asyncChunkStep(String name, ItemReader<QueueMessage> reader, boolean concurrentReader,
+                                boolean fromQueue) throws Exception {
+        AsyncItemProcessor<QueueMessage, Object> asyncProcessor = new AsyncItemProcessor<>();
+        asyncProcessor.setDelegate(itemProcessor);
+        asyncProcessor.setTaskExecutor(policiaProcessingExecutor());
+        asyncProcessor.afterPropertiesSet();
+        
+        AsyncItemWriter<Object> asyncWriter = new AsyncItemWriter<>();
+        asyncWriter.setDelegate(chunkWriter());
+        asyncWriter.afterPropertiesSet();
+        
+        return configureFaultTolerance(stepBuilderFactory.get(name)
+                .<QueueMessage, Future<Object>>chunk(chunkSize)
+                .reader(reader)
+                .processor(withDedup(asyncProcessor, fromQueue))
+                .writer(asyncWriter)
+                .faultTolerant(), concurrentReader, fromQueue);
+    }
+
+    /**
+     * Antepone el filtro de duplicados al processor si está habilitado. En modo asíncrono el
+     * filtro corre en el hilo del step, antes de enviar el mensaje al pool.
+     */
+    private <O> ItemProcessor<QueueMessage, O> withDedup(ItemProcessor<QueueMessage, O> processor, boolean fromQueue)
+            throws Exception {
+        if (!dedupEnabled || !fromQueue) {
+            return processor;
+        }
+        
+        CompositeItemProcessor<QueueMessage, O> composite = new CompositeItemProcessor<>();
+        composite.setDelegates(Arrays.asList(dedupFilter, processor));
+        composite.afterPropertiesSet();
+        return composite;
+    }
+
+    /**
+     * Writer del chunk: los registros de policia-data van al writer JDBC (y a la exportación), los
+     * de otros tipos de payload al writer de su tipo
+     */
+    private ItemWriter<Object> chunkWriter() throws Exception {
+        return payloadTypes.writer(policiaDataWriter());
+    }
+
+    /**
+     * Writer JDBC, seguido de la exportación a segmentos columnares si está habilitada.
+     * El composite propaga open/close al segmento, y el step lo registra como stream.
+     */
+    private ItemWriter<PoliciaRecord> policiaDataWriter() throws Exception {
+        if (!segmentExportEnabled) {
+            return itemWriter;
+        }
+        
+        CompositeItemWriter<PoliciaRecord> writer = new CompositeItemWriter<>();
+        writer.setDelegates(Arrays.asList(itemWriter, segmentWriter));
+        writer.afterPropertiesSet();
+        return writer;
+    }
+
+    private <O> Step configureFaultTolerance(FaultTolerantStepBuilder<QueueMessage, O> builder,
+                                             boolean concurrentReader, boolean fromQueue) {
+        builder.skipPolicy(new CustomSkipPolicy()); // Política personalizada que NO salta errores críticos
+        
+        if (sessionTransacted && fromQueue && !concurrentReader) {
+            // Los mensajes se reciben en la sesión JMS sincronizada con la transacción del chunk:
+            // en un rollback vuelven a la cola, así que los items no deben reutilizarse desde el buffer.
+            // Los consumidores concurrentes confirman sus sesiones después del commit: en un rollback
+            // el step reprocesa desde su buffer
+            builder.readerIsTransactionalQueue();
+        }
+        
+        if (dedupEnabled && fromQueue) {
+            builder.stream(dedupFilter); // Abre el bitmap al iniciar el step y lo sincroniza al cerrar
+        }
+        
+        if (segmentExportEnabled) {
+            builder.listener((StepExecutionListener) segmentWriter); // Falla el step si quedó un hueco en el segmento
+        }
+        
+        return builder
+                .listener((ChunkListener) batchErrorListener)
+                .listener((StepExecutionListener) batchErrorListener)
+                .build();
+    }
+
+    /**
+     * Pool acotado para el procesamiento asíncrono. Cuando la cola de trabajo se llena,
+     * el hilo del step procesa el item (CallerRunsPolicy) y así frena la lectura.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor policiaProcessingExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(asyncPoolSize);
+        executor.setMaxPoolSize(asyncPoolSize);
+        executor.setQueueCapacity(asyncQueueCapacity);
+        executor.setThreadNamePrefix("policia-proc-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
 }
@@ -2,11 +2,16 @@ package com.policia.batch.config;
 
 import com.ibm.mq.jms.MQQueueConnectionFactory;
 import com.ibm.msg.client.wmq.WMQConstants;
+import com.policia.batch.metrics.PoliciaMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
 import org.springframework.jms.core.JmsTemplate;
 
+import javax.jms.ConnectionFactory;
 import javax.jms.JMSException;
 
 @Configuration
@@ -30,7 +35,24 @@ public class JmsConfiguration {
     @Value("${mq.queue.mas}")
     private String queueMas;
 
+    @Value("${mq.session-transacted:false}")
+    private boolean sessionTransacted;
+
+    @Value("${mq.receive-timeout-ms:5000}")
+    private long receiveTimeout;
+
+    @Value("${mq.pool.session-cache-size:10}")
+    private int sessionCacheSize;
+
+    @Value("${mq.pool.idle-timeout-ms:300000}")
+    private long idleTimeoutMillis;
+
+    /**
+     * Conexión al queue manager. En el perfil loadtest la reemplaza el broker embebido
+     * (ver LoadTestConfiguration en src/loadtest).
+     */
     @Bean
+    @Profile("!loadtest")
     public MQQueueConnectionFactory mqQueueConnectionFactory() throws JMSException {
         MQQueueConnectionFactory factory = new MQQueueConnectionFactory();
         factory.setHostName(mqHost);
@@ -42,21 +64,41 @@ public class JmsConfiguration {
         return factory;
     }
 
+    /**
+     * Fábrica compartida por los templates y cualquier otro consumidor: una conexión física con
+     * sesiones y consumidores cacheados en lugar de un handshake de canal por lectura
+     */
+    @Bean
+    @Primary
+    public PooledMqConnectionFactory pooledMqConnectionFactory(
+            @Qualifier("mqQueueConnectionFactory") ConnectionFactory mqQueueConnectionFactory,
+            PoliciaMetrics metrics) {
+        PooledMqConnectionFactory factory = new PooledMqConnectionFactory(mqQueueConnectionFactory,
+                                                                          sessionCacheSize, idleTimeoutMillis);
+        factory.bindTo(metrics.getRegistry());
+        factory.startEvictor();
+        return factory;
+    }
+
     @Bean("jmsTemplateRta")
-    public JmsTemplate jmsTemplateRta() throws JMSException {
+    public JmsTemplate jmsTemplateRta(PooledMqConnectionFactory pooledMqConnectionFactory) {
         JmsTemplate jmsTemplate = new JmsTemplate();
-        jmsTemplate.setConnectionFactory(mqQueueConnectionFactory());
+        jmsTemplate.setConnectionFactory(pooledMqConnectionFactory);
         jmsTemplate.setDefaultDestinationName(queueRta);
-        jmsTemplate.setReceiveTimeout(5000);
+        jmsTemplate.setReceiveTimeout(receiveTimeout);
+        // Con sesión transaccional el receive se confirma junto con la transacción del chunk
+        jmsTemplate.setSessionTransacted(sessionTransacted);
         return jmsTemplate;
     }
 
     @Bean("jmsTemplateMas")  
-    public JmsTemplate jmsTemplateMas() throws JMSException {
+    public JmsTemplate jmsTemplateMas(PooledMqConnectionFactory pooledMqConnectionFactory) {
         JmsTemplate jmsTemplate = new JmsTemplate();
-        jmsTemplate.setConnectionFactory(mqQueueConnectionFactory());
+        jmsTemplate.setConnectionFactory(pooledMqConnectionFactory);
         jmsTemplate.setDefaultDestinationName(queueMas);
-        jmsTemplate.setReceiveTimeout(5000);
+        jmsTemplate.setReceiveTimeout(receiveTimeout);
+        // Con sesión transaccional el receive se confirma junto con la transacción del chunk
+        jmsTemplate.setSessionTransacted(sessionTransacted);
         return jmsTemplate;
     }
 }
@@ -0,0 +1,59 @@
+package com.policia.batch.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Con batch.job-repository.mode=lightweight envuelve el JobRepository de @EnableBatchProcessing
+ * en un {@link LightweightJobRepository}. Los step builders, los jobs y el manager de particiones
+ * toman el bean ya envuelto; con mode=jdbc (por defecto) no cambia nada.
+ */
+@Component
+public class JobRepositoryModePostProcessor implements BeanPostProcessor, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobRepositoryModePostProcessor.class);
+
+    public static final String MODE_JDBC = "jdbc";
+    public static final String MODE_LIGHTWEIGHT = "lightweight";
+
+    private final boolean lightweight;
+    private final long flushIntervalMillis;
+    private final long flushItems;
+    private LightweightJobRepository repository;
+
+    @Autowired
+    public JobRepositoryModePostProcessor(@Value("${batch.job-repository.mode:" + MODE_JDBC + "}") String mode,
+                                          @Value("${batch.job-repository.flush-interval-ms:1000}") long flushIntervalMillis,
+                                          @Value("${batch.job-repository.flush-items:5000}") long flushItems) {
+        if (!MODE_JDBC.equalsIgnoreCase(mode) && !MODE_LIGHTWEIGHT.equalsIgnoreCase(mode)) {
+            throw new IllegalArgumentException("batch.job-repository.mode inválido: " + mode + " (jdbc | lightweight)");
+        }
+        this.lightweight = MODE_LIGHTWEIGHT.equalsIgnoreCase(mode);
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.flushItems = flushItems;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!lightweight || !(bean instanceof JobRepository) || bean instanceof LightweightJobRepository) {
+            return bean;
+        }
+        repository = new LightweightJobRepository((JobRepository) bean, flushIntervalMillis, flushItems);
+        logger.info("Job repository liviano: avance de los steps escrito cada {} ms o {} mensajes, y al terminar cada step",
+                    flushIntervalMillis, flushItems);
+        return repository;
+    }
+
+    @Override
+    public void destroy() {
+        if (repository != null) {
+            repository.shutdown();
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.policia.batch.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.repository.JobExecutionAlreadyRunningException;
+import org.springframework.batch.core.repository.JobInstanceAlreadyCompleteException;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.JobRestartException;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Job repository liviano: el avance de cada chunk (BATCH_STEP_EXECUTION y su contexto) queda en
+ * memoria y se escribe en segundo plano cada flush-interval-ms o cada flush-items mensajes leídos,
+ * en lugar de dos UPDATE por commit dentro de la transacción del chunk.
+ *
+ * <ul>
+ *   <li>Solo se difieren las actualizaciones hechas dentro de la transacción de un chunk de un step
+ *       en curso. El inicio y el fin del step, y todo lo demás (instancias, ejecuciones del job,
+ *       particiones), pasan directo al repositorio JDBC. Al terminar un step se espera el flush en
+ *       curso y se escribe el estado final de forma sincrónica.</li>
+ *   <li>El estado se copia después del commit del chunk, así que la base nunca tiene el contexto de
+ *       un chunk revertido. Tras una caída el contexto guardado puede estar algunos chunks atrasado.
+ *       Con el reader de colas esto solo puede reprocesar mensajes (MERGE idempotente), nunca
+ *       saltarlos: la ventana de duplicados vieja no contiene los mensajes que quedaron en la cola.</li>
+ *   <li>Si un flush falla (por ejemplo por optimistic locking, cuando el manager reasignó la
+ *       partición), la siguiente actualización del step lanza el error y el chunk se revierte.</li>
+ *   <li>Las señales de stop del job se ven en cada flush en lugar de en cada chunk.</li>
+ * </ul>
+ */
+public class LightweightJobRepository implements JobRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(LightweightJobRepository.class);
+
+    private final JobRepository delegate;
+    private final long flushItems;
+    private final ScheduledExecutorService flusher;
+    private final Map<Long, Progress> steps = new ConcurrentHashMap<>();
+
+    private final LongAdder deferred = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+
+    public LightweightJobRepository(JobRepository delegate, long flushIntervalMillis, long flushItems) {
+        if (flushIntervalMillis < 1) {
+            throw new IllegalArgumentException("batch.job-repository.flush-interval-ms debe ser mayor que 0");
+        }
+        this.delegate = delegate;
+        this.flushItems = flushItems;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "job-repository-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushAll, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void update(StepExecution stepExecution) {
+        if (!isChunkUpdate(stepExecution)) {
+            updateNow(stepExecution, true);
+            return;
+        }
+
+        Progress progress = steps.computeIfAbsent(stepExecution.getId(), id -> new Progress(stepExecution));
+        progress.rethrowFailure();
+
+        // El stop del job se consulta en cada flush; se entrega en el siguiente chunk
+        if (progress.terminateOnly) {
+            stepExecution.setTerminateOnly();
+        }
+
+        StepExecution snapshot = snapshot(stepExecution);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                progress.pending.set(snapshot);
+                deferred.increment();
+                if (flushItems > 0 && snapshot.getReadCount() - progress.flushedReadCount >= flushItems) {
+                    flusher.execute(() -> flushStep(progress));
+                }
+            }
+        });
+    }
+
+    @Override
+    public void updateExecutionContext(StepExecution stepExecution) {
+        if (isChunkUpdate(stepExecution)) {
+            // Viaja con la copia que toma update(), que el step llama a continuación
+            steps.computeIfAbsent(stepExecution.getId(), id -> new Progress(stepExecution)).rethrowFailure();
+            return;
+        }
+        updateNow(stepExecution, false);
+    }
+
+    /**
+     * Commit de un chunk: step en curso y sincronización de transacción activa
+     */
+    private static boolean isChunkUpdate(StepExecution stepExecution) {
+        return stepExecution.getId() != null
+               && stepExecution.getStatus() == BatchStatus.STARTED
+               && stepExecution.getEndTime() == null
+               && TransactionSynchronizationManager.isSynchronizationActive();
+    }
+
+    /**
+     * Escritura sincrónica: descarta la copia pendiente (el estado actual es más nuevo) y espera
+     * el flush en curso para usar la versión que dejó en la base
+     */
+    private void updateNow(StepExecution stepExecution, boolean counts) {
+        Progress progress = stepExecution.getId() != null ? steps.get(stepExecution.getId()) : null;
+        if (progress == null) {
+            if (counts) {
+                delegate.update(stepExecution);
+            } else {
+                delegate.updateExecutionContext(stepExecution);
+            }
+            return;
+        }
+
+        synchronized (progress) {
+            progress.pending.set(null);
+            stepExecution.setVersion(progress.version);
+            if (counts) {
+                delegate.update(stepExecution);
+                progress.version = stepExecution.getVersion();
+            } else {
+                delegate.updateExecutionContext(stepExecution);
+            }
+        }
+
+        if (counts && stepExecution.getEndTime() != null) {
+            steps.remove(stepExecution.getId());
+            logger.debug("Step {} terminado - actualizaciones diferidas: {}, flushes: {}",
+                         stepExecution.getStepName(), deferred.sum(), flushes.sum());
+        }
+    }
+
+    private void flushAll() {
+        steps.values().forEach(this::flushStep);
+    }
+
+    private void flushStep(Progress progress) {
+        synchronized (progress) {
+            StepExecution snapshot = progress.pending.getAndSet(null);
+            if (snapshot == null || progress.failure != null) {
+                return;
+            }
+            try {
+                snapshot.setVersion(progress.version);
+                delegate.updateExecutionContext(snapshot);
+                delegate.update(snapshot);
+                progress.version = snapshot.getVersion();
+                progress.flushedReadCount = snapshot.getReadCount();
+                if (snapshot.isTerminateOnly()) {
+                    progress.terminateOnly = true;
+                }
+                flushes.increment();
+            } catch (RuntimeException e) {
+                progress.failure = e;
+                logger.error("❌ No se pudo guardar el avance del step {} en el job repository: {}",
+                             snapshot.getStepName(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Copia del estado del step para escribirla desde el hilo de flush. Lleva su propia copia de
+     * la ejecución del job, que el repositorio sincroniza al buscar señales de stop.
+     */
+    private static StepExecution snapshot(StepExecution source) {
+        JobExecution job = source.getJobExecution();
+        JobExecution jobCopy = new JobExecution(job.getJobInstance(), job.getId(), job.getJobParameters(),
+                                                job.getJobConfigurationName());
+        jobCopy.setVersion(job.getVersion());
+        jobCopy.setStatus(job.getStatus());
+
+        StepExecution copy = new StepExecution(source.getStepName(), jobCopy, source.getId());
+        copy.setStatus(source.getStatus());
+        copy.setExitStatus(source.getExitStatus());
+        copy.setStartTime(source.getStartTime());
+        copy.setReadCount(source.getReadCount());
+        copy.setWriteCount(source.getWriteCount());
+        copy.setFilterCount(source.getFilterCount());
+        copy.setCommitCount(source.getCommitCount());
+        copy.setRollbackCount(source.getRollbackCount());
+        copy.setReadSkipCount(source.getReadSkipCount());
+        copy.setProcessSkipCount(source.getProcessSkipCount());
+        copy.setWriteSkipCount(source.getWriteSkipCount());
+        copy.setExecutionContext(new ExecutionContext(source.getExecutionContext()));
+        return copy;
+    }
+
+    /**
+     * Detiene el flush periódico y escribe lo pendiente
+     */
+    public void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushAll();
+        logger.info("Job repository liviano - actualizaciones de chunk diferidas: {}, flushes: {}",
+                    deferred.sum(), flushes.sum());
+    }
+
+    public long getDeferredUpdates() {
+        return deferred.sum();
+    }
+
+    public long getFlushes() {
+        return flushes.sum();
+    }
+
+    // Sin cambios respecto del repositorio JDBC
+
+    @Override
+    public boolean isJobInstanceExists(String jobName, JobParameters jobParameters) {
+        return delegate.isJobInstanceExists(jobName, jobParameters);
+    }
+
+    @Override
+    public JobInstance createJobInstance(String jobName, JobParameters jobParameters) {
+        return delegate.createJobInstance(jobName, jobParameters);
+    }
+
+    @Override
+    public JobExecution createJobExecution(JobInstance jobInstance, JobParameters jobParameters,
+                                           String jobConfigurationLocation) {
+        return delegate.createJobExecution(jobInstance, jobParameters, jobConfigurationLocation);
+    }
+
+    @Override
+    public JobExecution createJobExecution(String jobName, JobParameters jobParameters)
+            throws JobExecutionAlreadyRunningException, JobRestartException, JobInstanceAlreadyCompleteException {
+        return delegate.createJobExecution(jobName, jobParameters);
+    }
+
+    @Override
+    public void update(JobExecution jobExecution) {
+        delegate.update(jobExecution);
+    }
+
+    @Override
+    public void add(StepExecution stepExecution) {
+        delegate.add(stepExecution);
+    }
+
+    @Override
+    public void addAll(Collection<StepExecution> stepExecutions) {
+        delegate.addAll(stepExecutions);
+    }
+
+    @Override
+    public void updateExecutionContext(JobExecution jobExecution) {
+        delegate.updateExecutionContext(jobExecution);
+    }
+
+    @Override
+    public StepExecution getLastStepExecution(JobInstance jobInstance, String stepName) {
+        return delegate.getLastStepExecution(jobInstance, stepName);
+    }
+
+    @Override
+    public int getStepExecutionCount(JobInstance jobInstance, String stepName) {
+        return delegate.getStepExecutionCount(jobInstance, stepName);
+    }
+
+    @Override
+    public JobExecution getLastJobExecution(String jobName, JobParameters jobParameters) {
+        return delegate.getLastJobExecution(jobName, jobParameters);
+    }
+
+    /**
+     * Avance de un step en curso: última copia sin escribir y versión en la base
+     */
+    private static final class Progress {
+
+        private final AtomicReference<StepExecution> pending = new AtomicReference<>();
+        private Integer version;
+        private volatile int flushedReadCount;
+        private volatile boolean terminateOnly;
+        private volatile RuntimeException failure;
+
+        private Progress(StepExecution stepExecution) {
+            this.version = stepExecution.getVersion();
+            this.flushedReadCount = stepExecution.getReadCount();
+        }
+
+        private void rethrowFailure() {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.policia.batch.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jms.connection.CachingConnectionFactory;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.Session;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Conexión MQ compartida con caché de sesiones, consumidores y productores.
+ *
+ * Todos los JmsTemplate y consumidores reutilizan una sola conexión física y toman sesiones de
+ * la caché (hasta sessionCacheSize por modo de acknowledge), así cada lectura es un receive()
+ * sobre un consumidor ya abierto en lugar de un handshake de canal. Además de lo que hace
+ * CachingConnectionFactory:
+ * <ul>
+ *   <li>Cierra la conexión física y las sesiones cacheadas si no se usa durante idleTimeout.</li>
+ *   <li>Cuenta conexiones físicas, reconexiones, sesiones creadas y préstamos de sesión, y los
+ *       publica como métricas policia.mq.pool.* (ver {@link #bindTo(MeterRegistry)}).</li>
+ * </ul>
+ * Ante una excepción de la conexión, la descarta y la siguiente solicitud reconecta.
+ */
+public class PooledMqConnectionFactory extends CachingConnectionFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(PooledMqConnectionFactory.class);
+
+    private final long idleTimeoutMillis;
+    private ScheduledExecutorService evictor;
+
+    private final LongAdder connectionsCreated = new LongAdder();
+    private final LongAdder reconnects = new LongAdder();
+    private final LongAdder sessionsCreated = new LongAdder();
+    private final LongAdder sessionCheckouts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private final AtomicLong lastActivity = new AtomicLong(System.currentTimeMillis());
+    private final Object checkoutMonitor = new Object(); // Préstamo de sesión vs. desalojo por inactividad
+    private volatile boolean connected;
+
+    public PooledMqConnectionFactory(ConnectionFactory targetConnectionFactory, int sessionCacheSize,
+                                     long idleTimeoutMillis) {
+        super(targetConnectionFactory);
+        if (sessionCacheSize < 1) {
+            throw new IllegalArgumentException("mq.pool.session-cache-size debe ser mayor que 0");
+        }
+        setSessionCacheSize(sessionCacheSize);
+        setCacheConsumers(true);
+        setCacheProducers(true);
+        setReconnectOnException(true);
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * Inicia la revisión periódica de inactividad (idleTimeout &lt;= 0 la deshabilita)
+     */
+    public void startEvictor() {
+        if (idleTimeoutMillis <= 0 || evictor != null) {
+            return;
+        }
+        long period = Math.max(1000L, idleTimeoutMillis / 2);
+        evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mq-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(this::evictIfIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * La comprobación y el cierre van bajo el mismo lock que el préstamo de sesiones: una sesión
+     * prestada entre ambos pasos no se cierra en uso
+     */
+    private void evictIfIdle() {
+        synchronized (checkoutMonitor) {
+            if (connected && activeSessions.get() == 0
+                    && System.currentTimeMillis() - lastActivity.get() >= idleTimeoutMillis) {
+                evictions.increment();
+                logger.info("Conexión MQ sin uso durante {} ms: se cierra junto con sus sesiones cacheadas",
+                            idleTimeoutMillis);
+                resetConnection();
+            }
+        }
+    }
+
+    /**
+     * Registra los contadores del pool en el registro de métricas
+     */
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("policia.mq.pool.connections", connectionsCreated, LongAdder::sum)
+                       .description("Conexiones físicas a MQ establecidas").register(registry);
+        FunctionCounter.builder("policia.mq.pool.reconnects", reconnects, LongAdder::sum)
+                       .description("Conexiones descartadas por excepción").register(registry);
+        FunctionCounter.builder("policia.mq.pool.evictions", evictions, LongAdder::sum)
+                       .description("Conexiones cerradas por inactividad").register(registry);
+        FunctionCounter.builder("policia.mq.pool.sessions.created", sessionsCreated, LongAdder::sum)
+                       .description("Sesiones físicas creadas").register(registry);
+        FunctionCounter.builder("policia.mq.pool.sessions.checkouts", sessionCheckouts, LongAdder::sum)
+                       .description("Préstamos de sesión").register(registry);
+        Gauge.builder("policia.mq.pool.sessions.active", activeSessions, AtomicInteger::get)
+             .description("Sesiones prestadas en este momento").register(registry);
+        Gauge.builder("policia.mq.pool.sessions.reuse.ratio", this, PooledMqConnectionFactory::getSessionReuseRatio)
+             .description("Proporción de préstamos atendidos con una sesión ya abierta").register(registry);
+    }
+
+    @Override
+    protected Connection doCreateConnection() throws JMSException {
+        Connection connection = super.doCreateConnection();
+        connectionsCreated.increment();
+        connected = true;
+        logger.info("Conexión MQ física establecida (total: {})", connectionsCreated.sum());
+        return connection;
+    }
+
+    @Override
+    protected void closeConnection(Connection connection) {
+        connected = false;
+        super.closeConnection(connection);
+    }
+
+    @Override
+    public void onException(JMSException ex) {
+        reconnects.increment();
+        logger.warn("Conexión MQ rota, se reconectará en el próximo uso: {}", ex.getMessage());
+        super.onException(ex);
+    }
+
+    @Override
+    protected Session createSession(Connection connection, Integer mode) throws JMSException {
+        Session session = super.createSession(connection, mode);
+        sessionsCreated.increment();
+        return session;
+    }
+
+    /**
+     * Envuelve la sesión cacheada para saber cuándo se devuelve (close lógico) y no desalojar
+     * la conexión mientras haya sesiones en uso.
+     */
+    @Override
+    protected Session getSession(Connection connection, Integer mode) throws JMSException {
+        Session session;
+        synchronized (checkoutMonitor) {
+            session = super.getSession(connection, mode);
+            if (session == null) {
+                return null;
+            }
+            sessionCheckouts.increment();
+            activeSessions.incrementAndGet();
+            lastActivity.set(System.currentTimeMillis());
+        }
+
+        AtomicInteger closed = new AtomicInteger();
+        return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), session.getClass().getInterfaces(),
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close") && closed.getAndIncrement() == 0) {
+                        activeSessions.decrementAndGet();
+                        lastActivity.set(System.currentTimeMillis());
+                    }
+                    try {
+                        return method.invoke(session, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+
+    @Override
+    public void destroy() {
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+        logger.info("Pool MQ - conexiones físicas: {}, reconexiones: {}, desalojos por inactividad: {}, " +
+                    "sesiones creadas: {}, préstamos de sesión: {}",
+                    getConnectionsCreated(), getReconnects(), getEvictions(), getSessionsCreated(),
+                    getSessionCheckouts());
+        super.destroy();
+    }
+
+    public long getConnectionsCreated() {
+        return connectionsCreated.sum();
+    }
+
+    public long getReconnects() {
+        return reconnects.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getSessionsCreated() {
+        return sessionsCreated.sum();
+    }
+
+    public long getSessionCheckouts() {
+        return sessionCheckouts.sum();
+    }
+
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+
+    /**
+     * Proporción de préstamos atendidos con una sesión ya abierta
+     */
+    public double getSessionReuseRatio() {
+        long checkouts = getSessionCheckouts();
+        return checkouts > 0 ? 1.0 - (double) getSessionsCreated() / checkouts : 0.0;
+    }
+}
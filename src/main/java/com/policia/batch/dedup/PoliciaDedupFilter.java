@@ -0,0 +1,259 @@
+package com.policia.batch.dedup;
+
+import com.policia.batch.model.QueueMessage;
+import com.policia.batch.payload.PayloadTypeRegistry;
+import com.policia.batch.service.PoliciaRuleEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Descarta reenvíos de mensajes ya procesados antes de parsearlos.
+ *
+ * El ID se ubica directamente en los bytes del payload (&lt;id&gt;POL123456&lt;/id&gt;) y se consulta
+ * en {@link PoliciaIdBitmap} junto con el hash del payload: un mensaje idéntico a uno ya procesado
+ * se filtra (null) y un ID con contenido distinto pasa como actualización. Las marcas hechas
+ * dentro de un chunk se deshacen si el chunk hace rollback. Los mensajes en los que no se
+ * encuentra el ID con el formato esperado, y los de otros tipos de payload, siguen al processor sin deduplicar.
+ */
+@Component
+public class PoliciaDedupFilter implements ItemProcessor<QueueMessage, QueueMessage>, ItemStream {
+
+    private static final Logger logger = LoggerFactory.getLogger(PoliciaDedupFilter.class);
+
+    private static final byte[] ID_OPEN = "<id>".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ID_CLOSE = "</id>".getBytes(StandardCharsets.US_ASCII);
+
+    private final String file;
+    private final boolean withHash;
+    private final byte[] idPrefix;
+    private final int idDigits;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder bypassed = new LongAdder();
+
+    private final PayloadTypeRegistry payloadTypes;
+
+    private PoliciaIdBitmap bitmap;
+
+    @Autowired
+    public PoliciaDedupFilter(PoliciaRuleEngine ruleEngine,
+                              PayloadTypeRegistry payloadTypes,
+                              @Value("${dedup.file:dedup/policia-ids.bitmap}") String file,
+                              @Value("${dedup.hash-per-id:true}") boolean withHash) {
+        this.file = file;
+        this.withHash = withHash;
+        this.idPrefix = ruleEngine.getIdPrefix().getBytes(StandardCharsets.UTF_8);
+        this.idDigits = ruleEngine.getIdDigits();
+        this.payloadTypes = payloadTypes;
+    }
+
+    @Override
+    public synchronized void open(ExecutionContext executionContext) {
+        if (bitmap != null) {
+            return;
+        }
+        try {
+            bitmap = PoliciaIdBitmap.open(Paths.get(file), idDigits, withHash);
+            logger.info("Deduplicación activa: {} ({} IDs registrados, hash por ID: {})",
+                        bitmap.getFile().toAbsolutePath(), bitmap.cardinality(), withHash);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new ItemStreamException("No se pudo abrir el bitmap de deduplicación " + file, e);
+        }
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) {
+        // Las marcas se escriben directamente en el archivo mapeado
+    }
+
+    /**
+     * Lleva a disco las marcas del bitmap (checkpoints del modo streaming)
+     */
+    public synchronized void flush() {
+        if (bitmap != null) {
+            bitmap.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (bitmap == null) {
+            return;
+        }
+        logger.info("Deduplicación - duplicados descartados: {}, nuevos: {}, sin ID reconocible: {}",
+                    getHits(), getMisses(), getBypassed());
+        try {
+            bitmap.close();
+        } catch (IOException e) {
+            throw new ItemStreamException("Error cerrando el bitmap de deduplicación " + file, e);
+        } finally {
+            bitmap = null;
+        }
+    }
+
+    @Override
+    public QueueMessage process(QueueMessage message) {
+        // El ID se busca en el inicio del payload: en un mensaje grande es lo único que está en memoria
+        byte[] head = message.getHead();
+        int id = payloadTypes.route(head) == null ? findId(head) : -1;
+        if (id < 0) {
+            bypassed.increment();
+            return message;
+        }
+        int hash = withHash ? hash(message) : 0;
+
+        synchronized (this) {
+            if (bitmap.contains(id, hash)) {
+                hits.increment();
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Mensaje {} descartado: ID {} ya procesado con el mismo contenido",
+                                 message.getMessageId(), id);
+                }
+                return null;
+            }
+            long previous = bitmap.mark(id, hash);
+            UndoLog log = undoLog();
+            if (log != null) {
+                log.add(id, previous);
+            }
+        }
+        misses.increment();
+        return message;
+    }
+
+    /**
+     * Número de ID del primer &lt;id&gt;, o -1 si no tiene exactamente prefijo + dígitos
+     */
+    private int findId(byte[] payload) {
+        int limit = payload.length - ID_OPEN.length - idPrefix.length - idDigits - ID_CLOSE.length;
+        for (int start = 0; start <= limit; start++) {
+            if (!matches(payload, start, ID_OPEN)) {
+                continue;
+            }
+            int position = start + ID_OPEN.length;
+            if (!matches(payload, position, idPrefix)) {
+                return -1;
+            }
+            position += idPrefix.length;
+            int value = 0;
+            for (int i = 0; i < idDigits; i++) {
+                int digit = payload[position + i] - '0';
+                if (digit < 0 || digit > 9) {
+                    return -1;
+                }
+                value = value * 10 + digit;
+            }
+            return matches(payload, position + idDigits, ID_CLOSE) ? value : -1;
+        }
+        return -1;
+    }
+
+    private static boolean matches(byte[] payload, int offset, byte[] token) {
+        if (offset + token.length > payload.length) {
+            return false;
+        }
+        for (int i = 0; i < token.length; i++) {
+            if (payload[offset + i] != token[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * FNV-1a de 32 bits sobre el payload completo
+     */
+    private static int hash(QueueMessage message) {
+        int[] hash = {0x811C9DC5};
+        message.forEachChunk((b, offset, count) -> {
+            int h = hash[0];
+            for (int i = offset; i < offset + count; i++) {
+                h ^= b[i] & 0xFF;
+                h *= 0x01000193;
+            }
+            hash[0] = h;
+        });
+        return hash[0];
+    }
+
+    /**
+     * Registro de marcas de la transacción actual, restauradas en orden inverso si hay rollback.
+     * Sin transacción las marcas son definitivas.
+     */
+    private UndoLog undoLog() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        UndoLog log = (UndoLog) TransactionSynchronizationManager.getResource(this);
+        if (log == null) {
+            UndoLog newLog = new UndoLog();
+            TransactionSynchronizationManager.bindResource(this, newLog);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(PoliciaDedupFilter.this);
+                    if (status != STATUS_COMMITTED) {
+                        rollback(newLog);
+                    }
+                }
+            });
+            log = newLog;
+        }
+        return log;
+    }
+
+    private synchronized void rollback(UndoLog log) {
+        if (bitmap == null) {
+            return;
+        }
+        for (int i = log.size - 1; i >= 0; i--) {
+            bitmap.restore(log.ids[i], log.previous[i]);
+        }
+        logger.debug("Deduplicación: {} marcas revertidas por rollback del chunk", log.size);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getBypassed() {
+        return bypassed.sum();
+    }
+
+    private static final class UndoLog {
+
+        private int[] ids = new int[64];
+        private long[] previous = new long[64];
+        private int size;
+
+        void add(int id, long previousState) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                previous = Arrays.copyOf(previous, size * 2);
+            }
+            ids[size] = id;
+            previous[size] = previousState;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.policia.batch.dedup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Bitmap de IDs ya procesados, persistido en un archivo mapeado en memoria.
+ *
+ * Un bit por número de ID (10^dígitos posiciones) y, opcionalmente, un hash de 32 bits por ID
+ * para distinguir un reenvío idéntico de una actualización del mismo policía. Todas las
+ * operaciones trabajan con primitivos sobre el mapeo.
+ * <pre>
+ * cabecera: MAGIC(int) VERSION(short) DÍGITOS(short) CON_HASH(int) reservado(int)
+ * bitmap:   long[ceil(capacidad / 64)]
+ * hashes:   int[capacidad]   (solo con hash)
+ * </pre>
+ */
+public final class PoliciaIdBitmap implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PoliciaIdBitmap.class);
+
+    private static final int MAGIC = 0x50444944; // "DIDP"
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+
+    // Estado previo de una posición: bit en la parte alta, hash en la baja
+    static final long SEEN = 1L << 32;
+
+    private final Path file;
+    private final int capacity;
+    private final boolean withHash;
+    private final int hashesOffset;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+
+    private PoliciaIdBitmap(Path file, int capacity, boolean withHash, FileChannel channel, MappedByteBuffer buffer) {
+        this.file = file;
+        this.capacity = capacity;
+        this.withHash = withHash;
+        this.hashesOffset = HEADER_SIZE + bitmapBytes(capacity);
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Abre el bitmap existente o lo crea vacío. Si el archivo fue creado con otra configuración
+     * (dígitos o hash) se descarta y se empieza de cero.
+     */
+    public static PoliciaIdBitmap open(Path file, int idDigits, boolean withHash) throws IOException {
+        if (idDigits < 1 || idDigits > 9) {
+            throw new IllegalArgumentException("El bitmap de IDs admite entre 1 y 9 dígitos: " + idDigits);
+        }
+        int capacity = (int) Math.pow(10, idDigits);
+        long size = HEADER_SIZE + (long) bitmapBytes(capacity) + (withHash ? 4L * capacity : 0L);
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Bitmap de " + idDigits + " dígitos demasiado grande para mapear" +
+                                               (withHash ? " con hash por ID" : ""));
+        }
+
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                               StandardOpenOption.WRITE);
+        try {
+            boolean existing = channel.size() > 0;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            boolean compatible = buffer.getInt(0) == MAGIC && buffer.getShort(4) == VERSION
+                                 && buffer.getShort(6) == idDigits && buffer.getInt(8) == (withHash ? 1 : 0);
+            if (!compatible) {
+                if (existing) {
+                    logger.warn("Bitmap de deduplicación {} incompatible con la configuración actual: se reinicia", file);
+                }
+                int i = 0;
+                for (; i + 8 <= size; i += 8) {
+                    buffer.putLong(i, 0L);
+                }
+                for (; i < size; i++) {
+                    buffer.put(i, (byte) 0);
+                }
+                buffer.putInt(0, MAGIC).putShort(4, VERSION).putShort(6, (short) idDigits)
+                      .putInt(8, withHash ? 1 : 0);
+            }
+            return new PoliciaIdBitmap(file, capacity, withHash, channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static int bitmapBytes(int capacity) {
+        return ((capacity + 63) >>> 6) << 3;
+    }
+
+    /**
+     * Verdadero si el ID ya fue procesado (y con el mismo hash, si se guardan hashes)
+     */
+    public boolean contains(int id, int hash) {
+        int word = HEADER_SIZE + ((id >>> 6) << 3);
+        if ((buffer.getLong(word) & (1L << id)) == 0) {
+            return false;
+        }
+        return !withHash || buffer.getInt(hashesOffset + (id << 2)) == hash;
+    }
+
+    /**
+     * Marca el ID como procesado y devuelve el estado anterior para poder restaurarlo
+     */
+    public long mark(int id, int hash) {
+        int word = HEADER_SIZE + ((id >>> 6) << 3);
+        long bits = buffer.getLong(word);
+        long previous = (bits & (1L << id)) != 0 ? SEEN : 0L;
+        buffer.putLong(word, bits | (1L << id));
+        if (withHash) {
+            int offset = hashesOffset + (id << 2);
+            previous |= buffer.getInt(offset) & 0xFFFFFFFFL;
+            buffer.putInt(offset, hash);
+        }
+        return previous;
+    }
+
+    /**
+     * Restaura el estado devuelto por mark()
+     */
+    public void restore(int id, long previous) {
+        int word = HEADER_SIZE + ((id >>> 6) << 3);
+        long bits = buffer.getLong(word);
+        buffer.putLong(word, (previous & SEEN) != 0 ? bits | (1L << id) : bits & ~(1L << id));
+        if (withHash) {
+            buffer.putInt(hashesOffset + (id << 2), (int) previous);
+        }
+    }
+
+    /**
+     * Cantidad de IDs marcados
+     */
+    public long cardinality() {
+        long count = 0;
+        for (int offset = HEADER_SIZE; offset < hashesOffset; offset += 8) {
+            count += Long.bitCount(buffer.getLong(offset));
+        }
+        return count;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public boolean isWithHash() {
+        return withHash;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Escribe en disco las páginas modificadas del mapeo
+     */
+    public void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+}
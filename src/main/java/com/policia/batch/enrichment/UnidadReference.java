@@ -0,0 +1,38 @@
+package com.policia.batch.enrichment;
+
+/**
+ * Datos de referencia de una unidad (tabla UNIDAD_REFERENCIA), agregados a cada registro al escribirlo
+ */
+public final class UnidadReference {
+
+    private final String unidad;
+    private final String codigoUnidad;
+    private final String region;
+
+    public UnidadReference(String unidad, String codigoUnidad, String region) {
+        this.unidad = unidad;
+        this.codigoUnidad = codigoUnidad;
+        this.region = region;
+    }
+
+    public String getUnidad() {
+        return unidad;
+    }
+
+    public String getCodigoUnidad() {
+        return codigoUnidad;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    @Override
+    public String toString() {
+        return "UnidadReference{" +
+                "unidad='" + unidad + '\'' +
+                ", codigoUnidad='" + codigoUnidad + '\'' +
+                ", region='" + region + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,285 @@
+package com.policia.batch.enrichment;
+
+import com.policia.batch.metrics.PoliciaMetrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché de los datos de referencia por unidad para el enriquecimiento de los registros.
+ *
+ * El writer pide de una vez las unidades distintas del chunk; las que no están en la caché (o
+ * vencieron, enrichment.ttl-ms) se resuelven con una sola consulta IN a la tabla de referencia.
+ * Las unidades que no existen en la tabla también se guardan, para no consultarlas en cada chunk.
+ * La caché tiene a lo sumo enrichment.max-entries unidades y descarta la de uso más antiguo. Un
+ * hilo en segundo plano recarga cada enrichment.refresh-interval-ms las entradas cargadas antes
+ * de ese intervalo, así los chunks no esperan la consulta mientras la tabla responda; si la
+ * recarga falla, las entradas siguen sirviendo hasta vencer.
+ *
+ * Métricas: policia.enrichment.lookups (result=hit|miss, por unidad distinta del chunk),
+ * policia.enrichment.hit.ratio, policia.enrichment.size, policia.enrichment.evictions y
+ * policia.enrichment.load (duración de cada consulta).
+ */
+@Component
+public class UnidadReferenceCache implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(UnidadReferenceCache.class);
+
+    static final int MAX_IN_KEYS = 1000; // Límite de Oracle para una lista IN
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final String table;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final long refreshIntervalMillis;
+    private final Map<String, Entry> entries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final Timer loadTimer;
+    private final ScheduledExecutorService refresher;
+
+    @Autowired
+    public UnidadReferenceCache(JdbcTemplate jdbcTemplate,
+                                PoliciaMetrics metrics,
+                                @Value("${enrichment.enabled:false}") boolean enabled,
+                                @Value("${enrichment.table:UNIDAD_REFERENCIA}") String table,
+                                @Value("${enrichment.max-entries:10000}") int maxEntries,
+                                @Value("${enrichment.ttl-ms:3600000}") long ttlMillis,
+                                @Value("${enrichment.refresh-interval-ms:600000}") long refreshIntervalMillis) {
+        if (enabled && (maxEntries < 1 || ttlMillis < 1)) {
+            throw new IllegalArgumentException("enrichment.max-entries y enrichment.ttl-ms deben ser mayores que 0");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.table = table;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > UnidadReferenceCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        if (!enabled) {
+            this.loadTimer = null;
+            this.refresher = null;
+            return;
+        }
+
+        MeterRegistry registry = metrics.getRegistry();
+        FunctionCounter.builder("policia.enrichment.lookups", hits, LongAdder::sum).tag("result", "hit")
+                       .description("Unidades del chunk resueltas por la caché").register(registry);
+        FunctionCounter.builder("policia.enrichment.lookups", misses, LongAdder::sum).tag("result", "miss")
+                       .description("Unidades del chunk consultadas a la tabla de referencia").register(registry);
+        FunctionCounter.builder("policia.enrichment.evictions", evictions, LongAdder::sum)
+                       .description("Unidades descartadas por tamaño de la caché").register(registry);
+        Gauge.builder("policia.enrichment.hit.ratio", this, UnidadReferenceCache::getHitRatio)
+             .description("Proporción de unidades resueltas sin consultar la tabla").register(registry);
+        Gauge.builder("policia.enrichment.size", this, UnidadReferenceCache::size)
+             .description("Unidades en la caché de referencia").register(registry);
+        this.loadTimer = Timer.builder("policia.enrichment.load")
+                              .description("Duración de cada consulta a la tabla de referencia").register(registry);
+
+        if (refreshIntervalMillis > 0) {
+            this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "enrichment-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+            refresher.scheduleWithFixedDelay(this::refresh, refreshIntervalMillis, refreshIntervalMillis,
+                                             TimeUnit.MILLISECONDS);
+        } else {
+            this.refresher = null;
+        }
+
+        logger.info("Enriquecimiento por unidad desde {} - máximo {} unidades, vencimiento {} ms, recarga cada {} ms",
+                    table, maxEntries, ttlMillis, refreshIntervalMillis);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Datos de referencia de las unidades indicadas (distintas); las que no están en la tabla no
+     * aparecen en el resultado. Todas las que falten en la caché se consultan juntas.
+     */
+    public Map<String, UnidadReference> resolve(Collection<String> unidades) {
+        Map<String, UnidadReference> result = new HashMap<>(unidades.size() * 2);
+        List<String> missing = null;
+        long now = System.currentTimeMillis();
+
+        synchronized (entries) {
+            for (String unidad : unidades) {
+                Entry entry = entries.get(unidad);
+                if (entry != null && now - entry.loadedAt < ttlMillis) {
+                    if (entry.reference != null) {
+                        result.put(unidad, entry.reference);
+                    }
+                } else {
+                    if (missing == null) {
+                        missing = new ArrayList<>();
+                    }
+                    missing.add(unidad);
+                }
+            }
+        }
+
+        int missCount = missing != null ? missing.size() : 0;
+        hits.add(unidades.size() - missCount);
+        if (missing == null) {
+            return result;
+        }
+        misses.add(missCount);
+
+        Map<String, UnidadReference> loaded = load(missing);
+        store(missing, loaded, now);
+        result.putAll(loaded);
+        return result;
+    }
+
+    /**
+     * Consulta la tabla de referencia, en una sentencia por cada MAX_IN_KEYS unidades
+     */
+    private Map<String, UnidadReference> load(List<String> unidades) {
+        long start = System.nanoTime();
+        Map<String, UnidadReference> loaded = new HashMap<>(unidades.size() * 2);
+        for (int from = 0; from < unidades.size(); from += MAX_IN_KEYS) {
+            List<String> keys = unidades.subList(from, Math.min(unidades.size(), from + MAX_IN_KEYS));
+            jdbcTemplate.query(selectSql(keys.size()),
+                               rs -> {
+                                   String unidad = rs.getString(1);
+                                   loaded.put(unidad, new UnidadReference(unidad, rs.getString(2), rs.getString(3)));
+                               },
+                               keys.toArray());
+        }
+        loadTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        logger.debug("{} unidades consultadas a {}, {} encontradas", unidades.size(), table, loaded.size());
+        return loaded;
+    }
+
+    private String selectSql(int keys) {
+        StringBuilder sql = new StringBuilder("SELECT UNIDAD, CODIGO_UNIDAD, REGION FROM ").append(table)
+                .append(" WHERE UNIDAD IN (");
+        for (int i = 0; i < keys; i++) {
+            sql.append(i > 0 ? ", ?" : "?");
+        }
+        return sql.append(')').toString();
+    }
+
+    private void store(List<String> unidades, Map<String, UnidadReference> loaded, long loadedAt) {
+        synchronized (entries) {
+            for (String unidad : unidades) {
+                entries.put(unidad, new Entry(loaded.get(unidad), loadedAt));
+            }
+        }
+    }
+
+    /**
+     * Recarga las entradas cargadas antes del último intervalo (hilo enrichment-refresh)
+     */
+    void refresh() {
+        long now = System.currentTimeMillis();
+        List<String> stale = new ArrayList<>();
+        synchronized (entries) {
+            // Recorrer entrySet no cambia el orden de acceso
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                if (now - entry.getValue().loadedAt >= refreshIntervalMillis) {
+                    stale.add(entry.getKey());
+                }
+            }
+        }
+        if (stale.isEmpty()) {
+            return;
+        }
+
+        try {
+            Map<String, UnidadReference> loaded = load(stale);
+            Set<String> reloaded = new HashSet<>(stale);
+            synchronized (entries) {
+                // setValue sobre las que siguen en la caché: la recarga no cambia el orden de uso
+                for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                    if (reloaded.contains(entry.getKey())) {
+                        entry.setValue(new Entry(loaded.get(entry.getKey()), now));
+                    }
+                }
+            }
+            logger.debug("Recargadas {} unidades de referencia", stale.size());
+        } catch (Exception e) {
+            logger.warn("No se pudo recargar la referencia de unidades desde {}: {}", table, e.getMessage());
+        }
+    }
+
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total > 0 ? (double) hitCount / total : 0d;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Vacía la caché (cambios en la tabla de referencia que no pueden esperar la recarga)
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (!enabled) {
+            return;
+        }
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+        logger.info("Enriquecimiento por unidad - aciertos de caché: {}, consultas: {} ({}%), descartadas por tamaño: {}",
+                    hits.sum(), misses.sum(), String.format("%.1f", getHitRatio() * 100), evictions.sum());
+    }
+
+    private static final class Entry {
+
+        final UnidadReference reference; // null: la unidad no está en la tabla
+        final long loadedAt;
+
+        Entry(UnidadReference reference, long loadedAt) {
+            this.reference = reference;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
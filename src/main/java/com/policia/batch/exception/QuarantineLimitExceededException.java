@@ -0,0 +1,12 @@
+package com.policia.batch.exception;
+
+/**
+ * Excepción lanzada cuando los mensajes en cuarentena superan los umbrales configurados
+ * y el batch debe detenerse
+ */
+public class QuarantineLimitExceededException extends InvalidDataException {
+    
+    public QuarantineLimitExceededException(String message, String invalidData, Throwable cause) {
+        super(message, invalidData, cause);
+    }
+}
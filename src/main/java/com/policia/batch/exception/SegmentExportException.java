@@ -0,0 +1,12 @@
+package com.policia.batch.exception;
+
+/**
+ * Excepción lanzada cuando registros ya confirmados no se pudieron agregar al segmento de
+ * exportación. Como InvalidDataException, no se salta y detiene el batch.
+ */
+public class SegmentExportException extends InvalidDataException {
+    
+    public SegmentExportException(String message, String invalidData, Throwable cause) {
+        super(message, invalidData, cause);
+    }
+}
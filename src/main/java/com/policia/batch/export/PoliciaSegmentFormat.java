@@ -0,0 +1,46 @@
+package com.policia.batch.export;
+
+import java.nio.ByteOrder;
+
+/**
+ * Formato de los segmentos columnares de exportación (.pseg).
+ *
+ * Un segmento es una cabecera seguida de bloques que solo se agregan al final (un bloque por chunk
+ * confirmado). Todos los enteros van en little-endian:
+ * <pre>
+ * cabecera: MAGIC(int) VERSION(short) DÍGITOS_ID(short) PREFIJO_ID(short len + UTF-8) CREADO(long millis)
+ * bloque:   BLOCK_MAGIC(int) LONGITUD_CUERPO(int) CRC32_CUERPO(int) cuerpo
+ * cuerpo:   N(int)
+ *           valores nuevos de los diccionarios rango, unidad y estado: short cantidad + (short len + UTF-8)*
+ *           id      int[N]    parte numérica del ID (sin prefijo)
+ *           rango   short[N]  código de diccionario
+ *           unidad  short[N]  código de diccionario
+ *           estado  short[N]  código de diccionario
+ *           nombre  int[N] offset de fin de cada nombre + bytes UTF-8 concatenados
+ * </pre>
+ * Los diccionarios son propios de cada archivo: el código de un valor es su orden de aparición
+ * y cada bloque trae solo los valores que aparecen por primera vez. NULL_CODE representa un campo nulo.
+ */
+public final class PoliciaSegmentFormat {
+
+    public static final int MAGIC = 0x47455350;       // "PSEG"
+    public static final short VERSION = 1;
+    public static final int BLOCK_MAGIC = 0x314B4C42; // "BLK1"
+    public static final int BLOCK_HEADER_SIZE = 12;
+
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+    public static final String FILE_EXTENSION = ".pseg";
+
+    // Columnas codificadas por diccionario, en el orden en que se escriben
+    static final int RANGO = 0;
+    static final int UNIDAD = 1;
+    static final int ESTADO = 2;
+    static final int DICTIONARY_COLUMNS = 3;
+
+    public static final int NULL_CODE = 0xFFFF;
+    public static final int MAX_DICTIONARY_SIZE = NULL_CODE;
+    static final int MAX_VALUE_BYTES = 0xFFFF;
+
+    private PoliciaSegmentFormat() {
+    }
+}
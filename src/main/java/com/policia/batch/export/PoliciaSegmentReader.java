@@ -0,0 +1,236 @@
+package com.policia.batch.export;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Lector de segmentos .pseg mediante memoria mapeada.
+ *
+ * Al abrir se validan los bloques (magic, longitud y CRC) y se arman los diccionarios; el recorrido
+ * posterior lee las columnas directamente del mapeo con un cursor reutilizable, sin crear objetos
+ * por registro salvo que se pidan los textos. Un bloque final truncado (escritura interrumpida)
+ * se ignora.
+ *
+ * <pre>
+ * try (PoliciaSegmentReader segment = PoliciaSegmentReader.open(path)) {
+ *     segment.forEach(record -> contar(record.getRangoCode()));
+ * }
+ * </pre>
+ */
+public final class PoliciaSegmentReader implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PoliciaSegmentReader.class);
+
+    private final Path file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final String idPrefix;
+    private final int idDigits;
+    private final long createdMillis;
+    private final String[][] dictionaries;
+    private final int[] blockOffsets;
+    private final int[] blockCounts;
+    private final long recordCount;
+
+    private PoliciaSegmentReader(Path file, FileChannel channel, ByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.channel = channel;
+        this.buffer = buffer;
+
+        if (buffer.remaining() < 18 || buffer.getInt(0) != PoliciaSegmentFormat.MAGIC) {
+            throw new IOException("No es un segmento de exportación: " + file);
+        }
+        short version = buffer.getShort(4);
+        if (version != PoliciaSegmentFormat.VERSION) {
+            throw new IOException("Versión de segmento no soportada " + version + ": " + file);
+        }
+        this.idDigits = buffer.getShort(6);
+        int prefixLength = buffer.getShort(8) & 0xFFFF;
+        this.idPrefix = readString(10, prefixLength);
+        this.createdMillis = buffer.getLong(10 + prefixLength);
+
+        List<List<String>> values = new ArrayList<>();
+        for (int i = 0; i < PoliciaSegmentFormat.DICTIONARY_COLUMNS; i++) {
+            values.add(new ArrayList<>());
+        }
+        int[] offsets = new int[16];
+        int[] counts = new int[16];
+        int blocks = 0;
+        long records = 0;
+
+        int position = 18 + prefixLength;
+        int limit = buffer.limit();
+        while (position < limit) {
+            int bodyOffset = position + PoliciaSegmentFormat.BLOCK_HEADER_SIZE;
+            if (bodyOffset > limit || buffer.getInt(position) != PoliciaSegmentFormat.BLOCK_MAGIC) {
+                logger.warn("Segmento {} con bloque inválido en offset {}: se ignoran {} bytes finales",
+                            file, position, limit - position);
+                break;
+            }
+            int bodySize = buffer.getInt(position + 4);
+            if (bodySize < 4 || bodySize > limit - bodyOffset || !crcMatches(bodyOffset, bodySize,
+                                                                            buffer.getInt(position + 8))) {
+                logger.warn("Segmento {} truncado o corrupto en offset {}: se ignoran {} bytes finales",
+                            file, position, limit - position);
+                break;
+            }
+
+            // Valores nuevos de los diccionarios y posición de la primera columna
+            int count = buffer.getInt(bodyOffset);
+            int cursor = bodyOffset + 4;
+            for (List<String> columnValues : values) {
+                int entries = buffer.getShort(cursor) & 0xFFFF;
+                cursor += 2;
+                for (int j = 0; j < entries; j++) {
+                    int length = buffer.getShort(cursor) & 0xFFFF;
+                    columnValues.add(readString(cursor + 2, length));
+                    cursor += 2 + length;
+                }
+            }
+
+            if (blocks == offsets.length) {
+                offsets = Arrays.copyOf(offsets, blocks * 2);
+                counts = Arrays.copyOf(counts, blocks * 2);
+            }
+            offsets[blocks] = cursor;
+            counts[blocks] = count;
+            blocks++;
+            records += count;
+            position = bodyOffset + bodySize;
+        }
+
+        this.dictionaries = new String[PoliciaSegmentFormat.DICTIONARY_COLUMNS][];
+        for (int i = 0; i < dictionaries.length; i++) {
+            dictionaries[i] = values.get(i).toArray(new String[0]);
+        }
+        this.blockOffsets = Arrays.copyOf(offsets, blocks);
+        this.blockCounts = Arrays.copyOf(counts, blocks);
+        this.recordCount = records;
+    }
+
+    /**
+     * Mapea el segmento completo en modo solo lectura
+     */
+    public static PoliciaSegmentReader open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Segmento demasiado grande para mapear: " + file);
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size)
+                                       .order(PoliciaSegmentFormat.BYTE_ORDER);
+            return new PoliciaSegmentReader(file, channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Segmentos de un directorio en orden de creación (el nombre lleva fecha y secuencia)
+     */
+    public static List<Path> list(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return Collections.emptyList();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(PoliciaSegmentFormat.FILE_EXTENSION))
+                        .sorted()
+                        .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Recorre todos los registros en orden de escritura. El cursor se reutiliza entre llamadas:
+     * no debe guardarse fuera del callback.
+     */
+    public void forEach(Consumer<? super SegmentRecord> action) {
+        SegmentRecord record = new SegmentRecord(this, buffer);
+        for (int block = 0; block < blockOffsets.length; block++) {
+            int count = blockCounts[block];
+            int offset = blockOffsets[block];
+            for (int i = 0; i < count; i++) {
+                record.moveTo(offset, count, i);
+                action.accept(record);
+            }
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    public int getBlockCount() {
+        return blockOffsets.length;
+    }
+
+    public String getIdPrefix() {
+        return idPrefix;
+    }
+
+    public int getIdDigits() {
+        return idDigits;
+    }
+
+    public long getCreatedMillis() {
+        return createdMillis;
+    }
+
+    /**
+     * Valores de rango indexados por código
+     */
+    public List<String> getRangos() {
+        return Collections.unmodifiableList(Arrays.asList(dictionaries[PoliciaSegmentFormat.RANGO]));
+    }
+
+    public List<String> getUnidades() {
+        return Collections.unmodifiableList(Arrays.asList(dictionaries[PoliciaSegmentFormat.UNIDAD]));
+    }
+
+    public List<String> getEstados() {
+        return Collections.unmodifiableList(Arrays.asList(dictionaries[PoliciaSegmentFormat.ESTADO]));
+    }
+
+    String decode(int column, int code) {
+        return code == PoliciaSegmentFormat.NULL_CODE ? null : dictionaries[column][code];
+    }
+
+    String readString(int offset, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private boolean crcMatches(int offset, int length, int expected) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset, length));
+        return (int) crc.getValue() == expected;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,407 @@
+package com.policia.batch.export;
+
+import com.policia.batch.exception.InvalidDataException;
+import com.policia.batch.exception.SegmentExportException;
+import com.policia.batch.metrics.PoliciaMetrics;
+import com.policia.batch.model.PoliciaRecord;
+import com.policia.batch.service.PoliciaRuleEngine;
+import com.policia.batch.service.PoliciaVocabulary;
+import io.micrometer.core.instrument.FunctionCounter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+/**
+ * Exporta los registros procesados a segmentos columnares (.pseg) para consumo analítico.
+ *
+ * Cada chunk se guarda como un bloque pendiente y se codifica y agrega al segmento cuando la
+ * transacción del chunk confirma, de modo que el archivo solo contiene lo que quedó persistido.
+ * Los códigos de diccionario se asignan recién al agregar el bloque, bajo el lock del writer, así
+ * que transacciones concurrentes (streaming) no se pisan los diccionarios. Los segmentos rotan al
+ * superar export.segment.max-bytes; el formato está descrito en {@link PoliciaSegmentFormat} y se
+ * lee con {@link PoliciaSegmentReader}.
+ *
+ * Si un bloque confirmado no se puede escribir, el hueco queda registrado: la métrica
+ * policia.export.failed.records lo cuenta, la siguiente escritura lanza SegmentExportException y,
+ * como listener del step, el step termina en FAILED aunque no haya más chunks.
+ */
+@Component
+public class PoliciaSegmentWriter implements ItemStreamWriter<PoliciaRecord>, StepExecutionListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(PoliciaSegmentWriter.class);
+
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final long MAX_SEGMENT_BYTES = 1L << 30; // El lector mapea el archivo completo
+
+    private final PoliciaRuleEngine ruleEngine;
+    private final PoliciaVocabulary vocabulary;
+    private final Path directory;
+    private final long maxBytes;
+    private final byte[] idPrefix;
+
+    private final SegmentDictionary[] dictionaries = new SegmentDictionary[PoliciaSegmentFormat.DICTIONARY_COLUMNS];
+
+    private FileChannel channel;
+    private Path currentFile;
+    private long fileSize;
+    private long fileRecords;
+    private int sequence;
+
+    private final LongAdder failedRecords = new LongAdder();
+    private final AtomicReference<SegmentExportException> failure = new AtomicReference<>();
+
+    @Autowired
+    public PoliciaSegmentWriter(PoliciaRuleEngine ruleEngine,
+                                PoliciaVocabulary vocabulary,
+                                PoliciaMetrics metrics,
+                                @Value("${export.segment.directory:export}") String directory,
+                                @Value("${export.segment.max-bytes:268435456}") long maxBytes) {
+        this.ruleEngine = ruleEngine;
+        this.vocabulary = vocabulary;
+        this.directory = Paths.get(directory);
+        this.maxBytes = maxBytes;
+        this.idPrefix = ruleEngine.getIdPrefix().getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < dictionaries.length; i++) {
+            dictionaries[i] = new SegmentDictionary();
+        }
+        FunctionCounter.builder("policia.export.failed.records", failedRecords, LongAdder::sum)
+                       .description("Registros confirmados que no se pudieron exportar")
+                       .register(metrics.getRegistry());
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        failure.set(null);
+    }
+
+    /**
+     * Un bloque del último chunk puede fallar después del commit sin otra escritura que lo detecte
+     */
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        SegmentExportException error = failure.get();
+        if (error == null) {
+            return null;
+        }
+        stepExecution.setStatus(BatchStatus.FAILED);
+        stepExecution.addFailureException(error);
+        return ExitStatus.FAILED.addExitDescription(error);
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) {
+        if (ruleEngine.getIdDigits() > 9) {
+            throw new ItemStreamException("El segmento guarda el ID como int: validation.id.digits debe ser <= 9");
+        }
+        if (maxBytes <= 0 || maxBytes > MAX_SEGMENT_BYTES) {
+            throw new ItemStreamException("export.segment.max-bytes debe estar entre 1 y " + MAX_SEGMENT_BYTES);
+        }
+        logger.info("Exportación de segmentos activa en {} (rotación a {} bytes)", directory.toAbsolutePath(), maxBytes);
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) {
+        // Los bloques se escriben al confirmar cada chunk; no hay estado que guardar
+    }
+
+    /**
+     * Lleva a disco el segmento abierto (checkpoints del modo streaming)
+     */
+    public synchronized void flush() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            throw new ItemStreamException("Error sincronizando segmento " + currentFile, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closeFile();
+    }
+
+    @Override
+    public void write(List<? extends PoliciaRecord> items) throws Exception {
+        SegmentExportException error = failure.get();
+        if (error != null) {
+            throw error;
+        }
+        if (items.isEmpty()) {
+            return;
+        }
+
+        PendingBlock block = capture(items);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    complete(block, status == STATUS_COMMITTED);
+                }
+            });
+        } else {
+            append(block);
+        }
+    }
+
+    private void complete(PendingBlock block, boolean committed) {
+        if (!committed) {
+            logger.debug("Bloque de {} registros descartado por rollback del chunk", block.records);
+            return;
+        }
+
+        try {
+            append(block);
+        } catch (IOException e) {
+            // La transacción ya confirmó: el hueco se registra y hace fallar el step
+            logger.error("❌ No se exportaron {} registros confirmados: {}", block.records, e.getMessage());
+            failedRecords.add(block.records);
+            failure.compareAndSet(null, new SegmentExportException(
+                    "La exportación de segmentos perdió registros confirmados", e.getMessage(), e));
+        }
+    }
+
+    /**
+     * Primer bloque confirmado que no se pudo exportar, o null
+     */
+    public SegmentExportException getFailure() {
+        return failure.get();
+    }
+
+    public long getFailedRecords() {
+        return failedRecords.sum();
+    }
+
+    /**
+     * Codifica el bloque con los diccionarios del archivo abierto y lo agrega. Como los códigos se
+     * asignan acá, el archivo puede rotar entre dos bloques cualesquiera.
+     */
+    private synchronized void append(PendingBlock block) throws IOException {
+        if (channel != null && (fileSize >= maxBytes || dictionaryFull(block.records))) {
+            closeFile();
+        }
+        ensureOpen();
+
+        ByteBuffer buffer = encode(block);
+        long start = fileSize;
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            // Quitar el bloque parcial para que el segmento siga siendo legible y empezar otro archivo;
+            // los diccionarios ya incluyen los valores del bloque, pero se descartan con el archivo
+            try {
+                channel.truncate(start);
+            } catch (IOException truncateError) {
+                logger.warn("No se pudo truncar {} tras el error: {}", currentFile, truncateError.getMessage());
+            }
+            closeFile();
+            throw e;
+        }
+
+        fileSize = channel.position();
+        fileRecords += block.records;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (channel != null) {
+            return;
+        }
+
+        Files.createDirectories(directory);
+        currentFile = directory.resolve(String.format("policia-%s-%04d%s",
+                LocalDateTime.now().format(FILE_TIMESTAMP), ++sequence, PoliciaSegmentFormat.FILE_EXTENSION));
+        channel = FileChannel.open(currentFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+
+        ByteBuffer header = ByteBuffer.allocate(4 + 2 + 2 + 2 + idPrefix.length + 8)
+                .order(PoliciaSegmentFormat.BYTE_ORDER);
+        header.putInt(PoliciaSegmentFormat.MAGIC)
+              .putShort(PoliciaSegmentFormat.VERSION)
+              .putShort((short) ruleEngine.getIdDigits())
+              .putShort((short) idPrefix.length)
+              .put(idPrefix)
+              .putLong(System.currentTimeMillis());
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        fileSize = channel.position();
+        fileRecords = 0;
+
+        logger.info("📦 Nuevo segmento de exportación: {}", currentFile);
+    }
+
+    private void closeFile() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.force(true);
+            channel.close();
+            logger.info("📦 Segmento cerrado: {} ({} registros, {} bytes)", currentFile, fileRecords, fileSize);
+        } catch (IOException e) {
+            throw new ItemStreamException("Error cerrando segmento " + currentFile, e);
+        } finally {
+            channel = null;
+            for (SegmentDictionary dictionary : dictionaries) {
+                dictionary.clear();
+            }
+        }
+    }
+
+    private boolean dictionaryFull(int incoming) {
+        for (SegmentDictionary dictionary : dictionaries) {
+            if (dictionary.size() > PoliciaSegmentFormat.MAX_DICTIONARY_SIZE - incoming) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Copia los valores del chunk; los valores de diccionario se validan acá para que un valor
+     * inválido haga fallar el chunk y no el commit
+     */
+    private PendingBlock capture(List<? extends PoliciaRecord> items) {
+        int count = items.size();
+        int[] ids = new int[count];
+        String[][] values = new String[PoliciaSegmentFormat.DICTIONARY_COLUMNS][count];
+        byte[][] nombres = new byte[count][];
+
+        for (int i = 0; i < count; i++) {
+            PoliciaRecord item = items.get(i);
+            ids[i] = item.getIdNumber();
+            values[PoliciaSegmentFormat.RANGO][i] = vocabulary.rango(item);
+            values[PoliciaSegmentFormat.UNIDAD][i] = vocabulary.unidad(item);
+            values[PoliciaSegmentFormat.ESTADO][i] = vocabulary.estado(item);
+            nombres[i] = item.getNombre() != null ? item.getNombre().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        }
+
+        for (String[] column : values) {
+            for (String value : column) {
+                // Hasta 3 bytes UTF-8 por char: solo se codifican los valores que podrían pasarse
+                if (value != null && value.length() * 3 > PoliciaSegmentFormat.MAX_VALUE_BYTES
+                        && value.getBytes(StandardCharsets.UTF_8).length > PoliciaSegmentFormat.MAX_VALUE_BYTES) {
+                    throw new InvalidDataException("Valor demasiado largo para el diccionario del segmento", value);
+                }
+            }
+        }
+
+        return new PendingBlock(ids, values, nombres);
+    }
+
+    /**
+     * Codifica el bloque columnar con su CRC, agregando a los diccionarios los valores nuevos
+     */
+    private ByteBuffer encode(PendingBlock block) {
+        int count = block.records;
+        int[][] codes = new int[PoliciaSegmentFormat.DICTIONARY_COLUMNS][count];
+        int nombreBytes = 0;
+        for (byte[] nombre : block.nombres) {
+            nombreBytes += nombre.length;
+        }
+
+        for (int column = 0; column < codes.length; column++) {
+            SegmentDictionary dictionary = dictionaries[column];
+            dictionary.beginBlock();
+            for (int i = 0; i < count; i++) {
+                codes[column][i] = dictionary.encode(block.values[column][i]);
+            }
+        }
+
+        byte[][][] entries = new byte[PoliciaSegmentFormat.DICTIONARY_COLUMNS][][];
+        int bodySize = 4 + count * 4 + PoliciaSegmentFormat.DICTIONARY_COLUMNS * count * 2 + count * 4 + nombreBytes;
+        for (int column = 0; column < entries.length; column++) {
+            List<String> newValues = dictionaries[column].blockEntries();
+            entries[column] = new byte[newValues.size()][];
+            bodySize += 2;
+            for (int j = 0; j < newValues.size(); j++) {
+                entries[column][j] = newValues.get(j).getBytes(StandardCharsets.UTF_8);
+                bodySize += 2 + entries[column][j].length;
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(PoliciaSegmentFormat.BLOCK_HEADER_SIZE + bodySize)
+                .order(PoliciaSegmentFormat.BYTE_ORDER);
+        buffer.putInt(PoliciaSegmentFormat.BLOCK_MAGIC).putInt(bodySize).putInt(0);
+
+        buffer.putInt(count);
+        for (byte[][] columnEntries : entries) {
+            buffer.putShort((short) columnEntries.length);
+            for (byte[] value : columnEntries) {
+                buffer.putShort((short) value.length).put(value);
+            }
+        }
+        for (int id : block.ids) {
+            buffer.putInt(id);
+        }
+        for (int[] columnCodes : codes) {
+            for (int code : columnCodes) {
+                buffer.putShort((short) code);
+            }
+        }
+        int end = 0;
+        for (byte[] nombre : block.nombres) {
+            end += nombre.length;
+            buffer.putInt(end);
+        }
+        for (byte[] nombre : block.nombres) {
+            buffer.put(nombre);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), PoliciaSegmentFormat.BLOCK_HEADER_SIZE, bodySize);
+        buffer.putInt(8, (int) crc.getValue());
+        buffer.flip();
+
+        return buffer;
+    }
+
+    /**
+     * Registros de un chunk a la espera del commit, con los valores de diccionario sin codificar
+     */
+    private static final class PendingBlock {
+
+        private final int[] ids;
+        private final String[][] values;
+        private final byte[][] nombres;
+        private final int records;
+
+        private PendingBlock(int[] ids, String[][] values, byte[][] nombres) {
+            this.ids = ids;
+            this.values = values;
+            this.nombres = nombres;
+            this.records = ids.length;
+        }
+    }
+}
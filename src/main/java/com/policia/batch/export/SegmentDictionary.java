@@ -0,0 +1,53 @@
+package com.policia.batch.export;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Diccionario de una columna del segmento en escritura.
+ *
+ * Solo se usa bajo el lock del writer, al agregar un bloque ya confirmado: los valores nuevos de
+ * cada bloque se escriben en ese mismo bloque, y el diccionario se vacía al cerrar el archivo.
+ */
+final class SegmentDictionary {
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+    private int blockStart;
+
+    void beginBlock() {
+        blockStart = values.size();
+    }
+
+    int encode(String value) {
+        if (value == null) {
+            return PoliciaSegmentFormat.NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+        }
+        return code;
+    }
+
+    /**
+     * Valores que aparecieron por primera vez en el bloque actual
+     */
+    List<String> blockEntries() {
+        return values.subList(blockStart, values.size());
+    }
+
+    int size() {
+        return values.size();
+    }
+
+    void clear() {
+        codes.clear();
+        values.clear();
+        blockStart = 0;
+    }
+}
@@ -0,0 +1,92 @@
+package com.policia.batch.export;
+
+import com.policia.batch.model.PoliciaData;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Cursor sobre un registro de un segmento mapeado.
+ *
+ * Los códigos y el ID numérico se leen directamente de las columnas; los métodos que devuelven
+ * String resuelven el diccionario (sin copia) o decodifican el nombre (con copia).
+ */
+public final class SegmentRecord {
+
+    private final PoliciaSegmentReader segment;
+    private final ByteBuffer buffer;
+    private int idsOffset;
+    private int count;
+    private int index;
+
+    SegmentRecord(PoliciaSegmentReader segment, ByteBuffer buffer) {
+        this.segment = segment;
+        this.buffer = buffer;
+    }
+
+    void moveTo(int idsOffset, int count, int index) {
+        this.idsOffset = idsOffset;
+        this.count = count;
+        this.index = index;
+    }
+
+    public int getIdNumber() {
+        return buffer.getInt(idsOffset + 4 * index);
+    }
+
+    public int getRangoCode() {
+        return code(PoliciaSegmentFormat.RANGO);
+    }
+
+    public int getUnidadCode() {
+        return code(PoliciaSegmentFormat.UNIDAD);
+    }
+
+    public int getEstadoCode() {
+        return code(PoliciaSegmentFormat.ESTADO);
+    }
+
+    public String getId() {
+        StringBuilder id = new StringBuilder(segment.getIdPrefix().length() + segment.getIdDigits());
+        id.append(segment.getIdPrefix());
+        String number = Integer.toString(getIdNumber());
+        for (int i = number.length(); i < segment.getIdDigits(); i++) {
+            id.append('0');
+        }
+        return id.append(number).toString();
+    }
+
+    public String getRango() {
+        return segment.decode(PoliciaSegmentFormat.RANGO, getRangoCode());
+    }
+
+    public String getUnidad() {
+        return segment.decode(PoliciaSegmentFormat.UNIDAD, getUnidadCode());
+    }
+
+    public String getEstado() {
+        return segment.decode(PoliciaSegmentFormat.ESTADO, getEstadoCode());
+    }
+
+    public String getNombre() {
+        int endsOffset = idsOffset + 4 * count + PoliciaSegmentFormat.DICTIONARY_COLUMNS * 2 * count;
+        int start = index == 0 ? 0 : buffer.getInt(endsOffset + 4 * (index - 1));
+        int end = buffer.getInt(endsOffset + 4 * index);
+        return segment.readString(endsOffset + 4 * count + start, end - start);
+    }
+
+    /**
+     * Materializa el registro actual como PoliciaData
+     */
+    public PoliciaData toPoliciaData() {
+        return new PoliciaData(getId(), getNombre(), getRango(), getUnidad(), getEstado());
+    }
+
+    private int code(int column) {
+        return buffer.getShort(idsOffset + 4 * count + 2 * (column * count + index)) & 0xFFFF;
+    }
+
+    @Override
+    public String toString() {
+        return toPoliciaData().toString();
+    }
+}
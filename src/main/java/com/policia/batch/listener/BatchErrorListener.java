@@ -1,16 +1,29 @@
 package com.policia.batch.listener;
 
 import com.policia.batch.exception.InvalidDataException;
+import com.policia.batch.metrics.MetricsExporter;
+import com.policia.batch.quarantine.QuarantineService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.batch.core.*;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 @Component
-public class BatchErrorListener implements JobExecutionListener, StepExecutionListener {
+public class BatchErrorListener implements JobExecutionListener, StepExecutionListener, ChunkListener {
 
     private static final Logger logger = LoggerFactory.getLogger(BatchErrorListener.class);
 
+    private final QuarantineService quarantineService;
+    private final MetricsExporter metricsExporter;
+
+    @Autowired
+    public BatchErrorListener(QuarantineService quarantineService, MetricsExporter metricsExporter) {
+        this.quarantineService = quarantineService;
+        this.metricsExporter = metricsExporter;
+    }
+
     @Override
     public void beforeJob(JobExecution jobExecution) {
         logger.info("=== INICIANDO BATCH POLICIA-XML ===");
@@ -43,11 +56,28 @@ public class BatchErrorListener implements JobExecutionListener, StepExecutionLi
         } else {
             logger.info("JOB COMPLETADO EXITOSAMENTE");
         }
+        
+        metricsExporter.dump();
     }
 
     @Override
     public void beforeStep(StepExecution stepExecution) {
         logger.info("--- Iniciando Step: {} ---", stepExecution.getStepName());
+        quarantineService.reset(); // Los umbrales de cuarentena son por step
+    }
+
+    @Override
+    public void beforeChunk(ChunkContext context) {
+        // Los rechazos del pool asíncrono se guardan con el commit del chunk
+        quarantineService.storeOnCommit();
+    }
+
+    @Override
+    public void afterChunk(ChunkContext context) {
+    }
+
+    @Override
+    public void afterChunkError(ChunkContext context) {
     }
 
     @Override
@@ -64,6 +94,12 @@ public class BatchErrorListener implements JobExecutionListener, StepExecutionLi
                        stepExecution.getWriteSkipCount());
         }
         
+        if (quarantineService.getQuarantinedCount() > 0) {
+            logger.warn("Mensajes en cuarentena: {} de {} procesados",
+                       quarantineService.getQuarantinedCount(),
+                       quarantineService.getProcessedCount());
+        }
+        
         if (stepExecution.getStatus().isUnsuccessful()) {
             logger.error("STEP FALLIDO: {}", stepExecution.getExitStatus().getExitDescription());
         }
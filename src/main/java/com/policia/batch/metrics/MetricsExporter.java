@@ -0,0 +1,118 @@
+package com.policia.batch.metrics;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+
+/**
+ * Expone las métricas en formato Prometheus.
+ *
+ * La aplicación corre sin servidor web (server.port: -1), así que con metrics.scrape.enabled se
+ * levanta un HttpServer mínimo del JDK que atiende GET metrics.scrape.path. Al terminar el job
+ * (o el streaming) el mismo contenido se vuelca a metrics.dump.file para las ejecuciones que
+ * terminan antes de que pase el scraper.
+ */
+@Component
+public class MetricsExporter implements InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsExporter.class);
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final PrometheusMeterRegistry registry;
+    private final boolean scrapeEnabled;
+    private final int scrapePort;
+    private final String scrapePath;
+    private final boolean dumpEnabled;
+    private final Path dumpFile;
+    private HttpServer server;
+
+    @Autowired
+    public MetricsExporter(PrometheusMeterRegistry registry,
+                           @Value("${metrics.scrape.enabled:false}") boolean scrapeEnabled,
+                           @Value("${metrics.scrape.port:9464}") int scrapePort,
+                           @Value("${metrics.scrape.path:/metrics}") String scrapePath,
+                           @Value("${metrics.dump.enabled:true}") boolean dumpEnabled,
+                           @Value("${metrics.dump.file:metrics/policia-metrics.prom}") String dumpFile) {
+        this.registry = registry;
+        this.scrapeEnabled = scrapeEnabled;
+        this.scrapePort = scrapePort;
+        this.scrapePath = scrapePath;
+        this.dumpEnabled = dumpEnabled;
+        this.dumpFile = Paths.get(dumpFile);
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        if (!scrapeEnabled) {
+            return;
+        }
+        server = HttpServer.create(new InetSocketAddress(scrapePort), 0);
+        server.createContext(scrapePath, exchange -> {
+            try {
+                if (!"GET".equals(exchange.getRequestMethod())) {
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+                byte[] body = registry.scrape().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } finally {
+                exchange.close();
+            }
+        });
+        server.setExecutor(Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-scrape");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.start();
+        logger.info("📊 Métricas disponibles en http://0.0.0.0:{}{}", scrapePort, scrapePath);
+    }
+
+    /**
+     * Vuelca el estado actual de las métricas; un error al escribir no afecta al job
+     */
+    public void dump() {
+        if (!dumpEnabled) {
+            return;
+        }
+        try {
+            Path directory = dumpFile.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temp = directory.resolve(dumpFile.getFileName() + ".tmp");
+            Files.write(temp, registry.scrape().getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, dumpFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("📊 Métricas volcadas en {}", dumpFile.toAbsolutePath());
+        } catch (IOException e) {
+            logger.warn("No se pudieron volcar las métricas en {}: {}", dumpFile, e.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.policia.batch.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Instrumentación por etapa del pipeline y contadores por cola y tipo de error.
+ *
+ * Cada etapa tiene un Timer con histograma (policia.stage, tag stage) y la recepción de MQ uno
+ * por cola y resultado (policia.mq.receive), así se distingue una cola lenta de un parser lento.
+ * Los medidores se crean una vez y se reutilizan; con metrics.enabled=false start() no lee el
+ * reloj y los registros son no-ops.
+ *
+ * Uso: {@code long start = metrics.start(); ... metrics.stage(Stage.PARSE, start);}
+ */
+@Component
+public class PoliciaMetrics {
+
+    /**
+     * Etapas instrumentadas, en el orden en que las recorre un mensaje
+     */
+    public enum Stage {
+        CLEAN("clean"),       // Prefijos, BOM y espacios antes del XML
+        PARSE("parse"),       // Verificación de buena formación y decodificación (una sola pasada)
+        VALIDATE("validate"), // Reglas de negocio
+        ENRICH("enrich"),     // Normalización y codificación compacta
+        WRITE("write");       // Escritura del chunk o micro-batch
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+    }
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    // Duraciones del mensaje en curso en cada hilo, para el diario de auditoría
+    private static final ThreadLocal<long[]> TIMINGS = ThreadLocal.withInitial(() -> new long[Stage.values().length]);
+
+    private final MeterRegistry registry;
+    private final boolean enabled;
+    private final boolean histograms;
+    private final Timer[] stages;
+    private final Counter parseFallbacks;
+    private final Counter recordsWritten;
+    private final Map<String, Timer> receiveTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> latencyTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> waitTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> receivedMessages = new ConcurrentHashMap<>();
+    private final Map<String, Counter> receivedBytes = new ConcurrentHashMap<>();
+    private final Map<String, Counter> errors = new ConcurrentHashMap<>();
+
+    @Autowired
+    public PoliciaMetrics(MeterRegistry registry,
+                          @Value("${metrics.enabled:true}") boolean enabled,
+                          @Value("${metrics.histograms:true}") boolean histograms) {
+        this.registry = registry;
+        this.enabled = enabled;
+        this.histograms = histograms;
+
+        this.stages = new Timer[Stage.values().length];
+        for (Stage stage : Stage.values()) {
+            stages[stage.ordinal()] = timer("policia.stage", "Duración de cada etapa del pipeline por mensaje o chunk")
+                    .tag("stage", stage.getTag())
+                    .register(registry);
+        }
+        this.parseFallbacks = Counter.builder("policia.parse.fallback")
+                .description("Mensajes fuera del formato canónico decodificados con el parser StAX")
+                .register(registry);
+        this.recordsWritten = Counter.builder("policia.records.written")
+                .description("Registros escritos en la base de datos")
+                .register(registry);
+    }
+
+    /**
+     * Instancia sin exportación (herramientas y benchmarks fuera del contexto Spring)
+     */
+    public static PoliciaMetrics standalone(boolean enabled) {
+        return new PoliciaMetrics(new SimpleMeterRegistry(), enabled, false);
+    }
+
+    private Timer.Builder timer(String name, String description) {
+        Timer.Builder builder = Timer.builder(name).description(description);
+        if (histograms) {
+            builder.publishPercentileHistogram().publishPercentiles(PERCENTILES);
+        }
+        return builder;
+    }
+
+    /**
+     * Marca de inicio para stage() o receive()
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    public void stage(Stage stage, long start) {
+        if (enabled) {
+            long elapsed = System.nanoTime() - start;
+            stages[stage.ordinal()].record(elapsed, TimeUnit.NANOSECONDS);
+            TIMINGS.get()[stage.ordinal()] = elapsed;
+        }
+    }
+
+    /**
+     * Pone en cero las duraciones del hilo actual y las devuelve; stage() las completa a medida
+     * que el mensaje avanza. Con metrics.enabled=false quedan en cero.
+     */
+    public long[] resetTimings() {
+        long[] timings = TIMINGS.get();
+        Arrays.fill(timings, 0L);
+        return timings;
+    }
+
+    /**
+     * Duración de un receive de MQ; los receive vacíos (timeout) se registran aparte
+     */
+    public void receive(String queue, long start, boolean received) {
+        if (!enabled) {
+            return;
+        }
+        String result = received ? "message" : "empty";
+        receiveTimers.computeIfAbsent(queue + '|' + result,
+                key -> timer("policia.mq.receive", "Duración del receive de MQ por cola")
+                        .tags("queue", queue, "result", result)
+                        .register(registry))
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Latencia de extremo a extremo: desde que el mensaje se encoló (JMSTimestamp) hasta que
+     * terminó de procesarse. Incluye la espera en la cola.
+     */
+    public void latency(String queue, long enqueuedAtMillis) {
+        if (!enabled || enqueuedAtMillis <= 0) {
+            return;
+        }
+        latencyTimers.computeIfAbsent(queue,
+                key -> timer("policia.message.latency", "Tiempo desde el encolado hasta el fin del procesamiento")
+                        .tag("queue", queue)
+                        .register(registry))
+                .record(Math.max(0L, System.currentTimeMillis() - enqueuedAtMillis), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Espera en la cola: desde que el mensaje se encoló (JMSTimestamp) hasta que el reader lo recibió
+     */
+    public void queueWait(String queue, long waitMillis) {
+        if (!enabled) {
+            return;
+        }
+        waitTimers.computeIfAbsent(queue,
+                key -> timer("policia.mq.wait", "Tiempo desde el encolado hasta la recepción por cola")
+                        .tag("queue", queue)
+                        .register(registry))
+                .record(waitMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void received(String queue, int bytes) {
+        if (!enabled) {
+            return;
+        }
+        receivedMessages.computeIfAbsent(queue,
+                key -> Counter.builder("policia.messages.received").tag("queue", queue)
+                              .description("Mensajes recibidos por cola").register(registry))
+                .increment();
+        receivedBytes.computeIfAbsent(queue,
+                key -> Counter.builder("policia.messages.bytes").tag("queue", queue)
+                              .baseUnit("bytes").description("Bytes recibidos por cola").register(registry))
+                .increment(bytes);
+    }
+
+    /**
+     * Cuenta un error por cola y tipo (nombre simple de la excepción)
+     */
+    public void error(String queue, Throwable error) {
+        if (!enabled) {
+            return;
+        }
+        String type = error.getClass().getSimpleName();
+        errors.computeIfAbsent(queue + '|' + type,
+                key -> Counter.builder("policia.errors").tags("queue", queue, "type", type)
+                              .description("Errores por cola y tipo").register(registry))
+                .increment();
+    }
+
+    public void parseFallback() {
+        if (enabled) {
+            parseFallbacks.increment();
+        }
+    }
+
+    public void written(int records) {
+        if (enabled) {
+            recordsWritten.increment(records);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+}
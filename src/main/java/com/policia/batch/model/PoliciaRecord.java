@@ -0,0 +1,72 @@
+package com.policia.batch.model;
+
+/**
+ * Representación compacta de un registro ya validado, usada entre el processor y los writers.
+ *
+ * El ID se guarda como su parte numérica y rango, unidad y estado como códigos de
+ * {@code PoliciaVocabulary}, que comparte una sola instancia de cada texto. Solo el nombre
+ * conserva su String. Si unidad o estado no entran en el vocabulario (tamaño máximo alcanzado),
+ * el código es NO_CODE y el texto se guarda tal cual.
+ */
+public final class PoliciaRecord {
+
+    public static final short NO_CODE = -1;
+
+    private final int idNumber;
+    private final String nombre;
+    private final short rango;
+    private final short unidad;
+    private final short estado;
+    private final String unidadText; // Solo con unidad == NO_CODE
+    private final String estadoText; // Solo con estado == NO_CODE
+
+    public PoliciaRecord(int idNumber, String nombre, short rango, short unidad, short estado,
+                         String unidadText, String estadoText) {
+        this.idNumber = idNumber;
+        this.nombre = nombre;
+        this.rango = rango;
+        this.unidad = unidad;
+        this.estado = estado;
+        this.unidadText = unidadText;
+        this.estadoText = estadoText;
+    }
+
+    public int getIdNumber() {
+        return idNumber;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public short getRangoCode() {
+        return rango;
+    }
+
+    public short getUnidadCode() {
+        return unidad;
+    }
+
+    public short getEstadoCode() {
+        return estado;
+    }
+
+    public String getUnidadText() {
+        return unidadText;
+    }
+
+    public String getEstadoText() {
+        return estadoText;
+    }
+
+    @Override
+    public String toString() {
+        return "PoliciaRecord{" +
+                "idNumber=" + idNumber +
+                ", nombre='" + nombre + '\'' +
+                ", rango=" + rango +
+                ", unidad=" + (unidad != NO_CODE ? String.valueOf(unidad) : "'" + unidadText + "'") +
+                ", estado=" + (estado != NO_CODE ? String.valueOf(estado) : "'" + estadoText + "'") +
+                '}';
+    }
+}
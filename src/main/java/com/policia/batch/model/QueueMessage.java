@@ -0,0 +1,217 @@
+package com.policia.batch.model;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Mensaje leído de una cola IBM MQ: cola de origen, JMS message ID, momento de encolado y payload en bytes.
+ * El payload se decodifica directamente desde el buffer; el texto solo se materializa para diagnóstico.
+ *
+ * Un mensaje grande (ver LargeMessageStore) tiene el payload en un archivo temporal: en memoria
+ * queda solo el inicio, y el contenido se lee con {@link #openStream()} o {@link #forEachChunk}.
+ * En errores y logs se referencia por {@link #getHandle()}, nunca por su contenido.
+ *
+ * El payload de un TextMessage es su texto codificado en UTF-8 (ver {@link #isText()}).
+ */
+public class QueueMessage {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final String queueName;
+    private final String messageId;
+    private final byte[] payload;   // Payload completo, o solo el inicio si está en disco
+    private final Path bodyFile;    // null si el payload está en memoria
+    private final int length;
+    private final long timestamp;   // JMSTimestamp en ms, 0 si no se conoce
+    private final boolean text;     // Payload de un TextMessage, codificado en UTF-8
+
+    public QueueMessage(String queueName, String messageId, byte[] payload) {
+        this(queueName, messageId, payload, 0L);
+    }
+
+    public QueueMessage(String queueName, String messageId, byte[] payload, long timestamp) {
+        this(queueName, messageId, payload, timestamp, false);
+    }
+
+    public QueueMessage(String queueName, String messageId, byte[] payload, long timestamp, boolean text) {
+        this(queueName, messageId, payload, null, payload.length, timestamp, text);
+    }
+
+    /**
+     * Mensaje grande con el payload en bodyFile
+     *
+     * @param head primeros bytes del payload
+     * @param length tamaño total del payload
+     */
+    public QueueMessage(String queueName, String messageId, byte[] head, Path bodyFile, int length, long timestamp) {
+        this(queueName, messageId, head, bodyFile, length, timestamp, false);
+    }
+
+    /**
+     * @param text si el payload es el texto de un TextMessage codificado en UTF-8
+     */
+    public QueueMessage(String queueName, String messageId, byte[] head, Path bodyFile, int length, long timestamp,
+                        boolean text) {
+        this.queueName = queueName;
+        this.messageId = messageId;
+        this.payload = head;
+        this.bodyFile = bodyFile;
+        this.length = length;
+        this.timestamp = timestamp;
+        this.text = text;
+    }
+
+    public String getQueueName() {
+        return queueName;
+    }
+
+    public String getMessageId() {
+        return messageId;
+    }
+
+    /**
+     * Payload completo en memoria; un mensaje grande no lo tiene (usar openStream o forEachChunk)
+     */
+    public byte[] getPayload() {
+        if (bodyFile != null) {
+            throw new IllegalStateException("El payload del " + getHandle() + " está en disco");
+        }
+        return payload;
+    }
+
+    /**
+     * Inicio del payload: el payload completo si está en memoria. Alcanza para reconocer el
+     * elemento raíz, los prefijos y el ID.
+     */
+    public byte[] getHead() {
+        return payload;
+    }
+
+    /**
+     * Verdadero si el payload es el texto de un TextMessage: ya está en UTF-8, así que al parsearlo
+     * no se aplica la codificación que declare el XML
+     */
+    public boolean isText() {
+        return text;
+    }
+
+    public boolean isSpilled() {
+        return bodyFile != null;
+    }
+
+    public Path getBodyFile() {
+        return bodyFile;
+    }
+
+    /**
+     * Payload completo como stream, sin cargarlo en memoria si está en disco
+     */
+    public InputStream openStream() throws IOException {
+        return bodyFile != null
+               ? new BufferedInputStream(Files.newInputStream(bodyFile), CHUNK_SIZE)
+               : new ByteArrayInputStream(payload);
+    }
+
+    /**
+     * Recorre el payload por bloques (checksums, búsquedas) con memoria acotada
+     *
+     * @throws UncheckedIOException si no se puede leer el archivo de un mensaje grande
+     */
+    public void forEachChunk(ChunkConsumer consumer) {
+        if (bodyFile == null) {
+            consumer.accept(payload, 0, payload.length);
+            return;
+        }
+        byte[] chunk = new byte[CHUNK_SIZE];
+        try (InputStream in = Files.newInputStream(bodyFile)) {
+            int read;
+            while ((read = in.read(chunk)) > 0) {
+                consumer.accept(chunk, 0, read);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error leyendo el " + getHandle(), e);
+        }
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Verdadero si el payload está vacío o contiene solo espacios en blanco
+     */
+    public boolean isBlank() {
+        if (!isBlank(payload, 0, payload.length)) {
+            return false;
+        }
+        if (bodyFile == null) {
+            return true;
+        }
+        boolean[] blank = {true};
+        forEachChunk((b, offset, count) -> blank[0] &= isBlank(b, offset, count));
+        return blank[0];
+    }
+
+    private static boolean isBlank(byte[] b, int offset, int count) {
+        for (int i = offset; i < offset + count; i++) {
+            if (b[i] != ' ' && b[i] != '\t' && b[i] != '\r' && b[i] != '\n') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Payload decodificado como texto UTF-8 (crea una copia; usar solo en errores y logs).
+     * De un mensaje grande devuelve su handle.
+     */
+    public String getText() {
+        return bodyFile != null ? getHandle() : new String(payload, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Referencia para errores y logs: ID, tamaño y, si es grande, el archivo con el payload
+     */
+    public String getHandle() {
+        return bodyFile != null
+               ? "mensaje " + messageId + " (" + length + " bytes) en " + bodyFile
+               : "mensaje " + messageId + " (" + length + " bytes)";
+    }
+
+    /**
+     * Primeros caracteres del payload para logs
+     */
+    public String preview(int maxBytes) {
+        int count = Math.min(payload.length, maxBytes);
+        String text = new String(payload, 0, count, StandardCharsets.UTF_8);
+        return count < length ? text + "..." : text;
+    }
+
+    @Override
+    public String toString() {
+        return "QueueMessage{" +
+                "queueName='" + queueName + '\'' +
+                ", messageId='" + messageId + '\'' +
+                ", length=" + length +
+                (bodyFile != null ? ", bodyFile=" + bodyFile : "") +
+                '}';
+    }
+
+    /**
+     * Receptor de los bloques de {@link #forEachChunk}
+     */
+    @FunctionalInterface
+    public interface ChunkConsumer {
+        void accept(byte[] b, int offset, int count);
+    }
+}
@@ -0,0 +1,26 @@
+package com.policia.batch.partition;
+
+import java.util.Locale;
+
+/**
+ * Rol del nodo en el procesamiento particionado (partitioning.mode)
+ */
+public enum PartitionMode {
+
+    /** Un solo nodo lee, procesa y escribe (comportamiento original) */
+    NONE,
+
+    /** Reparte las particiones entre los workers y espera sus resultados en el job repository */
+    MANAGER,
+
+    /** Ejecuta las particiones que recibe por la cola de solicitudes */
+    WORKER;
+
+    public static PartitionMode of(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("partitioning.mode inválido: " + value + " (none | manager | worker)");
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.policia.batch.partition;
+
+import com.policia.batch.archive.MessageArchive;
+import com.policia.batch.exception.InvalidDataException;
+import com.policia.batch.metrics.PoliciaMetrics;
+import com.policia.batch.model.QueueMessage;
+import com.policia.batch.quarantine.QuarantineService;
+import com.policia.batch.reader.LargeMessageStore;
+import com.policia.batch.reader.ReaderCheckpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import java.util.List;
+
+/**
+ * Reader de una partición: recibe de una sola cola, con el selector de la partición si lo tiene,
+ * hasta que un receive vuelve vacío.
+ *
+ * Usa el mismo template que el reader secuencial (sesión transaccional y timeout de mq.*), así
+ * que con mq.session-transacted los mensajes del chunk se confirman junto con la escritura y un
+ * worker caído los devuelve a la cola. Una instancia por ejecución de partición (step scope).
+ * El progreso y la ventana de duplicados se guardan en el contexto de la partición, así que otro
+ * worker que retome la ejecución sigue desde el último commit.
+ */
+@Component
+@StepScope
+public class PartitionQueueReader implements ItemReader<QueueMessage>, ItemStream {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionQueueReader.class);
+
+    private final JmsTemplate jmsTemplate;
+    private final LargeMessageStore largeMessages;
+    private final MessageArchive archive;
+    private final QuarantineService quarantineService;
+    private final PoliciaMetrics metrics;
+    private final String queueName;
+    private final String selector;
+    private final ReaderCheckpoint checkpoint;
+
+    @Autowired
+    public PartitionQueueReader(@Qualifier("jmsTemplateRta") JmsTemplate jmsTemplate,
+                                LargeMessageStore largeMessages,
+                                MessageArchive archive,
+                                QuarantineService quarantineService,
+                                PoliciaMetrics metrics,
+                                @Value("#{stepExecutionContext['" + QueuePartitioner.QUEUE_KEY + "']}") String queueName,
+                                @Value("#{stepExecutionContext['" + QueuePartitioner.SELECTOR_KEY + "']}") String selector) {
+        this.jmsTemplate = jmsTemplate;
+        this.largeMessages = largeMessages;
+        this.archive = archive;
+        this.quarantineService = quarantineService;
+        this.metrics = metrics;
+        this.queueName = queueName;
+        this.selector = selector;
+        this.checkpoint = new ReaderCheckpoint("reader.", jmsTemplate.isSessionTransacted());
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) {
+        checkpoint.open(executionContext, List.of(queueName));
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) {
+        checkpoint.update(executionContext);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public QueueMessage read() throws JMSException {
+        Message message = receive();
+        if (message == null) {
+            logger.info("Partición de {} sin más mensajes ({} confirmados{})", queueName,
+                        checkpoint.counts().get(queueName), selector != null ? ", selector " + selector : "");
+            return null;
+        }
+
+        QueueMessage queueMessage = largeMessages.toQueueMessage(queueName, message);
+        largeMessages.deleteOnCommit(queueMessage);
+        archive.append(queueMessage, message);
+        archive.flushOnCommit();
+        metrics.received(queueName, queueMessage.getLength());
+        checkpoint.read(queueName, queueMessage.getMessageId());
+
+        // Igual que IBMMQItemReader: con cuarentena activa el mensaje vacío lo rechaza el processor
+        if (queueMessage.isBlank() && !quarantineService.isEnabled()) {
+            throw new InvalidDataException("Mensaje vacío encontrado en la cola " + queueName, "");
+        }
+        return queueMessage;
+    }
+
+    /**
+     * Receive que descarta las reentregas de mensajes ya confirmados en el último chunk
+     */
+    private Message receive() throws JMSException {
+        while (true) {
+            long start = metrics.start();
+            Message message = selector != null
+                              ? jmsTemplate.receiveSelected(queueName, selector)
+                              : jmsTemplate.receive(queueName);
+            metrics.receive(queueName, start, message != null);
+
+            if (message == null || !checkpoint.isAlreadyCommitted(message)) {
+                return message;
+            }
+            logger.info("Mensaje {} de {} ya confirmado antes de la caída, se descarta la reentrega",
+                        message.getJMSMessageID(), queueName);
+        }
+    }
+}
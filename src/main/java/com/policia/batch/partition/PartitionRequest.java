@@ -0,0 +1,62 @@
+package com.policia.batch.partition;
+
+import org.springframework.batch.core.StepExecution;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+import javax.jms.TextMessage;
+
+/**
+ * Solicitud de ejecución de una partición en la cola partitioning.request-queue: mensaje de texto
+ * con el nombre del step y los IDs de la ejecución como propiedades. El estado de la partición
+ * (cola, selector, progreso) viaja por el job repository compartido, no por el mensaje.
+ */
+final class PartitionRequest {
+
+    static final String JOB_EXECUTION_ID = "policiaJobExecutionId";
+    static final String STEP_EXECUTION_ID = "policiaStepExecutionId";
+
+    private final String stepName;
+    private final long jobExecutionId;
+    private final long stepExecutionId;
+
+    private PartitionRequest(String stepName, long jobExecutionId, long stepExecutionId) {
+        this.stepName = stepName;
+        this.jobExecutionId = jobExecutionId;
+        this.stepExecutionId = stepExecutionId;
+    }
+
+    static Message toMessage(Session session, String stepName, StepExecution partition) throws JMSException {
+        TextMessage message = session.createTextMessage(stepName);
+        message.setLongProperty(JOB_EXECUTION_ID, partition.getJobExecutionId());
+        message.setLongProperty(STEP_EXECUTION_ID, partition.getId());
+        return message;
+    }
+
+    static PartitionRequest fromMessage(Message message) throws JMSException {
+        if (!(message instanceof TextMessage) || !message.propertyExists(STEP_EXECUTION_ID)) {
+            throw new IllegalArgumentException("Mensaje no reconocido en la cola de particiones: "
+                                               + message.getJMSMessageID());
+        }
+        return new PartitionRequest(((TextMessage) message).getText(), message.getLongProperty(JOB_EXECUTION_ID),
+                                    message.getLongProperty(STEP_EXECUTION_ID));
+    }
+
+    String getStepName() {
+        return stepName;
+    }
+
+    long getJobExecutionId() {
+        return jobExecutionId;
+    }
+
+    long getStepExecutionId() {
+        return stepExecutionId;
+    }
+
+    @Override
+    public String toString() {
+        return stepName + " (job " + jobExecutionId + ", step " + stepExecutionId + ")";
+    }
+}
@@ -0,0 +1,230 @@
+package com.policia.batch.partition;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.Session;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lado worker del particionado: partitioning.worker.concurrency hilos reciben solicitudes de
+ * partitioning.request-queue y ejecutan el step de partición sobre la ejecución indicada.
+ *
+ * Cada solicitud se recibe en una sesión JMS transaccional que se confirma recién cuando el step
+ * terminó (con éxito o no; el resultado queda en el job repository). Si el proceso muere a mitad
+ * de una partición, el broker devuelve la solicitud a la cola y otro worker retoma la misma
+ * ejecución. Las solicitudes de ejecuciones ya terminadas (por ejemplo, reasignadas por el
+ * manager) se descartan.
+ *
+ * Usa su propia conexión a MQ: las sesiones quedan tomadas durante toda la partición y no deben
+ * ocupar la caché compartida de los templates.
+ */
+@Component
+public class PartitionWorker implements ApplicationListener<ApplicationReadyEvent>, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionWorker.class);
+
+    // Espera máxima de cada receive, para revisar periódicamente si hay que detenerse
+    private static final long IDLE_RECEIVE_TIMEOUT = 1000L;
+
+    // Espera de las particiones en curso al detenerse; las que no terminen se retoman en otro worker
+    private static final long SHUTDOWN_WAIT_MILLIS = 30_000L;
+
+    private final ConnectionFactory connectionFactory;
+    private final JobExplorer jobExplorer;
+    private final Step partitionStep;
+    private final boolean enabled;
+    private final String requestQueue;
+    private final int concurrency;
+    private final long recoveryIntervalMillis;
+
+    private final List<Thread> consumers = new ArrayList<>();
+    private final CountDownLatch terminated = new CountDownLatch(1);
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+    private volatile boolean running;
+
+    @Autowired
+    public PartitionWorker(@Qualifier("mqQueueConnectionFactory") ConnectionFactory connectionFactory,
+                           JobExplorer jobExplorer,
+                           @Qualifier(ReassigningPartitionHandler.WORKER_STEP) Step partitionStep,
+                           @Value("${partitioning.mode:none}") String mode,
+                           @Value("${partitioning.request-queue:POLICIA.BATCH.PARTICIONES}") String requestQueue,
+                           @Value("${partitioning.worker.concurrency:2}") int concurrency,
+                           @Value("${partitioning.worker.recovery-interval-ms:5000}") long recoveryIntervalMillis,
+                           @Value("${spring.batch.job.enabled:true}") boolean jobEnabled,
+                           @Value("${dedup.enabled:false}") boolean dedupEnabled) {
+        this.connectionFactory = connectionFactory;
+        this.jobExplorer = jobExplorer;
+        this.partitionStep = partitionStep;
+        this.enabled = PartitionMode.of(mode) == PartitionMode.WORKER;
+        this.requestQueue = requestQueue;
+        this.concurrency = concurrency;
+        this.recoveryIntervalMillis = recoveryIntervalMillis;
+
+        if (enabled && jobEnabled) {
+            throw new IllegalStateException("Con partitioning.mode=worker el job lo lanza el manager: "
+                                            + "use spring.batch.job.enabled=false en los workers");
+        }
+        if (enabled && dedupEnabled) {
+            throw new IllegalStateException("dedup.enabled no es compatible con partitioning.mode=worker: "
+                                            + "el bitmap es local a cada nodo");
+        }
+        if (enabled && concurrency < 1) {
+            throw new IllegalArgumentException("partitioning.worker.concurrency debe ser al menos 1");
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (enabled) {
+            start();
+        }
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        for (int i = 1; i <= concurrency; i++) {
+            Thread thread = new Thread(this::consume, "partition-worker-" + i);
+            consumers.add(thread);
+            thread.start();
+        }
+        logger.info("🚀 Worker de particiones iniciado - cola de solicitudes: {}, particiones en paralelo: {}",
+                    requestQueue, concurrency);
+    }
+
+    /**
+     * Deja de tomar solicitudes y espera un tiempo acotado a que terminen las particiones en curso
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        for (Thread thread : consumers) {
+            try {
+                thread.join(SHUTDOWN_WAIT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        consumers.clear();
+        logger.info("Worker de particiones detenido - particiones ejecutadas: {}, solicitudes descartadas: {}",
+                    executed.sum(), discarded.sum());
+        terminated.countDown();
+    }
+
+    /**
+     * Bloquea hasta que el worker se detiene (apagado de la aplicación)
+     */
+    public void awaitTermination() throws InterruptedException {
+        terminated.await();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void destroy() {
+        stop();
+    }
+
+    private void consume() {
+        while (running) {
+            try (Connection connection = connectionFactory.createConnection()) {
+                Session session = connection.createSession(true, Session.SESSION_TRANSACTED);
+                MessageConsumer consumer = session.createConsumer(session.createQueue(requestQueue));
+                connection.start();
+
+                while (running) {
+                    Message message = consumer.receive(IDLE_RECEIVE_TIMEOUT);
+                    if (message != null) {
+                        execute(message);
+                        session.commit();
+                    }
+                }
+            } catch (JMSException | RuntimeException e) {
+                // La solicitud en curso vuelve a la cola al cerrarse la sesión sin confirmar
+                logger.warn("Error en el worker de particiones, reintento en {} ms: {}", recoveryIntervalMillis,
+                            e.getMessage());
+                pause();
+            }
+        }
+    }
+
+    private void execute(Message message) throws JMSException {
+        PartitionRequest request;
+        try {
+            request = PartitionRequest.fromMessage(message);
+        } catch (IllegalArgumentException e) {
+            logger.error("❌ {}", e.getMessage());
+            discarded.increment();
+            return;
+        }
+
+        if (!ReassigningPartitionHandler.WORKER_STEP.equals(request.getStepName())) {
+            logger.error("❌ Solicitud para un step desconocido: {}", request);
+            discarded.increment();
+            return;
+        }
+
+        StepExecution stepExecution = jobExplorer.getStepExecution(request.getJobExecutionId(),
+                                                                   request.getStepExecutionId());
+        if (stepExecution == null) {
+            logger.error("❌ La ejecución de {} no existe en el job repository", request);
+            discarded.increment();
+            return;
+        }
+
+        // STARTED: reentrega de un worker caído, se retoma la misma ejecución
+        BatchStatus status = stepExecution.getStatus();
+        if (status != BatchStatus.STARTING && status != BatchStatus.STARTED) {
+            logger.info("Solicitud descartada: {} ya está {}", stepExecution.getStepName(), status);
+            discarded.increment();
+            return;
+        }
+
+        logger.info("▶️ Ejecutando partición {} ({})", stepExecution.getStepName(), request);
+        try {
+            partitionStep.execute(stepExecution);
+        } catch (Exception e) {
+            // El step ya registró el error en la ejecución; la solicitud se confirma igual
+            logger.error("❌ La partición {} terminó con error: {}", stepExecution.getStepName(), e.getMessage(), e);
+        }
+        executed.increment();
+        logger.info("Partición {} terminada: {} (leídos {}, escritos {})", stepExecution.getStepName(),
+                    stepExecution.getStatus(), stepExecution.getReadCount(), stepExecution.getWriteCount());
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(recoveryIntervalMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.policia.batch.partition;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Divide el trabajo en particiones por cola y, dentro de cada cola, en
+ * partitioning.partitions-per-queue partes.
+ *
+ * Si partitioning.range.property nombra una propiedad JMS numérica (por ejemplo un número de
+ * grupo que pone el emisor), cada parte recibe con un selector sobre un rango contiguo de
+ * [0, partitioning.range.max); la primera parte toma además los mensajes sin la propiedad o fuera
+ * de rango. Sin propiedad, las partes de una cola son consumidores que compiten por los mismos
+ * mensajes, y la carga se reparte sola según la velocidad de cada worker.
+ */
+@Component
+public class QueuePartitioner implements Partitioner {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueuePartitioner.class);
+
+    public static final String QUEUE_KEY = "partition.queue";
+    public static final String SELECTOR_KEY = "partition.selector";
+
+    private final List<String> queueNames;
+    private final int partitionsPerQueue;
+    private final String rangeProperty;
+    private final long rangeMax;
+
+    @Autowired
+    public QueuePartitioner(@Value("${mq.queue.rta}") String queueRta,
+                            @Value("${mq.queue.mas}") String queueMas,
+                            @Value("${mq.queue.additional:}") String[] additionalQueues,
+                            @Value("${partitioning.partitions-per-queue:1}") int partitionsPerQueue,
+                            @Value("${partitioning.range.property:}") String rangeProperty,
+                            @Value("${partitioning.range.max:1000000}") long rangeMax) {
+        if (partitionsPerQueue < 1) {
+            throw new IllegalArgumentException("partitioning.partitions-per-queue debe ser al menos 1");
+        }
+        if (!rangeProperty.trim().isEmpty() && rangeMax < partitionsPerQueue) {
+            throw new IllegalArgumentException("partitioning.range.max debe ser al menos partitions-per-queue");
+        }
+        this.partitionsPerQueue = partitionsPerQueue;
+        this.rangeProperty = rangeProperty.trim();
+        this.rangeMax = rangeMax;
+
+        List<String> queues = new ArrayList<>();
+        queues.add(queueRta);
+        queues.add(queueMas);
+        for (String queue : additionalQueues) {
+            if (!queue.trim().isEmpty() && !queues.contains(queue.trim())) {
+                queues.add(queue.trim());
+            }
+        }
+        this.queueNames = queues;
+    }
+
+    /**
+     * El gridSize se ignora: la cantidad de particiones la fijan las colas y partitions-per-queue
+     */
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        Map<String, ExecutionContext> partitions = new LinkedHashMap<>();
+        for (String queue : queueNames) {
+            for (int part = 0; part < partitionsPerQueue; part++) {
+                ExecutionContext context = new ExecutionContext();
+                context.putString(QUEUE_KEY, queue);
+                String selector = selector(part);
+                if (selector != null) {
+                    context.putString(SELECTOR_KEY, selector);
+                }
+                partitions.put(queue + "#" + part, context);
+            }
+        }
+
+        logger.info("📦 {} particiones: colas {}, {} por cola{}", partitions.size(), queueNames, partitionsPerQueue,
+                    rangeProperty.isEmpty() ? "" : " (rangos de " + rangeProperty + ")");
+        return partitions;
+    }
+
+    /**
+     * Selector JMS de la parte, o null si las partes compiten por la cola completa
+     */
+    String selector(int part) {
+        if (rangeProperty.isEmpty() || partitionsPerQueue == 1) {
+            return null;
+        }
+        long from = rangeMax * part / partitionsPerQueue;
+        long to = rangeMax * (part + 1) / partitionsPerQueue;
+        String range = rangeProperty + " >= " + from + " AND " + rangeProperty + " < " + to;
+        if (part == 0) {
+            return "(" + range + ") OR " + rangeProperty + " IS NULL OR " + rangeProperty + " < 0 OR "
+                   + rangeProperty + " >= " + rangeMax;
+        }
+        return range;
+    }
+}
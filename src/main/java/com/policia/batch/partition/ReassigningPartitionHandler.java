@@ -0,0 +1,193 @@
+package com.policia.batch.partition;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.partition.PartitionHandler;
+import org.springframework.batch.core.partition.StepExecutionSplitter;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Lado manager del particionado: publica una solicitud por partición en la cola
+ * partitioning.request-queue y sigue el estado de cada una en el job repository compartido.
+ *
+ * Detección de workers caídos:
+ * <ul>
+ *   <li>Si el proceso del worker muere, su sesión JMS se revierte y el broker entrega la
+ *       solicitud a otro worker, que retoma la misma ejecución.</li>
+ *   <li>Si la ejecución quedó STARTED sin avanzar durante partitioning.worker-timeout-ms (worker
+ *       colgado o sin conexión, pero con la solicitud tomada), el manager la marca FAILED, crea una
+ *       ejecución nueva con el mismo contexto y la vuelve a publicar. El avance se mide por la
+ *       versión de la ejecución con el reloj del manager, así que no depende del reloj del worker.
+ *       Si el worker original despierta, su siguiente commit choca con la versión (optimistic
+ *       locking): el chunk se revierte y sus mensajes vuelven a la cola.</li>
+ * </ul>
+ * Las particiones que todavía no toma ningún worker (STARTING) esperan en la cola sin límite,
+ * salvo partitioning.timeout-ms para todo el step.
+ */
+@Component
+public class ReassigningPartitionHandler implements PartitionHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReassigningPartitionHandler.class);
+
+    /** Nombre del step (y del bean) que ejecutan los workers */
+    public static final String WORKER_STEP = "policiaPartitionStep";
+
+    private final JmsTemplate jmsTemplate;
+    private final JobExplorer jobExplorer;
+    private final JobRepository jobRepository;
+    private final String requestQueue;
+    private final long pollIntervalMillis;
+    private final long workerTimeoutMillis;
+    private final long timeoutMillis;
+
+    @Autowired
+    public ReassigningPartitionHandler(@Qualifier("jmsTemplateRta") JmsTemplate jmsTemplate,
+                                       JobExplorer jobExplorer,
+                                       JobRepository jobRepository,
+                                       @Value("${partitioning.request-queue:POLICIA.BATCH.PARTICIONES}") String requestQueue,
+                                       @Value("${partitioning.poll-interval-ms:5000}") long pollIntervalMillis,
+                                       @Value("${partitioning.worker-timeout-ms:600000}") long workerTimeoutMillis,
+                                       @Value("${partitioning.timeout-ms:0}") long timeoutMillis) {
+        this.jmsTemplate = jmsTemplate;
+        this.jobExplorer = jobExplorer;
+        this.jobRepository = jobRepository;
+        this.requestQueue = requestQueue;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.workerTimeoutMillis = workerTimeoutMillis;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public Collection<StepExecution> handle(StepExecutionSplitter splitter, StepExecution managerExecution)
+            throws Exception {
+        Set<StepExecution> partitions = splitter.split(managerExecution, 0);
+        Map<String, Tracked> pending = new LinkedHashMap<>();
+        for (StepExecution partition : partitions) {
+            send(partition);
+            pending.put(partition.getStepName(), new Tracked(partition));
+        }
+        logger.info("📦 {} particiones publicadas en {}", partitions.size(), requestQueue);
+
+        List<StepExecution> finished = new ArrayList<>(partitions.size());
+        long deadline = timeoutMillis > 0 ? System.currentTimeMillis() + timeoutMillis : Long.MAX_VALUE;
+        int reassigned = 0;
+
+        while (!pending.isEmpty()) {
+            Thread.sleep(pollIntervalMillis);
+            long now = System.currentTimeMillis();
+
+            for (Map.Entry<String, Tracked> entry : new ArrayList<>(pending.entrySet())) {
+                Tracked tracked = entry.getValue();
+                StepExecution current = jobExplorer.getStepExecution(tracked.execution.getJobExecutionId(),
+                                                                     tracked.execution.getId());
+                if (current == null) {
+                    throw new IllegalStateException("La partición " + entry.getKey() + " desapareció del job repository");
+                }
+
+                if (!isActive(current.getStatus())) {
+                    logger.info("Partición {} terminada: {} (leídos {}, escritos {})", entry.getKey(),
+                                current.getStatus(), current.getReadCount(), current.getWriteCount());
+                    finished.add(current);
+                    pending.remove(entry.getKey());
+                } else if (tracked.advanced(current, now)) {
+                    continue;
+                } else if (current.getStatus() == BatchStatus.STARTED
+                           && now - tracked.lastAdvance > workerTimeoutMillis) {
+                    StepExecution retry = reassign(current, managerExecution);
+                    if (retry != null) {
+                        pending.put(entry.getKey(), new Tracked(retry));
+                        reassigned++;
+                    }
+                }
+            }
+
+            if (now > deadline && !pending.isEmpty()) {
+                throw new TimeoutException("Particiones sin terminar después de " + timeoutMillis + " ms: "
+                                           + pending.keySet());
+            }
+        }
+
+        if (reassigned > 0) {
+            logger.warn("⚠️ Particiones reasignadas por workers sin avance: {}", reassigned);
+        }
+        return finished;
+    }
+
+    /**
+     * Marca la ejecución perdida como FAILED y publica una nueva con el mismo contexto.
+     * Devuelve null si el worker avanzó justo antes de marcarla (la ejecución sigue viva).
+     */
+    private StepExecution reassign(StepExecution lost, StepExecution managerExecution) throws Exception {
+        lost.setStatus(BatchStatus.FAILED);
+        lost.setExitStatus(ExitStatus.FAILED.addExitDescription(
+                "Worker sin avance por más de " + workerTimeoutMillis + " ms; partición reasignada"));
+        lost.setEndTime(new Date());
+        try {
+            jobRepository.update(lost);
+        } catch (OptimisticLockingFailureException e) {
+            logger.debug("La partición {} avanzó mientras se reasignaba", lost.getStepName());
+            return null;
+        }
+
+        StepExecution retry = managerExecution.getJobExecution().createStepExecution(lost.getStepName());
+        retry.setExecutionContext(new ExecutionContext(lost.getExecutionContext()));
+        jobRepository.add(retry);
+        send(retry);
+
+        logger.warn("⚠️ Partición {} sin avance desde hace {} ms (ejecución {}): reasignada como ejecución {}",
+                    lost.getStepName(), workerTimeoutMillis, lost.getId(), retry.getId());
+        return retry;
+    }
+
+    private void send(StepExecution partition) {
+        jmsTemplate.send(requestQueue, session -> PartitionRequest.toMessage(session, WORKER_STEP, partition));
+    }
+
+    private static boolean isActive(BatchStatus status) {
+        return status == BatchStatus.STARTING || status == BatchStatus.STARTED || status == BatchStatus.STOPPING;
+    }
+
+    /**
+     * Última versión observada de una ejecución y cuándo la vio el manager
+     */
+    private static final class Tracked {
+
+        private final StepExecution execution;
+        private Integer version;
+        private long lastAdvance = System.currentTimeMillis();
+
+        private Tracked(StepExecution execution) {
+            this.execution = execution;
+            this.version = execution.getVersion();
+        }
+
+        private boolean advanced(StepExecution current, long now) {
+            if (current.getVersion() != null && !current.getVersion().equals(version)) {
+                version = current.getVersion();
+                lastAdvance = now;
+                return true;
+            }
+            return false;
+        }
+    }
+}
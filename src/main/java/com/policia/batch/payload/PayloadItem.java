@@ -0,0 +1,14 @@
+package com.policia.batch.payload;
+
+/**
+ * Registro producido por un {@link PayloadType}; el writer de rutas lo envía al writer de su tipo
+ */
+public interface PayloadItem {
+
+    PayloadType<?> getPayloadType();
+
+    /**
+     * Clave del registro, para el diario de auditoría
+     */
+    String getKey();
+}
@@ -0,0 +1,92 @@
+package com.policia.batch.payload;
+
+import com.policia.batch.model.PoliciaRecord;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.batch.item.ItemWriter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reparte los registros del chunk entre el writer de policia-data y los de los demás tipos,
+ * conservando el orden dentro de cada tipo. Un chunk solo de policia-data se pasa sin copiar.
+ * Propaga open/update/close a los writers que son streams (por ejemplo la exportación a segmentos).
+ */
+public class PayloadRoutingWriter implements ItemStreamWriter<Object> {
+
+    private final ItemWriter<PoliciaRecord> policiaWriter;
+    private final List<ItemStream> streams = new ArrayList<>();
+
+    public PayloadRoutingWriter(ItemWriter<PoliciaRecord> policiaWriter, List<PayloadType<?>> types) {
+        this.policiaWriter = policiaWriter;
+        if (policiaWriter instanceof ItemStream) {
+            streams.add((ItemStream) policiaWriter);
+        }
+        for (PayloadType<?> type : types) {
+            if (type.getWriter() instanceof ItemStream && !streams.contains(type.getWriter())) {
+                streams.add((ItemStream) type.getWriter());
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void write(List<?> items) throws Exception {
+        int first = firstOtherType(items);
+        if (first < 0) {
+            policiaWriter.write((List<? extends PoliciaRecord>) items);
+            return;
+        }
+
+        List<PoliciaRecord> policia = new ArrayList<>(first);
+        Map<PayloadType<?>, List<Object>> byType = new LinkedHashMap<>();
+        for (Object item : items) {
+            if (item instanceof PoliciaRecord) {
+                policia.add((PoliciaRecord) item);
+            } else {
+                byType.computeIfAbsent(((PayloadItem) item).getPayloadType(), type -> new ArrayList<>()).add(item);
+            }
+        }
+
+        if (!policia.isEmpty()) {
+            policiaWriter.write(policia);
+        }
+        for (Map.Entry<PayloadType<?>, List<Object>> entry : byType.entrySet()) {
+            ((ItemWriter<Object>) entry.getKey().getWriter()).write(entry.getValue());
+        }
+    }
+
+    private static int firstOtherType(List<?> items) {
+        for (int i = 0; i < items.size(); i++) {
+            if (!(items.get(i) instanceof PoliciaRecord)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) {
+        for (ItemStream stream : streams) {
+            stream.open(executionContext);
+        }
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) {
+        for (ItemStream stream : streams) {
+            stream.update(executionContext);
+        }
+    }
+
+    @Override
+    public void close() {
+        for (ItemStream stream : streams) {
+            stream.close();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.policia.batch.payload;
+
+import com.policia.batch.model.QueueMessage;
+import org.springframework.batch.item.ItemWriter;
+
+/**
+ * Tipo de mensaje adicional al formato policia-data: el elemento raíz que lo identifica, su
+ * parser y reglas (compilados al crear el tipo) y el writer de destino.
+ *
+ * Los tipos se registran como beans de Spring o, para registros XML planos, en payload.types
+ * (ver {@link XmlRecordType}). {@link PayloadTypeRegistry} elige el tipo de cada mensaje.
+ */
+public interface PayloadType<T extends PayloadItem> {
+
+    String getName();
+
+    /**
+     * Nombre local del elemento raíz por el que se reconoce el tipo
+     */
+    String getRootElement();
+
+    /**
+     * Parsea y valida el mensaje. Los datos inválidos se informan con InvalidDataException
+     * (MalformedXmlException si el XML no está bien formado), igual que en policia-data, así que
+     * la cuarentena, la auditoría y la política de skip se aplican sin cambios.
+     */
+    T process(QueueMessage message);
+
+    ItemWriter<? super T> getWriter();
+}
@@ -0,0 +1,247 @@
+package com.policia.batch.payload;
+
+import com.policia.batch.metrics.PoliciaMetrics;
+import com.policia.batch.model.PoliciaRecord;
+import com.policia.batch.service.PoliciaByteDecoder;
+import com.policia.batch.service.PoliciaXmlParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Registro de los tipos de mensaje además de policia-data.
+ *
+ * Cada mensaje se enruta mirando solo el nombre del primer elemento, dentro de los primeros
+ * SNIFF_LIMIT bytes: se saltan el texto previo, la declaración XML y los comentarios, sin parsear
+ * el documento. Sin tipos registrados no se mira el payload, y policia-data se compara antes que
+ * los demás, así que agregar tipos no cambia el camino de los mensajes existentes. Un mensaje cuya
+ * raíz no es de ningún tipo registrado sigue por policia-data, que lo rechaza con su diagnóstico.
+ */
+@Component
+public class PayloadTypeRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(PayloadTypeRegistry.class);
+
+    static final int SNIFF_LIMIT = 512;
+
+    private static final byte[] DEFAULT_ROOT = ascii(PoliciaXmlParser.ROOT_ELEMENT);
+    private static final byte[] COMMENT_START = ascii("<!--");
+    private static final byte[] COMMENT_END = ascii("-->");
+    private static final byte[] PI_END = ascii("?>");
+
+    private final PayloadType<?>[] types;
+    private final byte[][] roots;
+
+    /**
+     * Tipos declarados en payload.types más los beans PayloadType del contexto
+     */
+    @Autowired
+    public PayloadTypeRegistry(@Value("${payload.types:}") String[] names,
+                               Environment environment,
+                               JdbcTemplate jdbcTemplate,
+                               PoliciaByteDecoder byteDecoder,
+                               PoliciaMetrics metrics,
+                               ObjectProvider<PayloadType<?>> beans) {
+        this(configuredTypes(names, environment, jdbcTemplate, byteDecoder, metrics, beans));
+    }
+
+    public PayloadTypeRegistry(List<PayloadType<?>> types) {
+        this.types = types.toArray(new PayloadType<?>[0]);
+        this.roots = new byte[this.types.length][];
+
+        List<String> seen = new ArrayList<>();
+        seen.add(PoliciaXmlParser.ROOT_ELEMENT);
+        for (int i = 0; i < this.types.length; i++) {
+            String root = this.types[i].getRootElement();
+            if (seen.contains(root)) {
+                throw new IllegalArgumentException("Elemento raíz <" + root + "> registrado por más de un tipo de payload");
+            }
+            seen.add(root);
+            roots[i] = root.getBytes(StandardCharsets.UTF_8);
+        }
+
+        if (this.types.length > 0) {
+            logger.info("Tipos de payload además de {}: {}", PoliciaXmlParser.ROOT_ELEMENT, getNames());
+        }
+    }
+
+    private static List<PayloadType<?>> configuredTypes(String[] names, Environment environment,
+                                                        JdbcTemplate jdbcTemplate, PoliciaByteDecoder byteDecoder,
+                                                        PoliciaMetrics metrics, ObjectProvider<PayloadType<?>> beans) {
+        List<PayloadType<?>> types = new ArrayList<>();
+        for (String name : names) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            String prefix = "payload.type." + trimmed + ".";
+            String fields = environment.getProperty(prefix + "fields");
+            if (fields == null || fields.trim().isEmpty()) {
+                throw new IllegalArgumentException("Falta " + prefix + "fields para el tipo de payload " + trimmed);
+            }
+            String[] fieldList = split(fields);
+            types.add(new XmlRecordType(trimmed,
+                                        environment.getProperty(prefix + "root-element", trimmed),
+                                        fieldList,
+                                        split(environment.getProperty(prefix + "required", "")),
+                                        environment.getProperty(prefix + "key", fieldList[0]),
+                                        environment.getProperty(prefix + "table",
+                                                                trimmed.replace('-', '_').toUpperCase(Locale.ROOT)),
+                                        jdbcTemplate, byteDecoder, metrics));
+        }
+        beans.orderedStream().forEach(types::add);
+        return types;
+    }
+
+    private static String[] split(String values) {
+        List<String> result = new ArrayList<>();
+        for (String value : values.split(",")) {
+            if (!value.trim().isEmpty()) {
+                result.add(value.trim());
+            }
+        }
+        return result.toArray(new String[0]);
+    }
+
+    /**
+     * Tipo registrado del mensaje, o null si va por el camino de policia-data
+     */
+    public PayloadType<?> route(byte[] payload) {
+        if (types.length == 0) {
+            return null;
+        }
+        int name = rootName(payload);
+        if (name < 0 || matchesRoot(payload, name, DEFAULT_ROOT)) {
+            return null;
+        }
+        for (int i = 0; i < roots.length; i++) {
+            if (matchesRoot(payload, name, roots[i])) {
+                return types[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Offset del nombre local del primer elemento, o -1 si no aparece en los primeros SNIFF_LIMIT
+     * bytes (o hay un DOCTYPE, que decide el parser)
+     */
+    static int rootName(byte[] b) {
+        int end = Math.min(b.length, SNIFF_LIMIT);
+        int pos = 0;
+        while (true) {
+            int open = indexOf(b, pos, end, (byte) '<');
+            if (open < 0 || open + 1 >= end) {
+                return -1;
+            }
+            byte next = b[open + 1];
+            if (next == '?') {
+                pos = indexOf(b, open + 2, end, PI_END);
+            } else if (next == '!') {
+                if (!startsWith(b, open, end, COMMENT_START)) {
+                    return -1;
+                }
+                pos = indexOf(b, open + COMMENT_START.length, end, COMMENT_END);
+            } else {
+                // Con prefijo de namespace se compara el nombre local
+                for (int i = open + 1; i < end && !isNameEnd(b[i]); i++) {
+                    if (b[i] == ':') {
+                        return i + 1;
+                    }
+                }
+                return open + 1;
+            }
+            if (pos < 0) {
+                return -1;
+            }
+        }
+    }
+
+    private static boolean matchesRoot(byte[] b, int pos, byte[] root) {
+        int end = pos + root.length;
+        return end < b.length && startsWith(b, pos, b.length, root) && isNameEnd(b[end]);
+    }
+
+    private static boolean isNameEnd(byte c) {
+        return c == '>' || c == '/' || c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    /**
+     * Writer del chunk: el de policia-data si no hay otros tipos, o uno que reparte cada registro
+     * al writer de su tipo
+     */
+    @SuppressWarnings("unchecked")
+    public ItemWriter<Object> writer(ItemWriter<PoliciaRecord> policiaWriter) {
+        if (types.length == 0) {
+            return (ItemWriter<Object>) (ItemWriter<?>) policiaWriter;
+        }
+        return new PayloadRoutingWriter(policiaWriter, getTypes());
+    }
+
+    public boolean isEmpty() {
+        return types.length == 0;
+    }
+
+    public List<PayloadType<?>> getTypes() {
+        List<PayloadType<?>> list = new ArrayList<>(types.length);
+        Collections.addAll(list, types);
+        return list;
+    }
+
+    private List<String> getNames() {
+        List<String> names = new ArrayList<>(types.length);
+        for (PayloadType<?> type : types) {
+            names.add(type.getName() + " <" + type.getRootElement() + ">");
+        }
+        return names;
+    }
+
+    private static boolean startsWith(byte[] b, int pos, int end, byte[] prefix) {
+        if (end - pos < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (b[pos + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] b, int pos, int end, byte value) {
+        for (int i = pos; i < end; i++) {
+            if (b[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Posición siguiente a la primera aparición de marker, o -1
+     */
+    private static int indexOf(byte[] b, int pos, int end, byte[] marker) {
+        for (int i = pos; i <= end - marker.length; i++) {
+            if (startsWith(b, i, end, marker)) {
+                return i + marker.length;
+            }
+        }
+        return -1;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
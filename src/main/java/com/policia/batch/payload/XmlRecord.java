@@ -0,0 +1,36 @@
+package com.policia.batch.payload;
+
+import java.util.Arrays;
+
+/**
+ * Registro de un {@link XmlRecordType}: los valores en el orden de los campos del tipo
+ */
+public final class XmlRecord implements PayloadItem {
+
+    private final XmlRecordType type;
+    private final String[] values;
+
+    XmlRecord(XmlRecordType type, String[] values) {
+        this.type = type;
+        this.values = values;
+    }
+
+    @Override
+    public XmlRecordType getPayloadType() {
+        return type;
+    }
+
+    @Override
+    public String getKey() {
+        return values[type.getKeyIndex()];
+    }
+
+    public String getValue(int field) {
+        return values[field];
+    }
+
+    @Override
+    public String toString() {
+        return type.getName() + Arrays.toString(values);
+    }
+}
@@ -0,0 +1,239 @@
+package com.policia.batch.payload;
+
+import com.policia.batch.exception.InvalidDataException;
+import com.policia.batch.exception.MalformedXmlException;
+import com.policia.batch.metrics.PoliciaMetrics;
+import com.policia.batch.metrics.PoliciaMetrics.Stage;
+import com.policia.batch.model.QueueMessage;
+import com.policia.batch.service.PoliciaByteDecoder;
+import com.policia.batch.service.PoliciaXmlParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tipo configurable para notificaciones XML planas: un elemento raíz con campos de texto como hijos.
+ *
+ * La tabla de campos, las reglas (campos obligatorios no vacíos) y la sentencia MERGE del writer
+ * se arman al crear el tipo; por mensaje solo se recorre el documento una vez con StAX. La
+ * limpieza de prefijos y BOM es la misma que la de policia-data, y un mensaje grande se lee
+ * desde su archivo.
+ */
+public class XmlRecordType implements PayloadType<XmlRecord> {
+
+    private static final Logger logger = LoggerFactory.getLogger(XmlRecordType.class);
+
+    private static final ThreadLocal<XMLInputFactory> INPUT_FACTORY =
+            ThreadLocal.withInitial(PoliciaXmlParser::createSecureInputFactory);
+
+    private final String name;
+    private final String rootElement;
+    private final String[] fields;
+    private final Map<String, Integer> fieldIndex = new HashMap<>();
+    private final boolean[] required;
+    private final int keyIndex;
+    private final PoliciaByteDecoder byteDecoder;
+    private final PoliciaMetrics metrics;
+    private final XmlRecordWriter writer;
+
+    /**
+     * @param fields campos del registro en orden; la columna de cada uno es su nombre en mayúsculas
+     * @param required campos que no pueden faltar ni estar vacíos (la clave siempre lo es)
+     * @param key campo por el que el writer hace MERGE
+     */
+    public XmlRecordType(String name, String rootElement, String[] fields, String[] required, String key,
+                         String table, JdbcTemplate jdbcTemplate, PoliciaByteDecoder byteDecoder,
+                         PoliciaMetrics metrics) {
+        if (fields.length == 0) {
+            throw new IllegalArgumentException("El tipo de payload " + name + " no define campos");
+        }
+        this.name = name;
+        this.rootElement = rootElement;
+        this.fields = fields.clone();
+        for (int i = 0; i < fields.length; i++) {
+            if (fieldIndex.put(fields[i], i) != null) {
+                throw new IllegalArgumentException("Campo repetido en el tipo de payload " + name + ": " + fields[i]);
+            }
+        }
+        this.keyIndex = index(key);
+        this.required = new boolean[fields.length];
+        for (String field : required) {
+            this.required[index(field)] = true;
+        }
+        this.required[keyIndex] = true;
+        this.byteDecoder = byteDecoder;
+        this.metrics = metrics;
+        this.writer = new XmlRecordWriter(jdbcTemplate, table, this.fields, keyIndex, metrics);
+
+        logger.info("Tipo de payload {} compilado: raíz <{}>, campos {}, clave {}, tabla {}",
+                    name, rootElement, Arrays.toString(fields), key, table);
+    }
+
+    private int index(String field) {
+        Integer index = fieldIndex.get(field);
+        if (index == null) {
+            throw new IllegalArgumentException("El tipo de payload " + name + " no tiene el campo " + field);
+        }
+        return index;
+    }
+
+    @Override
+    public XmlRecord process(QueueMessage message) {
+        long start = metrics.start();
+        String[] values = parse(message);
+        metrics.stage(Stage.PARSE, start);
+
+        start = metrics.start();
+        validate(values, message);
+        metrics.stage(Stage.VALIDATE, start);
+        return new XmlRecord(this, values);
+    }
+
+    private String[] parse(QueueMessage message) {
+        XMLStreamReader reader = null;
+        try (InputStream content = byteDecoder.openContent(message)) {
+            // El texto de un TextMessage ya está en UTF-8: no se aplica la codificación declarada
+            reader = message.isText()
+                     ? INPUT_FACTORY.get().createXMLStreamReader(new InputStreamReader(content, StandardCharsets.UTF_8))
+                     : INPUT_FACTORY.get().createXMLStreamReader(content);
+            String[] values = null;
+
+            while (reader.hasNext()) {
+                int event = reader.next();
+
+                if (event == XMLStreamConstants.DTD) {
+                    throw malformed("DOCTYPE no permitido en el mensaje", reader.getLocation(), message, null);
+                }
+
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    if (values != null) {
+                        throw malformed("Se encontró más de un elemento raíz", reader.getLocation(), message, null);
+                    }
+                    if (!rootElement.equals(reader.getLocalName())) {
+                        throw malformed("Elemento raíz inesperado <" + reader.getLocalName() + ">, se esperaba <"
+                                        + rootElement + ">", reader.getLocation(), message, null);
+                    }
+                    values = readFields(reader, message);
+                }
+            }
+
+            if (values == null) {
+                throw malformed("El documento no contiene el elemento <" + rootElement + ">", null, message, null);
+            }
+            return values;
+
+        } catch (XMLStreamException e) {
+            throw malformed(e.getMessage(), e.getLocation(), message, e);
+        } catch (IOException e) {
+            throw new InvalidDataException("Error leyendo el " + message.getHandle() + ": " + e.getMessage(),
+                                           message.getText(), e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    logger.debug("Error cerrando XMLStreamReader: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private String[] readFields(XMLStreamReader reader, QueueMessage message) throws XMLStreamException {
+        String[] values = new String[fields.length];
+
+        while (reader.hasNext()) {
+            int event = reader.next();
+
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                return values;
+            }
+
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                Integer field = fieldIndex.get(reader.getLocalName());
+                if (field == null) {
+                    throw malformed("Elemento inesperado <" + reader.getLocalName() + "> dentro de <" + rootElement
+                                    + ">", reader.getLocation(), message, null);
+                }
+                values[field] = reader.getElementText();
+            }
+        }
+
+        throw malformed("Falta la etiqueta de cierre </" + rootElement + ">", reader.getLocation(), message, null);
+    }
+
+    private void validate(String[] values, QueueMessage message) {
+        List<String> violations = null;
+        for (int i = 0; i < values.length; i++) {
+            if (required[i] && isBlank(values[i])) {
+                if (violations == null) {
+                    violations = new ArrayList<>(fields.length);
+                }
+                violations.add(String.format("[%s: no puede estar vacío] ", fields[i]));
+            }
+        }
+
+        if (violations != null) {
+            String errorMessage = "Errores de validación de datos (" + name + "): " + String.join("", violations);
+            logger.error("Datos inválidos encontrados: {}", errorMessage);
+            throw new InvalidDataException(errorMessage, message.getText());
+        }
+    }
+
+    private static boolean isBlank(String value) {
+        if (value == null) {
+            return true;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > ' ') { // mismo criterio que String.trim()
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private MalformedXmlException malformed(String detail, Location location, QueueMessage message,
+                                            Throwable cause) {
+        String errorMessage = location != null
+                ? String.format("Error de validación XML (%s) en línea %d, columna %d: %s",
+                                name, location.getLineNumber(), location.getColumnNumber(), detail)
+                : "Error de validación XML (" + name + "): " + detail;
+        logger.error(errorMessage);
+        return cause != null
+               ? new MalformedXmlException(errorMessage, message.getText(), cause)
+               : new MalformedXmlException(errorMessage, message.getText());
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getRootElement() {
+        return rootElement;
+    }
+
+    @Override
+    public XmlRecordWriter getWriter() {
+        return writer;
+    }
+
+    int getKeyIndex() {
+        return keyIndex;
+    }
+}
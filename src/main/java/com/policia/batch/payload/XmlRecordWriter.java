@@ -0,0 +1,130 @@
+package com.policia.batch.payload;
+
+import com.policia.batch.metrics.PoliciaMetrics;
+import com.policia.batch.metrics.PoliciaMetrics.Stage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writer de un {@link XmlRecordType}: un batch JDBC de MERGE por clave, como PoliciaDataWriter.
+ * Las columnas son los nombres de los campos en mayúsculas (con '_' en lugar de '-') más
+ * FECHA_ACTUALIZACION; la tabla se crea fuera de la aplicación.
+ */
+public class XmlRecordWriter implements ItemWriter<XmlRecord> {
+
+    private static final Logger logger = LoggerFactory.getLogger(XmlRecordWriter.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String table;
+    private final String[] columns;
+    private final int keyIndex;
+    private final PoliciaMetrics metrics;
+    private volatile String mergeSql;
+
+    XmlRecordWriter(JdbcTemplate jdbcTemplate, String table, String[] fields, int keyIndex, PoliciaMetrics metrics) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.table = table;
+        this.columns = new String[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            columns[i] = fields[i].replace('-', '_').toUpperCase(Locale.ROOT);
+        }
+        this.keyIndex = keyIndex;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void write(List<? extends XmlRecord> items) throws Exception {
+        if (items.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+
+        int[] results = jdbcTemplate.batchUpdate(getMergeSql(), new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                XmlRecord item = items.get(i);
+                for (int column = 0; column < columns.length; column++) {
+                    ps.setString(column + 1, item.getValue(column));
+                }
+            }
+
+            @Override
+            public int getBatchSize() {
+                return items.size();
+            }
+        });
+
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == Statement.EXECUTE_FAILED) {
+                throw new IllegalStateException("Falló el MERGE en " + table + " para la clave: " + items.get(i).getKey());
+            }
+        }
+
+        metrics.stage(Stage.WRITE, start);
+        metrics.written(items.size());
+        logger.debug("{} registros persistidos en {} en {} ms",
+                     items.size(), table, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Sentencia MERGE según la base de datos, resuelta en el primer write
+     */
+    private String getMergeSql() {
+        String sql = mergeSql;
+        if (sql == null) {
+            String product = jdbcTemplate.execute(
+                    (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+            sql = product != null && product.toUpperCase(Locale.ROOT).contains("H2") ? h2Merge() : oracleMerge();
+            logger.info("Writer JDBC configurado para {} sobre tabla {}", product, table);
+            mergeSql = sql;
+        }
+        return sql;
+    }
+
+    private String h2Merge() {
+        StringBuilder sql = new StringBuilder("MERGE INTO ").append(table).append(" (");
+        for (String column : columns) {
+            sql.append(column).append(", ");
+        }
+        sql.append("FECHA_ACTUALIZACION) KEY (").append(columns[keyIndex]).append(") VALUES (");
+        for (int i = 0; i < columns.length; i++) {
+            sql.append("?, ");
+        }
+        return sql.append("CURRENT_TIMESTAMP)").toString();
+    }
+
+    private String oracleMerge() {
+        StringBuilder sql = new StringBuilder("MERGE INTO ").append(table).append(" t USING (SELECT ");
+        for (int i = 0; i < columns.length; i++) {
+            sql.append(i > 0 ? ", " : "").append("? AS ").append(columns[i]);
+        }
+        String key = columns[keyIndex];
+        sql.append(" FROM DUAL) s ON (t.").append(key).append(" = s.").append(key).append(") ")
+           .append("WHEN MATCHED THEN UPDATE SET ");
+        for (int i = 0; i < columns.length; i++) {
+            if (i != keyIndex) {
+                sql.append("t.").append(columns[i]).append(" = s.").append(columns[i]).append(", ");
+            }
+        }
+        sql.append("t.FECHA_ACTUALIZACION = SYSTIMESTAMP WHEN NOT MATCHED THEN INSERT (");
+        for (String column : columns) {
+            sql.append(column).append(", ");
+        }
+        sql.append("FECHA_ACTUALIZACION) VALUES (");
+        for (String column : columns) {
+            sql.append("s.").append(column).append(", ");
+        }
+        return sql.append("SYSTIMESTAMP)").toString();
+    }
+}
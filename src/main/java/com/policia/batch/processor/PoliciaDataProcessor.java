@@ -1,7 +1,20 @@
 package com.policia.batch.processor;
 
+import com.policia.batch.audit.AuditJournal;
+import com.policia.batch.audit.AuditOutcome;
 import com.policia.batch.exception.InvalidDataException;
+import com.policia.batch.exception.MalformedXmlException;
+import com.policia.batch.metrics.PoliciaMetrics;
+import com.policia.batch.metrics.PoliciaMetrics.Stage;
 import com.policia.batch.model.PoliciaData;
+import com.policia.batch.model.PoliciaRecord;
+import com.policia.batch.model.QueueMessage;
+import com.policia.batch.payload.PayloadItem;
+import com.policia.batch.payload.PayloadType;
+import com.policia.batch.payload.PayloadTypeRegistry;
+import com.policia.batch.quarantine.QuarantineService;
+import com.policia.batch.service.PoliciaRuleEngine;
+import com.policia.batch.service.PoliciaVocabulary;
 import com.policia.batch.service.XmlValidationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,48 +22,103 @@ import org.springframework.batch.item.ItemProcessor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+/**
+ * Processor de todos los tipos de mensaje: policia-data produce un {@link PoliciaRecord} y los tipos de
+ * {@link PayloadTypeRegistry} su propio registro. La cuarentena y la auditoría son comunes.
+ */
 @Component
-public class PoliciaDataProcessor implements ItemProcessor<String, PoliciaData> {
+public class PoliciaDataProcessor implements ItemProcessor<QueueMessage, Object> {
 
     private static final Logger logger = LoggerFactory.getLogger(PoliciaDataProcessor.class);
     
     private final XmlValidationService xmlValidationService;
+    private final QuarantineService quarantineService;
+    private final PoliciaRuleEngine ruleEngine;
+    private final PoliciaVocabulary vocabulary;
+    private final PoliciaMetrics metrics;
+    private final AuditJournal auditJournal;
+    private final PayloadTypeRegistry payloadTypes;
 
     @Autowired
-    public PoliciaDataProcessor(XmlValidationService xmlValidationService) {
+    public PoliciaDataProcessor(XmlValidationService xmlValidationService, QuarantineService quarantineService,
+                                PoliciaRuleEngine ruleEngine, PoliciaVocabulary vocabulary, PoliciaMetrics metrics,
+                                AuditJournal auditJournal, PayloadTypeRegistry payloadTypes) {
         this.xmlValidationService = xmlValidationService;
+        this.quarantineService = quarantineService;
+        this.ruleEngine = ruleEngine;
+        this.vocabulary = vocabulary;
+        this.metrics = metrics;
+        this.auditJournal = auditJournal;
+        this.payloadTypes = payloadTypes;
     }
 
     @Override
-    public PoliciaData process(String xmlMessage) throws Exception {
-        logger.info("Procesando mensaje XML");
+    public Object process(QueueMessage message) throws Exception {
+        // El resultado de cada mensaje queda en el diario de auditoría, no en el log
+        long[] timings = metrics.resetTimings();
+        quarantineService.recordProcessed();
+        PayloadType<?> type = payloadTypes.route(message.getHead());
         
         try {
-            // Validar y parsear el XML
-            PoliciaData policiaData = xmlValidationService.validateAndParseXml(xmlMessage);
+            if (type != null) {
+                // Otro tipo de notificación: parser, reglas y writer propios
+                PayloadItem item = type.process(message);
+                metrics.latency(message.getQueueName(), message.getTimestamp());
+                auditJournal.record(message, item.getKey(), AuditOutcome.OK, timings);
+                return item;
+            }
+            
+            // Validar y decodificar el XML directamente desde los bytes del mensaje
+            PoliciaData policiaData = xmlValidationService.validateAndParse(message);
             
             // Procesar datos adicionales si es necesario
+            long start = metrics.start();
             enrichPoliciaData(policiaData);
             
-            logger.info("Mensaje procesado exitosamente para policía ID: {}", policiaData.getId());
-            return policiaData;
+            // Los registros en vuelo (chunk, buffer asíncrono) usan la forma compacta
+            PoliciaRecord record = vocabulary.encode(policiaData);
+            metrics.stage(Stage.ENRICH, start);
+            metrics.latency(message.getQueueName(), message.getTimestamp());
+            auditJournal.record(message, policiaData.getId(), AuditOutcome.OK, timings);
+            return record;
             
         } catch (InvalidDataException e) {
+            metrics.error(message.getQueueName(), e);
+            auditJournal.record(message, null,
+                                e instanceof MalformedXmlException ? AuditOutcome.MALFORMED : AuditOutcome.INVALID,
+                                timings);
+            if (quarantineService.isEnabled()) {
+                return quarantine(message, e);
+            }
             logger.error("ERROR CRÍTICO: Datos inválidos detectados, deteniendo procesamiento");
             throw e; // Re-lanzar para detener el batch
         } catch (Exception e) {
             logger.error("Error inesperado durante procesamiento: {}", e.getMessage(), e);
-            throw new InvalidDataException("Error inesperado durante procesamiento", xmlMessage, e);
+            metrics.error(message.getQueueName(), e);
+            auditJournal.record(message, null, AuditOutcome.ERROR, timings);
+            if (quarantineService.isEnabled()) {
+                return quarantine(message, e);
+            }
+            throw new InvalidDataException("Error inesperado durante procesamiento", message.getText(), e);
         }
     }
     
     /**
-     * Enriquece los datos con información adicional
+     * Aparta el mensaje y lo filtra del chunk (null) para que el resto siga procesándose
+     */
+    private Object quarantine(QueueMessage message, Exception error) {
+        quarantineService.quarantine(message, error);
+        return null;
+    }
+    
+    /**
+     * Enriquece los datos con información adicional. El código y la región de la unidad se
+     * agregan por chunk en el writer (enrichment.enabled), no por mensaje.
      */
     private void enrichPoliciaData(PoliciaData policiaData) {
-        // Normalizar datos
+        // Normalizar datos: el rango ya validado se reemplaza por la instancia configurada (sin toUpperCase)
         if (policiaData.getRango() != null) {
-            policiaData.setRango(policiaData.getRango().toUpperCase());
+            policiaData.setRango(ruleEngine.canonicalRango(policiaData.getRango()));
         }
         
         if (policiaData.getEstado() == null || policiaData.getEstado().trim().isEmpty()) {
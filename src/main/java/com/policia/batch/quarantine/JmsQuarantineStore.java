@@ -0,0 +1,81 @@
+package com.policia.batch.quarantine;
+
+import com.policia.batch.model.QueueMessage;
+import org.springframework.jms.core.JmsTemplate;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Reenvía los mensajes rechazados a una cola de dead-letter con los metadatos del error como propiedades.
+ *
+ * QuarantineService lo invoca antes del commit del chunk: con mq.session-transacted el envío usa la
+ * sesión JMS de la transacción y se confirma junto con el receive de la cola de origen. Si el envío
+ * falla, el chunk se revierte y el mensaje vuelve a la cola.
+ */
+public class JmsQuarantineStore implements QuarantineStore {
+
+    public static final String PROPERTY_ORIGIN_QUEUE = "POLICIA_ORIGIN_QUEUE";
+    public static final String PROPERTY_ORIGIN_MESSAGE_ID = "POLICIA_ORIGIN_MESSAGE_ID";
+    public static final String PROPERTY_ERROR_TYPE = "POLICIA_ERROR_TYPE";
+    public static final String PROPERTY_ERROR_MESSAGE = "POLICIA_ERROR_MESSAGE";
+    public static final String PROPERTY_QUARANTINED_AT = "POLICIA_QUARANTINED_AT";
+
+    // Las propiedades de MQ tienen límite de tamaño; el detalle completo queda en el log
+    private static final int MAX_ERROR_MESSAGE_LENGTH = 1000;
+
+    private static final int COPY_BUFFER = 64 * 1024;
+
+    private final JmsTemplate jmsTemplate;
+    private final String queueName;
+
+    public JmsQuarantineStore(JmsTemplate jmsTemplate, String queueName) {
+        this.jmsTemplate = jmsTemplate;
+        this.queueName = queueName;
+    }
+
+    @Override
+    public void store(QuarantineEntry entry) {
+        jmsTemplate.send(queueName, session -> {
+            BytesMessage message = session.createBytesMessage();
+            writePayload(message, entry.getMessage());
+            message.setStringProperty(PROPERTY_ORIGIN_QUEUE, entry.getMessage().getQueueName());
+            message.setStringProperty(PROPERTY_ORIGIN_MESSAGE_ID, entry.getMessage().getMessageId());
+            message.setStringProperty(PROPERTY_ERROR_TYPE, entry.getErrorType());
+            message.setStringProperty(PROPERTY_ERROR_MESSAGE, truncate(entry.getErrorMessage()));
+            message.setLongProperty(PROPERTY_QUARANTINED_AT, entry.getQuarantinedAt());
+            return message;
+        });
+    }
+
+    /**
+     * Copia el payload al mensaje; el de un mensaje grande se lee por bloques desde su archivo
+     */
+    private static void writePayload(BytesMessage message, QueueMessage queueMessage) throws JMSException {
+        if (!queueMessage.isSpilled()) {
+            message.writeBytes(queueMessage.getPayload());
+            return;
+        }
+        byte[] chunk = new byte[COPY_BUFFER];
+        try (InputStream in = queueMessage.openStream()) {
+            int read;
+            while ((read = in.read(chunk)) > 0) {
+                message.writeBytes(chunk, 0, read);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error leyendo el " + queueMessage.getHandle(), e);
+        }
+    }
+
+    private static String truncate(String value) {
+        return value.length() > MAX_ERROR_MESSAGE_LENGTH ? value.substring(0, MAX_ERROR_MESSAGE_LENGTH) : value;
+    }
+
+    @Override
+    public String toString() {
+        return "cola " + queueName;
+    }
+}
@@ -0,0 +1,120 @@
+package com.policia.batch.quarantine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Guarda los mensajes rechazados en un directorio local sin bloquear el procesamiento.
+ *
+ * Cada mensaje genera un archivo .msg con el payload original y un .properties con los metadatos,
+ * escrito al final para indicar que la entrada está completa. Las escrituras las hace un hilo
+ * dedicado; si su cola se llena, el hilo que rechaza el mensaje escribe él mismo. El archivo de
+ * un mensaje grande se copia antes de volver, porque se borra al confirmar el chunk.
+ */
+public class LocalQuarantineStore implements QuarantineStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalQuarantineStore.class);
+
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final Path directory;
+    private final String runId = UUID.randomUUID().toString().substring(0, 8);
+    private final AtomicLong sequence = new AtomicLong();
+    private final ThreadPoolExecutor executor;
+
+    public LocalQuarantineStore(Path directory, int queueCapacity) {
+        this.directory = directory;
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "quarantine-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @Override
+    public void store(QuarantineEntry entry) {
+        // Nombre único asignado en el orden de rechazo, independiente del orden de escritura
+        String baseName = String.format("%s-%s-%06d-%s",
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.getQuarantinedAt()), ZoneId.systemDefault())
+                             .format(FILE_TIMESTAMP),
+                runId, sequence.incrementAndGet(), sanitize(entry.getMessage().getQueueName()));
+
+        if (entry.getMessage().isSpilled()) {
+            try {
+                Files.createDirectories(directory);
+                Files.copy(entry.getMessage().getBodyFile(), directory.resolve(baseName + ".msg"));
+            } catch (IOException e) {
+                logger.error("❌ No se pudo guardar en cuarentena {} ({}): {}",
+                             baseName, entry.getMessage().getHandle(), e.getMessage());
+                return;
+            }
+        }
+
+        executor.execute(() -> write(baseName, entry));
+    }
+
+    private void write(String baseName, QuarantineEntry entry) {
+        try {
+            Files.createDirectories(directory);
+            if (!entry.getMessage().isSpilled()) {
+                Files.write(directory.resolve(baseName + ".msg"), entry.getMessage().getPayload(),
+                            StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            }
+
+            Properties metadata = new Properties();
+            metadata.setProperty("queue", String.valueOf(entry.getMessage().getQueueName()));
+            metadata.setProperty("messageId", String.valueOf(entry.getMessage().getMessageId()));
+            metadata.setProperty("length", String.valueOf(entry.getMessage().getLength()));
+            metadata.setProperty("errorType", entry.getErrorType());
+            metadata.setProperty("errorMessage", entry.getErrorMessage());
+            metadata.setProperty("quarantinedAt", Instant.ofEpochMilli(entry.getQuarantinedAt()).toString());
+            try (OutputStream out = Files.newOutputStream(directory.resolve(baseName + ".properties"),
+                                                          StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                metadata.store(out, "Mensaje en cuarentena");
+            }
+        } catch (IOException e) {
+            logger.error("❌ No se pudo guardar en cuarentena {} (payload {}): {}",
+                         baseName, entry.getMessage().preview(100), e.getMessage());
+        }
+    }
+
+    private static String sanitize(String queueName) {
+        return queueName == null ? "desconocida" : queueName.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.warn("Quedaron {} mensajes sin guardar en cuarentena", executor.getQueue().size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "directorio " + directory.toAbsolutePath();
+    }
+}
@@ -0,0 +1,43 @@
+package com.policia.batch.quarantine;
+
+import com.policia.batch.model.QueueMessage;
+
+/**
+ * Mensaje rechazado junto con los metadatos del error que lo envió a cuarentena
+ */
+public class QuarantineEntry {
+
+    private final QueueMessage message;
+    private final String errorType;
+    private final String errorMessage;
+    private final long quarantinedAt;
+
+    public QuarantineEntry(QueueMessage message, Throwable error, long quarantinedAt) {
+        this.message = message;
+        this.errorType = error.getClass().getSimpleName();
+        this.errorMessage = error.getMessage() != null ? error.getMessage() : "";
+        this.quarantinedAt = quarantinedAt;
+    }
+
+    public QueueMessage getMessage() {
+        return message;
+    }
+
+    public String getErrorType() {
+        return errorType;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public long getQuarantinedAt() {
+        return quarantinedAt;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("QuarantineEntry{queue='%s', messageId='%s', errorType='%s', error='%s'}",
+                message.getQueueName(), message.getMessageId(), errorType, errorMessage);
+    }
+}
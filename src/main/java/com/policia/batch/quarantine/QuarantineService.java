@@ -0,0 +1,291 @@
+package com.policia.batch.quarantine;
+
+import com.policia.batch.exception.InvalidDataException;
+import com.policia.batch.exception.QuarantineLimitExceededException;
+import com.policia.batch.model.QueueMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cuarentena de mensajes inválidos: en lugar de detener el batch ante el primer mensaje malo,
+ * el mensaje se envía a una cola de dead-letter (modo dlq) o a un directorio local (modo local)
+ * y el procesamiento continúa.
+ *
+ * El batch se sigue deteniendo si el total de rechazos supera quarantine.max-errors, o si dentro
+ * de los últimos quarantine.window-size mensajes la proporción de rechazos supera
+ * quarantine.max-error-rate. En modo stop se mantiene el comportamiento original.
+ *
+ * El rechazo es parte de la transacción del chunk: el mensaje se guarda antes del commit (con
+ * mq.session-transacted, el envío a la DLQ usa la sesión JMS del chunk) y cuenta recién cuando la
+ * transacción confirma. Un error al guardarlo revierte el chunk, y un rollback descarta el
+ * rechazo (el mensaje se vuelve a procesar). Los umbrales se evalúan
+ * sobre los rechazos confirmados más los de transacciones abiertas. Los contadores vuelven a cero
+ * al iniciar cada step y cada ejecución del streaming.
+ */
+@Component
+public class QuarantineService implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(QuarantineService.class);
+
+    public static final String MODE_STOP = "stop";
+    public static final String MODE_DLQ = "dlq";
+    public static final String MODE_LOCAL = "local";
+
+    private final QuarantineStore store; // null en modo stop
+    private final long maxErrors;
+    private final int windowSize;
+    private final double maxErrorRate;
+    private final long[] recentErrors; // Secuencia de los últimos rechazos permitidos en la ventana
+    private int recentIndex;
+    private int recentCount;
+
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong quarantined = new AtomicLong();
+    private final AtomicLong uncommitted = new AtomicLong(); // Rechazos de transacciones todavía abiertas
+    private final Queue<Rejection> pending = new ConcurrentLinkedQueue<>(); // Del pool asíncrono, hasta el commit
+    private volatile boolean chunkOpen;
+
+    @Autowired
+    public QuarantineService(@Qualifier("jmsTemplateRta") JmsTemplate jmsTemplate,
+                             @Value("${quarantine.mode:" + MODE_STOP + "}") String mode,
+                             @Value("${quarantine.dlq.queue:}") String dlqQueue,
+                             @Value("${quarantine.local.directory:quarantine}") String directory,
+                             @Value("${quarantine.local.queue-capacity:1000}") int queueCapacity,
+                             @Value("${quarantine.max-errors:0}") long maxErrors,
+                             @Value("${quarantine.max-error-rate:0.05}") double maxErrorRate,
+                             @Value("${quarantine.window-size:1000}") int windowSize) {
+        if (MODE_DLQ.equalsIgnoreCase(mode)) {
+            if (dlqQueue.trim().isEmpty()) {
+                throw new IllegalArgumentException("quarantine.mode=dlq requiere quarantine.dlq.queue");
+            }
+            this.store = new JmsQuarantineStore(jmsTemplate, dlqQueue.trim());
+        } else if (MODE_LOCAL.equalsIgnoreCase(mode)) {
+            this.store = new LocalQuarantineStore(Paths.get(directory), queueCapacity);
+        } else if (MODE_STOP.equalsIgnoreCase(mode)) {
+            this.store = null;
+        } else {
+            throw new IllegalArgumentException("quarantine.mode no soportado: " + mode);
+        }
+
+        this.maxErrors = maxErrors;
+        this.windowSize = windowSize;
+        this.maxErrorRate = maxErrorRate;
+        this.recentErrors = maxErrorRate > 0 && windowSize > 0
+                ? new long[Math.max(1, (int) Math.floor(maxErrorRate * windowSize))]
+                : null;
+
+        if (store != null) {
+            logger.info("Cuarentena activa en {} - límite total: {}, tasa máxima {}% en ventana de {} mensajes",
+                        store, maxErrors > 0 ? maxErrors : "ninguno", maxErrorRate * 100, windowSize);
+        }
+    }
+
+    /**
+     * Indica si los mensajes inválidos van a cuarentena en lugar de detener el batch
+     */
+    public boolean isEnabled() {
+        return store != null;
+    }
+
+    /**
+     * Registra un mensaje que entra al procesamiento (base para la tasa de error)
+     */
+    public void recordProcessed() {
+        processed.incrementAndGet();
+    }
+
+    /**
+     * Envía el mensaje a cuarentena con la transacción en curso, o lanza
+     * QuarantineLimitExceededException si se superan los umbrales
+     */
+    public void quarantine(QueueMessage message, Throwable error) {
+        long sequence = processed.get();
+        synchronized (this) {
+            if (maxErrors > 0 && quarantined.get() + uncommitted.get() + 1 > maxErrors) {
+                throw limitExceeded("Se superó el máximo de " + maxErrors + " mensajes en cuarentena", message, error);
+            }
+            if (windowExceeded(sequence)) {
+                throw limitExceeded(String.format("Tasa de mensajes inválidos superior a %.1f%% en los últimos %d mensajes",
+                                                  maxErrorRate * 100, windowSize), message, error);
+            }
+            uncommitted.incrementAndGet();
+        }
+
+        logger.warn("⚠️ Mensaje {} de cola {} enviado a cuarentena ({}): {}",
+                    message.getMessageId(), message.getQueueName(), error.getClass().getSimpleName(), error.getMessage());
+
+        Rejection rejection = new Rejection(new QuarantineEntry(message, error, System.currentTimeMillis()), sequence);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    store(rejection);
+                }
+
+                @Override
+                public void afterCommit() {
+                    count(rejection);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        uncommitted.decrementAndGet();
+                    }
+                }
+            });
+        } else if (chunkOpen) {
+            pending.add(rejection); // Hilo del pool asíncrono: lo confirma la transacción del chunk
+        } else {
+            store(rejection);
+            count(rejection);
+        }
+    }
+
+    /**
+     * Los rechazos de hilos sin transacción propia (procesamiento asíncrono) se confirman o
+     * descartan con la transacción del hilo que llama. Se invoca al iniciar cada chunk.
+     */
+    public void storeOnCommit() {
+        if (store == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        chunkOpen = true;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private final List<Rejection> stored = new ArrayList<>();
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                // El writer ya esperó al pool asíncrono: no llegan más rechazos a este chunk
+                Rejection rejection;
+                while ((rejection = pending.poll()) != null) {
+                    stored.add(rejection);
+                    store(rejection);
+                }
+            }
+
+            @Override
+            public void afterCommit() {
+                stored.forEach(QuarantineService.this::count);
+                stored.clear();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                chunkOpen = false;
+                long discarded = stored.size();
+                while (pending.poll() != null) {
+                    discarded++;
+                }
+                uncommitted.addAndGet(-discarded);
+                stored.clear();
+            }
+        });
+    }
+
+    /**
+     * Guarda el rechazo en el destino de cuarentena; si falla, la excepción revierte la transacción
+     */
+    private void store(Rejection rejection) {
+        QueueMessage message = rejection.entry.getMessage();
+        try {
+            store.store(rejection.entry);
+        } catch (Exception e) {
+            // Sin cuarentena disponible no se puede descartar el mensaje: el chunk debe fallar
+            throw new InvalidDataException("No se pudo enviar a cuarentena el mensaje " + message.getMessageId() +
+                                           " (" + store + ")", message.getText(), e);
+        }
+    }
+
+    /**
+     * Rechazo confirmado: cuenta para los umbrales
+     */
+    private synchronized void count(Rejection rejection) {
+        uncommitted.decrementAndGet();
+        quarantined.incrementAndGet();
+        recordWindow(rejection.sequence);
+    }
+
+    /**
+     * Cuenta los rechazos confirmados dentro de la ventana más los pendientes de confirmar
+     */
+    private boolean windowExceeded(long sequence) {
+        if (recentErrors == null) {
+            return false;
+        }
+        long inWindow = uncommitted.get();
+        for (int i = 0; i < recentCount; i++) {
+            if (sequence - recentErrors[i] < windowSize) {
+                inWindow++;
+            }
+        }
+        return inWindow >= recentErrors.length;
+    }
+
+    private void recordWindow(long sequence) {
+        if (recentErrors == null) {
+            return;
+        }
+        recentErrors[recentIndex] = sequence;
+        recentIndex = (recentIndex + 1) % recentErrors.length;
+        recentCount = Math.min(recentCount + 1, recentErrors.length);
+    }
+
+    /**
+     * Vuelve a cero los contadores y la ventana de tasa de error (inicio de step o de streaming)
+     */
+    public synchronized void reset() {
+        processed.set(0);
+        quarantined.set(0);
+        uncommitted.set(0);
+        pending.clear();
+        recentIndex = 0;
+        recentCount = 0;
+    }
+
+    private QuarantineLimitExceededException limitExceeded(String reason, QueueMessage message, Throwable error) {
+        logger.error("🛑 {} - DETENIENDO BATCH", reason);
+        return new QuarantineLimitExceededException(reason, message.getText(), error);
+    }
+
+    public long getProcessedCount() {
+        return processed.get();
+    }
+
+    public long getQuarantinedCount() {
+        return quarantined.get();
+    }
+
+    private static final class Rejection {
+
+        private final QuarantineEntry entry;
+        private final long sequence; // Mensajes procesados al momento del rechazo
+
+        Rejection(QuarantineEntry entry, long sequence) {
+            this.entry = entry;
+            this.sequence = sequence;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (store != null) {
+            store.close();
+        }
+    }
+}
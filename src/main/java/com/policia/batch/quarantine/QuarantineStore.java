@@ -0,0 +1,15 @@
+package com.policia.batch.quarantine;
+
+/**
+ * Destino de los mensajes rechazados
+ */
+public interface QuarantineStore {
+
+    void store(QuarantineEntry entry) throws Exception;
+
+    /**
+     * Libera recursos y completa las escrituras pendientes
+     */
+    default void close() {
+    }
+}
@@ -1,297 +1,411 @@
 package com.policia.batch.reader;
 
+import com.policia.batch.archive.MessageArchive;
 import com.policia.batch.exception.InvalidDataException;
 import com.policia.batch.exception.MalformedXmlException;
+import com.policia.batch.metrics.PoliciaMetrics;
+import com.policia.batch.model.QueueMessage;
+import com.policia.batch.quarantine.QuarantineService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ExecutionContext;
 import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemStream;
 import org.springframework.batch.item.NonTransientResourceException;
 import org.springframework.batch.item.ParseException;
 import org.springframework.batch.item.UnexpectedInputException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jms.connection.ConnectionFactoryUtils;
 import org.springframework.jms.core.JmsTemplate;
 import org.springframework.stereotype.Component;
 
-import javax.xml.XMLConstants;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import java.io.StringReader;
-import org.xml.sax.InputSource;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.Session;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Reader de las colas MQ, en modo secuencial (una cola a la vez, recibiendo en la transacción
+ * del chunk) o concurrente (un consumidor por cola y un buffer en memoria).
+ *
+ * En modo secuencial el {@link QueueScheduler} elige la cola de cada receive según los pesos y
+ * los objetivos de latencia; las colas se leen sin espera y una cola vacía no demora a las demás.
+ *
+ * Como ItemStream guarda en el ExecutionContext del step, en cada commit, la cola en uso, los
+ * mensajes leídos y el último message ID por cola, y la ventana de duplicados del último chunk
+ * (ver {@link ReaderCheckpoint}). Al reiniciar una ejecución fallida el reader retoma ese estado.
+ */
 @Component
-public class IBMMQItemReader implements ItemReader<String> {
+public class IBMMQItemReader implements ItemReader<QueueMessage>, ItemStream {
 
     private static final Logger logger = LoggerFactory.getLogger(IBMMQItemReader.class);
+
+    public static final String MODE_SEQUENTIAL = "sequential";
+    public static final String MODE_CONCURRENT = "concurrent";
+
+    private static final long BUFFER_POLL_MILLIS = 500;
+
+    private static final String CONTEXT_PREFIX = "reader.";
     
-    private final JmsTemplate jmsTemplateRta;
-    private final JmsTemplate jmsTemplateMas;
-    private boolean stopProcessing = false;
-    private boolean useRtaQueue = true; // Alternar entre colas
+    private static final long RECEIVE_NO_WAIT = 0L;
+    
+    private final JmsTemplate jmsTemplate;
+    private final LargeMessageStore largeMessages;
+    private final MessageArchive archive;
+    private final QueueConsumerPool consumerPool; // null en modo secuencial
+    private final QueueScheduler scheduler;       // null en modo concurrente
+    private final long idleTimeoutMillis;
+    private final long idlePollMillis;
+    private final ReaderCheckpoint checkpoint;
+    private final QuarantineService quarantineService;
+    private final PoliciaMetrics metrics;
+    private final AtomicBoolean stopProcessing = new AtomicBoolean(false);
+    private String lastQueue; // Última cola servida en modo secuencial
 
     @Autowired
     public IBMMQItemReader(@Qualifier("jmsTemplateRta") JmsTemplate jmsTemplateRta,
-                          @Qualifier("jmsTemplateMas") JmsTemplate jmsTemplateMas) {
-        this.jmsTemplateRta = jmsTemplateRta;
-        this.jmsTemplateMas = jmsTemplateMas;
+                          @Value("${mq.queue.rta}") String queueRta,
+                          @Value("${mq.queue.mas}") String queueMas,
+                          @Value("${mq.queue.additional:}") String[] additionalQueues,
+                          @Value("${mq.reader.mode:" + MODE_SEQUENTIAL + "}") String mode,
+                          @Value("${mq.reader.buffer-capacity:1000}") int bufferCapacity,
+                          @Value("${mq.reader.ack-batch-size:100}") int ackBatchSize,
+                          @Value("${mq.reader.scheduling.weights:}") String weights,
+                          @Value("${mq.reader.scheduling.latency-targets-ms:}") String latencyTargets,
+                          @Value("${mq.reader.scheduling.probe-interval-ms:1000}") long probeIntervalMillis,
+                          @Value("${mq.reader.scheduling.idle-poll-ms:100}") long idlePollMillis,
+                          @Value("${mq.receive-timeout-ms:5000}") long idleTimeoutMillis,
+                          LargeMessageStore largeMessages,
+                          MessageArchive archive,
+                          QuarantineService quarantineService,
+                          PoliciaMetrics metrics) {
+        // JmsTemplate es thread-safe y se usa siempre con el nombre de cola explícito
+        this.jmsTemplate = jmsTemplateRta;
+        this.largeMessages = largeMessages;
+        this.archive = archive;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.idlePollMillis = Math.max(1L, Math.min(idlePollMillis, idleTimeoutMillis));
+        this.quarantineService = quarantineService;
+        this.metrics = metrics;
+
+        List<String> queueNames = new ArrayList<>();
+        queueNames.add(queueRta);
+        queueNames.add(queueMas);
+        for (String queue : additionalQueues) {
+            if (!queue.trim().isEmpty() && !queueNames.contains(queue.trim())) {
+                queueNames.add(queue.trim());
+            }
+        }
+
+        if (MODE_CONCURRENT.equalsIgnoreCase(mode)) {
+            this.consumerPool = new QueueConsumerPool(jmsTemplateRta, largeMessages, archive, queueNames,
+                                                      bufferCapacity, ackBatchSize, metrics);
+            this.scheduler = null;
+            this.checkpoint = new ReaderCheckpoint(CONTEXT_PREFIX, false); // Se recibe fuera de la transacción del chunk
+            logger.info("Reader en modo concurrente - colas: {}, buffer: {}", queueNames, bufferCapacity);
+        } else {
+            this.consumerPool = null;
+            this.scheduler = new QueueScheduler(queueNames,
+                    QueueScheduler.parseQueueValues("mq.reader.scheduling.weights", weights),
+                    QueueScheduler.parseQueueValues("mq.reader.scheduling.latency-targets-ms", latencyTargets),
+                    probeIntervalMillis);
+            this.checkpoint = new ReaderCheckpoint(CONTEXT_PREFIX, jmsTemplateRta.isSessionTransacted());
+            logger.info("Reader en modo secuencial - colas: {}", queueNames);
+        }
+    }
+
+    /**
+     * Nueva ejecución o reinicio: limpia la detención de la ejecución anterior y restaura el checkpoint
+     */
+    @Override
+    public void open(ExecutionContext executionContext) {
+        stopProcessing.set(false);
+        checkpoint.open(executionContext, queueNames());
+        if (scheduler != null) {
+            scheduler.reset(); // El reparto vuelve a empezar: la antigüedad la da el próximo browse
+            lastQueue = checkpoint.getCurrentQueue();
+        }
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) {
+        if (scheduler != null && lastQueue != null) {
+            checkpoint.setCurrentQueue(lastQueue);
+        }
+        checkpoint.update(executionContext);
+        if (consumerPool != null) {
+            consumerPool.acknowledgeOnCommit(); // update() corre en la transacción de cada chunk
+        }
+    }
+
+    @Override
+    public void close() {
+        logger.info("Reader cerrado - leídos por cola: {}{}", checkpoint.counts(),
+                    checkpoint.getSkippedRedeliveries() > 0
+                    ? ", reentregas ya confirmadas descartadas: " + checkpoint.getSkippedRedeliveries() : "");
+        if (scheduler != null) {
+            scheduler.getStats().values().forEach(stats -> logger.info("Espera por cola - {}", stats));
+        }
+        if (consumerPool != null) {
+            consumerPool.stop(); // Tras un fallo, lo no confirmado vuelve a las colas
+        }
+    }
+
+    private List<String> queueNames() {
+        return consumerPool != null ? consumerPool.getQueueNames() : scheduler.getQueueNames();
     }
 
     @Override
-    public String read() throws Exception, UnexpectedInputException, ParseException, NonTransientResourceException {
+    public QueueMessage read() throws Exception, UnexpectedInputException, ParseException, NonTransientResourceException {
         
-        if (stopProcessing) {
+        if (stopProcessing.get()) {
             logger.info("Procesamiento detenido debido a errores previos");
             return null;
         }
         
         try {
-            String message = null;
-            JmsTemplate currentTemplate = useRtaQueue ? jmsTemplateRta : jmsTemplateMas;
-            String queueName = useRtaQueue ? "NOTIFICA.EOL.RTA" : "NOTIFICA.EOL.MAS";
+            QueueMessage queueMessage = consumerPool != null ? readConcurrent() : readSequential();
             
-            logger.info("Intentando leer mensaje de cola: {}", queueName);
-            
-            // Leer mensaje de la cola IBM MQ
-            message = (String) currentTemplate.receiveAndConvert();
-            
-            if (message == null) {
-                // Si no hay mensajes en la cola actual, cambiar a la otra
-                useRtaQueue = !useRtaQueue;
-                currentTemplate = useRtaQueue ? jmsTemplateRta : jmsTemplateMas;
-                queueName = useRtaQueue ? "NOTIFICA.EOL.RTA" : "NOTIFICA.EOL.MAS";
-                
-                logger.info("Cambiando a cola: {}", queueName);
-                message = (String) currentTemplate.receiveAndConvert();
-                
-                if (message == null) {
-                    logger.info("No hay más mensajes en ninguna cola");
-                    return null;
-                }
+            if (queueMessage == null) {
+                return null;
             }
             
-            logger.info("Mensaje leído de cola {}: {}", 
-                       queueName, 
-                       message.length() > 100 ? message.substring(0, 100) + "..." : message);
+            // El archivo de un mensaje grande vive hasta el commit del chunk que lo lee
+            largeMessages.deleteOnCommit(queueMessage);
+            archive.flushOnCommit();
             
-            // Validar que el mensaje no esté vacío
-            if (message.trim().isEmpty()) {
-                handleInvalidData("Mensaje vacío encontrado en la cola " + queueName, message);
-            }
+            String queueName = queueMessage.getQueueName();
+            checkpoint.read(queueName, queueMessage.getMessageId());
             
-            // Validar que el XML esté bien formado
-            validateXmlFormat(message);
+            // Validar que el mensaje no esté vacío (con cuarentena activa lo rechaza el processor)
+            if (queueMessage.isBlank() && !quarantineService.isEnabled()) {
+                handleInvalidData("Mensaje vacío encontrado en la cola " + queueName, queueMessage);
+            }
             
-            return message;
+            // Los prefijos no válidos se saltan por offset y el XML se valida una sola vez en el processor
+            return queueMessage;
             
         } catch (Exception e) {
             logger.error("Error al leer mensaje de la cola: {}", e.getMessage(), e);
             
+            stopProcessing.set(true);
+            if (consumerPool != null) {
+                consumerPool.stop();
+            }
+            
             if (e instanceof InvalidDataException) {
-                stopProcessing = true;
                 throw e;
             }
             
-            stopProcessing = true;
             throw new InvalidDataException("Error crítico al leer de la cola IBM MQ", "", e);
         }
     }
     
     /**
-     * Simula mensajes de las colas para desarrollo
-     * En producción, este método no se usa
+     * Lee de la cola que indica el planificador. Primero se prueban sin espera las colas con
+     * mensajes y luego las marcadas como vacías; si ninguna entrega, se rota entre todas con
+     * receives cortos hasta completar mq.receive-timeout-ms sin mensajes, y ahí termina el step.
      */
-    private int rtaIndex = 0;
-    private int masIndex = 0;
-    
-    private String simulateQueueMessage(String queueName) {
-        // Mensajes simulados con datos policiales reales para testing
-        String[] rtaMessages = {
-            "<?xml version=\"1.0\" encoding=\"UTF-8\"?><policia-data><id>POL123456</id><nombre>Juan Pérez García</nombre><rango>SARGENTO</rango><unidad>Comisaría Central</unidad><estado>ACTIVO</estado></policia-data>",
-            "<?xml version=\"1.0\" encoding=\"UTF-8\"?><policia-data><id>POL123457</id><nombre>María González López</nombre><rango>AGENTE</rango><unidad>Unidad Norte</unidad><estado>ACTIVO</estado></policia-data>"
-        };
-        
-        String[] masMessages = {
-            "INVALID_XML_MALFORMED", // Este XML mal formado detendrá el batch
-            "<?xml version=\"1.0\" encoding=\"UTF-8\"?><policia-data><id>POL123458</id><nombre>Carlos López</nombre><rango>CAPITAN</rango><unidad>Unidad Sur</unidad><estado>ACTIVO</estado></policia-data>"
-        };
+    private synchronized QueueMessage readSequential() throws JMSException {
+        probeIfDue();
         
-        if (queueName.equals("NOTIFICA.EOL.RTA")) {
-            if (rtaIndex < rtaMessages.length) {
-                return rtaMessages[rtaIndex++];
-            }
-        } else {
-            if (masIndex < masMessages.length) {
-                return masMessages[masIndex++];
+        long skipped = 0L;
+        int queue;
+        for (int round = 0; round < 2; round++) {
+            while ((queue = scheduler.next(skipped, round > 0, System.currentTimeMillis())) >= 0) {
+                QueueMessage queueMessage = receive(queue, RECEIVE_NO_WAIT);
+                if (queueMessage != null) {
+                    return queueMessage;
+                }
+                skipped |= 1L << queue;
             }
         }
         
-        // Cambiar de cola cuando no hay más mensajes
-        useRtaQueue = !useRtaQueue;
+        long deadline = System.currentTimeMillis() + idleTimeoutMillis;
+        do {
+            skipped = 0L;
+            while ((queue = scheduler.next(skipped, true, System.currentTimeMillis())) >= 0) {
+                QueueMessage queueMessage = receive(queue, idlePollMillis);
+                if (queueMessage != null) {
+                    return queueMessage;
+                }
+                skipped |= 1L << queue;
+            }
+        } while (System.currentTimeMillis() < deadline);
+        
+        logger.info("No hay más mensajes en ninguna cola");
         return null;
     }
     
     /**
-     * Valida que el XML esté bien formado
+     * Receive de una cola que descarta las reentregas de mensajes ya confirmados en el último chunk
+     * y avisa al planificador del resultado
      */
-    private void validateXmlFormat(String xmlContent) {
-        try {
-            logger.debug("Validando XML formato: [{}...]", 
-                xmlContent.length() > 50 ? xmlContent.substring(0, 50) : xmlContent);
-            
-            // Limpiar contenido antes de validar
-            String cleanedXml = cleanXmlContent(xmlContent);
+    private QueueMessage receive(int queue, long timeoutMillis) throws JMSException {
+        String queueName = scheduler.queue(queue);
+        while (true) {
+            long start = metrics.start();
+            // Sin MessageConverter: se conserva el payload en bytes
+            Message message = jmsTemplate.execute(session -> receive(session, queueName, timeoutMillis), true);
+            metrics.receive(queueName, start, message != null);
             
-            // Verificar si hubo limpieza
-            if (!xmlContent.equals(cleanedXml)) {
-                logger.warn("XML contenía prefijos no válidos. Limpiado de {} a {} caracteres", 
-                    xmlContent.length(), cleanedXml.length());
-                logger.warn("Contenido original (primeros 100 chars): {}", 
-                    xmlContent.length() > 100 ? xmlContent.substring(0, 100) : xmlContent);
-                logger.warn("Contenido limpiado (primeros 100 chars): {}", 
-                    cleanedXml.length() > 100 ? cleanedXml.substring(0, 100) : cleanedXml);
+            long now = System.currentTimeMillis();
+            if (message == null) {
+                scheduler.empty(queue, now);
+                return null;
+            }
+            if (checkpoint.isAlreadyCommitted(message)) {
+                logger.info("Mensaje {} de {} ya confirmado antes de la caída, se descarta la reentrega",
+                           message.getJMSMessageID(), queueName);
+                continue;
             }
             
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
-            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
-            
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            builder.parse(new InputSource(new StringReader(cleanedXml)));
-            
-            logger.debug("XML validado correctamente");
-            
-        } catch (Exception e) {
-            String errorDetails = analyzeXmlError(xmlContent, e);
-            logger.error("ERROR XML DETALLADO: {}", errorDetails);
-            handleInvalidData(errorDetails, xmlContent);
+            QueueMessage queueMessage = largeMessages.toQueueMessage(queueName, message);
+            archive.append(queueMessage, message);
+            long wait = scheduler.served(queue, queueMessage.getTimestamp(), queueMessage.getLength(), now);
+            if (wait >= 0) {
+                metrics.queueWait(queueName, wait);
+            }
+            metrics.received(queueName, queueMessage.getLength());
+            lastQueue = queueName;
+            return queueMessage;
         }
     }
     
     /**
-     * Limpia el contenido XML removiendo prefijos comunes no válidos
+     * Mismo receive que JmsTemplate pero con receiveNoWait cuando no se espera: la sesión es la de
+     * la transacción del chunk y, fuera de ella, se confirma aquí como lo hace el template
      */
-    private String cleanXmlContent(String content) {
-        if (content == null || content.isEmpty()) {
-            return content;
-        }
-        
-        String cleaned = content.trim();
-        
-        // Remover prefijos comunes que causan "Content is not allowed in prolog"
-        String[] commonPrefixes = {
-            "Trx:", "TRX:", "MSG:", "Data:", "XML:", 
-            "Response:", "Request:", "Message:"
-        };
-        
-        for (String prefix : commonPrefixes) {
-            if (cleaned.startsWith(prefix)) {
-                logger.warn("Removiendo prefijo no válido: '{}'", prefix);
-                cleaned = cleaned.substring(prefix.length()).trim();
-                break;
+    private Message receive(Session session, String queueName, long timeoutMillis) throws JMSException {
+        MessageConsumer consumer = session.createConsumer(session.createQueue(queueName));
+        try {
+            Message message = timeoutMillis > 0 ? consumer.receive(timeoutMillis) : consumer.receiveNoWait();
+            if (message != null) {
+                if (session.getTransacted()) {
+                    if (!ConnectionFactoryUtils.isSessionTransactional(session, jmsTemplate.getConnectionFactory())) {
+                        session.commit();
+                    }
+                } else if (session.getAcknowledgeMode() == Session.CLIENT_ACKNOWLEDGE) {
+                    message.acknowledge();
+                }
             }
+            return message;
+        } finally {
+            consumer.close(); // Con el pool de sesiones el consumidor queda cacheado
         }
-        
-        // Remover BOM (Byte Order Mark) si existe
-        if (cleaned.startsWith("\uFEFF")) {
-            logger.warn("Removiendo BOM (Byte Order Mark)");
-            cleaned = cleaned.substring(1);
+    }
+    
+    /**
+     * Actualiza con un browse la antigüedad del primer mensaje de cada cola. Solo hace falta si
+     * alguna cola tiene objetivo de latencia: sin objetivos las colas vacías se reintentan solas.
+     */
+    private void probeIfDue() {
+        long now = System.currentTimeMillis();
+        if (!scheduler.hasTargets() || !scheduler.isProbeDue(now)) {
+            return;
         }
-        
-        // Verificar que comience con '<' (inicio válido de XML)
-        if (!cleaned.startsWith("<")) {
-            // Buscar el primer '<' y remover todo lo anterior
-            int xmlStart = cleaned.indexOf('<');
-            if (xmlStart > 0) {
-                logger.warn("Removiendo {} caracteres antes del XML válido", xmlStart);
-                cleaned = cleaned.substring(xmlStart);
-            }
+        for (int i = 0; i < scheduler.size(); i++) {
+            Long timestamp = jmsTemplate.browse(scheduler.queue(i), (session, browser) -> {
+                Enumeration<?> messages = browser.getEnumeration();
+                return messages.hasMoreElements() ? ((Message) messages.nextElement()).getJMSTimestamp() : 0L;
+            });
+            scheduler.probed(i, timestamp != null ? timestamp : 0L, now);
         }
-        
-        return cleaned;
+        scheduler.probeDone(now);
     }
     
     /**
-     * Analiza errores XML para proporcionar diagnóstico detallado
+     * Toma el siguiente mensaje del buffer alimentado por los consumidores de cada cola
      */
-    private String analyzeXmlError(String xmlContent, Exception e) {
-        StringBuilder diagnosis = new StringBuilder();
-        diagnosis.append("DIAGNÓSTICO XML ERROR:\n");
-        diagnosis.append("- Error: ").append(e.getMessage()).append("\n");
-        diagnosis.append("- Tipo Exception: ").append(e.getClass().getSimpleName()).append("\n");
-        diagnosis.append("- Longitud contenido: ").append(xmlContent.length()).append(" caracteres\n");
+    private QueueMessage readConcurrent() throws InterruptedException {
+        consumerPool.start();
         
-        // Analizar primeros caracteres
-        if (xmlContent.length() > 0) {
-            diagnosis.append("- Primer carácter: '").append(xmlContent.charAt(0)).append("' (ASCII: ")
-                     .append((int) xmlContent.charAt(0)).append(")\n");
-            
-            String first20 = xmlContent.length() > 20 ? xmlContent.substring(0, 20) : xmlContent;
-            diagnosis.append("- Primeros 20 caracteres: '").append(first20).append("'\n");
+        while (true) {
+            QueueMessage queueMessage = consumerPool.poll(BUFFER_POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (queueMessage != null) {
+                return queueMessage;
+            }
             
-            // Verificar si empieza con XML válido
-            if (!xmlContent.trim().startsWith("<")) {
-                diagnosis.append("- PROBLEMA: El contenido no empieza con '<' (no es XML válido)\n");
-                int xmlStart = xmlContent.indexOf('<');
-                if (xmlStart > 0) {
-                    diagnosis.append("- El primer '<' está en posición: ").append(xmlStart).append("\n");
-                    diagnosis.append("- Contenido antes de XML: '").append(xmlContent.substring(0, xmlStart)).append("'\n");
-                } else {
-                    diagnosis.append("- NO SE ENCONTRÓ '<' en todo el contenido\n");
-                }
+            Throwable failure = consumerPool.getFailure();
+            if (failure != null) {
+                throw new InvalidDataException("Error crítico al leer de la cola IBM MQ", "", failure);
             }
             
-            // Detectar caracteres invisibles
-            char firstChar = xmlContent.charAt(0);
-            if (Character.isISOControl(firstChar) && firstChar != '\n' && firstChar != '\r' && firstChar != '\t') {
-                diagnosis.append("- PROBLEMA: Carácter de control invisible al inicio\n");
+            if (consumerPool.isDrained()) {
+                logger.info("No hay más mensajes en ninguna cola");
+                consumerPool.getStats().values().forEach(stats -> logger.info("Throughput por cola - {}", stats));
+                consumerPool.finish(); // Las últimas sesiones se confirman con el commit de este chunk
+                return null;
             }
         }
-        
-        diagnosis.append("- Contenido completo (100 primeros chars): ");
-        if (xmlContent.length() > 100) {
-            diagnosis.append(xmlContent.substring(0, 100)).append("...");
-        } else {
-            diagnosis.append(xmlContent);
-        }
-        
-        return diagnosis.toString();
     }
     
     /**
      * Maneja datos inválidos deteniendo el procesamiento
      */
-    private void handleInvalidData(String errorMessage, String invalidData) {
+    private void handleInvalidData(String errorMessage, QueueMessage invalidMessage) {
         logger.error("📋 DATOS INVÁLIDOS DETECTADOS - DETENIENDO BATCH");
         logger.error("🔍 Error detallado: {}", errorMessage);
         logger.error("📄 Datos problemáticos guardados para análisis");
         
         // Guardar datos problemáticos en archivo para análisis
         try {
-            java.nio.file.Files.write(
-                java.nio.file.Paths.get("error-xml-" + System.currentTimeMillis() + ".txt"),
-                invalidData.getBytes(java.nio.charset.StandardCharsets.UTF_8)
-            );
+            java.nio.file.Path errorFile = java.nio.file.Paths.get("error-xml-" + System.currentTimeMillis() + ".txt");
+            if (invalidMessage.isSpilled()) {
+                java.nio.file.Files.copy(invalidMessage.getBodyFile(), errorFile);
+            } else {
+                java.nio.file.Files.write(errorFile, invalidMessage.getPayload());
+            }
             logger.error("📁 Archivo de error guardado en directorio actual");
         } catch (Exception e) {
             logger.error("❌ No se pudo guardar archivo de error: {}", e.getMessage());
         }
         
-        stopProcessing = true;
-        throw new MalformedXmlException(errorMessage, invalidData);
+        stopProcessing.set(true);
+        throw new MalformedXmlException(errorMessage, invalidMessage.getText());
     }
     
     /**
      * Método para verificar si el procesamiento debe detenerse
      */
     public boolean isStopped() {
-        return stopProcessing;
+        return stopProcessing.get();
+    }
+    
+    /**
+     * Indica si el reader consume las colas con hilos dedicados
+     */
+    public boolean isConcurrent() {
+        return consumerPool != null;
+    }
+    
+    /**
+     * Contadores de throughput y de espera por cola
+     */
+    public Map<String, QueueStats> getQueueStats() {
+        return consumerPool != null ? consumerPool.getStats() : scheduler.getStats();
     }
     
     /**
      * Método para reiniciar el estado del reader (para testing)
      */
     public void reset() {
-        stopProcessing = false;
-        useRtaQueue = true;
+        stopProcessing.set(false);
+        lastQueue = null;
+        if (scheduler != null) {
+            scheduler.reset();
+        }
+        checkpoint.open(new ExecutionContext(), queueNames());
+        if (consumerPool != null) {
+            consumerPool.stop();
+        }
     }
 }
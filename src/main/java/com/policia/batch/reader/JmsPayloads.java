@@ -0,0 +1,45 @@
+package com.policia.batch.reader;
+
+import com.policia.batch.exception.InvalidDataException;
+import com.policia.batch.model.QueueMessage;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.TextMessage;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Extrae el payload en bytes de los mensajes JMS sin pasar por el MessageConverter
+ */
+public final class JmsPayloads {
+
+    private JmsPayloads() {
+    }
+
+    /**
+     * Convierte un mensaje JMS en QueueMessage.
+     * BytesMessage se copia una sola vez al arreglo final; TextMessage se codifica en UTF-8 y el
+     * mensaje queda marcado como texto (ver {@link QueueMessage#isText()}).
+     */
+    public static QueueMessage toQueueMessage(String queueName, Message message) throws JMSException {
+        return new QueueMessage(queueName, message.getJMSMessageID(), extractPayload(message),
+                                message.getJMSTimestamp(), message instanceof TextMessage);
+    }
+
+    public static byte[] extractPayload(Message message) throws JMSException {
+        if (message instanceof BytesMessage) {
+            BytesMessage bytesMessage = (BytesMessage) message;
+            byte[] payload = new byte[(int) bytesMessage.getBodyLength()];
+            bytesMessage.readBytes(payload);
+            return payload;
+        }
+
+        if (message instanceof TextMessage) {
+            String text = ((TextMessage) message).getText();
+            return text != null ? text.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        }
+
+        throw new InvalidDataException("Tipo de mensaje JMS no soportado: " + message.getClass().getSimpleName(), "");
+    }
+}
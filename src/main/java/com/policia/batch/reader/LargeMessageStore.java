@@ -0,0 +1,211 @@
+package com.policia.batch.reader;
+
+import com.policia.batch.model.QueueMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.TextMessage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Modo de mensajes grandes: un mensaje de más de large-message.threshold-bytes no se copia a un
+ * arreglo. El cuerpo se vuelca por bloques a un archivo del directorio de trabajo y el
+ * {@link QueueMessage} conserva solo los primeros HEAD_BYTES, que alcanzan para el ruteo por tipo,
+ * la limpieza de prefijos y la deduplicación. El parseo lee el archivo con StAX, y los errores y
+ * logs llevan el handle del mensaje en lugar del payload.
+ *
+ * El archivo se borra cuando confirma la transacción del chunk que leyó el mensaje. Si el chunk
+ * se revierte queda en el directorio para análisis (el mensaje vuelve a la cola y se vuelca de
+ * nuevo); al iniciar se borran los archivos con más de large-message.retention-hours.
+ */
+@Component
+public class LargeMessageStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(LargeMessageStore.class);
+
+    static final int HEAD_BYTES = 8 * 1024;
+    private static final int COPY_BUFFER = 64 * 1024;
+
+    private final long thresholdBytes;
+    private final Path directory;
+    private final LongAdder spilled = new LongAdder();
+
+    @Autowired
+    public LargeMessageStore(@Value("${large-message.threshold-bytes:1048576}") long thresholdBytes,
+                             @Value("${large-message.directory:large-messages}") String directory,
+                             @Value("${large-message.retention-hours:24}") long retentionHours) {
+        this.thresholdBytes = thresholdBytes;
+        this.directory = Paths.get(directory);
+
+        if (isEnabled()) {
+            deleteExpired(TimeUnit.HOURS.toMillis(retentionHours));
+            logger.info("Mensajes grandes: más de {} bytes se vuelcan a {}", thresholdBytes,
+                        this.directory.toAbsolutePath());
+        }
+    }
+
+    public boolean isEnabled() {
+        return thresholdBytes > 0;
+    }
+
+    /**
+     * Convierte el mensaje JMS, volcándolo a disco si supera el umbral
+     */
+    public QueueMessage toQueueMessage(String queueName, Message message) throws JMSException {
+        if (message instanceof BytesMessage && isLarge(((BytesMessage) message).getBodyLength())) {
+            return spill(queueName, (BytesMessage) message);
+        }
+        if (message instanceof TextMessage && isEnabled()) {
+            String text = ((TextMessage) message).getText();
+            // Un carácter ocupa al menos un byte en UTF-8
+            if (text != null && isLarge(text.length())) {
+                return spill(queueName, message, text);
+            }
+        }
+        return JmsPayloads.toQueueMessage(queueName, message);
+    }
+
+    private boolean isLarge(long length) {
+        return isEnabled() && length > thresholdBytes;
+    }
+
+    private QueueMessage spill(String queueName, BytesMessage message) throws JMSException {
+        Path file = createFile();
+        byte[] buffer = new byte[COPY_BUFFER];
+        byte[] head = new byte[(int) Math.min(HEAD_BYTES, message.getBodyLength())];
+        int headLength = 0;
+        long length = 0;
+        try (OutputStream out = Files.newOutputStream(file)) {
+            int read;
+            while ((read = message.readBytes(buffer)) > 0) {
+                if (headLength < head.length) {
+                    int count = Math.min(read, head.length - headLength);
+                    System.arraycopy(buffer, 0, head, headLength, count);
+                    headLength += count;
+                }
+                out.write(buffer, 0, read);
+                length += read;
+            }
+        } catch (IOException e) {
+            deleteQuietly(file);
+            throw new UncheckedIOException("Error volcando a disco el mensaje " + message.getJMSMessageID(), e);
+        }
+        return spilled(queueName, message, head, file, length, false);
+    }
+
+    private QueueMessage spill(String queueName, Message message, String text) throws JMSException {
+        Path file = createFile();
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write(text);
+        } catch (IOException e) {
+            deleteQuietly(file);
+            throw new UncheckedIOException("Error volcando a disco el mensaje " + message.getJMSMessageID(), e);
+        }
+        int headChars = Math.min(text.length(), HEAD_BYTES / 3); // Hasta 3 bytes por carácter del BMP
+        if (headChars > 0 && headChars < text.length() && Character.isHighSurrogate(text.charAt(headChars - 1))) {
+            headChars--; // No cortar un par suplente: la mitad se codificaría como '?'
+        }
+        byte[] head = text.substring(0, headChars).getBytes(StandardCharsets.UTF_8);
+        try {
+            return spilled(queueName, message, head, file, Files.size(file), true);
+        } catch (IOException e) {
+            deleteQuietly(file);
+            throw new UncheckedIOException("Error leyendo el tamaño de " + file, e);
+        }
+    }
+
+    private QueueMessage spilled(String queueName, Message message, byte[] head, Path file, long length,
+                                 boolean text) throws JMSException {
+        if (length > Integer.MAX_VALUE) {
+            deleteQuietly(file);
+            throw new IllegalStateException("Mensaje " + message.getJMSMessageID() + " de " + length
+                                            + " bytes excede el tamaño máximo soportado");
+        }
+        spilled.increment();
+        QueueMessage queueMessage = new QueueMessage(queueName, message.getJMSMessageID(), head, file,
+                                                     (int) length, message.getJMSTimestamp(), text);
+        logger.info("Mensaje grande de {} volcado a disco: {}", queueName, queueMessage.getHandle());
+        return queueMessage;
+    }
+
+    private Path createFile() {
+        try {
+            Files.createDirectories(directory);
+            return Files.createTempFile(directory, "msg-", ".xml");
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo crear el archivo de mensaje grande en " + directory, e);
+        }
+    }
+
+    /**
+     * Borra el archivo del mensaje cuando confirme la transacción en curso (el chunk que lo leyó).
+     * Sin transacción el archivo queda hasta la limpieza por antigüedad.
+     */
+    public void deleteOnCommit(QueueMessage message) {
+        if (!message.isSpilled() || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        Path file = message.getBodyFile();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    deleteQuietly(file);
+                } else {
+                    logger.warn("Chunk revertido: se conserva {} para análisis", file);
+                }
+            }
+        });
+    }
+
+    private void deleteExpired(long retentionMillis) {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        long limit = System.currentTimeMillis() - retentionMillis;
+        int deleted = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "msg-*.xml")) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toMillis() < limit) {
+                    Files.deleteIfExists(file);
+                    deleted++;
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("No se pudo limpiar el directorio de mensajes grandes {}: {}", directory, e.getMessage());
+        }
+        if (deleted > 0) {
+            logger.info("Borrados {} archivos de mensajes grandes anteriores a la retención", deleted);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("No se pudo borrar el archivo de mensaje grande {}: {}", file, e.getMessage());
+        }
+    }
+
+    public long getSpilledCount() {
+        return spilled.sum();
+    }
+}
@@ -0,0 +1,373 @@
+package com.policia.batch.reader;
+
+import com.policia.batch.archive.MessageArchive;
+import com.policia.batch.metrics.PoliciaMetrics;
+import com.policia.batch.model.QueueMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.Session;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Un consumidor dedicado por cola que alimenta un buffer acotado en memoria.
+ * Cada consumidor termina cuando su cola queda vacía (receive con timeout),
+ * de modo que el pool se considera drenado cuando todos terminaron y el buffer está vacío.
+ *
+ * Cada consumidor recibe en sesiones transaccionales propias, en lotes de hasta ack-batch-size
+ * mensajes. Un lote se confirma a MQ recién cuando todos sus mensajes pasaron por chunks
+ * confirmados; si el step falla o el proceso cae, lo que está en el buffer o en chunks sin
+ * confirmar vuelve a la cola y el broker lo reentrega.
+ */
+public class QueueConsumerPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueueConsumerPool.class);
+
+    private static final long STOP_JOIN_MILLIS = 5000;
+
+    private final ConnectionFactory connectionFactory;
+    private final long receiveTimeout;
+    private final int ackBatchSize;
+    private final LargeMessageStore largeMessages;
+    private final MessageArchive archive;
+    private final PoliciaMetrics metrics;
+    private final List<String> queueNames;
+    private final BlockingQueue<Delivery> buffer;
+    private final Set<SessionBatch> open = ConcurrentHashMap.newKeySet(); // Lotes sin confirmar a MQ
+    private final List<SessionBatch> taken = new ArrayList<>(); // Lote de cada mensaje leído en chunks sin confirmar (hilo del step)
+    private final Map<String, QueueStats> stats;
+    private final AtomicInteger activeConsumers = new AtomicInteger();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final List<Thread> consumers = new ArrayList<>();
+    private volatile boolean running = false;
+
+    /**
+     * @param jmsTemplate template de las colas: aporta la connection factory y el timeout de receive
+     * @param largeMessages vuelca a disco los mensajes que superan el umbral de mensajes grandes
+     * @param archive      archivo de mensajes crudos (cada mensaje se archiva al recibirlo)
+     * @param queueNames  colas a consumir, un hilo por cola
+     * @param bufferCapacity capacidad del buffer; los consumidores se bloquean cuando se llena
+     * @param ackBatchSize mensajes por sesión transaccional de cada consumidor
+     * @param metrics      métricas de recepción por cola
+     */
+    public QueueConsumerPool(JmsTemplate jmsTemplate, LargeMessageStore largeMessages, MessageArchive archive,
+                             List<String> queueNames, int bufferCapacity, int ackBatchSize, PoliciaMetrics metrics) {
+        this.connectionFactory = jmsTemplate.getConnectionFactory();
+        this.receiveTimeout = jmsTemplate.getReceiveTimeout();
+        this.ackBatchSize = Math.max(1, ackBatchSize);
+        this.largeMessages = largeMessages;
+        this.archive = archive;
+        this.metrics = metrics;
+        this.queueNames = Collections.unmodifiableList(new ArrayList<>(queueNames));
+        this.buffer = new ArrayBlockingQueue<>(bufferCapacity);
+
+        Map<String, QueueStats> queueStats = new LinkedHashMap<>();
+        for (String queueName : queueNames) {
+            queueStats.put(queueName, new QueueStats(queueName));
+        }
+        this.stats = Collections.unmodifiableMap(queueStats);
+    }
+
+    /**
+     * Inicia un consumidor por cola si el pool no está corriendo
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+
+        failure.set(null);
+        consumers.clear();
+        stats.values().forEach(QueueStats::reset);
+        running = true;
+        activeConsumers.set(queueNames.size());
+
+        for (String queueName : queueNames) {
+            Thread consumer = new Thread(() -> consume(queueName), "mq-consumer-" + queueName);
+            consumer.setDaemon(true);
+            consumers.add(consumer);
+            consumer.start();
+        }
+
+        logger.info("Iniciados {} consumidores concurrentes para colas: {} (confirmación cada {} mensajes)",
+                    queueNames.size(), queueNames, ackBatchSize);
+    }
+
+    private void consume(String queueName) {
+        QueueStats queueStats = stats.get(queueName);
+        Connection connection = null;
+        SessionBatch batch = null;
+        try {
+            connection = connectionFactory.createConnection();
+            connection.start();
+            while (running) {
+                if (batch == null) {
+                    batch = openBatch(connection, queueName);
+                }
+                long start = metrics.start();
+                Message message = batch.consumer.receive(receiveTimeout);
+                metrics.receive(queueName, start, message != null);
+                if (message == null) {
+                    logger.info("No hay más mensajes en cola {}", queueName);
+                    break;
+                }
+                QueueMessage queueMessage = largeMessages.toQueueMessage(queueName, message);
+                archive.append(queueMessage, message);
+                queueStats.recordReceived(queueMessage.getLength());
+                if (queueMessage.getTimestamp() > 0) {
+                    long wait = Math.max(0L, System.currentTimeMillis() - queueMessage.getTimestamp());
+                    queueStats.recordWait(wait, 0L);
+                    metrics.queueWait(queueName, wait);
+                }
+                metrics.received(queueName, queueMessage.getLength());
+
+                boolean full = batch.add() == ackBatchSize;
+                buffer.put(new Delivery(queueMessage, batch));
+                if (full) {
+                    seal(batch);
+                    batch = null;
+                }
+            }
+            // Cola vacía o pool detenido: el lote en curso ya no recibe más
+            if (batch != null) {
+                seal(batch);
+            }
+        } catch (InterruptedException e) {
+            // El lote en curso queda abierto y stop() lo revierte
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            if (!running) {
+                logger.debug("Consumidor de cola {} detenido: {}", queueName, e.getMessage());
+                return;
+            }
+            logger.error("Error en consumidor de cola {}: {}", queueName, e.getMessage(), e);
+            queueStats.recordError();
+            metrics.error(queueName, e);
+            failure.compareAndSet(null, e);
+        } finally {
+            activeConsumers.decrementAndGet();
+            closeQuietly(connection);
+        }
+    }
+
+    private SessionBatch openBatch(Connection connection, String queueName) throws JMSException {
+        Session session = connection.createSession(true, Session.SESSION_TRANSACTED);
+        SessionBatch batch = new SessionBatch(queueName, session,
+                                              session.createConsumer(session.createQueue(queueName)));
+        open.add(batch);
+        return batch;
+    }
+
+    /**
+     * Obtiene el siguiente mensaje del buffer, esperando hasta el timeout indicado.
+     * El mensaje se confirma a MQ con el commit del chunk que lo lee (ver {@link #acknowledgeOnCommit()}).
+     */
+    public QueueMessage poll(long timeout, TimeUnit unit) throws InterruptedException {
+        Delivery delivery = buffer.poll(timeout, unit);
+        if (delivery == null) {
+            return null;
+        }
+        taken.add(delivery.batch);
+        return delivery.message;
+    }
+
+    /**
+     * Registra en la transacción del chunk la confirmación de los mensajes leídos. Tras el commit
+     * se confirman a MQ las sesiones cuyos mensajes ya se procesaron todos; tras un rollback el
+     * step reprocesa los items desde su buffer, así que quedan pendientes para el próximo commit.
+     * Sin transacción activa se confirman en el momento.
+     */
+    public void acknowledgeOnCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            acknowledgeTaken();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                acknowledgeTaken();
+            }
+        });
+    }
+
+    private void acknowledgeTaken() {
+        for (SessionBatch batch : taken) {
+            if (batch.acknowledge()) {
+                commit(batch);
+            }
+        }
+        taken.clear();
+    }
+
+    private void seal(SessionBatch batch) {
+        if (batch.seal()) {
+            commit(batch);
+        }
+    }
+
+    private void commit(SessionBatch batch) {
+        open.remove(batch);
+        try {
+            batch.session.commit();
+        } catch (JMSException e) {
+            // Los mensajes vuelven a la cola: ya están procesados y la reentrega se descarta por duplicado
+            logger.error("No se pudo confirmar a MQ un lote de {} mensajes de {}: {}",
+                         batch.received, batch.queueName, e.getMessage(), e);
+        } finally {
+            batch.close();
+        }
+    }
+
+    /**
+     * Verdadero cuando todos los consumidores terminaron y no quedan mensajes en el buffer.
+     * Se consulta primero el número de consumidores activos: un consumidor encola antes de terminar.
+     */
+    public boolean isDrained() {
+        return activeConsumers.get() == 0 && buffer.isEmpty();
+    }
+
+    /**
+     * Los consumidores terminaron al vaciarse sus colas: el pool queda listo para un nuevo start().
+     * Los lotes pendientes se confirman con el commit del último chunk.
+     */
+    public synchronized void finish() {
+        running = false;
+    }
+
+    public Throwable getFailure() {
+        return failure.get();
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Detiene los consumidores y revierte las sesiones sin confirmar: lo que estaba en el buffer o
+     * en chunks no confirmados vuelve a la cola y el broker lo reentrega en la próxima ejecución.
+     */
+    public synchronized void stop() {
+        if (running) {
+            running = false;
+            consumers.forEach(Thread::interrupt);
+            for (Thread consumer : consumers) {
+                try {
+                    consumer.join(STOP_JOIN_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+
+        int pending = 0;
+        for (SessionBatch batch : open) {
+            open.remove(batch);
+            pending += batch.received;
+            try {
+                batch.session.rollback();
+            } catch (JMSException e) {
+                logger.debug("Rollback de sesión de {}: {}", batch.queueName, e.getMessage());
+            } finally {
+                batch.close();
+            }
+        }
+        buffer.clear();
+        taken.clear();
+        if (pending > 0) {
+            logger.warn("⚠️ {} mensajes recibidos sin confirmar vuelven a las colas para reentregarse", pending);
+        }
+    }
+
+    public Map<String, QueueStats> getStats() {
+        return stats;
+    }
+
+    public List<String> getQueueNames() {
+        return queueNames;
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection != null) {
+            try {
+                connection.close(); // Con la connection factory compartida el cierre es lógico
+            } catch (JMSException e) {
+                logger.debug("Error cerrando conexión de consumidor: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Mensaje del buffer y el lote de sesión que lo recibió
+     */
+    private static final class Delivery {
+        private final QueueMessage message;
+        private final SessionBatch batch;
+
+        private Delivery(QueueMessage message, SessionBatch batch) {
+            this.message = message;
+            this.batch = batch;
+        }
+    }
+
+    /**
+     * Sesión transaccional de un consumidor con los mensajes recibidos en ella. Se confirma una
+     * sola vez, cuando está cerrada a nuevos mensajes y todos los recibidos se procesaron.
+     */
+    private static final class SessionBatch {
+        private final String queueName;
+        private final Session session;
+        private final MessageConsumer consumer;
+        private int received;
+        private int acknowledged;
+        private boolean sealed;
+
+        private SessionBatch(String queueName, Session session, MessageConsumer consumer) {
+            this.queueName = queueName;
+            this.session = session;
+            this.consumer = consumer;
+        }
+
+        synchronized int add() {
+            return ++received;
+        }
+
+        synchronized boolean seal() {
+            sealed = true;
+            return acknowledged == received;
+        }
+
+        synchronized boolean acknowledge() {
+            acknowledged++;
+            return sealed && acknowledged == received;
+        }
+
+        void close() {
+            try {
+                consumer.close();
+                session.close();
+            } catch (JMSException e) {
+                logger.debug("Error cerrando sesión de {}: {}", queueName, e.getMessage());
+            }
+        }
+    }
+}
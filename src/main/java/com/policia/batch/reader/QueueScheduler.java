@@ -0,0 +1,246 @@
+package com.policia.batch.reader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Elige de qué cola lee el reader secuencial en cada receive.
+ *
+ * <ul>
+ *   <li>Reparto por pesos (stride scheduling): cada mensaje servido avanza el "pase" de su cola en
+ *       1/peso y se sirve la cola con el menor pase. Con pesos 1 y 3, la segunda recibe 3 de cada
+ *       4 lecturas mientras ambas tengan mensajes. Una cola que vuelve a tener mensajes retoma desde
+ *       el pase actual, sin acumular crédito por el tiempo que estuvo vacía.</li>
+ *   <li>Objetivo de latencia: si la antigüedad del primer mensaje de una cola supera su objetivo,
+ *       esa cola se sirve antes que el reparto por pesos (la más atrasada respecto de su objetivo).
+ *       La antigüedad se toma de un browse periódico del primer mensaje y, entre browses, de la
+ *       espera del último mensaje servido.</li>
+ *   <li>Una cola vacía se saltea hasta el siguiente browse, así que las demás se leen de inmediato.</li>
+ * </ul>
+ * No es thread-safe: lo usa el reader secuencial bajo su propio lock.
+ */
+public class QueueScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueueScheduler.class);
+
+    static final int MAX_QUEUES = 64; // Máscara de colas descartadas en un long
+
+    private final String[] queues;
+    private final double[] stride;
+    private final long[] targetMillis;
+    private final long probeIntervalMillis;
+    private final Map<String, QueueStats> stats;
+
+    private final double[] pass;
+    private final long[] headTimestamp; // JMSTimestamp estimado del primer mensaje, 0 = vacía o desconocido
+    private final long[] emptyUntil;
+    private double virtualTime;
+    private long nextProbe;
+
+    /**
+     * @param weights peso por cola (por defecto 1)
+     * @param targets objetivo de latencia en ms por cola (por defecto sin objetivo)
+     */
+    public QueueScheduler(List<String> queues, Map<String, Long> weights, Map<String, Long> targets,
+                          long probeIntervalMillis) {
+        if (queues.isEmpty() || queues.size() > MAX_QUEUES) {
+            throw new IllegalArgumentException("El reader secuencial admite entre 1 y " + MAX_QUEUES + " colas");
+        }
+        for (String queue : weights.keySet()) {
+            if (!queues.contains(queue)) {
+                throw new IllegalArgumentException("Peso configurado para una cola que no se lee: " + queue);
+            }
+        }
+        for (String queue : targets.keySet()) {
+            if (!queues.contains(queue)) {
+                throw new IllegalArgumentException("Objetivo de latencia configurado para una cola que no se lee: "
+                                                   + queue);
+            }
+        }
+
+        int size = queues.size();
+        this.queues = queues.toArray(new String[0]);
+        this.stride = new double[size];
+        this.targetMillis = new long[size];
+        this.probeIntervalMillis = probeIntervalMillis;
+        this.pass = new double[size];
+        this.headTimestamp = new long[size];
+        this.emptyUntil = new long[size];
+
+        Map<String, QueueStats> queueStats = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            long weight = weights.getOrDefault(this.queues[i], 1L);
+            if (weight < 1) {
+                throw new IllegalArgumentException("El peso de la cola " + this.queues[i] + " debe ser mayor que 0");
+            }
+            stride[i] = 1d / weight;
+            targetMillis[i] = targets.getOrDefault(this.queues[i], 0L);
+            queueStats.put(this.queues[i], new QueueStats(this.queues[i]));
+        }
+        this.stats = Collections.unmodifiableMap(queueStats);
+
+        logger.info("Planificador de colas - pesos: {}, objetivos de latencia (ms): {}", weights, targets);
+    }
+
+    /**
+     * Vuelve al estado inicial (nuevo step o reinicio)
+     */
+    public void reset() {
+        for (int i = 0; i < queues.length; i++) {
+            pass[i] = 0d;
+            headTimestamp[i] = 0L;
+            emptyUntil[i] = 0L;
+        }
+        virtualTime = 0d;
+        nextProbe = 0L;
+        stats.values().forEach(QueueStats::reset);
+    }
+
+    /**
+     * Indica si alguna cola tiene objetivo de latencia (solo entonces se hace el browse)
+     */
+    public boolean hasTargets() {
+        for (long target : targetMillis) {
+            if (target > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Indica si corresponde actualizar la antigüedad de las colas con un browse
+     */
+    public boolean isProbeDue(long now) {
+        return now >= nextProbe;
+    }
+
+    /**
+     * Resultado del browse del primer mensaje de una cola
+     *
+     * @param timestamp JMSTimestamp del primer mensaje, o 0 si la cola está vacía
+     */
+    public void probed(int queue, long timestamp, long now) {
+        headTimestamp[queue] = timestamp;
+        emptyUntil[queue] = timestamp > 0 ? 0L : now + probeIntervalMillis;
+    }
+
+    public void probeDone(long now) {
+        nextProbe = now + probeIntervalMillis;
+    }
+
+    /**
+     * Próxima cola a leer, sin contar las de skipped (bit i = cola i), o -1 si no queda ninguna.
+     * Con includeEmpty se consideran también las colas marcadas como vacías.
+     */
+    public int next(long skipped, boolean includeEmpty, long now) {
+        int overdue = -1;
+        double worstRatio = 1d;
+        int fair = -1;
+        for (int i = 0; i < queues.length; i++) {
+            if ((skipped & (1L << i)) != 0 || (!includeEmpty && emptyUntil[i] > now)) {
+                continue;
+            }
+            if (targetMillis[i] > 0 && headTimestamp[i] > 0) {
+                double ratio = (double) (now - headTimestamp[i]) / targetMillis[i];
+                if (ratio >= worstRatio) {
+                    worstRatio = ratio;
+                    overdue = i;
+                }
+            }
+            if (fair < 0 || pass[i] < pass[fair]) {
+                fair = i;
+            }
+        }
+        return overdue >= 0 ? overdue : fair;
+    }
+
+    /**
+     * Mensaje recibido de la cola: avanza su pase y registra la espera en la cola
+     *
+     * @return espera del mensaje en ms, o -1 si el mensaje no tiene JMSTimestamp
+     */
+    public long served(int queue, long enqueuedAtMillis, int length, long now) {
+        if (emptyUntil[queue] != 0L || headTimestamp[queue] == 0L) {
+            pass[queue] = Math.max(pass[queue], virtualTime); // Sin crédito acumulado mientras estuvo vacía
+            emptyUntil[queue] = 0L;
+        }
+        virtualTime = pass[queue];
+        pass[queue] += stride[queue];
+
+        QueueStats queueStats = stats.get(queues[queue]);
+        queueStats.recordReceived(length);
+        if (enqueuedAtMillis <= 0) {
+            headTimestamp[queue] = now; // Sin timestamp no hay antigüedad que comparar
+            return -1;
+        }
+        // El siguiente mensaje no es más antiguo que este: estimación hasta el próximo browse
+        headTimestamp[queue] = enqueuedAtMillis;
+        long wait = Math.max(0L, now - enqueuedAtMillis);
+        queueStats.recordWait(wait, targetMillis[queue]);
+        return wait;
+    }
+
+    /**
+     * Receive sin mensaje: la cola se saltea hasta el próximo browse
+     */
+    public void empty(int queue, long now) {
+        headTimestamp[queue] = 0L;
+        emptyUntil[queue] = now + probeIntervalMillis;
+    }
+
+    public int size() {
+        return queues.length;
+    }
+
+    public String queue(int index) {
+        return queues[index];
+    }
+
+    public int indexOf(String queue) {
+        for (int i = 0; i < queues.length; i++) {
+            if (queues[i].equals(queue)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public List<String> getQueueNames() {
+        List<String> names = new ArrayList<>(queues.length);
+        Collections.addAll(names, queues);
+        return names;
+    }
+
+    public Map<String, QueueStats> getStats() {
+        return stats;
+    }
+
+    /**
+     * Parsea "COLA=valor,COLA=valor" (configuración de pesos y objetivos)
+     */
+    public static Map<String, Long> parseQueueValues(String property, String values) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (String entry : values.split(",")) {
+            if (entry.trim().isEmpty()) {
+                continue;
+            }
+            int separator = entry.lastIndexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException(property + ": se esperaba COLA=valor en '" + entry.trim() + "'");
+            }
+            try {
+                result.put(entry.substring(0, separator).trim(), Long.parseLong(entry.substring(separator + 1).trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(property + ": valor no numérico en '" + entry.trim() + "'", e);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,118 @@
+package com.policia.batch.reader;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores de throughput y de espera en la cola, seguros para uso concurrente
+ */
+public class QueueStats {
+
+    private final String queueName;
+    private final LongAdder received = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder waited = new LongAdder();
+    private final LongAdder waitMillis = new LongAdder();
+    private final LongAdder overTarget = new LongAdder();
+    private final AtomicLong maxWaitMillis = new AtomicLong();
+    private final AtomicLong firstReceiveNanos = new AtomicLong();
+    private final AtomicLong lastReceiveNanos = new AtomicLong();
+
+    public QueueStats(String queueName) {
+        this.queueName = queueName;
+    }
+
+    /**
+     * Registra un mensaje recibido de la cola
+     */
+    public void recordReceived(int length) {
+        long now = System.nanoTime();
+        firstReceiveNanos.compareAndSet(0L, now);
+        lastReceiveNanos.set(now);
+        received.increment();
+        bytes.add(length);
+    }
+
+    /**
+     * Registra la espera en la cola de un mensaje recibido (JMSTimestamp → receive)
+     *
+     * @param targetMillis objetivo de latencia de la cola, 0 si no tiene
+     */
+    public void recordWait(long millis, long targetMillis) {
+        waited.increment();
+        waitMillis.add(millis);
+        maxWaitMillis.accumulateAndGet(millis, Math::max);
+        if (targetMillis > 0 && millis > targetMillis) {
+            overTarget.increment();
+        }
+    }
+
+    public void recordError() {
+        errors.increment();
+    }
+
+    public String getQueueName() {
+        return queueName;
+    }
+
+    public long getReceived() {
+        return received.sum();
+    }
+
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public double getMeanWaitMillis() {
+        long count = waited.sum();
+        return count > 0 ? (double) waitMillis.sum() / count : 0d;
+    }
+
+    public long getMaxWaitMillis() {
+        return maxWaitMillis.get();
+    }
+
+    /**
+     * Mensajes recibidos después del objetivo de latencia de la cola
+     */
+    public long getOverTarget() {
+        return overTarget.sum();
+    }
+
+    /**
+     * Mensajes por segundo entre el primer y el último mensaje recibido
+     */
+    public double getThroughput() {
+        long count = received.sum();
+        long elapsedNanos = lastReceiveNanos.get() - firstReceiveNanos.get();
+        if (count < 2 || elapsedNanos <= 0) {
+            return count;
+        }
+        return (count - 1) * 1_000_000_000d / elapsedNanos;
+    }
+
+    public void reset() {
+        received.reset();
+        bytes.reset();
+        errors.reset();
+        waited.reset();
+        waitMillis.reset();
+        overTarget.reset();
+        maxWaitMillis.set(0L);
+        firstReceiveNanos.set(0L);
+        lastReceiveNanos.set(0L);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: recibidos=%d, errores=%d, throughput=%.1f msg/s, espera media=%.0f ms, "
+                             + "máxima=%d ms, sobre el objetivo=%d",
+                queueName, getReceived(), getErrors(), getThroughput(), getMeanWaitMillis(), getMaxWaitMillis(),
+                getOverTarget());
+    }
+}
@@ -0,0 +1,245 @@
+package com.policia.batch.reader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Estado de un reader de colas que se guarda en el ExecutionContext del step en cada commit y se
+ * restaura al reiniciar la ejecución:
+ * <ul>
+ *   <li>Por cola: mensajes leídos en chunks confirmados y último message ID.</li>
+ *   <li>Cola en uso (modo secuencial), para retomar donde estaba en lugar de volver a la primera.</li>
+ *   <li>Ventana de duplicados: hash de 64 bits de los message IDs del último chunk confirmado. Si
+ *       el proceso cae entre el commit de la base de datos y el de la sesión JMS, esos mensajes
+ *       vuelven con JMSRedelivered y se descartan en lugar de procesarse de nuevo.</li>
+ * </ul>
+ * El estado en memoria pasa a "confirmado" solo cuando la transacción del chunk confirma. Si la
+ * transacción se revierte con sesión transaccional, los mensajes leídos vuelven a la cola y se
+ * olvidan; sin sesión transaccional el step reprocesa los items desde su buffer y se conservan.
+ */
+public class ReaderCheckpoint {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReaderCheckpoint.class);
+
+    private static final String CURRENT_QUEUE = "queue";
+    private static final String READ = "read";
+    private static final String LAST_MESSAGE_ID = "lastMessageId";
+    private static final String WINDOW = "window";
+
+    private final String prefix;
+    private final boolean transactionalQueue;
+
+    private final Map<String, Progress> committed = new LinkedHashMap<>();
+    private final Map<String, Progress> pending = new LinkedHashMap<>();
+    private final List<String> pendingIds = new ArrayList<>();
+    private Set<Long> window = new HashSet<>();
+    private String currentQueue;
+    private boolean updated; // update() ya corrió en la transacción actual
+    private long skippedRedeliveries;
+
+    /**
+     * @param prefix prefijo de las claves en el ExecutionContext (por ejemplo "reader.")
+     * @param transactionalQueue si los mensajes se reciben en la transacción del chunk
+     */
+    public ReaderCheckpoint(String prefix, boolean transactionalQueue) {
+        this.prefix = prefix;
+        this.transactionalQueue = transactionalQueue;
+    }
+
+    /**
+     * Restaura el estado guardado; en una ejecución nueva deja todo en cero
+     */
+    public synchronized void open(ExecutionContext context, Collection<String> queues) {
+        committed.clear();
+        pending.clear();
+        pendingIds.clear();
+        skippedRedeliveries = 0;
+
+        for (String queue : queues) {
+            Progress progress = new Progress();
+            progress.read = context.getLong(key(queue, READ), 0L);
+            progress.lastMessageId = context.getString(key(queue, LAST_MESSAGE_ID), null);
+            committed.put(queue, progress);
+        }
+        currentQueue = context.getString(prefix + CURRENT_QUEUE, null);
+        window = decodeWindow(context.getString(prefix + WINDOW, ""));
+
+        if (context.containsKey(prefix + WINDOW)) {
+            logger.info("🔁 Reader retomado desde el checkpoint - cola actual: {}, leídos por cola: {}, "
+                        + "ventana de duplicados: {} mensajes", currentQueue, counts(), window.size());
+        }
+    }
+
+    /**
+     * Indica si un mensaje reentregado ya fue confirmado en el último chunk; si es así se cuenta
+     * como descartado y el reader debe pasar al siguiente
+     */
+    public synchronized boolean isAlreadyCommitted(Message message) throws JMSException {
+        if (window.isEmpty() || !message.getJMSRedelivered() || message.getJMSMessageID() == null
+            || !window.contains(hash(message.getJMSMessageID()))) {
+            return false;
+        }
+        skippedRedeliveries++;
+        return true;
+    }
+
+    public synchronized void read(String queue, String messageId) {
+        bind();
+        Progress progress = pending.computeIfAbsent(queue, key -> new Progress());
+        progress.read++;
+        progress.lastMessageId = messageId;
+        if (messageId != null) {
+            pendingIds.add(messageId);
+        }
+    }
+
+    public synchronized void setCurrentQueue(String queue) {
+        currentQueue = queue;
+    }
+
+    public synchronized String getCurrentQueue() {
+        return currentQueue;
+    }
+
+    /**
+     * Escribe el estado que quedará confirmado con el chunk. Lo llama el step dentro de la
+     * transacción, justo antes del commit.
+     */
+    public synchronized void update(ExecutionContext context) {
+        Set<String> queues = new HashSet<>(committed.keySet());
+        queues.addAll(pending.keySet());
+        for (String queue : queues) {
+            Progress base = committed.get(queue);
+            Progress delta = pending.get(queue);
+            long read = (base != null ? base.read : 0L) + (delta != null ? delta.read : 0L);
+            String lastMessageId = delta != null ? delta.lastMessageId : base.lastMessageId;
+            context.putLong(key(queue, READ), read);
+            if (lastMessageId != null) {
+                context.putString(key(queue, LAST_MESSAGE_ID), lastMessageId);
+            }
+        }
+        if (currentQueue != null) {
+            context.putString(prefix + CURRENT_QUEUE, currentQueue);
+        }
+        context.putString(prefix + WINDOW, encodeWindow(pendingIds));
+
+        if (bind()) {
+            updated = true; // Se aplica en afterCompletion si la transacción confirma
+        } else {
+            apply();
+        }
+    }
+
+    /**
+     * Registra la sincronización de la transacción actual. Devuelve false si no hay transacción.
+     */
+    private boolean bind() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return false;
+        }
+        if (TransactionSynchronizationManager.getResource(this) != null) {
+            return true;
+        }
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(ReaderCheckpoint.this);
+                completed(status == STATUS_COMMITTED);
+            }
+        });
+        return true;
+    }
+
+    private synchronized void completed(boolean commit) {
+        if (commit && updated) {
+            apply();
+        } else if (!commit && transactionalQueue) {
+            pending.clear();
+            pendingIds.clear();
+        }
+        updated = false;
+    }
+
+    private void apply() {
+        pending.forEach((queue, delta) -> {
+            Progress progress = committed.computeIfAbsent(queue, key -> new Progress());
+            progress.read += delta.read;
+            progress.lastMessageId = delta.lastMessageId;
+        });
+        Set<Long> committedWindow = new HashSet<>(pendingIds.size() * 2);
+        for (String messageId : pendingIds) {
+            committedWindow.add(hash(messageId));
+        }
+        window = committedWindow;
+        pending.clear();
+        pendingIds.clear();
+    }
+
+    /**
+     * Mensajes leídos por cola en chunks confirmados
+     */
+    public synchronized Map<String, Long> counts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        committed.forEach((queue, progress) -> counts.put(queue, progress.read));
+        return counts;
+    }
+
+    public synchronized long getSkippedRedeliveries() {
+        return skippedRedeliveries;
+    }
+
+    private String key(String queue, String field) {
+        return prefix + queue + "." + field;
+    }
+
+    private static String encodeWindow(List<String> messageIds) {
+        ByteBuffer buffer = ByteBuffer.allocate(messageIds.size() * Long.BYTES);
+        for (String messageId : messageIds) {
+            buffer.putLong(hash(messageId));
+        }
+        return Base64.getEncoder().encodeToString(buffer.array());
+    }
+
+    private static Set<Long> decodeWindow(String encoded) {
+        ByteBuffer buffer = ByteBuffer.wrap(Base64.getDecoder().decode(encoded));
+        Set<Long> hashes = new HashSet<>(buffer.remaining() / Long.BYTES * 2);
+        while (buffer.remaining() >= Long.BYTES) {
+            hashes.add(buffer.getLong());
+        }
+        return hashes;
+    }
+
+    /**
+     * FNV-1a de 64 bits: ~8 bytes por mensaje en el contexto en lugar del ID completo
+     */
+    static long hash(String messageId) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < messageId.length(); i++) {
+            hash ^= messageId.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static final class Progress {
+
+        private long read;
+        private String lastMessageId;
+    }
+}
@@ -0,0 +1,509 @@
+package com.policia.batch.service;
+
+import com.policia.batch.exception.InvalidDataException;
+import com.policia.batch.metrics.PoliciaMetrics;
+import com.policia.batch.metrics.PoliciaMetrics.Stage;
+import com.policia.batch.model.PoliciaData;
+import com.policia.batch.model.QueueMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodifica los cinco campos de PoliciaData directamente desde el payload en bytes.
+ *
+ * Los prefijos no válidos, el BOM y los espacios se saltan moviendo el offset, sin copiar el buffer.
+ * La ruta rápida acepta el formato canónico (declaración XML UTF-8 opcional, raíz sin atributos,
+ * hijos conocidos con texto plano); cualquier otra construcción (entidades, CDATA, comentarios,
+ * DOCTYPE, otra codificación...) se delega al parser StAX sobre el mismo buffer, que conserva
+ * las garantías de seguridad y el diagnóstico con línea y columna.
+ * Un mensaje grande (payload en disco) va directo al parser StAX leyendo el archivo.
+ */
+@Component
+public class PoliciaByteDecoder {
+
+    private static final Logger logger = LoggerFactory.getLogger(PoliciaByteDecoder.class);
+
+    // Prefijos comunes que causan "Content is not allowed in prolog"
+    private static final String[] COMMON_PREFIXES = {
+        "Trx:", "TRX:", "MSG:", "Data:", "XML:",
+        "Response:", "Request:", "Message:"
+    };
+    private static final byte[][] COMMON_PREFIX_BYTES = ascii(COMMON_PREFIXES);
+
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+    private static final byte[] XML_DECL_START = ascii("<?xml");
+    private static final byte[] PI_END = ascii("?>");
+    private static final byte[] ROOT_OPEN = ascii("<" + PoliciaXmlParser.ROOT_ELEMENT + ">");
+    private static final byte[] ROOT_CLOSE = ascii("</" + PoliciaXmlParser.ROOT_ELEMENT + ">");
+    private static final byte[] VERSION = ascii("version");
+    private static final byte[] ENCODING = ascii("encoding");
+    private static final byte[] STANDALONE = ascii("standalone");
+
+    private static final int FIELD_ID = 0;
+    private static final int FIELD_NOMBRE = 1;
+    private static final int FIELD_RANGO = 2;
+    private static final int FIELD_UNIDAD = 3;
+    private static final int FIELD_ESTADO = 4;
+    private static final byte[][] FIELD_NAMES = ascii(new String[] {"id", "nombre", "rango", "unidad", "estado"});
+
+    private static final int NOT_CANONICAL = -1;
+
+    private final PoliciaXmlParser xmlParser;
+    private final PoliciaMetrics metrics;
+
+    @Autowired
+    public PoliciaByteDecoder(PoliciaXmlParser xmlParser, PoliciaMetrics metrics) {
+        this.xmlParser = xmlParser;
+        this.metrics = metrics;
+    }
+
+    public PoliciaData decode(byte[] payload) {
+        return decode(payload, 0, payload.length);
+    }
+
+    /**
+     * Decodifica el payload del mensaje; si está en disco lo parsea como stream con memoria acotada
+     */
+    public PoliciaData decode(QueueMessage message) {
+        if (!message.isSpilled()) {
+            byte[] payload = message.getPayload();
+            return decode(payload, 0, payload.length, message.isText());
+        }
+
+        long stageStart = metrics.start();
+        try (InputStream content = openContent(message)) {
+            metrics.stage(Stage.CLEAN, stageStart);
+
+            stageStart = metrics.start();
+            PoliciaData policiaData = message.isText()
+                    ? xmlParser.parse(new InputStreamReader(content, StandardCharsets.UTF_8), message.getHandle())
+                    : xmlParser.parse(content, message.getHandle());
+            metrics.stage(Stage.PARSE, stageStart);
+            return policiaData;
+        } catch (IOException e) {
+            throw new InvalidDataException("Error leyendo el " + message.getHandle() + ": " + e.getMessage(),
+                                           message.getHandle(), e);
+        }
+    }
+
+    /**
+     * Payload del mensaje desde el inicio del XML (ver contentStart). Los prefijos se buscan en el
+     * inicio del payload, que es lo único en memoria de un mensaje grande.
+     */
+    public InputStream openContent(QueueMessage message) throws IOException {
+        byte[] head = message.getHead();
+        int start = contentStart(head, 0, head.length);
+        if (!message.isSpilled()) {
+            return new ByteArrayInputStream(head, start, head.length - start);
+        }
+        InputStream content = message.openStream();
+        content.skipNBytes(start);
+        return content;
+    }
+
+    /**
+     * Decodifica el PoliciaData contenido en payload[offset, offset + length)
+     */
+    public PoliciaData decode(byte[] payload, int offset, int length) {
+        return decode(payload, offset, length, false);
+    }
+
+    /**
+     * Igual que {@link #decode(byte[], int, int)}; con text el payload es el texto de un TextMessage
+     * en UTF-8 y el parser StAX lo lee como texto, sin aplicar la codificación declarada
+     */
+    public PoliciaData decode(byte[] payload, int offset, int length, boolean text) {
+        long stageStart = metrics.start();
+        int end = trimEnd(payload, offset, offset + length);
+        int start = contentStart(payload, offset, end);
+        metrics.stage(Stage.CLEAN, stageStart);
+
+        stageStart = metrics.start();
+        PoliciaData policiaData = decodeCanonical(payload, start, end);
+        if (policiaData == null) {
+            logger.debug("Payload fuera del formato canónico, se usa el parser StAX");
+            metrics.parseFallback();
+            policiaData = text
+                          ? xmlParser.parseText(payload, start, end - start)
+                          : xmlParser.parse(payload, start, end - start);
+        }
+        metrics.stage(Stage.PARSE, stageStart);
+        return policiaData;
+    }
+
+    /**
+     * Offset donde comienza el XML: ignora espacios, prefijos conocidos, BOM y contenido antes del primer '<'
+     */
+    public int contentStart(byte[] b, int offset, int end) {
+        int pos = skipTrimmable(b, offset, end);
+
+        for (int i = 0; i < COMMON_PREFIX_BYTES.length; i++) {
+            if (startsWith(b, pos, end, COMMON_PREFIX_BYTES[i])) {
+                logger.warn("Removiendo prefijo no válido: '{}'", COMMON_PREFIXES[i]);
+                pos = skipTrimmable(b, pos + COMMON_PREFIX_BYTES[i].length, end);
+                break;
+            }
+        }
+
+        // Remover BOM (Byte Order Mark) si existe
+        if (startsWith(b, pos, end, UTF8_BOM)) {
+            logger.warn("Removiendo BOM (Byte Order Mark)");
+            pos += UTF8_BOM.length;
+        }
+
+        // Verificar que comience con '<' (inicio válido de XML)
+        if (pos < end && b[pos] != '<') {
+            int xmlStart = indexOf(b, pos, end, (byte) '<');
+            if (xmlStart > pos) {
+                logger.warn("Removiendo {} bytes antes del XML válido", xmlStart - pos);
+                pos = xmlStart;
+            }
+        }
+
+        return pos;
+    }
+
+    /**
+     * Ruta rápida: devuelve null si el documento no está en el formato canónico
+     */
+    private PoliciaData decodeCanonical(byte[] b, int start, int end) {
+        int pos = skipXmlDeclaration(b, start, end);
+        if (pos == NOT_CANONICAL) {
+            return null;
+        }
+
+        pos = skipXmlSpace(b, pos, end);
+        if (!startsWith(b, pos, end, ROOT_OPEN)) {
+            return null;
+        }
+        pos += ROOT_OPEN.length;
+
+        PoliciaData policiaData = new PoliciaData();
+        while (true) {
+            pos = skipXmlSpace(b, pos, end);
+
+            if (startsWith(b, pos, end, ROOT_CLOSE)) {
+                pos += ROOT_CLOSE.length;
+                break;
+            }
+
+            if (pos >= end || b[pos] != '<') {
+                return null;
+            }
+
+            int field = matchFieldOpen(b, pos + 1, end);
+            if (field == NOT_CANONICAL) {
+                return null;
+            }
+
+            byte[] name = FIELD_NAMES[field];
+            int textStart = pos + name.length + 2;
+            int textEnd = scanText(b, textStart, end);
+            if (textEnd == NOT_CANONICAL || !matchFieldClose(b, textEnd, end, name)) {
+                return null;
+            }
+
+            String value = decodeText(b, textStart, textEnd);
+            if (value == null) {
+                return null;
+            }
+            setField(policiaData, field, value);
+
+            pos = textEnd + name.length + 3;
+        }
+
+        return skipXmlSpace(b, pos, end) == end ? policiaData : null;
+    }
+
+    /**
+     * Salta la declaración XML si existe. Solo se acepta versión 1.0 y codificación UTF-8
+     */
+    private int skipXmlDeclaration(byte[] b, int pos, int end) {
+        if (!startsWith(b, pos, end, XML_DECL_START)) {
+            // Otras instrucciones de procesamiento o comentarios los resuelve el parser StAX
+            return pos + 1 < end && b[pos] == '<' && (b[pos + 1] == '?' || b[pos + 1] == '!') ? NOT_CANONICAL : pos;
+        }
+
+        int p = pos + XML_DECL_START.length;
+        if (p >= end || !isXmlSpace(b[p])) {
+            return NOT_CANONICAL;
+        }
+
+        int attribute = 0; // 0 = version, 1 = encoding, 2 = standalone
+        while (true) {
+            boolean separated = p < end && isXmlSpace(b[p]);
+            p = skipXmlSpace(b, p, end);
+
+            if (startsWith(b, p, end, PI_END)) {
+                return attribute > 0 ? p + PI_END.length : NOT_CANONICAL;
+            }
+            if (!separated) {
+                return NOT_CANONICAL;
+            }
+
+            byte[] name;
+            if (attribute == 0 && startsWith(b, p, end, VERSION)) {
+                name = VERSION;
+            } else if (attribute == 1 && startsWith(b, p, end, ENCODING)) {
+                name = ENCODING;
+            } else if (attribute <= 2 && attribute > 0 && startsWith(b, p, end, STANDALONE)) {
+                name = STANDALONE;
+            } else {
+                return NOT_CANONICAL;
+            }
+
+            p = skipXmlSpace(b, p + name.length, end);
+            if (p >= end || b[p] != '=') {
+                return NOT_CANONICAL;
+            }
+            p = skipXmlSpace(b, p + 1, end);
+            if (p >= end || (b[p] != '"' && b[p] != '\'')) {
+                return NOT_CANONICAL;
+            }
+            byte quote = b[p];
+            int valueStart = p + 1;
+            int valueEnd = indexOf(b, valueStart, end, quote);
+            if (valueEnd < 0) {
+                return NOT_CANONICAL;
+            }
+
+            if (name == VERSION && !equalsExact(b, valueStart, valueEnd, "1.0")) {
+                return NOT_CANONICAL;
+            }
+            if (name == ENCODING && !equalsAscii(b, valueStart, valueEnd, "UTF-8")) {
+                return NOT_CANONICAL;
+            }
+            // A diferencia del nombre de la codificación, standalone solo admite "yes" o "no" en minúsculas
+            if (name == STANDALONE && !equalsExact(b, valueStart, valueEnd, "yes")
+                    && !equalsExact(b, valueStart, valueEnd, "no")) {
+                return NOT_CANONICAL;
+            }
+
+            attribute = name == VERSION ? 1 : name == ENCODING ? 2 : 3;
+            p = valueEnd + 1;
+        }
+    }
+
+    /**
+     * Reconoce "<campo>" para los campos conocidos de PoliciaData
+     */
+    private int matchFieldOpen(byte[] b, int pos, int end) {
+        for (int field = 0; field < FIELD_NAMES.length; field++) {
+            byte[] name = FIELD_NAMES[field];
+            if (startsWith(b, pos, end, name) && pos + name.length < end && b[pos + name.length] == '>') {
+                return field;
+            }
+        }
+        return NOT_CANONICAL;
+    }
+
+    private boolean matchFieldClose(byte[] b, int pos, int end, byte[] name) {
+        int closeEnd = pos + name.length + 3;
+        return closeEnd <= end
+                && b[pos] == '<' && b[pos + 1] == '/'
+                && startsWith(b, pos + 2, end, name)
+                && b[pos + 2 + name.length] == '>';
+    }
+
+    /**
+     * Recorre el texto de un campo hasta el siguiente '<'. Devuelve NOT_CANONICAL ante referencias
+     * de entidad, retornos de carro (el parser los normaliza), caracteres de control o "]]>"
+     */
+    private int scanText(byte[] b, int pos, int end) {
+        for (int i = pos; i < end; i++) {
+            byte c = b[i];
+            if (c == '<') {
+                return i;
+            }
+            if (c == '&' || c == '\r') {
+                return NOT_CANONICAL;
+            }
+            if (c >= 0 && c < 0x20 && c != '\t' && c != '\n') {
+                return NOT_CANONICAL;
+            }
+            if (c == '>' && i - pos >= 2 && b[i - 1] == ']' && b[i - 2] == ']') {
+                return NOT_CANONICAL;
+            }
+        }
+        return NOT_CANONICAL;
+    }
+
+    /**
+     * Decodifica el texto como UTF-8; devuelve null si la secuencia de bytes no es UTF-8 válido
+     */
+    private String decodeText(byte[] b, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (b[i] < 0) {
+                if (!isValidUtf8(b, i, end)) {
+                    return null;
+                }
+                break;
+            }
+        }
+        return new String(b, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    static boolean isValidUtf8(byte[] b, int pos, int end) {
+        int i = pos;
+        while (i < end) {
+            int c = b[i] & 0xFF;
+            int continuation;
+            int min = 0x80;
+            int max = 0xBF;
+
+            if (c < 0x80) {
+                i++;
+                continue;
+            } else if (c >= 0xC2 && c <= 0xDF) {
+                continuation = 1;
+            } else if (c >= 0xE0 && c <= 0xEF) {
+                continuation = 2;
+                if (c == 0xE0) {
+                    min = 0xA0;
+                } else if (c == 0xED) {
+                    max = 0x9F; // sin surrogates
+                }
+            } else if (c >= 0xF0 && c <= 0xF4) {
+                continuation = 3;
+                if (c == 0xF0) {
+                    min = 0x90;
+                } else if (c == 0xF4) {
+                    max = 0x8F;
+                }
+            } else {
+                return false;
+            }
+
+            if (i + continuation >= end) {
+                return false;
+            }
+            for (int k = 1; k <= continuation; k++) {
+                int cc = b[i + k] & 0xFF;
+                int lo = k == 1 ? min : 0x80;
+                int hi = k == 1 ? max : 0xBF;
+                if (cc < lo || cc > hi) {
+                    return false;
+                }
+            }
+            // U+FFFE y U+FFFF no son caracteres XML válidos
+            if (c == 0xEF && (b[i + 1] & 0xFF) == 0xBF && ((b[i + 2] & 0xFF) == 0xBE || (b[i + 2] & 0xFF) == 0xBF)) {
+                return false;
+            }
+            i += continuation + 1;
+        }
+        return true;
+    }
+
+    private void setField(PoliciaData policiaData, int field, String value) {
+        switch (field) {
+            case FIELD_ID:
+                policiaData.setId(value);
+                break;
+            case FIELD_NOMBRE:
+                policiaData.setNombre(value);
+                break;
+            case FIELD_RANGO:
+                policiaData.setRango(value);
+                break;
+            case FIELD_UNIDAD:
+                policiaData.setUnidad(value);
+                break;
+            case FIELD_ESTADO:
+                policiaData.setEstado(value);
+                break;
+            default:
+                throw new IllegalArgumentException("Campo desconocido: " + field);
+        }
+    }
+
+    // Equivalente a String.trim(): caracteres <= ' '
+    private static int skipTrimmable(byte[] b, int pos, int end) {
+        while (pos < end && b[pos] >= 0 && b[pos] <= ' ') {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int trimEnd(byte[] b, int start, int end) {
+        while (end > start && b[end - 1] >= 0 && b[end - 1] <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private static int skipXmlSpace(byte[] b, int pos, int end) {
+        while (pos < end && isXmlSpace(b[pos])) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static boolean isXmlSpace(byte c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    private static boolean startsWith(byte[] b, int pos, int end, byte[] prefix) {
+        if (end - pos < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (b[pos + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equalsAscii(byte[] b, int start, int end, String expected) {
+        if (end - start != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (Character.toUpperCase((char) b[start + i]) != Character.toUpperCase(expected.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equalsExact(byte[] b, int start, int end, String expected) {
+        if (end - start != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (b[start + i] != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] b, int pos, int end, byte value) {
+        for (int i = pos; i < end; i++) {
+            if (b[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[][] ascii(String[] values) {
+        byte[][] result = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = ascii(values[i]);
+        }
+        return result;
+    }
+}
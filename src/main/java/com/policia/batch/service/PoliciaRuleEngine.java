@@ -0,0 +1,219 @@
+package com.policia.batch.service;
+
+import com.policia.batch.exception.InvalidDataException;
+import com.policia.batch.model.PoliciaData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Reglas de negocio de PoliciaData compiladas una sola vez al inicio.
+ *
+ * Las restricciones @NotBlank/@NotNull se leen de las anotaciones del modelo, y el formato del ID
+ * y los rangos válidos vienen de configuración (validation.*). La evaluación por mensaje no usa
+ * regex, reflexión ni asignaciones de memoria cuando el registro es válido.
+ */
+@Component
+public class PoliciaRuleEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(PoliciaRuleEngine.class);
+
+    // Accesores directos para evitar reflexión al evaluar cada mensaje
+    private static final Map<String, Function<PoliciaData, String>> ACCESSORS = new LinkedHashMap<>();
+
+    static {
+        ACCESSORS.put("id", PoliciaData::getId);
+        ACCESSORS.put("nombre", PoliciaData::getNombre);
+        ACCESSORS.put("rango", PoliciaData::getRango);
+        ACCESSORS.put("unidad", PoliciaData::getUnidad);
+        ACCESSORS.put("estado", PoliciaData::getEstado);
+    }
+
+    private final FieldRule[] fieldRules;
+    private final String idPrefix;
+    private final int idDigits;
+    private final String[] rangosValidos;
+    private final String rangosValidosText;
+
+    @Autowired
+    public PoliciaRuleEngine(@Value("${validation.id.prefix:POL}") String idPrefix,
+                             @Value("${validation.id.digits:6}") int idDigits,
+                             @Value("${validation.rangos:AGENTE,CABO,SARGENTO,TENIENTE,CAPITAN,MAYOR,CORONEL}")
+                             String[] rangosValidos) {
+        this.idPrefix = idPrefix;
+        this.idDigits = idDigits;
+        this.rangosValidos = normalize(rangosValidos);
+        this.rangosValidosText = String.join(", ", this.rangosValidos);
+        this.fieldRules = compileFieldRules();
+
+        logger.info("Reglas de validación compiladas: {} restricciones de campo, ID {} + {} dígitos, rangos [{}]",
+                    fieldRules.length, idPrefix, idDigits, rangosValidosText);
+    }
+
+    /**
+     * Evalúa todas las reglas; lanza InvalidDataException con el detalle si alguna falla.
+     * invalidData solo se invoca para construir la excepción.
+     */
+    public void validate(PoliciaData policiaData, Supplier<String> invalidData) {
+        // Restricciones de campo (@NotBlank / @NotNull)
+        List<String> violations = null;
+        for (FieldRule rule : fieldRules) {
+            if (rule.isViolatedBy(policiaData)) {
+                if (violations == null) {
+                    violations = new ArrayList<>(fieldRules.length);
+                }
+                violations.add(String.format("[%s: %s] ", rule.field, rule.message));
+            }
+        }
+
+        if (violations != null) {
+            String errorMessage = "Errores de validación de datos: " + String.join("", violations);
+            logger.error("Datos inválidos encontrados: {}", errorMessage);
+            throw new InvalidDataException(errorMessage, invalidData.get());
+        }
+
+        // Validar formato del ID
+        String id = policiaData.getId();
+        if (id != null && !isValidId(id)) {
+            String errorMessage = "ID de policía debe tener formato " + idPrefix + " seguido de " + idDigits +
+                                  " dígitos: " + id;
+            logger.error(errorMessage);
+            throw new InvalidDataException(errorMessage, invalidData.get());
+        }
+
+        // Validar rangos válidos
+        if (canonicalRango(policiaData.getRango()) == null) {
+            String errorMessage = "Rango inválido: " + policiaData.getRango() +
+                                  ". Rangos válidos: " + rangosValidosText;
+            logger.error(errorMessage);
+            throw new InvalidDataException(errorMessage, invalidData.get());
+        }
+    }
+
+    /**
+     * Verifica el formato prefijo + N dígitos ASCII sin usar expresiones regulares
+     */
+    public boolean isValidId(String id) {
+        if (id.length() != idPrefix.length() + idDigits || !id.startsWith(idPrefix)) {
+            return false;
+        }
+        for (int i = idPrefix.length(); i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Devuelve la instancia configurada (en mayúsculas) del rango, o null si no es válido.
+     * Permite normalizar sin crear un String nuevo con toUpperCase().
+     */
+    public String canonicalRango(String rango) {
+        if (rango == null) {
+            return null;
+        }
+        for (String valid : rangosValidos) {
+            if (valid.equalsIgnoreCase(rango)) {
+                return valid;
+            }
+        }
+        return null;
+    }
+
+    public String getIdPrefix() {
+        return idPrefix;
+    }
+
+    public int getIdDigits() {
+        return idDigits;
+    }
+
+    public String[] getRangosValidos() {
+        return rangosValidos.clone();
+    }
+
+    private static String[] normalize(String[] values) {
+        List<String> normalized = new ArrayList<>();
+        for (String value : values) {
+            String trimmed = value.trim().toUpperCase(Locale.ROOT);
+            if (!trimmed.isEmpty() && !normalized.contains(trimmed)) {
+                normalized.add(trimmed);
+            }
+        }
+        return normalized.toArray(new String[0]);
+    }
+
+    /**
+     * Lee una sola vez las anotaciones de Bean Validation de PoliciaData
+     */
+    private static FieldRule[] compileFieldRules() {
+        List<FieldRule> rules = new ArrayList<>();
+        for (Field field : PoliciaData.class.getDeclaredFields()) {
+            Function<PoliciaData, String> accessor = ACCESSORS.get(field.getName());
+            if (accessor == null) {
+                continue;
+            }
+
+            NotBlank notBlank = field.getAnnotation(NotBlank.class);
+            if (notBlank != null) {
+                rules.add(new FieldRule(field.getName(), accessor, true, notBlank.message()));
+                continue;
+            }
+
+            NotNull notNull = field.getAnnotation(NotNull.class);
+            if (notNull != null) {
+                rules.add(new FieldRule(field.getName(), accessor, false, notNull.message()));
+            }
+        }
+        return rules.toArray(new FieldRule[0]);
+    }
+
+    /**
+     * Restricción de campo compilada: no nulo, y opcionalmente no vacío
+     */
+    private static final class FieldRule {
+
+        private final String field;
+        private final Function<PoliciaData, String> accessor;
+        private final boolean notBlank;
+        private final String message;
+
+        private FieldRule(String field, Function<PoliciaData, String> accessor, boolean notBlank, String message) {
+            this.field = field;
+            this.accessor = accessor;
+            this.notBlank = notBlank;
+            this.message = message;
+        }
+
+        private boolean isViolatedBy(PoliciaData policiaData) {
+            String value = accessor.apply(policiaData);
+            if (value == null) {
+                return true;
+            }
+            if (!notBlank) {
+                return false;
+            }
+            for (int i = 0; i < value.length(); i++) {
+                if (value.charAt(i) > ' ') { // mismo criterio que String.trim()
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.policia.batch.service;
+
+import com.policia.batch.exception.InvalidDataException;
+import com.policia.batch.model.PoliciaData;
+import com.policia.batch.model.PoliciaRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Vocabularios de los campos de baja cardinalidad y conversión entre PoliciaData y PoliciaRecord.
+ *
+ * Los rangos son los configurados en validation.rangos; unidades y estados se agregan a medida que
+ * aparecen, hasta vocabulary.max-size valores cada uno. La conversión a PoliciaRecord se hace al
+ * salir del processor y la inversa solo en los bordes (writers, logs), de modo que los registros
+ * en vuelo no duplican los textos repetidos.
+ */
+@Component
+public class PoliciaVocabulary {
+
+    private static final Logger logger = LoggerFactory.getLogger(PoliciaVocabulary.class);
+
+    private final PoliciaRuleEngine ruleEngine;
+    private final String[] rangos;
+    private final Dictionary unidades;
+    private final Dictionary estados;
+
+    @Autowired
+    public PoliciaVocabulary(PoliciaRuleEngine ruleEngine,
+                             @Value("${vocabulary.max-size:4096}") int maxSize) {
+        if (maxSize < 1 || maxSize > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("vocabulary.max-size debe estar entre 1 y " + Short.MAX_VALUE);
+        }
+        if (ruleEngine.getIdDigits() > 9) {
+            throw new IllegalArgumentException("El ID se representa como int: validation.id.digits debe ser <= 9");
+        }
+        this.ruleEngine = ruleEngine;
+        this.rangos = ruleEngine.getRangosValidos();
+        this.unidades = new Dictionary("unidad", maxSize);
+        this.estados = new Dictionary("estado", maxSize);
+    }
+
+    /**
+     * Convierte un registro validado a su forma compacta
+     */
+    public PoliciaRecord encode(PoliciaData policiaData) {
+        String unidad = policiaData.getUnidad();
+        String estado = policiaData.getEstado();
+        short unidadCode = unidades.code(unidad);
+        short estadoCode = estados.code(estado);
+
+        return new PoliciaRecord(idNumber(policiaData), policiaData.getNombre(), rangoCode(policiaData),
+                                 unidadCode, estadoCode,
+                                 unidadCode == PoliciaRecord.NO_CODE ? unidad : null,
+                                 estadoCode == PoliciaRecord.NO_CODE ? estado : null);
+    }
+
+    /**
+     * Reconstruye el PoliciaData original (para consumidores que esperan el modelo JAXB)
+     */
+    public PoliciaData decode(PoliciaRecord record) {
+        return new PoliciaData(id(record), record.getNombre(), rango(record), unidad(record), estado(record));
+    }
+
+    public String id(PoliciaRecord record) {
+        String number = Integer.toString(record.getIdNumber());
+        StringBuilder id = new StringBuilder(ruleEngine.getIdPrefix().length() + ruleEngine.getIdDigits());
+        id.append(ruleEngine.getIdPrefix());
+        for (int i = number.length(); i < ruleEngine.getIdDigits(); i++) {
+            id.append('0');
+        }
+        return id.append(number).toString();
+    }
+
+    public String rango(PoliciaRecord record) {
+        return rangos[record.getRangoCode()];
+    }
+
+    public String unidad(PoliciaRecord record) {
+        return record.getUnidadCode() != PoliciaRecord.NO_CODE
+                ? unidades.value(record.getUnidadCode())
+                : record.getUnidadText();
+    }
+
+    public String estado(PoliciaRecord record) {
+        return record.getEstadoCode() != PoliciaRecord.NO_CODE
+                ? estados.value(record.getEstadoCode())
+                : record.getEstadoText();
+    }
+
+    public int getUnidadCount() {
+        return unidades.size();
+    }
+
+    public int getEstadoCount() {
+        return estados.size();
+    }
+
+    private int idNumber(PoliciaData policiaData) {
+        String id = policiaData.getId();
+        if (id == null || !ruleEngine.isValidId(id)) {
+            throw new InvalidDataException("ID de policía no válido para el registro compacto: " + id,
+                                           String.valueOf(policiaData));
+        }
+        int value = 0;
+        for (int i = ruleEngine.getIdPrefix().length(); i < id.length(); i++) {
+            value = value * 10 + (id.charAt(i) - '0');
+        }
+        return value;
+    }
+
+    private short rangoCode(PoliciaData policiaData) {
+        String canonical = ruleEngine.canonicalRango(policiaData.getRango());
+        for (short i = 0; i < rangos.length; i++) {
+            if (rangos[i] == canonical) { // canonicalRango devuelve la instancia configurada
+                return i;
+            }
+        }
+        throw new InvalidDataException("Rango inválido: " + policiaData.getRango(), String.valueOf(policiaData));
+    }
+
+    /**
+     * Vocabulario abierto y acotado. La búsqueda no bloquea; los valores nuevos se agregan con
+     * copy-on-write porque son raros después de los primeros mensajes.
+     */
+    private static final class Dictionary {
+
+        private final String field;
+        private final int maxSize;
+        private final Map<String, Short> codes = new ConcurrentHashMap<>();
+        private volatile String[] values = new String[0];
+        private boolean overflowLogged;
+
+        private Dictionary(String field, int maxSize) {
+            this.field = field;
+            this.maxSize = maxSize;
+        }
+
+        short code(String value) {
+            if (value == null) {
+                return PoliciaRecord.NO_CODE;
+            }
+            Short code = codes.get(value);
+            return code != null ? code : add(value);
+        }
+
+        private synchronized short add(String value) {
+            Short code = codes.get(value);
+            if (code != null) {
+                return code;
+            }
+            String[] current = values;
+            if (current.length >= maxSize) {
+                if (!overflowLogged) {
+                    logger.warn("Vocabulario de {} lleno ({} valores): los valores nuevos se guardan como texto",
+                                field, maxSize);
+                    overflowLogged = true;
+                }
+                return PoliciaRecord.NO_CODE;
+            }
+            String[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = value;
+            values = updated;
+            codes.put(value, (short) current.length);
+            return (short) current.length;
+        }
+
+        String value(short code) {
+            return values[code];
+        }
+
+        int size() {
+            return values.length;
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.policia.batch.service;
+
+import com.policia.batch.exception.MalformedXmlException;
+import com.policia.batch.model.PoliciaData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+
+/**
+ * Parser StAX de una sola pasada: verifica que el XML esté bien formado
+ * y construye el PoliciaData en el mismo recorrido del documento.
+ */
+@Component
+public class PoliciaXmlParser {
+
+    private static final Logger logger = LoggerFactory.getLogger(PoliciaXmlParser.class);
+
+    public static final String ROOT_ELEMENT = "policia-data";
+
+    // Las fábricas StAX no garantizan ser thread-safe: una por hilo, configurada una sola vez
+    private static final ThreadLocal<XMLInputFactory> INPUT_FACTORY =
+            ThreadLocal.withInitial(PoliciaXmlParser::createSecureInputFactory);
+
+    /**
+     * Crea una fábrica StAX sin soporte de DTD ni entidades externas
+     */
+    public static XMLInputFactory createSecureInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        try {
+            factory.setProperty(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+        } catch (IllegalArgumentException e) {
+            logger.debug("Implementación StAX no soporta {}", XMLConstants.ACCESS_EXTERNAL_DTD);
+        }
+        return factory;
+    }
+
+    /**
+     * Parsea el XML completo y construye el PoliciaData
+     */
+    public PoliciaData parse(String xmlContent) {
+        return parse(new StringReader(xmlContent), () -> xmlContent);
+    }
+
+    /**
+     * Parsea el XML directamente desde el buffer de bytes; la codificación se detecta
+     * a partir de la declaración XML y el texto solo se materializa si hay un error
+     */
+    public PoliciaData parse(byte[] payload, int offset, int length) {
+        Supplier<String> xmlContent = () -> new String(payload, offset, length, StandardCharsets.UTF_8);
+        try {
+            return parse(INPUT_FACTORY.get().createXMLStreamReader(new ByteArrayInputStream(payload, offset, length)),
+                         xmlContent);
+        } catch (XMLStreamException e) {
+            throw malformed(e.getMessage(), e.getLocation(), xmlContent, e);
+        }
+    }
+
+    /**
+     * Parsea un payload que ya es texto (TextMessage codificado en UTF-8) con un Reader: la
+     * codificación declarada en el XML no se aplica, igual que al parsear el String original
+     */
+    public PoliciaData parseText(byte[] payload, int offset, int length) {
+        return parse(new InputStreamReader(new ByteArrayInputStream(payload, offset, length), StandardCharsets.UTF_8),
+                     () -> new String(payload, offset, length, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parsea el XML leído como stream (mensajes grandes): la memoria no depende del tamaño del
+     * documento y los errores llevan el handle del mensaje en lugar de su contenido
+     */
+    public PoliciaData parse(InputStream source, String handle) {
+        Supplier<String> xmlContent = new PayloadHandle(handle);
+        try {
+            return parse(INPUT_FACTORY.get().createXMLStreamReader(source), xmlContent);
+        } catch (XMLStreamException e) {
+            throw malformed(e.getMessage(), e.getLocation(), xmlContent, e);
+        }
+    }
+
+    /**
+     * Parsea como stream el texto de un mensaje grande que llegó como TextMessage
+     */
+    public PoliciaData parse(Reader source, String handle) {
+        return parse(source, new PayloadHandle(handle));
+    }
+
+    /**
+     * Parsea el XML leído desde el Reader; xmlContent solo se usa para diagnóstico en errores
+     */
+    public PoliciaData parse(Reader source, Supplier<String> xmlContent) {
+        try {
+            return parse(INPUT_FACTORY.get().createXMLStreamReader(source), xmlContent);
+        } catch (XMLStreamException e) {
+            throw malformed(e.getMessage(), e.getLocation(), xmlContent, e);
+        }
+    }
+
+    private PoliciaData parse(XMLStreamReader reader, Supplier<String> xmlContent) {
+        try {
+            PoliciaData policiaData = null;
+
+            while (reader.hasNext()) {
+                int event = reader.next();
+
+                if (event == XMLStreamConstants.DTD) {
+                    throw malformed("DOCTYPE no permitido en el mensaje", reader.getLocation(), xmlContent);
+                }
+
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    if (policiaData != null) {
+                        throw malformed("Se encontró más de un elemento raíz", reader.getLocation(), xmlContent);
+                    }
+                    if (!ROOT_ELEMENT.equals(reader.getLocalName())) {
+                        throw malformed("Elemento raíz inesperado <" + reader.getLocalName() +
+                                        ">, se esperaba <" + ROOT_ELEMENT + ">", reader.getLocation(), xmlContent);
+                    }
+                    policiaData = readFields(reader, xmlContent);
+                }
+            }
+
+            if (policiaData == null) {
+                throw malformed("El documento no contiene el elemento <" + ROOT_ELEMENT + ">", null, xmlContent);
+            }
+
+            return policiaData;
+
+        } catch (XMLStreamException e) {
+            throw malformed(e.getMessage(), e.getLocation(), xmlContent, e);
+        } finally {
+            closeQuietly(reader);
+        }
+    }
+
+    /**
+     * Lee los elementos hijos de policia-data hasta su etiqueta de cierre
+     */
+    private PoliciaData readFields(XMLStreamReader reader, Supplier<String> xmlContent) throws XMLStreamException {
+        PoliciaData policiaData = new PoliciaData();
+
+        while (reader.hasNext()) {
+            int event = reader.next();
+
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                return policiaData;
+            }
+
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                String field = reader.getLocalName();
+                switch (field) {
+                    case "id":
+                        policiaData.setId(reader.getElementText());
+                        break;
+                    case "nombre":
+                        policiaData.setNombre(reader.getElementText());
+                        break;
+                    case "rango":
+                        policiaData.setRango(reader.getElementText());
+                        break;
+                    case "unidad":
+                        policiaData.setUnidad(reader.getElementText());
+                        break;
+                    case "estado":
+                        policiaData.setEstado(reader.getElementText());
+                        break;
+                    default:
+                        // Campos que el modelo no conoce se ignoran, con todo su contenido
+                        skipElement(reader);
+                }
+            }
+        }
+
+        throw malformed("Falta la etiqueta de cierre </" + ROOT_ELEMENT + ">", reader.getLocation(), xmlContent);
+    }
+
+    /**
+     * Avanza hasta la etiqueta de cierre del elemento actual, salteando los elementos anidados
+     */
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private MalformedXmlException malformed(String message, Location location, Supplier<String> xmlContent) {
+        return malformed(message, location, xmlContent, null);
+    }
+
+    private MalformedXmlException malformed(String message, Location location, Supplier<String> xmlSource,
+                                            Throwable cause) {
+        String xmlContent = xmlSource.get();
+        String errorMessage = location != null
+                ? String.format("Error de validación XML en línea %d, columna %d: %s",
+                                location.getLineNumber(), location.getColumnNumber(), message)
+                : "Error de validación XML: " + message;
+
+        if (xmlSource instanceof PayloadHandle) {
+            logger.error("ERROR XML en {}: {}", xmlContent, errorMessage);
+        } else {
+            logger.error("ERROR XML DETALLADO: {}", analyzeXmlError(xmlContent, errorMessage, cause));
+        }
+        return cause != null
+                ? new MalformedXmlException(errorMessage, xmlContent, cause)
+                : new MalformedXmlException(errorMessage, xmlContent);
+    }
+
+    /**
+     * Analiza errores XML para proporcionar diagnóstico detallado
+     */
+    static String analyzeXmlError(String xmlContent, String errorMessage, Throwable cause) {
+        StringBuilder diagnosis = new StringBuilder();
+        diagnosis.append("DIAGNÓSTICO XML ERROR:\n");
+        diagnosis.append("- Error: ").append(errorMessage).append("\n");
+        if (cause != null) {
+            diagnosis.append("- Tipo Exception: ").append(cause.getClass().getSimpleName()).append("\n");
+        }
+        if (xmlContent == null) {
+            return diagnosis.toString();
+        }
+        diagnosis.append("- Longitud contenido: ").append(xmlContent.length()).append(" caracteres\n");
+
+        // Analizar primeros caracteres
+        if (xmlContent.length() > 0) {
+            diagnosis.append("- Primer carácter: '").append(xmlContent.charAt(0)).append("' (ASCII: ")
+                     .append((int) xmlContent.charAt(0)).append(")\n");
+
+            String first20 = xmlContent.length() > 20 ? xmlContent.substring(0, 20) : xmlContent;
+            diagnosis.append("- Primeros 20 caracteres: '").append(first20).append("'\n");
+
+            // Verificar si empieza con XML válido
+            if (!xmlContent.trim().startsWith("<")) {
+                diagnosis.append("- PROBLEMA: El contenido no empieza con '<' (no es XML válido)\n");
+                int xmlStart = xmlContent.indexOf('<');
+                if (xmlStart > 0) {
+                    diagnosis.append("- El primer '<' está en posición: ").append(xmlStart).append("\n");
+                    diagnosis.append("- Contenido antes de XML: '").append(xmlContent, 0, xmlStart).append("'\n");
+                } else {
+                    diagnosis.append("- NO SE ENCONTRÓ '<' en todo el contenido\n");
+                }
+            }
+
+            // Detectar caracteres invisibles
+            char firstChar = xmlContent.charAt(0);
+            if (Character.isISOControl(firstChar) && firstChar != '\n' && firstChar != '\r' && firstChar != '\t') {
+                diagnosis.append("- PROBLEMA: Carácter de control invisible al inicio\n");
+            }
+        }
+
+        diagnosis.append("- Contenido completo (100 primeros chars): ");
+        if (xmlContent.length() > 100) {
+            diagnosis.append(xmlContent, 0, 100).append("...");
+        } else {
+            diagnosis.append(xmlContent);
+        }
+
+        return diagnosis.toString();
+    }
+
+    /**
+     * Referencia a un mensaje grande: es lo que llevan sus excepciones, y no tiene sentido analizarla como XML
+     */
+    private static final class PayloadHandle implements Supplier<String> {
+
+        private final String handle;
+
+        PayloadHandle(String handle) {
+            this.handle = handle;
+        }
+
+        @Override
+        public String get() {
+            return handle;
+        }
+    }
+
+    private void closeQuietly(XMLStreamReader reader) {
+        if (reader == null) {
+            return;
+        }
+        try {
+            reader.close();
+        } catch (XMLStreamException e) {
+            logger.debug("Error cerrando XMLStreamReader: {}", e.getMessage());
+        }
+    }
+}
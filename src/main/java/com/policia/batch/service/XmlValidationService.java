@@ -1,22 +1,15 @@
 package com.policia.batch.service;
 
 import com.policia.batch.exception.InvalidDataException;
-import com.policia.batch.exception.MalformedXmlException;
+import com.policia.batch.metrics.PoliciaMetrics;
+import com.policia.batch.metrics.PoliciaMetrics.Stage;
 import com.policia.batch.model.PoliciaData;
+import com.policia.batch.model.QueueMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBException;
-import javax.xml.bind.Unmarshaller;
-import javax.xml.bind.ValidationEvent;
-import javax.xml.bind.ValidationEventHandler;
-import javax.xml.bind.ValidationEventLocator;
-import java.io.StringReader;
-import java.util.Set;
-import javax.validation.ConstraintViolation;
-import javax.validation.Validator;
+import java.util.function.Supplier;
 import org.springframework.beans.factory.annotation.Autowired;
 
 @Service
@@ -24,114 +17,77 @@ public class XmlValidationService {
 
     private static final Logger logger = LoggerFactory.getLogger(XmlValidationService.class);
     
-    private final JAXBContext jaxbContext;
-    private final Validator validator;
+    private final PoliciaXmlParser xmlParser;
+    private final PoliciaByteDecoder byteDecoder;
+    private final PoliciaRuleEngine ruleEngine;
+    private final PoliciaMetrics metrics;
 
     @Autowired
-    public XmlValidationService(Validator validator) throws JAXBException {
-        this.jaxbContext = JAXBContext.newInstance(PoliciaData.class);
-        this.validator = validator;
+    public XmlValidationService(PoliciaXmlParser xmlParser, PoliciaByteDecoder byteDecoder,
+                                PoliciaRuleEngine ruleEngine, PoliciaMetrics metrics) {
+        this.xmlParser = xmlParser;
+        this.byteDecoder = byteDecoder;
+        this.ruleEngine = ruleEngine;
+        this.metrics = metrics;
     }
 
     /**
-     * Valida y convierte XML a objeto PoliciaData
+     * Valida y decodifica el payload en bytes de un mensaje de la cola.
+     * El texto del mensaje solo se materializa si hay que reportar un error (de un mensaje grande, su handle).
      */
-    public PoliciaData validateAndParseXml(String xmlContent) {
+    public PoliciaData validateAndParse(QueueMessage message) {
         try {
-            logger.debug("Iniciando validación de XML");
-            
-            Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-            
-            // Configurar manejador de validación
-            unmarshaller.setEventHandler(new ValidationEventHandler() {
-                @Override
-                public boolean handleEvent(ValidationEvent event) {
-                    ValidationEventLocator locator = event.getLocator();
-                    String errorMessage = String.format(
-                        "Error de validación XML en línea %d, columna %d: %s",
-                        locator.getLineNumber(),
-                        locator.getColumnNumber(),
-                        event.getMessage()
-                    );
-                    logger.error(errorMessage);
-                    throw new MalformedXmlException(errorMessage, xmlContent);
-                }
-            });
+            PoliciaData policiaData = byteDecoder.decode(message);
             
-            // Parsear XML a objeto
-            PoliciaData policiaData = (PoliciaData) unmarshaller.unmarshal(new StringReader(xmlContent));
-            
-            // Validar anotaciones de Bean Validation
-            validateBusinessRules(policiaData, xmlContent);
-            
-            logger.info("XML validado y parseado exitosamente: ID={}, Nombre={}", 
-                       policiaData.getId(), policiaData.getNombre());
+            validateBusinessRules(policiaData, message::getText);
             
             return policiaData;
             
-        } catch (JAXBException e) {
-            String errorMessage = "Error al parsear XML: " + e.getMessage();
-            logger.error(errorMessage, e);
-            throw new MalformedXmlException(errorMessage, xmlContent, e);
         } catch (InvalidDataException e) {
-            // Re-lanzar excepciones de datos inválidos
             throw e;
         } catch (Exception e) {
             String errorMessage = "Error inesperado durante validación XML: " + e.getMessage();
             logger.error(errorMessage, e);
-            throw new InvalidDataException(errorMessage, xmlContent, e);
+            throw new InvalidDataException(errorMessage, message.getText(), e);
         }
     }
 
     /**
-     * Valida reglas de negocio usando Bean Validation
+     * Valida y convierte XML a objeto PoliciaData.
+     * El XML se recorre una sola vez: el parser verifica que esté bien formado mientras construye el objeto.
      */
-    private void validateBusinessRules(PoliciaData policiaData, String xmlContent) {
-        Set<ConstraintViolation<PoliciaData>> violations = validator.validate(policiaData);
-        
-        if (!violations.isEmpty()) {
-            StringBuilder errorMessage = new StringBuilder("Errores de validación de datos: ");
+    public PoliciaData validateAndParseXml(String xmlContent) {
+        try {
+            logger.debug("Iniciando validación de XML");
+            
+            // Parsear XML a objeto (lanza MalformedXmlException con línea y columna del error)
+            long start = metrics.start();
+            PoliciaData policiaData = xmlParser.parse(xmlContent);
+            metrics.stage(Stage.PARSE, start);
+            
+            // Validar restricciones del modelo y reglas de negocio
+            validateBusinessRules(policiaData, () -> xmlContent);
             
-            for (ConstraintViolation<PoliciaData> violation : violations) {
-                errorMessage.append(String.format("[%s: %s] ", 
-                    violation.getPropertyPath(), 
-                    violation.getMessage()));
-            }
+            logger.debug("XML validado y parseado exitosamente: ID={}", policiaData.getId());
             
-            logger.error("Datos inválidos encontrados: {}", errorMessage.toString());
-            throw new InvalidDataException(errorMessage.toString(), xmlContent);
+            return policiaData;
+            
+        } catch (InvalidDataException e) {
+            // Re-lanzar excepciones de datos inválidos (incluye MalformedXmlException)
+            throw e;
+        } catch (Exception e) {
+            String errorMessage = "Error inesperado durante validación XML: " + e.getMessage();
+            logger.error(errorMessage, e);
+            throw new InvalidDataException(errorMessage, xmlContent, e);
         }
-        
-        // Validaciones adicionales de negocio
-        validateAdditionalBusinessRules(policiaData, xmlContent);
     }
-    
+
     /**
-     * Validaciones adicionales específicas del dominio
+     * Valida reglas de negocio con el motor de reglas precompilado
      */
-    private void validateAdditionalBusinessRules(PoliciaData policiaData, String xmlContent) {
-        // Validar formato del ID
-        if (policiaData.getId() != null && !policiaData.getId().matches("^POL\\d{6}$")) {
-            String errorMessage = "ID de policía debe tener formato POL seguido de 6 dígitos: " + policiaData.getId();
-            logger.error(errorMessage);
-            throw new InvalidDataException(errorMessage, xmlContent);
-        }
-        
-        // Validar rangos válidos
-        String[] rangosValidos = {"AGENTE", "CABO", "SARGENTO", "TENIENTE", "CAPITAN", "MAYOR", "CORONEL"};
-        boolean rangoValido = false;
-        for (String rango : rangosValidos) {
-            if (rango.equalsIgnoreCase(policiaData.getRango())) {
-                rangoValido = true;
-                break;
-            }
-        }
-        
-        if (!rangoValido) {
-            String errorMessage = "Rango inválido: " + policiaData.getRango() + 
-                                ". Rangos válidos: " + String.join(", ", rangosValidos);
-            logger.error(errorMessage);
-            throw new InvalidDataException(errorMessage, xmlContent);
-        }
+    private void validateBusinessRules(PoliciaData policiaData, Supplier<String> xmlContent) {
+        long start = metrics.start();
+        ruleEngine.validate(policiaData, xmlContent);
+        metrics.stage(Stage.VALIDATE, start);
     }
 }
@@ -0,0 +1,459 @@
+package com.policia.batch.streaming;
+
+import com.policia.batch.archive.MessageArchive;
+import com.policia.batch.audit.AuditJournal;
+import com.policia.batch.dedup.PoliciaDedupFilter;
+import com.policia.batch.exception.InvalidDataException;
+import com.policia.batch.export.PoliciaSegmentWriter;
+import com.policia.batch.metrics.MetricsExporter;
+import com.policia.batch.metrics.PoliciaMetrics;
+import com.policia.batch.model.PoliciaRecord;
+import com.policia.batch.model.QueueMessage;
+import com.policia.batch.payload.PayloadTypeRegistry;
+import com.policia.batch.processor.PoliciaDataProcessor;
+import com.policia.batch.quarantine.QuarantineService;
+import com.policia.batch.reader.LargeMessageStore;
+import com.policia.batch.reader.QueueStats;
+import com.policia.batch.writer.PoliciaDataWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Modo de ingesta continua: consumidores dirigidos por mensajes que empujan cada micro-batch por
+ * el mismo pipeline del job (deduplicación, PoliciaDataProcessor, writer JDBC y exportación).
+ *
+ * Cada consumidor recibe en una sesión JMS transaccional hasta streaming.batch-size mensajes o
+ * hasta que pasan streaming.batch-linger-ms, los procesa y escribe en una transacción de base
+ * de datos y recién entonces confirma la sesión. Así los mensajes en vuelo nunca superan
+ * consumidores x batch-size (backpressure) y un fallo devuelve el micro-batch a la cola.
+ * Cada streaming.checkpoint.interval-ms se sincronizan los streams y se guarda el progreso.
+ *
+ * Se inicia cuando la aplicación está lista, después del job de drenado si está habilitado.
+ */
+@Component
+public class PoliciaStreamingContainer implements ApplicationListener<ApplicationReadyEvent>, DisposableBean,
+                                                  ExitCodeGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(PoliciaStreamingContainer.class);
+
+    private final ConnectionFactory connectionFactory;
+    private final PlatformTransactionManager transactionManager;
+    private final PoliciaDedupFilter dedupFilter;
+    private final PoliciaDataProcessor processor;
+    private final PoliciaDataWriter writer;
+    private final PoliciaSegmentWriter segmentWriter;
+    private final ItemWriter<Object> recordWriter;
+    private final AuditJournal auditJournal;
+    private final LargeMessageStore largeMessages;
+    private final MessageArchive archive;
+    private final QuarantineService quarantineService;
+    private final StreamingCheckpoint checkpoint;
+    private final PoliciaMetrics metrics;
+    private final MetricsExporter metricsExporter;
+
+    private final boolean enabled;
+    private final List<String> queueNames;
+    private final int consumersPerQueue;
+    private final int batchSize;
+    private final long batchLingerMillis;
+    private final long recoveryIntervalMillis;
+    private final long checkpointIntervalMillis;
+    private final boolean dedupEnabled;
+    private final boolean segmentExportEnabled;
+
+    private final Map<String, QueueStats> stats = new LinkedHashMap<>();
+    private final Map<String, AtomicReference<String>> lastCommitted = new LinkedHashMap<>();
+    private final LongAdder committedBatches = new LongAdder();
+    private final LongAdder writtenRecords = new LongAdder();
+    private final LongAdder rolledBackBatches = new LongAdder();
+
+    private final List<Thread> consumers = new ArrayList<>();
+    private final CountDownLatch terminated = new CountDownLatch(1);
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final Object connectionMonitor = new Object();
+    private ScheduledExecutorService checkpointScheduler;
+    private Connection connection;
+    private int connectionGeneration;
+    private volatile boolean running;
+
+    @Autowired
+    public PoliciaStreamingContainer(ConnectionFactory connectionFactory,
+                                     PlatformTransactionManager transactionManager,
+                                     PoliciaDedupFilter dedupFilter,
+                                     PoliciaDataProcessor processor,
+                                     PoliciaDataWriter writer,
+                                     PoliciaSegmentWriter segmentWriter,
+                                     PayloadTypeRegistry payloadTypes,
+                                     AuditJournal auditJournal,
+                                     LargeMessageStore largeMessages,
+                                     MessageArchive archive,
+                                     QuarantineService quarantineService,
+                                     PoliciaMetrics metrics,
+                                     MetricsExporter metricsExporter,
+                                     @Value("${streaming.enabled:false}") boolean enabled,
+                                     @Value("${mq.queue.rta}") String queueRta,
+                                     @Value("${mq.queue.mas}") String queueMas,
+                                     @Value("${mq.queue.additional:}") String[] additionalQueues,
+                                     @Value("${streaming.consumers-per-queue:1}") int consumersPerQueue,
+                                     @Value("${streaming.batch-size:100}") int batchSize,
+                                     @Value("${streaming.batch-linger-ms:200}") long batchLingerMillis,
+                                     @Value("${streaming.recovery-interval-ms:5000}") long recoveryIntervalMillis,
+                                     @Value("${streaming.checkpoint.interval-ms:10000}") long checkpointIntervalMillis,
+                                     @Value("${streaming.checkpoint.file:checkpoint/streaming.properties}")
+                                     String checkpointFile,
+                                     @Value("${dedup.enabled:false}") boolean dedupEnabled,
+                                     @Value("${export.segment.enabled:false}") boolean segmentExportEnabled) {
+        this.connectionFactory = connectionFactory;
+        this.transactionManager = transactionManager;
+        this.dedupFilter = dedupFilter;
+        this.processor = processor;
+        this.writer = writer;
+        this.segmentWriter = segmentWriter;
+        this.recordWriter = payloadTypes.writer(this::writePolicia);
+        this.auditJournal = auditJournal;
+        this.largeMessages = largeMessages;
+        this.archive = archive;
+        this.quarantineService = quarantineService;
+        this.checkpoint = new StreamingCheckpoint(checkpointFile);
+        this.metrics = metrics;
+        this.metricsExporter = metricsExporter;
+        this.enabled = enabled;
+        this.consumersPerQueue = consumersPerQueue;
+        this.batchSize = batchSize;
+        this.batchLingerMillis = batchLingerMillis;
+        this.recoveryIntervalMillis = recoveryIntervalMillis;
+        this.checkpointIntervalMillis = checkpointIntervalMillis;
+        this.dedupEnabled = dedupEnabled;
+        this.segmentExportEnabled = segmentExportEnabled;
+
+        List<String> queues = new ArrayList<>();
+        queues.add(queueRta);
+        queues.add(queueMas);
+        for (String queue : additionalQueues) {
+            if (!queue.trim().isEmpty() && !queues.contains(queue.trim())) {
+                queues.add(queue.trim());
+            }
+        }
+        this.queueNames = Collections.unmodifiableList(queues);
+        for (String queue : queues) {
+            stats.put(queue, new QueueStats(queue));
+            lastCommitted.put(queue, new AtomicReference<>());
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (enabled) {
+            start();
+        }
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        quarantineService.reset(); // Los umbrales de cuarentena son por ejecución
+
+        ExecutionContext context = new ExecutionContext();
+        if (dedupEnabled) {
+            dedupFilter.open(context);
+        }
+        if (segmentExportEnabled) {
+            segmentWriter.open(context);
+        }
+
+        for (String queue : queueNames) {
+            for (int i = 1; i <= consumersPerQueue; i++) {
+                Thread thread = new Thread(new StreamingConsumer(this, queue), "mq-stream-" + queue + "-" + i);
+                consumers.add(thread);
+                thread.start();
+            }
+        }
+
+        checkpointScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "streaming-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checkpointScheduler.scheduleWithFixedDelay(this::checkpoint, checkpointIntervalMillis,
+                                                   checkpointIntervalMillis, TimeUnit.MILLISECONDS);
+
+        logger.info("🚀 Streaming iniciado - colas: {}, consumidores por cola: {}, micro-batch: {} mensajes / {} ms",
+                    queueNames, consumersPerQueue, batchSize, batchLingerMillis);
+    }
+
+    /**
+     * Detiene los consumidores; los micro-batches en curso terminan antes de cerrar los streams
+     */
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+
+        for (Thread thread : consumers) {
+            try {
+                thread.join(batchLingerMillis + recoveryIntervalMillis + 30_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        consumers.clear();
+
+        checkpointScheduler.shutdownNow();
+        checkpoint();
+        closeConnection();
+
+        if (dedupEnabled) {
+            dedupFilter.close();
+        }
+        if (segmentExportEnabled) {
+            segmentWriter.close();
+        }
+
+        logger.info("Streaming detenido - micro-batches confirmados: {}, revertidos: {}, registros escritos: {}",
+                    committedBatches.sum(), rolledBackBatches.sum(), writtenRecords.sum());
+        stats.values().forEach(queueStats -> logger.info("Throughput por cola - {}", queueStats));
+        metricsExporter.dump();
+        terminated.countDown();
+    }
+
+    /**
+     * Bloquea hasta que el streaming se detiene (apagado de la aplicación o error fatal)
+     */
+    public void awaitTermination() throws InterruptedException {
+        terminated.await();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void destroy() {
+        stop();
+    }
+
+    @Override
+    public int getExitCode() {
+        // Un hueco en la exportación de segmentos también es un fallo, aunque no haya llegado otro micro-batch
+        return failure.get() != null || (segmentExportEnabled && segmentWriter.getFailure() != null) ? 1 : 0;
+    }
+
+    /**
+     * Procesa y escribe un micro-batch en una transacción de base de datos. Si falla, la
+     * transacción se revierte y la excepción se propaga para que el consumidor revierta la sesión.
+     */
+    void processBatch(String queue, List<QueueMessage> batch) throws Exception {
+        TransactionStatus transaction = transactionManager.getTransaction(new DefaultTransactionDefinition());
+        try {
+            archive.flushOnCommit();
+            List<Object> records = new ArrayList<>(batch.size());
+            for (QueueMessage message : batch) {
+                largeMessages.deleteOnCommit(message);
+                QueueMessage item = dedupEnabled ? dedupFilter.process(message) : message;
+                if (item == null) {
+                    continue;
+                }
+                Object record = processor.process(item);
+                if (record != null) {
+                    records.add(record);
+                }
+            }
+
+            if (!records.isEmpty()) {
+                recordWriter.write(records);
+            }
+            transactionManager.commit(transaction);
+            writtenRecords.add(records.size());
+
+        } catch (Exception e) {
+            if (!transaction.isCompleted()) {
+                transactionManager.rollback(transaction);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Registros de policia-data: writer JDBC y exportación; los demás tipos van a su propio writer
+     */
+    private void writePolicia(List<? extends PoliciaRecord> records) throws Exception {
+        writer.write(records);
+        if (segmentExportEnabled) {
+            segmentWriter.write(records);
+        }
+    }
+
+    void recordReceived(String queue, QueueMessage message) {
+        stats.get(queue).recordReceived(message.getLength());
+        metrics.received(queue, message.getLength());
+    }
+
+    void recordCommitted(String queue, QueueMessage last) {
+        committedBatches.increment();
+        lastCommitted.get(queue).set(last.getMessageId());
+    }
+
+    void recordRolledBack(String queue, Exception error) {
+        rolledBackBatches.increment();
+        stats.get(queue).recordError();
+        metrics.error(queue, error);
+    }
+
+    /**
+     * Error no recuperable (datos inválidos en modo stop, umbral de cuarentena): se detiene todo el streaming
+     */
+    void fail(Throwable error) {
+        if (failure.compareAndSet(null, error)) {
+            logger.error("🛑 Error fatal en streaming, deteniendo consumidores: {}", error.getMessage());
+            if (error instanceof InvalidDataException) {
+                logger.error("Datos problemáticos: {}", ((InvalidDataException) error).getInvalidData());
+            }
+            Thread stopper = new Thread(this::stop, "streaming-stop");
+            stopper.start();
+        }
+    }
+
+    /**
+     * Conexión compartida por los consumidores (cada uno con su propia sesión)
+     */
+    Connection connection() throws JMSException {
+        synchronized (connectionMonitor) {
+            if (connection == null) {
+                Connection created = connectionFactory.createConnection();
+                int generation = ++connectionGeneration;
+                created.setExceptionListener(e -> connectionFailed(generation, e));
+                created.start();
+                connection = created;
+                logger.info("Conexión MQ de streaming establecida");
+            }
+            return connection;
+        }
+    }
+
+    int connectionGeneration() {
+        synchronized (connectionMonitor) {
+            return connectionGeneration;
+        }
+    }
+
+    /**
+     * Descarta la conexión rota para que el siguiente consumidor que la pida reconecte
+     */
+    void connectionFailed(int generation, Exception cause) {
+        synchronized (connectionMonitor) {
+            if (generation != connectionGeneration || connection == null) {
+                return;
+            }
+            logger.warn("Conexión MQ de streaming perdida, se reconectará: {}", cause.getMessage());
+            closeConnection();
+        }
+    }
+
+    private void closeConnection() {
+        synchronized (connectionMonitor) {
+            if (connection == null) {
+                return;
+            }
+            try {
+                connection.close();
+            } catch (JMSException e) {
+                logger.debug("Error cerrando conexión MQ: {}", e.getMessage());
+            } finally {
+                connection = null;
+            }
+        }
+    }
+
+    private void checkpoint() {
+        try {
+            if (dedupEnabled) {
+                dedupFilter.flush();
+            }
+            if (segmentExportEnabled) {
+                segmentWriter.flush();
+            }
+            auditJournal.flush();
+            archive.flush();
+
+            Map<String, String> progress = new LinkedHashMap<>();
+            progress.put("batches.committed", String.valueOf(committedBatches.sum()));
+            progress.put("batches.rolledBack", String.valueOf(rolledBackBatches.sum()));
+            progress.put("records.written", String.valueOf(writtenRecords.sum()));
+            for (String queue : queueNames) {
+                QueueStats queueStats = stats.get(queue);
+                progress.put("queue." + queue + ".received", String.valueOf(queueStats.getReceived()));
+                progress.put("queue." + queue + ".errors", String.valueOf(queueStats.getErrors()));
+                String lastMessageId = lastCommitted.get(queue).get();
+                if (lastMessageId != null) {
+                    progress.put("queue." + queue + ".lastCommittedMessageId", lastMessageId);
+                }
+            }
+            checkpoint.save(progress);
+        } catch (Exception e) {
+            logger.warn("No se pudo guardar el checkpoint de streaming: {}", e.getMessage());
+        }
+    }
+
+    PoliciaMetrics getMetrics() {
+        return metrics;
+    }
+
+    LargeMessageStore getLargeMessages() {
+        return largeMessages;
+    }
+
+    MessageArchive getArchive() {
+        return archive;
+    }
+
+    int getBatchSize() {
+        return batchSize;
+    }
+
+    long getBatchLingerMillis() {
+        return batchLingerMillis;
+    }
+
+    long getRecoveryIntervalMillis() {
+        return recoveryIntervalMillis;
+    }
+
+    public Map<String, QueueStats> getQueueStats() {
+        return Collections.unmodifiableMap(stats);
+    }
+}
@@ -0,0 +1,43 @@
+package com.policia.batch.streaming;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Archivo de progreso del modo streaming. Se escribe en un temporal y se reemplaza con un move
+ * atómico, así un corte durante el guardado deja el checkpoint anterior intacto.
+ */
+class StreamingCheckpoint {
+
+    private final Path file;
+
+    StreamingCheckpoint(String file) {
+        this.file = Paths.get(file);
+    }
+
+    synchronized void save(Map<String, String> progress) throws IOException {
+        Properties properties = new Properties();
+        properties.putAll(progress);
+        properties.setProperty("timestamp", Instant.now().toString());
+
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = directory.resolve(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            properties.store(writer, "Checkpoint de streaming");
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    Path getFile() {
+        return file;
+    }
+}
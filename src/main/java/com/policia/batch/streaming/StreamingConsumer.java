@@ -0,0 +1,157 @@
+package com.policia.batch.streaming;
+
+import com.policia.batch.exception.InvalidDataException;
+import com.policia.batch.metrics.PoliciaMetrics;
+import com.policia.batch.model.QueueMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.Session;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Consumidor de una cola en modo streaming: una sesión JMS transaccional propia sobre la conexión
+ * compartida del contenedor.
+ *
+ * Junta un micro-batch, lo entrega al contenedor y confirma la sesión solo si la escritura se
+ * confirmó. Si la sesión falla después de confirmar la base de datos, los mensajes se reentregan;
+ * con deduplicación habilitada esos reenvíos se descartan antes de parsearlos.
+ */
+class StreamingConsumer implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamingConsumer.class);
+
+    // Espera máxima del primer mensaje de un batch, para revisar periódicamente si hay que detenerse
+    private static final long IDLE_RECEIVE_TIMEOUT = 1000L;
+
+    private final PoliciaStreamingContainer container;
+    private final String queueName;
+
+    StreamingConsumer(PoliciaStreamingContainer container, String queueName) {
+        this.container = container;
+        this.queueName = queueName;
+    }
+
+    @Override
+    public void run() {
+        while (container.isRunning()) {
+            int generation = container.connectionGeneration();
+            Session session = null;
+            MessageConsumer consumer = null;
+            try {
+                Connection connection = container.connection();
+                generation = container.connectionGeneration();
+                session = connection.createSession(true, Session.SESSION_TRANSACTED);
+                consumer = session.createConsumer(session.createQueue(queueName));
+                logger.debug("Consumidor de streaming conectado a {}", queueName);
+
+                while (container.isRunning() && generation == container.connectionGeneration()) {
+                    List<QueueMessage> batch = receiveBatch(consumer);
+                    if (!batch.isEmpty() && !processBatch(session, batch)) {
+                        return;
+                    }
+                }
+            } catch (JMSException e) {
+                logger.warn("Error de MQ en streaming de {}: {}", queueName, e.getMessage());
+                container.connectionFailed(generation, e);
+                pause();
+            } finally {
+                close(consumer, session);
+            }
+        }
+    }
+
+    /**
+     * Hasta batch-size mensajes: espera el primero y luego sigue recibiendo mientras no venza el linger
+     */
+    private List<QueueMessage> receiveBatch(MessageConsumer consumer) throws JMSException {
+        List<QueueMessage> batch = new ArrayList<>(container.getBatchSize());
+        PoliciaMetrics metrics = container.getMetrics();
+        long start = metrics.start();
+        Message message = consumer.receive(IDLE_RECEIVE_TIMEOUT);
+        metrics.receive(queueName, start, message != null);
+        if (message == null) {
+            return batch;
+        }
+        add(batch, message);
+
+        long deadline = System.currentTimeMillis() + container.getBatchLingerMillis();
+        while (batch.size() < container.getBatchSize()) {
+            long remaining = deadline - System.currentTimeMillis();
+            start = metrics.start();
+            message = remaining > 0 ? consumer.receive(remaining) : consumer.receiveNoWait();
+            metrics.receive(queueName, start, message != null);
+            if (message == null) {
+                break;
+            }
+            add(batch, message);
+        }
+        return batch;
+    }
+
+    private void add(List<QueueMessage> batch, Message message) throws JMSException {
+        QueueMessage queueMessage = container.getLargeMessages().toQueueMessage(queueName, message);
+        container.getArchive().append(queueMessage, message);
+        container.recordReceived(queueName, queueMessage);
+        batch.add(queueMessage);
+    }
+
+    /**
+     * Devuelve false si el error es fatal y el consumidor debe terminar
+     */
+    private boolean processBatch(Session session, List<QueueMessage> batch) throws JMSException {
+        try {
+            container.processBatch(queueName, batch);
+        } catch (InvalidDataException e) {
+            rollback(session);
+            container.recordRolledBack(queueName, e);
+            container.fail(e);
+            return false;
+        } catch (Exception e) {
+            rollback(session);
+            container.recordRolledBack(queueName, e);
+            logger.warn("Micro-batch de {} revertido ({} mensajes), se reintentará: {}",
+                        queueName, batch.size(), e.getMessage());
+            pause();
+            return true;
+        }
+
+        session.commit();
+        container.recordCommitted(queueName, batch.get(batch.size() - 1));
+        return true;
+    }
+
+    private void rollback(Session session) {
+        try {
+            session.rollback();
+        } catch (JMSException e) {
+            logger.warn("No se pudo revertir la sesión de {}: {}", queueName, e.getMessage());
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(container.getRecoveryIntervalMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void close(MessageConsumer consumer, Session session) {
+        try {
+            if (consumer != null) {
+                consumer.close();
+            }
+            if (session != null) {
+                session.close();
+            }
+        } catch (JMSException e) {
+            logger.debug("Error cerrando sesión de streaming de {}: {}", queueName, e.getMessage());
+        }
+    }
+}
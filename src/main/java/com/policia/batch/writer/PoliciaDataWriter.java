@@ -1,36 +1,174 @@
 package com.policia.batch.writer;
 
-import com.policia.batch.model.PoliciaData;
+import com.policia.batch.enrichment.UnidadReference;
+import com.policia.batch.enrichment.UnidadReferenceCache;
+import com.policia.batch.metrics.PoliciaMetrics;
+import com.policia.batch.metrics.PoliciaMetrics.Stage;
+import com.policia.batch.model.PoliciaRecord;
+import com.policia.batch.service.PoliciaVocabulary;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.batch.item.ItemWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
- * Writer que procesa los datos validados de la cola IBM MQ
- * Por ahora solo logea - sin base de datos
+ * Writer que persiste los datos validados de la cola IBM MQ.
+ *
+ * Cada chunk se envía como un único batch JDBC de MERGE por ID de policía: una sola sentencia
+ * preparada por chunk (reutilizada por el cache de sentencias del driver) y un solo round trip.
+ * La tabla está definida en schema-policia.sql (Oracle) y schema-policia-h2.sql (local).
+ * Los textos de rango, unidad y estado se toman del vocabulario compartido al enlazar los parámetros.
+ *
+ * Con enrichment.enabled cada registro se completa con el código y la región de su unidad: las
+ * unidades distintas del chunk se resuelven juntas en {@link UnidadReferenceCache} antes del batch.
  */
 @Component
-public class PoliciaDataWriter implements ItemWriter<PoliciaData> {
-    
+public class PoliciaDataWriter implements ItemWriter<PoliciaRecord> {
+
     private static final Logger logger = LoggerFactory.getLogger(PoliciaDataWriter.class);
-    
+
+    private static final String ORACLE_MERGE =
+            "MERGE INTO %s t " +
+            "USING (SELECT ? AS ID, ? AS NOMBRE, ? AS RANGO, ? AS UNIDAD, ? AS ESTADO FROM DUAL) s " +
+            "ON (t.ID = s.ID) " +
+            "WHEN MATCHED THEN UPDATE SET t.NOMBRE = s.NOMBRE, t.RANGO = s.RANGO, t.UNIDAD = s.UNIDAD, " +
+            "t.ESTADO = s.ESTADO, t.FECHA_ACTUALIZACION = SYSTIMESTAMP " +
+            "WHEN NOT MATCHED THEN INSERT (ID, NOMBRE, RANGO, UNIDAD, ESTADO, FECHA_ACTUALIZACION) " +
+            "VALUES (s.ID, s.NOMBRE, s.RANGO, s.UNIDAD, s.ESTADO, SYSTIMESTAMP)";
+
+    private static final String H2_MERGE =
+            "MERGE INTO %s (ID, NOMBRE, RANGO, UNIDAD, ESTADO, FECHA_ACTUALIZACION) KEY (ID) " +
+            "VALUES (?, ?, ?, ?, ?, CURRENT_TIMESTAMP)";
+
+    private static final String ORACLE_MERGE_ENRICHED =
+            "MERGE INTO %s t " +
+            "USING (SELECT ? AS ID, ? AS NOMBRE, ? AS RANGO, ? AS UNIDAD, ? AS ESTADO, " +
+            "? AS CODIGO_UNIDAD, ? AS REGION FROM DUAL) s " +
+            "ON (t.ID = s.ID) " +
+            "WHEN MATCHED THEN UPDATE SET t.NOMBRE = s.NOMBRE, t.RANGO = s.RANGO, t.UNIDAD = s.UNIDAD, " +
+            "t.ESTADO = s.ESTADO, t.CODIGO_UNIDAD = s.CODIGO_UNIDAD, t.REGION = s.REGION, " +
+            "t.FECHA_ACTUALIZACION = SYSTIMESTAMP " +
+            "WHEN NOT MATCHED THEN INSERT (ID, NOMBRE, RANGO, UNIDAD, ESTADO, CODIGO_UNIDAD, REGION, " +
+            "FECHA_ACTUALIZACION) " +
+            "VALUES (s.ID, s.NOMBRE, s.RANGO, s.UNIDAD, s.ESTADO, s.CODIGO_UNIDAD, s.REGION, SYSTIMESTAMP)";
+
+    private static final String H2_MERGE_ENRICHED =
+            "MERGE INTO %s (ID, NOMBRE, RANGO, UNIDAD, ESTADO, CODIGO_UNIDAD, REGION, FECHA_ACTUALIZACION) " +
+            "KEY (ID) VALUES (?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PoliciaVocabulary vocabulary;
+    private final UnidadReferenceCache unidadReferences;
+    private final String tableName;
+    private final PoliciaMetrics metrics;
+    private volatile String mergeSql;
+
+    @Autowired
+    public PoliciaDataWriter(JdbcTemplate jdbcTemplate,
+                             PoliciaVocabulary vocabulary,
+                             UnidadReferenceCache unidadReferences,
+                             PoliciaMetrics metrics,
+                             @Value("${writer.table:POLICIA_DATA}") String tableName) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.vocabulary = vocabulary;
+        this.unidadReferences = unidadReferences;
+        this.metrics = metrics;
+        this.tableName = tableName;
+    }
+
     @Override
-    public void write(List<? extends PoliciaData> items) throws Exception {
-        logger.info("=== Procesando {} elementos de la cola IBM MQ ===", items.size());
-        
-        for (PoliciaData item : items) {
-            logger.info("✅ Datos procesados correctamente:");
-            logger.info("   ID: {}", item.getId());
-            logger.info("   Nombre: {}", item.getNombre());
-            logger.info("   Rango: {}", item.getRango());
-            logger.info("   Unidad: {}", item.getUnidad());
-            logger.info("   Estado: {}", item.getEstado());
-            logger.info("   ----------------------------------------");
+    public void write(List<? extends PoliciaRecord> items) throws Exception {
+        if (items.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean enriched = unidadReferences.isEnabled();
+        Map<String, UnidadReference> references = enriched ? resolveUnidades(items) : Collections.emptyMap();
+
+        int[] results = jdbcTemplate.batchUpdate(getMergeSql(), new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                PoliciaRecord item = items.get(i);
+                ps.setString(1, vocabulary.id(item));
+                ps.setString(2, item.getNombre());
+                ps.setString(3, vocabulary.rango(item));
+                ps.setString(4, vocabulary.unidad(item));
+                ps.setString(5, vocabulary.estado(item));
+                if (enriched) {
+                    UnidadReference reference = references.get(vocabulary.unidad(item));
+                    ps.setString(6, reference != null ? reference.getCodigoUnidad() : null);
+                    ps.setString(7, reference != null ? reference.getRegion() : null);
+                }
+            }
+
+            @Override
+            public int getBatchSize() {
+                return items.size();
+            }
+        });
+
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == Statement.EXECUTE_FAILED) {
+                throw new IllegalStateException("Falló el MERGE para policía ID: " + vocabulary.id(items.get(i)));
+            }
+        }
+
+        if (logger.isDebugEnabled()) {
+            for (PoliciaRecord item : items) {
+                logger.debug("Registro persistido: {}", vocabulary.decode(item));
+            }
+        }
+
+        metrics.stage(Stage.WRITE, start);
+        metrics.written(items.size());
+        logger.debug("{} registros persistidos en {} en {} ms",
+                   items.size(), tableName, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Datos de referencia de las unidades distintas del chunk, en una sola consulta para las que no están en caché
+     */
+    private Map<String, UnidadReference> resolveUnidades(List<? extends PoliciaRecord> items) {
+        Set<String> unidades = new HashSet<>();
+        for (PoliciaRecord item : items) {
+            String unidad = vocabulary.unidad(item);
+            if (unidad != null) {
+                unidades.add(unidad);
+            }
+        }
+        return unidadReferences.resolve(unidades);
+    }
+
+    /**
+     * Sentencia MERGE según la base de datos, resuelta en el primer write
+     */
+    private String getMergeSql() {
+        String sql = mergeSql;
+        if (sql == null) {
+            String product = jdbcTemplate.execute(
+                    (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+            boolean h2 = product != null && product.toUpperCase().contains("H2");
+            sql = unidadReferences.isEnabled()
+                  ? String.format(h2 ? H2_MERGE_ENRICHED : ORACLE_MERGE_ENRICHED, tableName)
+                  : String.format(h2 ? H2_MERGE : ORACLE_MERGE, tableName);
+            logger.info("Writer JDBC configurado para {} sobre tabla {}", product, tableName);
+            mergeSql = sql;
         }
-        
-        logger.info("=== ✅ Batch completado exitosamente - {} elementos procesados ===", items.size());
+        return sql;
     }
 }
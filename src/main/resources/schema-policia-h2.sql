@@ -0,0 +1,26 @@
+-- Tabla de datos policiales procesados (H2, ejecución local)
+-- Se crea automáticamente al iniciar con la base en memoria
+
+CREATE TABLE IF NOT EXISTS POLICIA_DATA (
+    ID VARCHAR(20) NOT NULL PRIMARY KEY,
+    NOMBRE VARCHAR(200) NOT NULL,
+    RANGO VARCHAR(30) NOT NULL,
+    UNIDAD VARCHAR(200),
+    ESTADO VARCHAR(30),
+    FECHA_ACTUALIZACION TIMESTAMP NOT NULL,
+    CODIGO_UNIDAD VARCHAR(20),
+    REGION VARCHAR(100)
+);
+
+-- Datos de referencia por unidad (enrichment.enabled)
+CREATE TABLE IF NOT EXISTS UNIDAD_REFERENCIA (
+    UNIDAD VARCHAR(200) NOT NULL PRIMARY KEY,
+    CODIGO_UNIDAD VARCHAR(20) NOT NULL,
+    REGION VARCHAR(100)
+);
+
+MERGE INTO UNIDAD_REFERENCIA KEY (UNIDAD) VALUES
+    ('Comisaría Central', 'CC-01', 'Metropolitana'),
+    ('Unidad Central Metro', 'UCM-01', 'Metropolitana'),
+    ('Unidad Norte', 'UN-02', 'Norte'),
+    ('Unidad Sur', 'US-03', 'Sur');
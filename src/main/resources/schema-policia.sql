@@ -0,0 +1,23 @@
+-- Tabla de datos policiales procesados (Oracle)
+-- Ejecutar en tu base de datos Oracle antes del primer uso
+
+CREATE TABLE POLICIA_DATA (
+    ID VARCHAR2(20) NOT NULL PRIMARY KEY,
+    NOMBRE VARCHAR2(200) NOT NULL,
+    RANGO VARCHAR2(30) NOT NULL,
+    UNIDAD VARCHAR2(200),
+    ESTADO VARCHAR2(30),
+    FECHA_ACTUALIZACION TIMESTAMP NOT NULL,
+    CODIGO_UNIDAD VARCHAR2(20),
+    REGION VARCHAR2(100)
+);
+
+-- Instalaciones existentes, antes de activar enrichment.enabled:
+-- ALTER TABLE POLICIA_DATA ADD (CODIGO_UNIDAD VARCHAR2(20), REGION VARCHAR2(100));
+
+-- Datos de referencia por unidad (enrichment.enabled), mantenidos por el área de personal
+CREATE TABLE UNIDAD_REFERENCIA (
+    UNIDAD VARCHAR2(200) NOT NULL PRIMARY KEY,
+    CODIGO_UNIDAD VARCHAR2(20) NOT NULL,
+    REGION VARCHAR2(100)
+);
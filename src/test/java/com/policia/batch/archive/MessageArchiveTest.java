@@ -0,0 +1,143 @@
+package com.policia.batch.archive;
+
+import com.policia.batch.metrics.PoliciaMetrics;
+import com.policia.batch.model.QueueMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.jms.BytesMessage;
+import javax.jms.DeliveryMode;
+import javax.jms.Message;
+import javax.jms.TextMessage;
+import java.lang.reflect.Proxy;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lo que escribe MessageArchive se lee igual con MessageArchiveReader, también con un bloque
+ * final incompleto
+ */
+class MessageArchiveTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void idaYVuelta() throws Exception {
+        MessageArchive archive = archive();
+        byte[] first = "<policia><id>POL000001</id><nombre>Ana Muñoz</nombre></policia>".getBytes(StandardCharsets.UTF_8);
+        byte[] second = "<policia><id>POL000002</id></policia>".getBytes(StandardCharsets.UTF_8);
+        archive.append(new QueueMessage("POLICIA.IN", "ID:01", first, 1_700_000_000_000L, true),
+                       jmsMessage(TextMessage.class, 1_700_000_000_000L, "CORR-1", true));
+        archive.append(new QueueMessage("POLICIA.IN.2", "ID:02", second, 1_700_000_000_500L),
+                       jmsMessage(BytesMessage.class, 1_700_000_000_500L, null, false));
+        archive.destroy();
+
+        List<Path> files = MessageArchiveReader.list(directory);
+        assertEquals(1, files.size());
+        try (MessageArchiveReader reader = MessageArchiveReader.open(files.get(0))) {
+            assertEquals(1, reader.getBlockCount());
+            assertEquals(2, reader.getMessageCount(0));
+            List<ArchivedMessage> messages = reader.readBlock(0);
+
+            ArchivedMessage text = messages.get(0);
+            assertEquals("POLICIA.IN", text.getQueueName());
+            assertEquals("ID:01", text.getMessageId());
+            assertEquals("CORR-1", text.getCorrelationId());
+            assertNull(text.getType());
+            assertEquals(1_700_000_000_000L, text.getTimestamp());
+            assertEquals(4, text.getPriority());
+            assertEquals(DeliveryMode.PERSISTENT, text.getDeliveryMode());
+            assertTrue(text.isRedelivered());
+            assertTrue(text.isText());
+            assertEquals(Map.of("JMSXDeliveryCount", "1", "JMSXAppID", "SIIAP.EOL"), text.getProperties());
+            assertArrayEquals(first, text.getPayload());
+
+            QueueMessage replayed = text.toQueueMessage();
+            assertTrue(replayed.isText());
+            assertEquals("ID:01", replayed.getMessageId());
+            assertEquals(first.length, replayed.getLength());
+
+            ArchivedMessage bytes = messages.get(1);
+            assertEquals("POLICIA.IN.2", bytes.getQueueName());
+            assertNull(bytes.getCorrelationId());
+            assertFalse(bytes.isRedelivered());
+            assertFalse(bytes.isText());
+            assertArrayEquals(second, bytes.getPayload());
+        }
+    }
+
+    @Test
+    void ignoraElBloqueFinalIncompleto() throws Exception {
+        MessageArchive archive = archive();
+        archive.append(new QueueMessage("Q", "ID:01", "<a/>".getBytes(StandardCharsets.UTF_8), 0L),
+                       jmsMessage(BytesMessage.class, 0L, null, false));
+        archive.flush(); // Cierra el primer bloque
+        archive.append(new QueueMessage("Q", "ID:02", "<b/>".getBytes(StandardCharsets.UTF_8), 0L),
+                       jmsMessage(BytesMessage.class, 0L, null, false));
+        archive.destroy();
+
+        Path file = MessageArchiveReader.list(directory).get(0);
+        try (MessageArchiveReader reader = MessageArchiveReader.open(file)) {
+            assertEquals(2, reader.getBlockCount());
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3); // Caída a mitad de la escritura del último bloque
+        }
+
+        try (MessageArchiveReader reader = MessageArchiveReader.open(file)) {
+            assertEquals(1, reader.getBlockCount());
+            List<String> ids = new ArrayList<>();
+            reader.forEach(0L, Long.MAX_VALUE, message -> ids.add(message.getMessageId()));
+            assertEquals(List.of("ID:01"), ids);
+        }
+    }
+
+    private MessageArchive archive() {
+        return new MessageArchive(new PoliciaMetrics(new SimpleMeterRegistry(), false, false), true,
+                                  directory.toString(), 1 << 20, 1 << 20, 1);
+    }
+
+    /**
+     * Mensaje de MQ con las cabeceras que se archivan
+     */
+    private static Message jmsMessage(Class<? extends Message> type, long timestamp, String correlationId,
+                                      boolean redelivered) {
+        return (Message) Proxy.newProxyInstance(MessageArchiveTest.class.getClassLoader(), new Class<?>[]{type},
+                                                (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getJMSTimestamp":
+                    return timestamp;
+                case "getJMSExpiration":
+                    return 0L;
+                case "getJMSPriority":
+                    return 4;
+                case "getJMSDeliveryMode":
+                    return DeliveryMode.PERSISTENT;
+                case "getJMSRedelivered":
+                    return redelivered;
+                case "getJMSCorrelationID":
+                    return correlationId;
+                case "getPropertyNames":
+                    return Collections.enumeration(List.of("JMSXDeliveryCount", "JMSXAppID"));
+                case "getObjectProperty":
+                    return "JMSXDeliveryCount".equals(args[0]) ? (Object) 1 : "SIIAP.EOL";
+                default:
+                    return null;
+            }
+        });
+    }
+}
@@ -0,0 +1,132 @@
+package com.policia.batch.audit;
+
+import com.policia.batch.model.QueueMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Lo que escribe AuditJournal se lee igual con AuditJournalReader, también con la última
+ * entrada a medio escribir o el archivo cortado
+ */
+class AuditJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void idaYVuelta() throws Exception {
+        AuditJournal journal = new AuditJournal(true, directory.toString(), 1 << 20);
+        QueueMessage first = message("POLICIA.IN", "ID:414d5120000001", "<policia>uno</policia>", 1_700_000_000_000L);
+        QueueMessage second = message("POLICIA.IN.2", "ID:414d5120000002", "<policia>dos</policia>", 0L);
+        journal.record(first, "POL000001", AuditOutcome.OK, new long[] {10, 20, 30, 40});
+        journal.record(second, null, AuditOutcome.MALFORMED, new long[] {5});
+        journal.destroy();
+
+        List<Path> files = AuditJournalReader.list(directory);
+        assertEquals(1, files.size());
+        try (AuditJournalReader reader = AuditJournalReader.open(files.get(0))) {
+            assertEquals(2, reader.getEntryCount());
+            List<String> seen = new ArrayList<>();
+            reader.forEach(entry -> {
+                seen.add(entry.getMessageId());
+                if (seen.size() == 1) {
+                    assertEquals("POLICIA.IN", entry.getQueue());
+                    assertEquals("POL000001", entry.getPoliciaId());
+                    assertEquals(AuditOutcome.OK, entry.getOutcome());
+                    assertEquals(first.getLength(), entry.getPayloadLength());
+                    assertEquals(crc(first), entry.getContentHash());
+                    assertEquals(1_700_000_000_000L, entry.getEnqueuedMillis());
+                    assertEquals(30, entry.getStageNanos(2));
+                    assertTrue(entry.getProcessedMillis() > 0);
+                } else {
+                    assertEquals("POLICIA.IN.2", entry.getQueue());
+                    assertEquals("", entry.getPoliciaId());
+                    assertEquals(AuditOutcome.MALFORMED, entry.getOutcome());
+                    assertEquals(5, entry.getStageNanos(0));
+                    assertEquals(0, entry.getStageNanos(3));
+                }
+            });
+            assertEquals(List.of("ID:414d5120000001", "ID:414d5120000002"), seen);
+        }
+    }
+
+    @Test
+    void ignoraLaEntradaSinResultado() throws Exception {
+        Path file = writeThree();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            // Caída antes de escribir el resultado de la última entrada
+            long outcome = AuditJournalFormat.HEADER_SIZE + 3L * AuditJournalFormat.ENTRY_SIZE - 1;
+            channel.write(ByteBuffer.wrap(new byte[1]), outcome);
+        }
+
+        try (AuditJournalReader reader = AuditJournalReader.open(file)) {
+            assertEquals(2, reader.getEntryCount());
+        }
+    }
+
+    @Test
+    void ignoraLaEntradaCortada() throws Exception {
+        Path file = writeThree();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(AuditJournalFormat.HEADER_SIZE + 3L * AuditJournalFormat.ENTRY_SIZE - 7);
+        }
+
+        try (AuditJournalReader reader = AuditJournalReader.open(file)) {
+            assertEquals(2, reader.getEntryCount());
+            List<String> ids = new ArrayList<>();
+            reader.forEach(entry -> ids.add(entry.getMessageId()));
+            assertEquals(List.of("ID:1", "ID:2"), ids);
+        }
+    }
+
+    @Test
+    void rotaAlLlenarElArchivo() throws Exception {
+        AuditJournal journal = new AuditJournal(true, directory.toString(),
+                AuditJournalFormat.HEADER_SIZE + 2L * AuditJournalFormat.ENTRY_SIZE);
+        for (int i = 1; i <= 3; i++) {
+            journal.record(message("Q", "ID:" + i, "<p/>", 0L), "POL00000" + i, AuditOutcome.OK, new long[0]);
+        }
+        journal.destroy();
+
+        List<Path> files = AuditJournalReader.list(directory);
+        assertEquals(2, files.size());
+        try (AuditJournalReader reader = AuditJournalReader.open(files.get(0))) {
+            assertEquals(2, reader.getEntryCount());
+        }
+        try (AuditJournalReader reader = AuditJournalReader.open(files.get(1))) {
+            assertEquals(1, reader.getEntryCount());
+            reader.forEach(entry -> assertEquals("POL000003", entry.getPoliciaId()));
+        }
+    }
+
+    private Path writeThree() throws Exception {
+        AuditJournal journal = new AuditJournal(true, directory.toString(), 1 << 16);
+        for (int i = 1; i <= 3; i++) {
+            journal.record(message("Q", "ID:" + i, "<p/>", 0L), "POL00000" + i, AuditOutcome.OK, new long[0]);
+        }
+        journal.destroy();
+        return AuditJournalReader.list(directory).get(0);
+    }
+
+    private static QueueMessage message(String queue, String messageId, String xml, long timestamp) {
+        return new QueueMessage(queue, messageId, xml.getBytes(StandardCharsets.UTF_8), timestamp);
+    }
+
+    private static int crc(QueueMessage message) {
+        CRC32C crc = new CRC32C();
+        message.forEachChunk(crc::update);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,79 @@
+package com.policia.batch.dedup;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * El bitmap se guarda al cerrar y se recupera al abrirlo con la misma configuración
+ */
+class PoliciaIdBitmapTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void conservaLosIdsAlReabrir() throws Exception {
+        Path file = directory.resolve("dedup/ids.bitmap");
+        try (PoliciaIdBitmap bitmap = PoliciaIdBitmap.open(file, 6, true)) {
+            bitmap.mark(0, 11);
+            bitmap.mark(63, 22);
+            bitmap.mark(64, 33);
+            bitmap.mark(999_999, -1);
+        }
+
+        try (PoliciaIdBitmap bitmap = PoliciaIdBitmap.open(file, 6, true)) {
+            assertEquals(4, bitmap.cardinality());
+            assertTrue(bitmap.contains(0, 11));
+            assertTrue(bitmap.contains(63, 22));
+            assertTrue(bitmap.contains(64, 33));
+            assertTrue(bitmap.contains(999_999, -1));
+            assertFalse(bitmap.contains(64, 34), "mismo ID con otro hash es una actualización");
+            assertFalse(bitmap.contains(1, 0));
+        }
+    }
+
+    @Test
+    void restaurarDeshaceLaMarca() throws Exception {
+        try (PoliciaIdBitmap bitmap = PoliciaIdBitmap.open(directory.resolve("ids.bitmap"), 4, true)) {
+            long first = bitmap.mark(42, 7);
+            assertEquals(0L, first);
+            long second = bitmap.mark(42, 8);
+            assertEquals(PoliciaIdBitmap.SEEN | 7, second);
+
+            bitmap.restore(42, second);
+            assertTrue(bitmap.contains(42, 7));
+            bitmap.restore(42, first);
+            assertFalse(bitmap.contains(42, 7));
+            assertEquals(0, bitmap.cardinality());
+        }
+    }
+
+    @Test
+    void sinHashSoloImportaElId() throws Exception {
+        Path file = directory.resolve("ids.bitmap");
+        try (PoliciaIdBitmap bitmap = PoliciaIdBitmap.open(file, 3, false)) {
+            bitmap.mark(5, 1);
+        }
+        try (PoliciaIdBitmap bitmap = PoliciaIdBitmap.open(file, 3, false)) {
+            assertTrue(bitmap.contains(5, 2));
+        }
+    }
+
+    @Test
+    void otraConfiguracionEmpiezaDeCero() throws Exception {
+        Path file = directory.resolve("ids.bitmap");
+        try (PoliciaIdBitmap bitmap = PoliciaIdBitmap.open(file, 4, true)) {
+            bitmap.mark(5, 1);
+        }
+        try (PoliciaIdBitmap bitmap = PoliciaIdBitmap.open(file, 4, false)) {
+            assertEquals(0, bitmap.cardinality());
+            assertFalse(bitmap.contains(5, 1));
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.policia.batch.export;
+
+import com.policia.batch.metrics.PoliciaMetrics;
+import com.policia.batch.model.PoliciaData;
+import com.policia.batch.model.PoliciaRecord;
+import com.policia.batch.service.PoliciaRuleEngine;
+import com.policia.batch.service.PoliciaVocabulary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Lo que escribe PoliciaSegmentWriter se lee igual con PoliciaSegmentReader, también con un
+ * bloque final incompleto
+ */
+class PoliciaSegmentWriterTest {
+
+    @TempDir
+    Path directory;
+
+    private PoliciaRuleEngine ruleEngine;
+    private PoliciaVocabulary vocabulary;
+    private PoliciaSegmentWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        ruleEngine = new PoliciaRuleEngine("POL", 6,
+                new String[] {"AGENTE", "CABO", "SARGENTO", "TENIENTE", "CAPITAN", "MAYOR", "CORONEL"});
+        vocabulary = new PoliciaVocabulary(ruleEngine, 4096);
+        writer = new PoliciaSegmentWriter(ruleEngine, vocabulary,
+                                          new PoliciaMetrics(new SimpleMeterRegistry(), false, false),
+                                          directory.toString(), 1 << 20);
+        writer.open(new ExecutionContext());
+    }
+
+    @Test
+    void idaYVuelta() throws Exception {
+        List<PoliciaData> first = Arrays.asList(
+                new PoliciaData("POL000001", "Ana Muñoz", "CABO", "NORTE", "ACTIVO"),
+                new PoliciaData("POL000002", "Luis Peña", "AGENTE", "SUR", "ACTIVO"));
+        List<PoliciaData> second = Arrays.asList(
+                new PoliciaData("POL999999", "", "CORONEL", "NORTE", "RETIRADO"),
+                new PoliciaData("POL000002", "Luis Peña", "SARGENTO", "CENTRO", "ACTIVO"));
+        writer.write(encode(first));
+        writer.write(encode(second));
+        writer.close();
+
+        List<Path> segments = PoliciaSegmentReader.list(directory);
+        assertEquals(1, segments.size());
+        try (PoliciaSegmentReader segment = PoliciaSegmentReader.open(segments.get(0))) {
+            assertEquals(2, segment.getBlockCount());
+            assertEquals("POL", segment.getIdPrefix());
+            assertEquals(6, segment.getIdDigits());
+
+            List<PoliciaData> expected = new ArrayList<>(first);
+            expected.addAll(second);
+            assertRecords(expected, segment);
+        }
+    }
+
+    @Test
+    void ignoraElBloqueFinalIncompleto() throws Exception {
+        List<PoliciaData> first = Arrays.asList(new PoliciaData("POL000010", "Eva", "MAYOR", "ESTE", "ACTIVO"));
+        writer.write(encode(first));
+        writer.write(encode(Arrays.asList(new PoliciaData("POL000011", "Leo", "CABO", "OESTE", "LICENCIA"))));
+        writer.close();
+
+        Path file = PoliciaSegmentReader.list(directory).get(0);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3); // Caída a mitad de la escritura del último bloque
+        }
+
+        try (PoliciaSegmentReader segment = PoliciaSegmentReader.open(file)) {
+            assertEquals(1, segment.getBlockCount());
+            assertRecords(first, segment);
+        }
+    }
+
+    @Test
+    void rotaAlSuperarElTamanoMaximo() throws Exception {
+        PoliciaSegmentWriter small = new PoliciaSegmentWriter(ruleEngine, vocabulary,
+                new PoliciaMetrics(new SimpleMeterRegistry(), false, false), directory.toString(), 1);
+        small.open(new ExecutionContext());
+        for (int i = 1; i <= 3; i++) {
+            small.write(encode(Arrays.asList(new PoliciaData(String.format("POL%06d", i), "N" + i, "CABO", "U", "E"))));
+        }
+        small.close();
+
+        List<Path> segments = PoliciaSegmentReader.list(directory);
+        assertEquals(3, segments.size());
+        for (int i = 0; i < segments.size(); i++) {
+            try (PoliciaSegmentReader segment = PoliciaSegmentReader.open(segments.get(i))) {
+                assertRecords(Arrays.asList(new PoliciaData(String.format("POL%06d", i + 1), "N" + (i + 1),
+                                                            "CABO", "U", "E")), segment);
+            }
+        }
+    }
+
+    private List<PoliciaRecord> encode(List<PoliciaData> data) {
+        List<PoliciaRecord> records = new ArrayList<>();
+        for (PoliciaData policiaData : data) {
+            records.add(vocabulary.encode(policiaData));
+        }
+        return records;
+    }
+
+    private static void assertRecords(List<PoliciaData> expected, PoliciaSegmentReader segment) {
+        assertEquals(expected.size(), segment.getRecordCount());
+        List<PoliciaData> actual = new ArrayList<>();
+        segment.forEach(record -> actual.add(record.toPoliciaData()));
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getId(), actual.get(i).getId(), "id " + i);
+            assertEquals(expected.get(i).getNombre(), actual.get(i).getNombre(), "nombre " + i);
+            assertEquals(expected.get(i).getRango(), actual.get(i).getRango(), "rango " + i);
+            assertEquals(expected.get(i).getUnidad(), actual.get(i).getUnidad(), "unidad " + i);
+            assertEquals(expected.get(i).getEstado(), actual.get(i).getEstado(), "estado " + i);
+        }
+    }
+}
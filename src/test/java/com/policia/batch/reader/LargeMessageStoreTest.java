@@ -0,0 +1,81 @@
+package com.policia.batch.reader;
+
+import com.policia.batch.model.QueueMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.jms.Message;
+import javax.jms.TextMessage;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Un TextMessage grande se vuelca en UTF-8 y su inicio no corta un par suplente
+ */
+class LargeMessageStoreTest {
+
+    private static final int HEAD_CHARS = LargeMessageStore.HEAD_BYTES / 3;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void noCortaUnParSuplenteEnElInicio() throws Exception {
+        // El emoji ocupa los caracteres HEAD_CHARS - 1 y HEAD_CHARS: el corte caería entre los dos
+        String text = "a".repeat(HEAD_CHARS - 1) + "🚓" + "ñ".repeat(2000);
+        QueueMessage message = store().toQueueMessage("POLICIA.IN", textMessage(text));
+
+        assertTrue(message.isSpilled());
+        assertTrue(message.isText());
+        byte[] expected = text.getBytes(StandardCharsets.UTF_8);
+        assertEquals(expected.length, message.getLength());
+        assertArrayEquals(expected, Files.readAllBytes(message.getBodyFile()));
+        assertArrayEquals("a".repeat(HEAD_CHARS - 1).getBytes(StandardCharsets.UTF_8), message.getHead());
+    }
+
+    @Test
+    void elInicioEsElPrefijoEnUtf8() throws Exception {
+        String text = "<policia><nombre>Ana Muñoz</nombre>" + "é".repeat(5000) + "</policia>";
+        QueueMessage message = store().toQueueMessage("POLICIA.IN", textMessage(text));
+
+        assertTrue(message.isSpilled());
+        assertArrayEquals(text.substring(0, HEAD_CHARS).getBytes(StandardCharsets.UTF_8), message.getHead());
+        assertArrayEquals(text.getBytes(StandardCharsets.UTF_8), Files.readAllBytes(message.getBodyFile()));
+    }
+
+    @Test
+    void noVuelcaUnMensajeChico() throws Exception {
+        QueueMessage message = store().toQueueMessage("POLICIA.IN", textMessage("<policia>ñ</policia>"));
+
+        assertFalse(message.isSpilled());
+        assertTrue(message.isText());
+        assertArrayEquals("<policia>ñ</policia>".getBytes(StandardCharsets.UTF_8), message.getPayload());
+    }
+
+    private LargeMessageStore store() {
+        return new LargeMessageStore(1024, directory.toString(), 24);
+    }
+
+    private static Message textMessage(String text) {
+        return (Message) Proxy.newProxyInstance(LargeMessageStoreTest.class.getClassLoader(),
+                                                new Class<?>[]{TextMessage.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getText":
+                    return text;
+                case "getJMSMessageID":
+                    return "ID:414d5120000001";
+                case "getJMSTimestamp":
+                    return 0L;
+                default:
+                    return null;
+            }
+        });
+    }
+}
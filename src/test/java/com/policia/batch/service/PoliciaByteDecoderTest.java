@@ -0,0 +1,104 @@
+package com.policia.batch.service;
+
+import com.policia.batch.exception.MalformedXmlException;
+import com.policia.batch.metrics.PoliciaMetrics;
+import com.policia.batch.model.PoliciaData;
+import com.policia.batch.model.QueueMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * La ruta rápida del decodificador y el fallback StAX deben dar el mismo PoliciaData que el
+ * parser StAX sobre el texto original
+ */
+class PoliciaByteDecoderTest {
+
+    private static final String CANONICAL = "<policia-data><id>POL000123</id><nombre>Ana Muñoz</nombre>"
+            + "<rango>CABO</rango><unidad>UNIDAD-NORTE</unidad><estado>ACTIVO</estado></policia-data>";
+
+    private final PoliciaXmlParser parser = new PoliciaXmlParser();
+    private final PoliciaByteDecoder decoder =
+            new PoliciaByteDecoder(parser, new PoliciaMetrics(new SimpleMeterRegistry(), false, false));
+
+    @Test
+    void formatoCanonico() {
+        assertSameAsParser(CANONICAL);
+        assertSameAsParser("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n" + CANONICAL);
+    }
+
+    @Test
+    void prefijosBomYEspacios() {
+        assertSameAsParser(CANONICAL, "Trx:" + CANONICAL);
+        assertSameAsParser(CANONICAL, "  MSG: \n" + CANONICAL + "\n");
+        assertSameAsParser(CANONICAL, "\uFEFF" + CANONICAL);
+        assertSameAsParser(CANONICAL, "basura antes del XML " + CANONICAL);
+    }
+
+    @Test
+    void entidadesYCdata() {
+        assertSameAsParser("<policia-data><id>POL000123</id><nombre>P&amp;Q &#241;</nombre><rango>CABO</rango>"
+                           + "<unidad><![CDATA[<NORTE>]]></unidad><estado>ACTIVO</estado></policia-data>");
+        assertSameAsParser("<policia-data><!-- comentario --><id>POL000123</id><nombre>Ana</nombre>"
+                           + "<rango>CABO</rango><unidad>U</unidad><estado>ACTIVO</estado></policia-data>");
+    }
+
+    @Test
+    void declaracionesQueVanAlParser() {
+        // Versión distinta de 1.0 o standalone en mayúsculas: los decide el parser StAX
+        assertSameAsParser("<?xml version=\"1.1\"?>" + CANONICAL);
+        String standalone = "<?xml version=\"1.0\" standalone=\"YES\"?>" + CANONICAL;
+        assertThrows(MalformedXmlException.class, () -> parser.parse(standalone));
+        assertThrows(MalformedXmlException.class, () -> decoder.decode(standalone.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void codificacionDeclaradaEnBytes() {
+        String xml = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>" + CANONICAL;
+        PoliciaData decoded = decoder.decode(xml.getBytes(StandardCharsets.ISO_8859_1));
+        assertSame(parser.parse(xml), decoded);
+        assertEquals("Ana Muñoz", decoded.getNombre());
+    }
+
+    @Test
+    void textMessageIgnoraLaCodificacionDeclarada() {
+        // El texto de un TextMessage ya está en UTF-8 aunque el XML declare otra codificación
+        String xml = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>" + CANONICAL;
+        QueueMessage message = new QueueMessage("COLA", "ID:1", xml.getBytes(StandardCharsets.UTF_8), 0L, true);
+        PoliciaData decoded = decoder.decode(message);
+        assertSame(parser.parse(xml), decoded);
+        assertEquals("Ana Muñoz", decoded.getNombre());
+    }
+
+    @Test
+    void malFormadoFallaIgual() {
+        String xml = "<policia-data><id>POL000123</id><nombre>Ana</policia-data>";
+        assertThrows(MalformedXmlException.class, () -> parser.parse(xml));
+        assertThrows(MalformedXmlException.class, () -> decoder.decode(xml.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private void assertSameAsParser(String xml) {
+        assertSameAsParser(xml, xml);
+    }
+
+    private void assertSameAsParser(String expectedXml, String payload) {
+        assertSame(parser.parse(expectedXml), decode(payload, StandardCharsets.UTF_8));
+    }
+
+    private PoliciaData decode(String payload, Charset charset) {
+        return decoder.decode(payload.getBytes(charset));
+    }
+
+    private static void assertSame(PoliciaData expected, PoliciaData actual) {
+        assertEquals(expected.getId(), actual.getId(), "id");
+        assertEquals(expected.getNombre(), actual.getNombre(), "nombre");
+        assertEquals(expected.getRango(), actual.getRango(), "rango");
+        assertEquals(expected.getUnidad(), actual.getUnidad(), "unidad");
+        assertEquals(expected.getEstado(), actual.getEstado(), "estado");
+    }
+}